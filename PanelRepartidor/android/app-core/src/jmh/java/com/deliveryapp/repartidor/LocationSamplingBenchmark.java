@@ -0,0 +1,72 @@
+package com.deliveryapp.repartidor;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Un turno de ~75 min (ShiftTrace) con el muestreo fijo anterior (GPS cada 5 s / 5 m) y con el
+ * gobernador. El tiempo es lo que cuesta reproducir el turno en la CPU; lo que importa está en
+ * los contadores del turno: posiciones por hora y segundos con el GPS o la CPU despiertos por
+ * hora, según el costo estimado de ShiftTrace.
+ *
+ * ./gradlew :app-core:jmh -Pjmh.includes=LocationSampling
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LocationSamplingBenchmark {
+	private ShiftTrace trace;
+	
+	/**
+	 * Resultado del último turno reproducido (se reinicia en cada invocación)
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Shift {
+		public long fixesPerHour;
+		public long awakeSecondsPerHour;
+		
+		@Setup(Level.Invocation)
+		public void reset() {
+			fixesPerHour = 0;
+			awakeSecondsPerHour = 0;
+		}
+		
+		int record(ShiftTrace.Replay replay) {
+			fixesPerHour = Math.round(replay.fixesPerHour());
+			awakeSecondsPerHour = replay.awakeMs * 3_600 / replay.durationMs;
+			return replay.fixes;
+		}
+	}
+	
+	@Setup
+	public void setUp() {
+		trace = ShiftTrace.shift();
+	}
+	
+	@Benchmark
+	public int fixedSampling(Shift shift) {
+		return shift.record(trace.replay(null, 100));
+	}
+	
+	@Benchmark
+	public int governed(Shift shift) {
+		return shift.record(trace.replay(new LocationSamplingGovernor(), 100));
+	}
+	
+	/**
+	 * Batería baja: todo más espaciado salvo la llegada al destino
+	 */
+	@Benchmark
+	public int governedLowBattery(Shift shift) {
+		return shift.record(trace.replay(new LocationSamplingGovernor(), 15));
+	}
+}
@@ -0,0 +1,52 @@
+package com.deliveryapp.repartidor;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Costo de recalcular distancia restante y ETA con cada posición GPS sobre una ruta larga
+ * (~2000 vértices, lo que devuelve OSRM para un tramo de varios kilómetros con overview=full).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RouteProgressBenchmark {
+	private static final int VERTICES = 2000;
+	
+	private RouteProgress progress;
+	private int step;
+	
+	@Setup
+	public void setUp() {
+		int[] coords = new int[VERTICES * 2];
+		for (int i = 0; i < VERTICES; i++) {
+			// Zigzag hacia el noreste, ~10 m por tramo
+			coords[2 * i] = -33_450_000 + i * 70;
+			coords[2 * i + 1] = -70_600_000 + i * 60 + (i % 2) * 30;
+		}
+		progress = new RouteProgress(coords, 20 * 60);
+	}
+	
+	/**
+	 * Posición que avanza por la ruta (búsqueda cerca del último tramo)
+	 */
+	@Benchmark
+	public double followRoute() {
+		int i = step++ % VERTICES;
+		return progress.update((-33_450_000 + i * 70) / 1e6, (-70_600_000 + i * 60) / 1e6).remainingSeconds;
+	}
+	
+	/**
+	 * Posición fuera del corredor: recorre toda la polilínea
+	 */
+	@Benchmark
+	public boolean offRoute() {
+		return progress.update(-33.44, -70.61).needsReroute;
+	}
+}
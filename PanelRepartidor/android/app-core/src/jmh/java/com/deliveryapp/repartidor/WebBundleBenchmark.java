@@ -0,0 +1,193 @@
+package com.deliveryapp.repartidor;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Lo que cuesta entregar todo el bundle web al WebView en un arranque en frío: desde el pack
+ * mapeado (WebBundleServer) contra el camino de Capacitor, que abre cada archivo de los assets
+ * del APK con AssetManager. El APK es un zip y aapt comprime los .js, .css y .json, así que
+ * cada apertura los vuelve a inflar; aquí ese camino es un ZipFile con las mismas entradas
+ * (comprimidas las de texto, guardadas tal cual las imágenes y fuentes).
+ *
+ * El bundle es sintético, con la forma del dist de Vite de la app (~1,5 MB de JS y CSS). No
+ * incluye lo que hace el WebView con los bytes, que es igual en los dos caminos.
+ *
+ * ./gradlew :app-core:jmh -Pjmh.includes=WebBundle
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WebBundleBenchmark {
+	private File directory;
+	private File packFile;
+	private ZipFile apk;
+	private WebBundlePack pack;
+	private final List<String> paths = new ArrayList<>();
+	// El WebView lee el InputStream de a bloques
+	private final byte[] buffer = new byte[8192];
+	
+	@Setup
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("web-bundle").toFile();
+		File dist = new File(directory, "public");
+		Random random = new Random(11);
+		write(dist, "assets/index-4b1f9a.js", script(random, 820 * 1024));
+		write(dist, "assets/vendor-react-9c2e.js", script(random, 260 * 1024));
+		write(dist, "assets/vendor-supabase-1d7a.js", script(random, 180 * 1024));
+		write(dist, "assets/leaflet-55e0.js", script(random, 150 * 1024));
+		write(dist, "assets/index-a81c.css", script(random, 90 * 1024));
+		write(dist, "manifest.json", "{\"name\":\"Repartidor\",\"display\":\"standalone\"}".getBytes(StandardCharsets.UTF_8));
+		for (int i = 0; i < 8; i++) {
+			write(dist, "assets/icon-" + i + ".png", binary(random, 6 * 1024));
+		}
+		write(dist, "assets/inter-3e4f.woff2", binary(random, 48 * 1024));
+		paths.addAll(WebBundlePacker.packedPaths(dist));
+		
+		packFile = new File(directory, "web-bundle.pack");
+		WebBundlePacker.pack(dist, packFile);
+		pack = openPack();
+		
+		File apkFile = new File(directory, "app.apk");
+		try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(apkFile))) {
+			for (String path : paths) {
+				byte[] data = Files.readAllBytes(new File(dist, path).toPath());
+				ZipEntry entry = new ZipEntry("assets/public/" + path);
+				if (path.endsWith(".png") || path.endsWith(".woff2")) {
+					// Ya comprimidos: aapt los guarda sin comprimir
+					CRC32 crc = new CRC32();
+					crc.update(data);
+					entry.setMethod(ZipEntry.STORED);
+					entry.setSize(data.length);
+					entry.setCrc(crc.getValue());
+				}
+				zip.putNextEntry(entry);
+				zip.write(data);
+				zip.closeEntry();
+			}
+		}
+		apk = new ZipFile(apkFile);
+	}
+	
+	@TearDown
+	public void tearDown() throws IOException {
+		apk.close();
+		delete(directory);
+	}
+	
+	/**
+	 * Camino de Capacitor: abrir cada asset del APK (inflándolo) y leerlo entero
+	 */
+	@Benchmark
+	public long assetPath() throws IOException {
+		long total = 0;
+		for (String path : paths) {
+			try (InputStream in = apk.getInputStream(apk.getEntry("assets/public/" + path))) {
+				total += drain(in);
+			}
+		}
+		return total;
+	}
+	
+	/**
+	 * WebBundleServer: buscar cada archivo en el índice y leerlo de la vista mapeada
+	 */
+	@Benchmark
+	public long mappedPack() throws IOException {
+		long total = 0;
+		for (String path : paths) {
+			try (InputStream in = pack.find(path).open()) {
+				total += drain(in);
+			}
+		}
+		return total;
+	}
+	
+	/**
+	 * Costo fijo del pack, una vez por proceso: mapearlo y leer el índice
+	 */
+	@Benchmark
+	public int openMappedPack() throws IOException {
+		return openPack().size();
+	}
+	
+	private WebBundlePack openPack() throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(packFile, "r")) {
+			ByteBuffer mapped = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+			return WebBundlePack.read(mapped);
+		}
+	}
+	
+	private long drain(InputStream in) throws IOException {
+		long total = 0;
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			total += read;
+		}
+		return total;
+	}
+	
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+	
+	private static void write(File root, String path, byte[] data) throws IOException {
+		File file = new File(root, path);
+		file.getParentFile().mkdirs();
+		Files.write(file.toPath(), data);
+	}
+	
+	/**
+	 * Texto con la compresibilidad de un bundle minificado (identificadores y literales repetidos)
+	 */
+	private static byte[] script(Random random, int bytes) {
+		String[] tokens = { "function", "return", "const ", "let ", "=>", "this.", "null", "void 0", "&&",
+			"useState(", "supabase.from(\"orders\")", ".select(", "e.target", "Object.assign(", ";", "{", "}",
+			"(", ")", ",", "\"Pendiente\"", "createElement(", "props.", "0x1f", "!0", "!1" };
+		StringBuilder text = new StringBuilder(bytes + 32);
+		while (text.length() < bytes) {
+			if (random.nextInt(5) == 0) {
+				// Nombres minificados
+				text.append((char) ('a' + random.nextInt(26))).append((char) ('A' + random.nextInt(26)));
+			} else {
+				text.append(tokens[random.nextInt(tokens.length)]);
+			}
+		}
+		return text.substring(0, bytes).getBytes(StandardCharsets.UTF_8);
+	}
+	
+	private static byte[] binary(Random random, int bytes) {
+		byte[] data = new byte[bytes];
+		random.nextBytes(data);
+		return data;
+	}
+}
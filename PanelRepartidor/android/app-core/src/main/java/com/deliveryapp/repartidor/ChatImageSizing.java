@@ -0,0 +1,89 @@
+package com.deliveryapp.repartidor;
+
+import java.io.IOException;
+
+/**
+ * Cuentas del pipeline de fotos del chat, sin dependencias de Android: cuánto submuestrear al
+ * decodificar, a qué tamaño escalar y con qué calidad JPEG entra la foto en el presupuesto de bytes.
+ *
+ * La foto de la cámara (12 MP o más) nunca se decodifica completa: BitmapFactory la lee con
+ * inSampleSize (potencia de 2) al menor tamaño que no baja del final, y de ahí se escala una
+ * sola vez al lado largo pedido.
+ */
+public final class ChatImageSizing {
+	// Rango de calidades JPEG en el que se busca la que entra en el presupuesto
+	static final int MIN_QUALITY = 40;
+	static final int MAX_QUALITY = 85;
+	private static final int QUALITY_STEP = 5;
+	
+	/**
+	 * Codifica la imagen ya escalada con una calidad JPEG
+	 */
+	public interface Encoder {
+		byte[] encode(int quality) throws IOException;
+	}
+	
+	private ChatImageSizing() {
+	}
+	
+	/**
+	 * Mayor potencia de 2 que deja el lado largo en al menos targetLongEdge (el escalado final
+	 * siempre reduce, nunca agranda)
+	 */
+	public static int sampleSize(int width, int height, int targetLongEdge) {
+		int longEdge = Math.max(width, height);
+		int sample = 1;
+		while (longEdge / (sample * 2) >= targetLongEdge) {
+			sample *= 2;
+		}
+		return sample;
+	}
+	
+	/**
+	 * Tamaño final conservando la proporción; nunca agranda
+	 * @return { ancho, alto }
+	 */
+	public static int[] scaledSize(int width, int height, int targetLongEdge) {
+		int longEdge = Math.max(width, height);
+		if (longEdge <= targetLongEdge) {
+			return new int[] { width, height };
+		}
+		double scale = (double) targetLongEdge / longEdge;
+		return new int[] {
+			Math.max(1, (int) Math.round(width * scale)),
+			Math.max(1, (int) Math.round(height * scale))
+		};
+	}
+	
+	/**
+	 * Mayor calidad (de a QUALITY_STEP) cuyo resultado entra en maxBytes, por búsqueda binaria.
+	 * Si ni la mínima entra, devuelve la de calidad mínima: el presupuesto es una meta, no un límite.
+	 */
+	public static byte[] fitToBudget(Encoder encoder, int maxBytes) throws IOException {
+		byte[] best = encoder.encode(MAX_QUALITY);
+		if (best.length <= maxBytes) {
+			return best;
+		}
+		int low = MIN_QUALITY / QUALITY_STEP;
+		int high = MAX_QUALITY / QUALITY_STEP - 1;
+		byte[] smallest = null;
+		best = null;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			byte[] encoded = encoder.encode(middle * QUALITY_STEP);
+			if (encoded.length <= maxBytes) {
+				best = encoded;
+				low = middle + 1;
+			} else {
+				if (middle * QUALITY_STEP == MIN_QUALITY) {
+					smallest = encoded;
+				}
+				high = middle - 1;
+			}
+		}
+		if (best != null) {
+			return best;
+		}
+		return smallest != null ? smallest : encoder.encode(MIN_QUALITY);
+	}
+}
@@ -0,0 +1,451 @@
+package com.deliveryapp.repartidor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Copia local de los mensajes de los chats (de pedido y de soporte), para abrir un chat largo
+ * sin volver a bajar su historial.
+ *
+ * Cada chat es un archivo append-only con registros PUT (la fila de PostgREST) y READ (hasta
+ * dónde leyó el driver), con CRC, que se compacta cuando los registros superan al doble de los
+ * mensajes. En memoria los mensajes quedan ordenados por (created_at, id): las páginas se piden
+ * con un cursor (keyset) y el último mensaje es el cursor de la sincronización incremental
+ * contra Supabase. Solo se mantienen abiertos los chats usados más recientemente.
+ */
+public final class ChatMessageStore {
+	private static final Logger LOG = Logger.getLogger("ChatMessageStore");
+	private static final int MAGIC = 0x43484154; // "CHAT"
+	private static final int FORMAT_VERSION = 1;
+	private static final byte OP_PUT = 1;
+	private static final byte OP_READ = 2;
+	private static final int MAX_ROW_BYTES = 256 * 1024;
+	private static final int COMPACT_RATIO = 2;
+	private static final int COMPACT_MIN_RECORDS = 64;
+	private static final int MAX_OPEN_CHATS = 8;
+	private static final String FILE_SUFFIX = ".chat";
+	
+	/**
+	 * Posición de un mensaje en el chat: created_at (texto de PostgREST, comparable como texto)
+	 * y el id para desempatar
+	 */
+	public static final class Cursor implements Comparable<Cursor> {
+		public final String createdAt;
+		public final String id;
+		
+		public Cursor(String createdAt, String id) {
+			this.createdAt = createdAt;
+			this.id = id;
+		}
+		
+		@Override
+		public int compareTo(Cursor other) {
+			int cmp = createdAt.compareTo(other.createdAt);
+			return cmp != 0 ? cmp : compareIds(id, other.id);
+		}
+		
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof Cursor && compareTo((Cursor) other) == 0;
+		}
+		
+		@Override
+		public int hashCode() {
+			return createdAt.hashCode() * 31 + id.hashCode();
+		}
+		
+		String encode() {
+			return createdAt + '\n' + id;
+		}
+		
+		static Cursor decode(String value) {
+			int separator = value.indexOf('\n');
+			return separator > 0 ? new Cursor(value.substring(0, separator), value.substring(separator + 1)) : null;
+		}
+	}
+	
+	/**
+	 * Página de mensajes en orden cronológico
+	 */
+	public static final class Page {
+		public final List<String> rows;
+		// Hay mensajes guardados anteriores al primero de la página
+		public final boolean hasMore;
+		// Último mensaje guardado del chat (null si no hay ninguno)
+		public final Cursor latest;
+		
+		Page(List<String> rows, boolean hasMore, Cursor latest) {
+			this.rows = rows;
+			this.hasMore = hasMore;
+			this.latest = latest;
+		}
+	}
+	
+	private static final class Message {
+		final String json;
+		final String senderType;
+		// read_at ya venía con valor desde Supabase
+		final boolean read;
+		
+		Message(String json, String senderType, boolean read) {
+			this.json = json;
+			this.senderType = senderType;
+			this.read = read;
+		}
+	}
+	
+	private static final class Chat {
+		final String key;
+		final File file;
+		final TreeMap<Cursor, Message> messages = new TreeMap<>();
+		final Map<String, Cursor> byId = new HashMap<>();
+		Cursor readUpTo;
+		int records;
+		
+		Chat(String key, File file) {
+			this.key = key;
+			this.file = file;
+		}
+	}
+	
+	private final File directory;
+	private final Map<String, Chat> open = new LinkedHashMap<String, Chat>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Chat> eldest) {
+			return size() > MAX_OPEN_CHATS;
+		}
+	};
+	
+	public ChatMessageStore(File directory) {
+		this.directory = directory;
+	}
+	
+	/**
+	 * Los {@code limit} mensajes anteriores a {@code before} (o los últimos, si es null)
+	 */
+	public synchronized Page page(String chatKey, Cursor before, int limit) throws IOException {
+		Chat chat = chat(chatKey);
+		NavigableMap<Cursor, Message> older = before != null ? chat.messages.headMap(before, false) : chat.messages;
+		List<String> rows = new ArrayList<>(Math.min(limit, older.size()));
+		Iterator<Message> iterator = older.descendingMap().values().iterator();
+		while (rows.size() < limit && iterator.hasNext()) {
+			rows.add(iterator.next().json);
+		}
+		Collections.reverse(rows);
+		return new Page(rows, iterator.hasNext(), latest(chat));
+	}
+	
+	/**
+	 * Último mensaje guardado: desde ahí se piden los nuevos a Supabase
+	 */
+	public synchronized Cursor latest(String chatKey) throws IOException {
+		return latest(chat(chatKey));
+	}
+	
+	/**
+	 * Guarda filas de mensajes tal como las devuelve PostgREST. Las que ya están iguales se
+	 * ignoran; las filas sin id o created_at (temporales del WebView) no se guardan.
+	 * @return cantidad de mensajes que no estaban
+	 */
+	public synchronized int put(String chatKey, List<String> rows) throws IOException {
+		Chat chat = chat(chatKey);
+		int added = 0;
+		List<String> changed = new ArrayList<>();
+		for (String json : rows) {
+			JSONObject row;
+			try {
+				row = new JSONObject(json);
+			} catch (JSONException e) {
+				LOG.log(Level.WARNING, "⚠️ Mensaje inválido, se ignora: " + e.getMessage());
+				continue;
+			}
+			Cursor position = position(row);
+			if (position == null) {
+				continue;
+			}
+			Cursor previous = chat.byId.get(position.id);
+			if (previous != null && chat.messages.get(previous).json.equals(json)) {
+				continue;
+			}
+			if (previous == null) {
+				added++;
+			}
+			apply(chat, position, json, row);
+			changed.add(json);
+		}
+		if (!changed.isEmpty()) {
+			if (chat.records + changed.size() > COMPACT_MIN_RECORDS
+					&& chat.records + changed.size() > chat.messages.size() * COMPACT_RATIO) {
+				rewrite(chat);
+			} else {
+				append(chat, OP_PUT, changed);
+			}
+		}
+		return added;
+	}
+	
+	/**
+	 * Mensajes de la otra parte posteriores a lo último que leyó el driver (y que Supabase no
+	 * tenía ya como leídos)
+	 */
+	public synchronized int unread(String chatKey, String selfType) throws IOException {
+		Chat chat = chat(chatKey);
+		NavigableMap<Cursor, Message> unseen = chat.readUpTo != null ? chat.messages.tailMap(chat.readUpTo, false) : chat.messages;
+		int count = 0;
+		for (Message message : unseen.values()) {
+			if (!message.read && !selfType.equals(message.senderType)) {
+				count++;
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * Marca como leído todo lo guardado hasta ahora
+	 * @return cuántos mensajes estaban sin leer (si es 0 no hace falta avisar a Supabase)
+	 */
+	public synchronized int markRead(String chatKey, String selfType) throws IOException {
+		int unread = unread(chatKey, selfType);
+		Chat chat = chat(chatKey);
+		Cursor latest = latest(chat);
+		if (latest != null && !latest.equals(chat.readUpTo)) {
+			chat.readUpTo = latest;
+			append(chat, OP_READ, Collections.singletonList(latest.encode()));
+		}
+		return unread;
+	}
+	
+	public synchronized void delete(String chatKey) {
+		open.remove(chatKey);
+		File file = fileFor(chatKey);
+		if (file.exists() && !file.delete()) {
+			file.deleteOnExit();
+		}
+	}
+	
+	/**
+	 * Borra los chats que no se tocan hace más de {@code maxIdleMs} (los chats de pedido vencen
+	 * a las 24 h, así que sus archivos dejan de crecer)
+	 * @return cantidad de chats borrados
+	 */
+	public synchronized int prune(long maxIdleMs, long now) {
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return 0;
+		}
+		int removed = 0;
+		for (File file : files) {
+			if (file.getName().endsWith(FILE_SUFFIX) && now - file.lastModified() > maxIdleMs) {
+				for (Iterator<Chat> iterator = open.values().iterator(); iterator.hasNext(); ) {
+					if (iterator.next().file.equals(file)) {
+						iterator.remove();
+					}
+				}
+				if (file.delete()) {
+					removed++;
+				}
+			}
+		}
+		return removed;
+	}
+	
+	private static Cursor latest(Chat chat) {
+		return chat.messages.isEmpty() ? null : chat.messages.lastKey();
+	}
+	
+	private static Cursor position(JSONObject row) {
+		Object id = row.opt("id");
+		String createdAt = row.optString("created_at", null);
+		if (id == null || id == JSONObject.NULL || createdAt == null || String.valueOf(id).startsWith("temp-")) {
+			return null;
+		}
+		return new Cursor(createdAt, String.valueOf(id));
+	}
+	
+	private static void apply(Chat chat, Cursor position, String json, JSONObject row) {
+		Cursor previous = chat.byId.put(position.id, position);
+		if (previous != null) {
+			chat.messages.remove(previous);
+		}
+		chat.messages.put(position, new Message(json, row.optString("sender_type", ""), !row.isNull("read_at")));
+	}
+	
+	private Chat chat(String chatKey) throws IOException {
+		Chat chat = open.get(chatKey);
+		if (chat == null) {
+			chat = new Chat(chatKey, fileFor(chatKey));
+			load(chat);
+			open.put(chatKey, chat);
+		}
+		return chat;
+	}
+	
+	private File fileFor(String chatKey) {
+		return new File(directory, chatKey.replaceAll("[^A-Za-z0-9_-]", "_") + FILE_SUFFIX);
+	}
+	
+	private void load(Chat chat) throws IOException {
+		if (!chat.file.exists()) {
+			return;
+		}
+		long valid = 0;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(chat.file)))) {
+			if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !chat.key.equals(in.readUTF())) {
+				// Formato desconocido u otro chat con el mismo nombre de archivo: se empieza de cero
+				LOG.log(Level.WARNING, "⚠️ Archivo de chat inválido, se descarta: " + chat.file.getName());
+				chat.file.delete();
+				return;
+			}
+			valid = 4 + 4 + 2 + chat.key.getBytes(StandardCharsets.UTF_8).length;
+			
+			while (true) {
+				byte op;
+				byte[] payload;
+				try {
+					op = in.readByte();
+					int length = in.readInt();
+					if (length < 0 || length > MAX_ROW_BYTES) {
+						break;
+					}
+					payload = new byte[length];
+					in.readFully(payload);
+					if (in.readInt() != crc(op, payload)) {
+						break;
+					}
+				} catch (EOFException e) {
+					break;
+				}
+				valid += 1 + 4 + payload.length + 4;
+				chat.records++;
+				String value = new String(payload, StandardCharsets.UTF_8);
+				if (op == OP_READ) {
+					chat.readUpTo = Cursor.decode(value);
+				} else if (op == OP_PUT) {
+					try {
+						JSONObject row = new JSONObject(value);
+						Cursor position = position(row);
+						if (position != null) {
+							apply(chat, position, value, row);
+						}
+					} catch (JSONException e) {
+						// El CRC coincide, así que lo escribió otra versión: se ignora el registro
+					}
+				}
+			}
+		} catch (EOFException e) {
+			// Cabecera incompleta: chat vacío
+			chat.messages.clear();
+			chat.byId.clear();
+			chat.records = 0;
+			chat.file.delete();
+			return;
+		}
+		if (valid < chat.file.length()) {
+			// Registro final interrumpido: descartarlo para que los siguientes se puedan leer
+			try (RandomAccessFile raf = new RandomAccessFile(chat.file, "rw")) {
+				raf.setLength(valid);
+			}
+		}
+	}
+	
+	private void rewrite(Chat chat) throws IOException {
+		if (!directory.exists() && !directory.mkdirs()) {
+			throw new IOException("No se pudo crear " + directory);
+		}
+		File tmp = new File(chat.file.getPath() + ".tmp");
+		chat.records = 0;
+		try (FileOutputStream fileOut = new FileOutputStream(tmp, false);
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut))) {
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeUTF(chat.key);
+			for (Message message : chat.messages.values()) {
+				writeRecord(chat, out, OP_PUT, message.json);
+			}
+			if (chat.readUpTo != null) {
+				writeRecord(chat, out, OP_READ, chat.readUpTo.encode());
+			}
+			out.flush();
+			fileOut.getFD().sync();
+		}
+		if (!tmp.renameTo(chat.file)) {
+			throw new IOException("No se pudo guardar el chat " + chat.file);
+		}
+	}
+	
+	private void append(Chat chat, byte op, List<String> values) throws IOException {
+		if (!chat.file.exists()) {
+			rewrite(chat);
+			return;
+		}
+		try (FileOutputStream fileOut = new FileOutputStream(chat.file, true);
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut))) {
+			for (String value : values) {
+				writeRecord(chat, out, op, value);
+			}
+			out.flush();
+			fileOut.getFD().sync();
+		}
+	}
+	
+	private static void writeRecord(Chat chat, DataOutputStream out, byte op, String value) throws IOException {
+		byte[] payload = value.getBytes(StandardCharsets.UTF_8);
+		out.writeByte(op);
+		out.writeInt(payload.length);
+		out.write(payload);
+		out.writeInt(crc(op, payload));
+		chat.records++;
+	}
+	
+	private static int crc(byte op, byte[] payload) {
+		CRC32 crc = new CRC32();
+		crc.update(op);
+		crc.update(payload, 0, payload.length);
+		return (int) crc.getValue();
+	}
+	
+	/**
+	 * Los ids de mensajes pueden ser bigint o uuid: los numéricos se comparan por valor
+	 */
+	private static int compareIds(String a, String b) {
+		if (isDigits(a) && isDigits(b) && a.length() != b.length()) {
+			return a.length() - b.length();
+		}
+		return a.compareTo(b);
+	}
+	
+	private static boolean isDigits(String value) {
+		if (value.isEmpty()) {
+			return false;
+		}
+		for (int i = 0; i < value.length(); i++) {
+			if (!Character.isDigit(value.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,252 @@
+package com.deliveryapp.repartidor;
+
+/**
+ * Decide cada cuánto y con qué precisión pedir ubicaciones, según lo que el tracking necesita
+ * en cada momento: con un pedido en curso y en movimiento, GPS seguido (y más seguido cerca del
+ * destino); parado esperando en un local o sin pedido, la red y cada varios segundos. Con poca
+ * batería se relaja todo salvo la llegada al destino.
+ *
+ * Se alimenta de las posiciones que recibe (velocidad y desplazamiento), del estado del pedido
+ * que informa la app y de la batería. Solo sube la frecuencia al instante: para bajarla, el
+ * perfil nuevo tiene que sostenerse un rato, así un semáforo no hace saltar de perfil.
+ */
+public final class LocationSamplingGovernor {
+	/**
+	 * Estado del pedido del driver (el más avanzado si tiene varios)
+	 */
+	public enum Phase {
+		IDLE, ASSIGNED, TO_PICKUP, TO_DELIVERY;
+		
+		/**
+		 * Valor guardado por la WebView ("idle", "assigned", "to_pickup", "to_delivery")
+		 */
+		public static Phase parse(String value) {
+			if (value != null) {
+				for (Phase phase : values()) {
+					if (phase.name().equalsIgnoreCase(value.trim())) {
+						return phase;
+					}
+				}
+			}
+			return IDLE;
+		}
+		
+		boolean onTrip() {
+			return this == TO_PICKUP || this == TO_DELIVERY;
+		}
+	}
+	
+	/**
+	 * De más a menos consumo
+	 */
+	public enum Priority {
+		HIGH_ACCURACY, BALANCED, LOW_POWER
+	}
+	
+	public static final class Profile {
+		public final String name;
+		public final Priority priority;
+		public final long intervalMs;
+		public final float minDistanceMeters;
+		
+		Profile(String name, Priority priority, long intervalMs, float minDistanceMeters) {
+			this.name = name;
+			this.priority = priority;
+			this.intervalMs = intervalMs;
+			this.minDistanceMeters = minDistanceMeters;
+		}
+		
+		/**
+		 * Mismo perfil con menos consumo (batería baja)
+		 */
+		Profile relaxed(Priority maxPriority, int intervalFactor) {
+			Priority relaxedPriority = priority.ordinal() < maxPriority.ordinal() ? maxPriority : priority;
+			return new Profile(name + "_ahorro", relaxedPriority, intervalMs * intervalFactor, minDistanceMeters * intervalFactor);
+		}
+		
+		boolean moreDemandingThan(Profile other) {
+			return priority.ordinal() < other.priority.ordinal() || intervalMs < other.intervalMs;
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Profile)) {
+				return false;
+			}
+			Profile other = (Profile) o;
+			return name.equals(other.name) && priority == other.priority && intervalMs == other.intervalMs
+				&& minDistanceMeters == other.minDistanceMeters;
+		}
+		
+		@Override
+		public int hashCode() {
+			return name.hashCode() * 31 + (int) intervalMs;
+		}
+		
+		@Override
+		public String toString() {
+			return name + " (" + priority + ", " + intervalMs / 1000 + " s, " + (int) minDistanceMeters + " m)";
+		}
+	}
+	
+	// Llegando al local o a la entrega: la ETA y el aviso de llegada dependen de estas posiciones
+	static final Profile NEAR_DESTINATION = new Profile("near_destination", Priority.HIGH_ACCURACY, 3_000, 5);
+	// En camino con un pedido (la ruta del RouteProgress tolera 5 s entre posiciones)
+	static final Profile NAVIGATING = new Profile("navigating", Priority.HIGH_ACCURACY, 5_000, 10);
+	// Con un pedido pero parado (esperando en el local, en la puerta del cliente)
+	static final Profile WAITING = new Profile("waiting", Priority.BALANCED, 30_000, 20);
+	// Sin pedido en curso y moviéndose: solo para la cercanía de los pedidos nuevos
+	static final Profile ROAMING = new Profile("roaming", Priority.BALANCED, 20_000, 30);
+	// Sin pedido y parado
+	static final Profile PARKED = new Profile("parked", Priority.LOW_POWER, 120_000, 100);
+	
+	static final double NEAR_DESTINATION_METERS = 400;
+	// Más rápido que caminando: en moto, auto o bicicleta
+	static final float MOVING_SPEED_MPS = 2f;
+	// Parado = todas las posiciones dentro de este radio (más la precisión del fix) durante STILL_AFTER_MS
+	static final double STILL_RADIUS_METERS = 40;
+	static final long STILL_AFTER_MS = 90_000;
+	private static final float MAX_ACCURACY_SLACK_METERS = 100;
+	// Un perfil de menor consumo se aplica solo si pasó esto desde el último cambio
+	static final long DOWNGRADE_AFTER_MS = 60_000;
+	static final int LOW_BATTERY_PERCENT = 20;
+	static final int CRITICAL_BATTERY_PERCENT = 10;
+	
+	private Phase phase = Phase.IDLE;
+	private double remainingMeters = Double.NaN;
+	private int batteryPercent = 100;
+	private boolean charging;
+	
+	private boolean hasAnchor;
+	private double anchorLat;
+	private double anchorLon;
+	private long anchorTime;
+	private long lastFixTime;
+	private boolean stationary;
+	
+	private Profile current = ROAMING;
+	private long changedAt = Long.MIN_VALUE / 2;
+	
+	public Profile profile() {
+		return current;
+	}
+	
+	public Phase phase() {
+		return phase;
+	}
+	
+	public boolean isStationary() {
+		return stationary;
+	}
+	
+	/**
+	 * @return true si cambió el perfil
+	 */
+	public boolean setPhase(Phase phase, long now) {
+		this.phase = phase;
+		if (!phase.onTrip()) {
+			remainingMeters = Double.NaN;
+		}
+		return evaluate(now);
+	}
+	
+	/**
+	 * @return true si cambió el perfil
+	 */
+	public boolean setBattery(int percent, boolean charging, long now) {
+		this.batteryPercent = percent;
+		this.charging = charging;
+		return evaluate(now);
+	}
+	
+	/**
+	 * Distancia que falta por la ruta hasta el destino del tramo en curso (NaN si no se conoce).
+	 * Se tiene en cuenta con la próxima posición.
+	 */
+	public void setRemainingMeters(double meters) {
+		this.remainingMeters = meters;
+	}
+	
+	/**
+	 * Nueva posición
+	 * @param speedMps velocidad informada por el GPS, o NaN si el fix no la trae (los de red:
+	 *                 entre dos de ellos el salto puede ser de decenas de metros sin moverse)
+	 * @return true si cambió el perfil
+	 */
+	public boolean onFix(double lat, double lon, float accuracyMeters, float speedMps, long timeMs) {
+		lastFixTime = timeMs;
+		boolean fast = !Float.isNaN(speedMps) && speedMps >= MOVING_SPEED_MPS;
+		double slack = Math.min(Math.max(accuracyMeters, 0), MAX_ACCURACY_SLACK_METERS);
+		if (!hasAnchor || fast
+				|| distanceMeters(anchorLat, anchorLon, lat, lon) > STILL_RADIUS_METERS + slack) {
+			hasAnchor = true;
+			anchorLat = lat;
+			anchorLon = lon;
+			anchorTime = timeMs;
+			stationary = false;
+		} else if (timeMs - anchorTime >= STILL_AFTER_MS) {
+			stationary = true;
+		}
+		return evaluate(timeMs);
+	}
+	
+	/**
+	 * Revisión periódica sin posición nueva. Con distancia mínima, LocationManager no entrega
+	 * posiciones mientras el driver no se mueve: un rato sin ninguna también es estar parado.
+	 * @return true si cambió el perfil
+	 */
+	public boolean onTick(long now) {
+		if (hasAnchor && !stationary && now - lastFixTime >= STILL_AFTER_MS) {
+			stationary = true;
+		}
+		return evaluate(now);
+	}
+	
+	Profile desired() {
+		Profile profile;
+		if (phase.onTrip()) {
+			if (stationary) {
+				profile = WAITING;
+			} else if (remainingMeters <= NEAR_DESTINATION_METERS) {
+				profile = NEAR_DESTINATION;
+			} else {
+				profile = NAVIGATING;
+			}
+		} else {
+			profile = stationary ? PARKED : ROAMING;
+		}
+		// La llegada al destino se sigue con precisión aunque quede poca batería
+		if (charging || profile == NEAR_DESTINATION) {
+			return profile;
+		}
+		if (batteryPercent <= CRITICAL_BATTERY_PERCENT) {
+			return profile.relaxed(Priority.LOW_POWER, 3);
+		}
+		if (batteryPercent <= LOW_BATTERY_PERCENT) {
+			return profile.relaxed(Priority.BALANCED, 2);
+		}
+		return profile;
+	}
+	
+	private boolean evaluate(long now) {
+		Profile wanted = desired();
+		if (wanted.equals(current)) {
+			return false;
+		}
+		if (!wanted.moreDemandingThan(current) && now - changedAt < DOWNGRADE_AFTER_MS) {
+			return false;
+		}
+		current = wanted;
+		changedAt = now;
+		return true;
+	}
+	
+	/**
+	 * Distancia aproximada (equirectangular), suficiente para distancias cortas
+	 */
+	static double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
+		double x = Math.toRadians(lon2 - lon1) * Math.cos(Math.toRadians((lat1 + lat2) / 2));
+		double y = Math.toRadians(lat2 - lat1);
+		return Math.sqrt(x * x + y * y) * 6_371_000;
+	}
+}
@@ -0,0 +1,170 @@
+package com.deliveryapp.repartidor;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Tiles de OpenStreetMap servidos desde el TilePack: los que no están se bajan una vez y se
+ * guardan. También precarga la zona de trabajo del driver (pensado para hacerlo con Wi-Fi).
+ *
+ * La clave de un tile empaqueta (z, x, y) en un long, así que las URLs de los distintos
+ * subdominios ({s}.tile.openstreetmap.org) comparten el mismo tile.
+ */
+public final class MapTiles {
+	private static final Logger LOG = Logger.getLogger("MapTiles");
+	private static final Pattern OSM_TILE = Pattern.compile(
+		"^https://(?:[abc]\\.)?tile\\.openstreetmap\\.org/(\\d{1,2})/(\\d{1,7})/(\\d{1,7})\\.png$");
+	static final int MAX_ZOOM = 19;
+	private static final int FETCH_TIMEOUT_MS = 15_000;
+	// La política de uso de los tiles de OSM pide identificar la app y no descargar en masa
+	private static final String USER_AGENT = "DeliveryApp/1.0";
+	private static final long PREFETCH_DELAY_MS = 100;
+	private static final int PREFETCH_MAX_FAILURES = 3;
+	
+	private final TilePack pack;
+	private final OkHttpClient client;
+	private final String baseUrl;
+	
+	public MapTiles(TilePack pack, NativeHttpClient http) {
+		this(pack, http, "https://tile.openstreetmap.org");
+	}
+	
+	MapTiles(TilePack pack, NativeHttpClient http, String baseUrl) {
+		this.pack = pack;
+		this.client = http.getClient().newBuilder()
+			.callTimeout(FETCH_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+			.build();
+		this.baseUrl = baseUrl;
+	}
+	
+	public TilePack getPack() {
+		return pack;
+	}
+	
+	/**
+	 * Clave del tile de una URL de OpenStreetMap, o -1 si la URL no es un tile
+	 */
+	public static long keyForUrl(String url) {
+		Matcher matcher = OSM_TILE.matcher(url);
+		if (!matcher.matches()) {
+			return -1;
+		}
+		int z = Integer.parseInt(matcher.group(1));
+		int x = Integer.parseInt(matcher.group(2));
+		int y = Integer.parseInt(matcher.group(3));
+		if (z > MAX_ZOOM || x >= 1 << z || y >= 1 << z) {
+			return -1;
+		}
+		return key(z, x, y);
+	}
+	
+	/**
+	 * (z, x, y) en un long: 5 bits de zoom y 22 bits por coordenada, con un bit alto para que
+	 * ningún tile tenga clave 0 (ranura vacía del pack)
+	 */
+	static long key(int z, int x, int y) {
+		return (1L << 62) | ((long) z << 44) | ((long) x << 22) | y;
+	}
+	
+	static int tileX(double lon, int z) {
+		int x = (int) Math.floor((lon + 180) / 360 * (1 << z));
+		return Math.max(0, Math.min((1 << z) - 1, x));
+	}
+	
+	static int tileY(double lat, int z) {
+		double rad = Math.toRadians(lat);
+		int y = (int) Math.floor((1 - Math.log(Math.tan(rad) + 1 / Math.cos(rad)) / Math.PI) / 2 * (1 << z));
+		return Math.max(0, Math.min((1 << z) - 1, y));
+	}
+	
+	/**
+	 * Bytes del tile: del pack o, si no está, de OpenStreetMap (y se guarda)
+	 * @return null si no está y no se pudo bajar
+	 */
+	public byte[] tile(long key) {
+		byte[] cached = pack.get(key);
+		if (cached != null) {
+			return cached;
+		}
+		try {
+			return fetch(key);
+		} catch (IOException e) {
+			LOG.log(Level.WARNING, "⚠️ No se pudo bajar el tile " + key + ": " + e.getMessage());
+			return null;
+		}
+	}
+	
+	/**
+	 * Baja los tiles de la zona que todavía no están en el pack
+	 * @return cantidad de tiles bajados
+	 */
+	public int prefetch(double lat, double lon, int radiusMeters, int minZoom, int maxZoom, int maxTiles) {
+		double dLat = radiusMeters / 111_320.0;
+		double dLon = radiusMeters / (111_320.0 * Math.cos(Math.toRadians(lat)));
+		int fetched = 0;
+		int failures = 0;
+		for (int z = minZoom; z <= maxZoom; z++) {
+			int fromX = tileX(lon - dLon, z);
+			int toX = tileX(lon + dLon, z);
+			// La y crece hacia el sur
+			int fromY = tileY(lat + dLat, z);
+			int toY = tileY(lat - dLat, z);
+			for (int x = fromX; x <= toX; x++) {
+				for (int y = fromY; y <= toY; y++) {
+					long key = key(z, x, y);
+					if (pack.contains(key)) {
+						continue;
+					}
+					if (fetched >= maxTiles) {
+						return fetched;
+					}
+					try {
+						if (fetch(key) != null) {
+							fetched++;
+							failures = 0;
+						}
+						Thread.sleep(PREFETCH_DELAY_MS);
+					} catch (IOException e) {
+						if (++failures >= PREFETCH_MAX_FAILURES) {
+							LOG.log(Level.WARNING, "⚠️ Precarga de tiles interrumpida: " + e.getMessage());
+							return fetched;
+						}
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						return fetched;
+					}
+				}
+			}
+		}
+		return fetched;
+	}
+	
+	private byte[] fetch(long key) throws IOException {
+		int z = (int) (key >>> 44) & 0x1F;
+		int x = (int) (key >>> 22) & 0x3FFFFF;
+		int y = (int) key & 0x3FFFFF;
+		Request request = new Request.Builder()
+			.url(baseUrl + "/" + z + "/" + x + "/" + y + ".png")
+			.header("User-Agent", USER_AGENT)
+			.get()
+			.build();
+		try (Response response = client.newCall(request).execute()) {
+			if (response.code() == 404) {
+				return null;
+			}
+			if (!response.isSuccessful()) {
+				throw new IOException("OpenStreetMap respondió " + response.code());
+			}
+			byte[] data = response.body().bytes();
+			pack.put(key, data);
+			return data;
+		}
+	}
+}
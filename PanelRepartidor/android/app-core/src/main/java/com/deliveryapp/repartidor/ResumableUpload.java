@@ -0,0 +1,260 @@
+package com.deliveryapp.repartidor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.BufferedSink;
+import okio.ByteString;
+
+/**
+ * Subida reanudable de un archivo a Supabase Storage con el protocolo TUS
+ * (/storage/v1/upload/resumable): se crea la subida, se mandan los bytes en tramos leídos del
+ * archivo (nunca está entero en memoria) y, si la conexión se corta, se pregunta al servidor
+ * cuánto recibió y se sigue desde ahí.
+ *
+ * La URL de la subida se guarda junto al archivo (".tus"), así un reintento posterior (otra
+ * llamada, otro arranque de la app) también continúa en vez de empezar de nuevo.
+ */
+public final class ResumableUpload {
+	private static final Logger LOG = Logger.getLogger("ResumableUpload");
+	private static final String TUS_VERSION = "1.0.0";
+	private static final MediaType OFFSET_STREAM = MediaType.get("application/offset+octet-stream");
+	// Supabase exige tramos de exactamente 6 MB (salvo el último)
+	static final int SUPABASE_CHUNK_BYTES = 6 * 1024 * 1024;
+	private static final int MAX_ATTEMPTS = 3;
+	private static final int TIMEOUT_MS = 60_000;
+	private static final String STATE_SUFFIX = ".tus";
+	
+	private final OkHttpClient client;
+	private final String endpoint;
+	private final int chunkBytes;
+	
+	public ResumableUpload(NativeHttpClient http, String supabaseUrl) {
+		this(http, supabaseUrl + "/storage/v1/upload/resumable", SUPABASE_CHUNK_BYTES);
+	}
+	
+	ResumableUpload(NativeHttpClient http, String endpoint, int chunkBytes) {
+		this.client = http.getClient().newBuilder()
+			.callTimeout(TIMEOUT_MS, TimeUnit.MILLISECONDS)
+			.build();
+		this.endpoint = endpoint;
+		this.chunkBytes = chunkBytes;
+	}
+	
+	/**
+	 * Sube (o termina de subir) el archivo a bucket/objectName
+	 * @param headers autenticación de Supabase (apikey y Authorization)
+	 * @throws IOException si no se pudo completar tras varios intentos; la subida queda
+	 *                     guardada para continuar en la próxima llamada
+	 */
+	public void upload(File file, String bucket, String objectName, String contentType, String cacheControl,
+			Map<String, String> headers) throws IOException {
+		File state = stateFile(file);
+		long length = file.length();
+		IOException last = null;
+		for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+			try {
+				String location = readState(state);
+				long offset = location != null ? serverOffset(location, headers) : -1;
+				if (offset < 0) {
+					location = create(length, bucket, objectName, contentType, cacheControl, headers);
+					if (location == null) {
+						// El objeto ya existe (una subida anterior terminó sin que llegara la respuesta)
+						state.delete();
+						return;
+					}
+					writeState(state, location);
+					offset = 0;
+				} else if (offset > 0) {
+					LOG.info("📤 Subida reanudada en " + offset + " de " + length + " bytes");
+				}
+				while (offset < length) {
+					offset = patch(location, file, offset, length, headers);
+				}
+				state.delete();
+				return;
+			} catch (IOException e) {
+				last = e;
+				LOG.warning("⚠️ Subida interrumpida (intento " + (attempt + 1) + "): " + e.getMessage());
+			}
+		}
+		throw last;
+	}
+	
+	/**
+	 * Descarta la subida guardada del archivo (si se borra el archivo antes de terminarla)
+	 */
+	public static void forget(File file) {
+		stateFile(file).delete();
+	}
+	
+	/**
+	 * @return URL de la subida, o null si el objeto ya existía
+	 */
+	private String create(long length, String bucket, String objectName, String contentType, String cacheControl,
+			Map<String, String> headers) throws IOException {
+		Request.Builder request = new Request.Builder()
+			.url(endpoint)
+			.header("Tus-Resumable", TUS_VERSION)
+			.header("Upload-Length", String.valueOf(length))
+			.header("Upload-Metadata", "bucketName " + base64(bucket)
+				+ ",objectName " + base64(objectName)
+				+ ",contentType " + base64(contentType)
+				+ ",cacheControl " + base64(cacheControl))
+			.header("x-upsert", "false")
+			.post(RequestBody.create(new byte[0], null));
+		addHeaders(request, headers);
+		try (Response response = client.newCall(request.build()).execute()) {
+			if (response.code() == 409) {
+				return null;
+			}
+			String location = response.header("Location");
+			if (response.code() != 201 || location == null) {
+				throw new IOException("Storage respondió " + response.code() + " al crear la subida");
+			}
+			HttpUrl resolved = HttpUrl.get(endpoint).resolve(location);
+			if (resolved == null) {
+				throw new IOException("URL de subida inválida: " + location);
+			}
+			return resolved.toString();
+		}
+	}
+	
+	/**
+	 * Bytes que el servidor ya tiene, o -1 si la subida no existe más (expiró o se terminó y borró)
+	 */
+	private long serverOffset(String location, Map<String, String> headers) throws IOException {
+		Request.Builder request = new Request.Builder()
+			.url(location)
+			.header("Tus-Resumable", TUS_VERSION)
+			.head();
+		addHeaders(request, headers);
+		try (Response response = client.newCall(request.build()).execute()) {
+			if (response.code() == 404 || response.code() == 410) {
+				return -1;
+			}
+			String offset = response.header("Upload-Offset");
+			if (!response.isSuccessful() || offset == null) {
+				throw new IOException("Storage respondió " + response.code() + " al consultar la subida");
+			}
+			return Long.parseLong(offset);
+		}
+	}
+	
+	/**
+	 * Manda un tramo desde offset
+	 * @return nuevo offset confirmado por el servidor
+	 */
+	private long patch(String location, File file, long offset, long length, Map<String, String> headers)
+			throws IOException {
+		long count = Math.min(chunkBytes, length - offset);
+		Request.Builder request = new Request.Builder()
+			.url(location)
+			.header("Tus-Resumable", TUS_VERSION)
+			.header("Upload-Offset", String.valueOf(offset))
+			.patch(new FileRegionBody(file, offset, count));
+		addHeaders(request, headers);
+		try (Response response = client.newCall(request.build()).execute()) {
+			String confirmed = response.header("Upload-Offset");
+			if (response.code() != 204 || confirmed == null) {
+				throw new IOException("Storage respondió " + response.code() + " a un tramo de la subida");
+			}
+			long next = Long.parseLong(confirmed);
+			if (next <= offset) {
+				throw new IOException("La subida no avanzó (offset " + next + ")");
+			}
+			return next;
+		}
+	}
+	
+	/**
+	 * Cuerpo que copia un rango del archivo directo al socket, de a bloques del buffer de okio
+	 */
+	private static final class FileRegionBody extends RequestBody {
+		private final File file;
+		private final long offset;
+		private final long count;
+		
+		FileRegionBody(File file, long offset, long count) {
+			this.file = file;
+			this.offset = offset;
+			this.count = count;
+		}
+		
+		@Override
+		public MediaType contentType() {
+			return OFFSET_STREAM;
+		}
+		
+		@Override
+		public long contentLength() {
+			return count;
+		}
+		
+		@Override
+		public void writeTo(BufferedSink sink) throws IOException {
+			byte[] buffer = new byte[16 * 1024];
+			try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+				in.seek(offset);
+				long remaining = count;
+				while (remaining > 0) {
+					int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+					if (read < 0) {
+						throw new IOException("El archivo terminó antes de lo esperado");
+					}
+					sink.write(buffer, 0, read);
+					remaining -= read;
+				}
+			}
+		}
+	}
+	
+	private static void addHeaders(Request.Builder request, Map<String, String> headers) {
+		for (Map.Entry<String, String> header : headers.entrySet()) {
+			request.header(header.getKey(), header.getValue());
+		}
+	}
+	
+	// java.util.Base64 no existe en Android antes de la API 26
+	private static String base64(String value) {
+		return ByteString.encodeUtf8(value).base64();
+	}
+	
+	private static File stateFile(File file) {
+		return new File(file.getPath() + STATE_SUFFIX);
+	}
+	
+	private static String readState(File state) {
+		if (!state.exists()) {
+			return null;
+		}
+		try (RandomAccessFile in = new RandomAccessFile(state, "r")) {
+			byte[] bytes = new byte[(int) in.length()];
+			in.readFully(bytes);
+			String location = new String(bytes, StandardCharsets.UTF_8).trim();
+			return location.isEmpty() ? null : location;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+	
+	private static void writeState(File state, String location) {
+		try (RandomAccessFile out = new RandomAccessFile(state, "rw")) {
+			out.setLength(0);
+			out.write(location.getBytes(StandardCharsets.UTF_8));
+		} catch (IOException e) {
+			// Sin estado guardado, un reintento posterior empieza de cero
+			LOG.warning("⚠️ No se pudo guardar el estado de la subida: " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,177 @@
+package com.deliveryapp.repartidor;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Avance del driver sobre una ruta ya calculada (un tramo: hasta el local o hasta la entrega),
+ * para estimar distancia restante y ETA en el dispositivo sin volver a pedir la ruta a OSRM.
+ *
+ * La polilínea se guarda como un arreglo de enteros (lat y lon en microgrados, intercalados)
+ * con la distancia acumulada hasta cada vértice. Cada posición GPS se proyecta sobre los
+ * segmentos cercanos al último punto encontrado (y sobre toda la ruta si ahí no encaja), con
+ * una proyección plana local que alcanza de sobra para la escala de una ciudad. Solo cuando el
+ * driver sale del corredor de la ruta varias veces seguidas se indica que hay que recalcularla.
+ */
+public final class RouteProgress {
+	static final double CORRIDOR_METERS = 50;
+	// Posiciones seguidas fuera del corredor antes de pedir otra ruta (un GPS impreciso no basta)
+	static final int OFF_ROUTE_FIXES = 3;
+	static final double ARRIVED_METERS = 30;
+	private static final double EARTH_RADIUS_METERS = 6_371_000;
+	private static final double MICRODEGREE_RADIANS = Math.PI / 180 / 1_000_000;
+	// Segmentos hacia atrás y hacia adelante del último encontrado que se revisan primero
+	private static final int SEARCH_BEHIND = 3;
+	private static final int SEARCH_AHEAD = 40;
+	// Velocidad si OSRM no informa duración (~25 km/h en ciudad)
+	private static final double DEFAULT_METERS_PER_SECOND = 7;
+	
+	/**
+	 * Resultado de proyectar una posición sobre la ruta
+	 */
+	public static final class Fix {
+		public final double remainingMeters;
+		public final double remainingSeconds;
+		// Distancia de la posición a la ruta
+		public final double distanceFromRoute;
+		public final boolean offRoute;
+		// El driver dejó la ruta: hay que pedir otra desde su posición
+		public final boolean needsReroute;
+		public final boolean arrived;
+		
+		Fix(double remainingMeters, double remainingSeconds, double distanceFromRoute, boolean offRoute,
+				boolean needsReroute, boolean arrived) {
+			this.remainingMeters = remainingMeters;
+			this.remainingSeconds = remainingSeconds;
+			this.distanceFromRoute = distanceFromRoute;
+			this.offRoute = offRoute;
+			this.needsReroute = needsReroute;
+			this.arrived = arrived;
+		}
+	}
+	
+	// lat0, lon0, lat1, lon1, ... en microgrados
+	private final int[] coords;
+	private final float[] cumulative;
+	private final double metersPerSecond;
+	// Metros por microgrado en la latitud de la ruta
+	private final double metersPerLon;
+	private final double metersPerLat;
+	
+	private int segmentHint;
+	private int offRouteCount;
+	private double nearestDistance;
+	private double nearestAlong;
+	
+	RouteProgress(int[] coords, double durationSeconds) {
+		if (coords.length < 2 || coords.length % 2 != 0) {
+			throw new IllegalArgumentException("La ruta necesita al menos un punto");
+		}
+		this.coords = coords;
+		this.metersPerLat = EARTH_RADIUS_METERS * MICRODEGREE_RADIANS;
+		this.metersPerLon = metersPerLat * Math.cos(coords[0] * MICRODEGREE_RADIANS);
+		
+		int vertices = coords.length / 2;
+		cumulative = new float[vertices];
+		double total = 0;
+		for (int i = 1; i < vertices; i++) {
+			double dx = (coords[2 * i + 1] - coords[2 * i - 1]) * metersPerLon;
+			double dy = (coords[2 * i] - coords[2 * i - 2]) * metersPerLat;
+			total += Math.sqrt(dx * dx + dy * dy);
+			cumulative[i] = (float) total;
+		}
+		metersPerSecond = durationSeconds > 0 && total > 0 ? total / durationSeconds : DEFAULT_METERS_PER_SECOND;
+	}
+	
+	/**
+	 * Ruta de GeoLookup.route(): { distance (km), duration (min), geometry (GeoJSON LineString) }
+	 */
+	public static RouteProgress fromRoute(JSONObject route) throws JSONException {
+		JSONArray points = route.getJSONObject("geometry").getJSONArray("coordinates");
+		int[] coords = new int[points.length() * 2];
+		for (int i = 0; i < points.length(); i++) {
+			JSONArray point = points.getJSONArray(i);
+			coords[2 * i] = (int) Math.round(point.getDouble(1) * 1_000_000);
+			coords[2 * i + 1] = (int) Math.round(point.getDouble(0) * 1_000_000);
+		}
+		return new RouteProgress(coords, route.optDouble("duration", 0) * 60);
+	}
+	
+	public double totalMeters() {
+		return cumulative[cumulative.length - 1];
+	}
+	
+	public double destinationLat() {
+		return coords[coords.length - 2] / 1_000_000.0;
+	}
+	
+	public double destinationLon() {
+		return coords[coords.length - 1] / 1_000_000.0;
+	}
+	
+	/**
+	 * Proyecta una posición GPS sobre la ruta
+	 */
+	public Fix update(double lat, double lon) {
+		double x = lon * 1_000_000 * metersPerLon;
+		double y = lat * 1_000_000 * metersPerLat;
+		int segments = cumulative.length - 1;
+		
+		double along;
+		double distance;
+		if (segments == 0) {
+			along = 0;
+			distance = Math.sqrt(squared(x - coords[1] * metersPerLon, y - coords[0] * metersPerLat));
+		} else {
+			segmentHint = nearest(x, y, Math.max(0, segmentHint - SEARCH_BEHIND), Math.min(segments, segmentHint + SEARCH_AHEAD));
+			if (nearestDistance > CORRIDOR_METERS) {
+				segmentHint = nearest(x, y, 0, segments);
+			}
+			along = nearestAlong;
+			distance = nearestDistance;
+		}
+		
+		boolean offRoute = distance > CORRIDOR_METERS;
+		offRouteCount = offRoute ? offRouteCount + 1 : 0;
+		boolean needsReroute = offRouteCount >= OFF_ROUTE_FIXES || distance > CORRIDOR_METERS * 4;
+		double remaining = Math.max(0, totalMeters() - along);
+		boolean arrived = !offRoute && remaining <= ARRIVED_METERS;
+		// Fuera de la ruta se suma lo que falta para volver a ella
+		double seconds = (remaining + (offRoute ? distance : 0)) / metersPerSecond;
+		return new Fix(remaining, seconds, distance, offRoute, needsReroute, arrived);
+	}
+	
+	/**
+	 * Busca el segmento más cercano entre from y to (exclusivo) y deja su distancia a la posición
+	 * y los metros recorridos hasta el punto proyectado en nearestDistance y nearestAlong
+	 * @return índice del segmento
+	 */
+	private int nearest(double x, double y, int from, int to) {
+		int bestSegment = from;
+		double bestSquared = Double.MAX_VALUE;
+		double bestAlong = 0;
+		for (int i = from; i < to; i++) {
+			double ax = coords[2 * i + 1] * metersPerLon;
+			double ay = coords[2 * i] * metersPerLat;
+			double dx = coords[2 * i + 3] * metersPerLon - ax;
+			double dy = coords[2 * i + 2] * metersPerLat - ay;
+			double lengthSquared = dx * dx + dy * dy;
+			double t = lengthSquared > 0 ? ((x - ax) * dx + (y - ay) * dy) / lengthSquared : 0;
+			t = Math.max(0, Math.min(1, t));
+			double squared = squared(x - (ax + t * dx), y - (ay + t * dy));
+			if (squared < bestSquared) {
+				bestSquared = squared;
+				bestSegment = i;
+				bestAlong = cumulative[i] + t * (cumulative[i + 1] - cumulative[i]);
+			}
+		}
+		nearestDistance = Math.sqrt(bestSquared);
+		nearestAlong = bestAlong;
+		return bestSegment;
+	}
+	
+	private static double squared(double dx, double dy) {
+		return dx * dx + dy * dy;
+	}
+}
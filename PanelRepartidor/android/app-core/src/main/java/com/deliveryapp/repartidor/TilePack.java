@@ -0,0 +1,372 @@
+package com.deliveryapp.repartidor;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Pack de tiles de mapa en un solo archivo mapeado en memoria, con tamaño fijo.
+ *
+ * El archivo tiene una cabecera, una tabla de índice (una ranura por tile: clave, posición,
+ * largo y CRC) y una zona de datos que se escribe como un anillo: cada tile nuevo va a
+ * continuación del anterior y, al llegar al final, se vuelve al principio pisando (y sacando
+ * del índice) los tiles más viejos. Un tile leído cuando ya está en el último cuarto del anillo
+ * (a punto de ser pisado) se vuelve a escribir adelante, así que los que se siguen usando no
+ * se pierden: el resultado se comporta como un LRU con el archivo como límite de tamaño.
+ *
+ * El índice vive en el mismo archivo y se escribe después de los datos; un tile cuyo CRC no
+ * coincide (escritura interrumpida) se descarta al leerlo.
+ *
+ * El índice y la posición del anillo se cargan en memoria al abrir, así que el pack abierto
+ * tiene tomado un ProcessFileLock ("<archivo>.lock") hasta close(): un solo proceso lo escribe.
+ */
+public final class TilePack implements Closeable {
+	private static final Logger LOG = Logger.getLogger("TilePack");
+	private static final int MAGIC = 0x54504B31; // "TPK1"
+	private static final int FORMAT_VERSION = 1;
+	private static final int HEADER_BYTES = 64;
+	private static final int SLOT_BYTES = 24;
+	// Offsets en la cabecera
+	private static final int HEADER_SLOTS = 8;
+	private static final int HEADER_CAPACITY = 12;
+	private static final int HEADER_HEAD = 16;
+	// Un tile más grande que esta fracción del anillo no se guarda (desplazaría demasiados)
+	private static final int MAX_TILE_FRACTION = 8;
+	// Los tiles leídos en el último cuarto del anillo se reescriben adelante
+	private static final int PROMOTE_NUMERATOR = 3;
+	private static final int PROMOTE_DENOMINATOR = 4;
+	
+	private static final class Entry {
+		final long key;
+		final int slot;
+		final int offset;
+		final int length;
+		final int crc;
+		
+		Entry(long key, int slot, int offset, int length, int crc) {
+			this.key = key;
+			this.slot = slot;
+			this.offset = offset;
+			this.length = length;
+			this.crc = crc;
+		}
+	}
+	
+	private final ProcessFileLock lock;
+	private final RandomAccessFile file;
+	private final MappedByteBuffer buffer;
+	private final int slotCount;
+	private final int capacity;
+	private final int dataStart;
+	
+	private final Map<Long, Entry> byKey = new HashMap<>();
+	private final TreeMap<Integer, Entry> byOffset = new TreeMap<>();
+	private final Deque<Integer> freeSlots = new ArrayDeque<>();
+	private int head;
+	private long storedBytes;
+	
+	private long hits;
+	private long misses;
+	private long puts;
+	private long evictions;
+	private long promotions;
+	
+	/**
+	 * Abre el pack, o lo crea vacío si no existe o tiene otro formato o tamaño. Si otro
+	 * proceso lo tiene abierto, espera a que lo cierre
+	 * @param slotCount cantidad máxima de tiles
+	 * @param capacity  bytes de la zona de datos
+	 */
+	public TilePack(File path, int slotCount, int capacity) throws IOException {
+		this(path, slotCount, capacity, ProcessFileLock.acquire(lockFile(path)));
+	}
+	
+	/**
+	 * Abre el pack solo si nadie más lo tiene abierto
+	 * @return null si lo tiene abierto otro proceso (u otra instancia de este)
+	 */
+	public static TilePack tryOpen(File path, int slotCount, int capacity) throws IOException {
+		ProcessFileLock lock = ProcessFileLock.tryAcquire(lockFile(path));
+		return lock != null ? new TilePack(path, slotCount, capacity, lock) : null;
+	}
+	
+	private static File lockFile(File path) {
+		return new File(path.getPath() + ".lock");
+	}
+	
+	private TilePack(File path, int slotCount, int capacity, ProcessFileLock lock) throws IOException {
+		this.lock = lock;
+		this.slotCount = slotCount;
+		this.capacity = capacity;
+		this.dataStart = HEADER_BYTES + slotCount * SLOT_BYTES;
+		long size = (long) dataStart + capacity;
+		
+		try {
+			File parent = path.getParentFile();
+			if (parent != null && !parent.exists() && !parent.mkdirs()) {
+				throw new IOException("No se pudo crear " + parent);
+			}
+			boolean fresh = !path.exists() || path.length() != size;
+			if (fresh && path.exists() && !path.delete()) {
+				throw new IOException("No se pudo reemplazar " + path);
+			}
+			file = new RandomAccessFile(path, "rw");
+			file.setLength(size);
+			buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+			
+			if (fresh || !load()) {
+				reset();
+			}
+		} catch (IOException | RuntimeException e) {
+			lock.close();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Tile guardado, o null si no está (o estaba dañado)
+	 */
+	public synchronized byte[] get(long key) {
+		Entry entry = byKey.get(key);
+		if (entry == null) {
+			misses++;
+			return null;
+		}
+		byte[] data = read(entry.offset, entry.length);
+		if (crc(data) != entry.crc) {
+			LOG.log(Level.WARNING, "⚠️ Tile dañado en el pack, se descarta: " + key);
+			remove(entry);
+			misses++;
+			return null;
+		}
+		hits++;
+		if (age(entry) * PROMOTE_DENOMINATOR > (long) capacity * PROMOTE_NUMERATOR) {
+			promotions++;
+			write(key, data);
+		}
+		return data;
+	}
+	
+	public synchronized boolean contains(long key) {
+		return byKey.containsKey(key);
+	}
+	
+	/**
+	 * Guarda (o reemplaza) un tile, desplazando los más viejos si hace falta
+	 * @return false si el tile es demasiado grande para el pack
+	 */
+	public synchronized boolean put(long key, byte[] data) {
+		if (key == 0 || data.length == 0 || data.length > capacity / MAX_TILE_FRACTION) {
+			return false;
+		}
+		puts++;
+		write(key, data);
+		return true;
+	}
+	
+	public synchronized void clear() {
+		reset();
+	}
+	
+	public synchronized int size() {
+		return byKey.size();
+	}
+	
+	public synchronized JSONObject stats() {
+		JSONObject json = new JSONObject();
+		try {
+			long lookups = hits + misses;
+			json.put("hits", hits);
+			json.put("misses", misses);
+			json.put("hitRate", lookups > 0 ? (double) hits / lookups : 0);
+			json.put("puts", puts);
+			json.put("evictions", evictions);
+			json.put("promotions", promotions);
+			json.put("tiles", byKey.size());
+			json.put("bytes", storedBytes);
+			json.put("capacity", capacity);
+		} catch (JSONException e) {
+			// No ocurre con valores numéricos finitos
+		}
+		return json;
+	}
+	
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			buffer.force();
+			file.close();
+		} finally {
+			lock.close();
+		}
+	}
+	
+	private void write(long key, byte[] data) {
+		Entry previous = byKey.get(key);
+		if (previous != null) {
+			remove(previous);
+		}
+		if (head + data.length > capacity) {
+			head = 0;
+		}
+		// Sacar del índice lo que se va a pisar antes de escribir los datos
+		Map.Entry<Integer, Entry> before = byOffset.floorEntry(head);
+		if (before != null && before.getValue().offset + before.getValue().length > head) {
+			evict(before.getValue());
+		}
+		while (true) {
+			Map.Entry<Integer, Entry> overlapped = byOffset.ceilingEntry(head);
+			if (overlapped == null || overlapped.getKey() >= head + data.length) {
+				break;
+			}
+			evict(overlapped.getValue());
+		}
+		if (freeSlots.isEmpty()) {
+			evict(oldest());
+		}
+		
+		int slot = freeSlots.pop();
+		Entry entry = new Entry(key, slot, head, data.length, crc(data));
+		ByteBuffer out = buffer.duplicate();
+		out.position(dataStart + head);
+		out.put(data);
+		writeSlot(entry);
+		byKey.put(key, entry);
+		byOffset.put(entry.offset, entry);
+		storedBytes += data.length;
+		head += data.length;
+		buffer.putInt(HEADER_HEAD, head);
+	}
+	
+	/**
+	 * Bytes escritos desde este tile hasta la cabeza del anillo: cuanto más, más cerca está de
+	 * ser pisado
+	 */
+	private long age(Entry entry) {
+		// El tile que empieza justo en la cabeza es el próximo a pisar: edad máxima
+		return capacity - ((long) entry.offset - head + capacity) % capacity;
+	}
+	
+	/**
+	 * El tile más viejo: el primero a partir de la cabeza (los de la vuelta anterior), o el
+	 * primero del archivo
+	 */
+	private Entry oldest() {
+		Map.Entry<Integer, Entry> next = byOffset.ceilingEntry(head);
+		return next != null ? next.getValue() : byOffset.firstEntry().getValue();
+	}
+	
+	private void evict(Entry entry) {
+		evictions++;
+		remove(entry);
+	}
+	
+	private void remove(Entry entry) {
+		byKey.remove(entry.key);
+		byOffset.remove(entry.offset);
+		storedBytes -= entry.length;
+		buffer.putLong(slotPosition(entry.slot), 0L);
+		freeSlots.push(entry.slot);
+	}
+	
+	private void writeSlot(Entry entry) {
+		int position = slotPosition(entry.slot);
+		// La clave al final: una ranura a medio escribir queda vacía o con un CRC que no coincide
+		buffer.putInt(position + 8, entry.offset);
+		buffer.putInt(position + 12, entry.length);
+		buffer.putInt(position + 16, entry.crc);
+		buffer.putLong(position, entry.key);
+	}
+	
+	private int slotPosition(int slot) {
+		return HEADER_BYTES + slot * SLOT_BYTES;
+	}
+	
+	private byte[] read(int offset, int length) {
+		byte[] data = new byte[length];
+		ByteBuffer in = buffer.duplicate();
+		in.position(dataStart + offset);
+		in.get(data);
+		return data;
+	}
+	
+	/**
+	 * Reconstruye el índice en memoria desde la tabla de ranuras
+	 * @return false si la cabecera no corresponde a este formato y tamaño
+	 */
+	private boolean load() {
+		if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION
+				|| buffer.getInt(HEADER_SLOTS) != slotCount || buffer.getInt(HEADER_CAPACITY) != capacity) {
+			return false;
+		}
+		head = buffer.getInt(HEADER_HEAD);
+		if (head < 0 || head > capacity) {
+			return false;
+		}
+		for (int slot = slotCount - 1; slot >= 0; slot--) {
+			int position = slotPosition(slot);
+			long key = buffer.getLong(position);
+			int offset = buffer.getInt(position + 8);
+			int length = buffer.getInt(position + 12);
+			if (key == 0 || offset < 0 || length <= 0 || (long) offset + length > capacity
+					|| byKey.containsKey(key) || overlaps(offset, length)) {
+				if (key != 0) {
+					buffer.putLong(position, 0L);
+				}
+				freeSlots.push(slot);
+				continue;
+			}
+			Entry entry = new Entry(key, slot, offset, length, buffer.getInt(position + 16));
+			byKey.put(key, entry);
+			byOffset.put(offset, entry);
+			storedBytes += length;
+		}
+		return true;
+	}
+	
+	private boolean overlaps(int offset, int length) {
+		Map.Entry<Integer, Entry> before = byOffset.floorEntry(offset);
+		if (before != null && before.getValue().offset + before.getValue().length > offset) {
+			return true;
+		}
+		Integer after = byOffset.higherKey(offset);
+		return after != null && after < offset + length;
+	}
+	
+	private void reset() {
+		byKey.clear();
+		byOffset.clear();
+		freeSlots.clear();
+		head = 0;
+		storedBytes = 0;
+		buffer.putInt(0, MAGIC);
+		buffer.putInt(4, FORMAT_VERSION);
+		buffer.putInt(HEADER_SLOTS, slotCount);
+		buffer.putInt(HEADER_CAPACITY, capacity);
+		buffer.putInt(HEADER_HEAD, 0);
+		for (int slot = slotCount - 1; slot >= 0; slot--) {
+			buffer.putLong(slotPosition(slot), 0L);
+			freeSlots.push(slot);
+		}
+	}
+	
+	private static int crc(byte[] data) {
+		CRC32 crc = new CRC32();
+		crc.update(data, 0, data.length);
+		return (int) crc.getValue();
+	}
+}
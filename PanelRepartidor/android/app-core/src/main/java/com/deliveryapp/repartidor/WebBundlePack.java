@@ -0,0 +1,181 @@
+package com.deliveryapp.repartidor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bundle web (el dist de Vite) empaquetado en un solo archivo para servirlo al WebView desde
+ * una vista mapeada en memoria, sin descomprimir ni copiar cada asset del APK en cada arranque.
+ *
+ * Formato (big-endian): cabecera (magic, versión, cantidad de entradas, bytes del índice), el
+ * índice (por archivo: path, tipo MIME, si es inmutable, posición y largo) y después los datos
+ * de cada archivo, alineados a ALIGNMENT. El archivo lo arma WebBundlePacker al compilar la app.
+ *
+ * Los archivos van solo sin comprimir: las peticiones que intercepta el WebViewClient casi
+ * nunca traen Accept-Encoding, así que variantes gzip o br no se llegarían a servir.
+ */
+public final class WebBundlePack {
+	static final int MAGIC = 0x57425031; // "WBP1"
+	// 2: sin variantes comprimidas
+	static final int FORMAT_VERSION = 2;
+	static final int HEADER_BYTES = 16;
+	static final int ALIGNMENT = 8;
+	
+	/**
+	 * Archivo del bundle listo para servir
+	 */
+	public static final class Resource {
+		public final String path;
+		public final String mimeType;
+		// Archivo con hash en el nombre (assets/ de Vite): el contenido de esa URL no cambia nunca
+		public final boolean immutable;
+		private final ByteBuffer body;
+		
+		Resource(String path, String mimeType, boolean immutable, ByteBuffer body) {
+			this.path = path;
+			this.mimeType = mimeType;
+			this.immutable = immutable;
+			this.body = body;
+		}
+		
+		public int length() {
+			return body.remaining();
+		}
+		
+		/**
+		 * Lee los bytes directo de la vista mapeada; cada llamada devuelve un stream independiente
+		 */
+		public InputStream open() {
+			return new BufferInputStream(body.duplicate());
+		}
+		
+		public String cacheControl() {
+			return immutable ? "public, max-age=31536000, immutable" : "no-cache";
+		}
+	}
+	
+	private static final class Entry {
+		final String mimeType;
+		final boolean immutable;
+		final int offset;
+		final int length;
+		
+		Entry(String mimeType, boolean immutable, int offset, int length) {
+			this.mimeType = mimeType;
+			this.immutable = immutable;
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+	
+	private final ByteBuffer data;
+	private final Map<String, Entry> entries;
+	
+	private WebBundlePack(ByteBuffer data, Map<String, Entry> entries) {
+		this.data = data;
+		this.entries = entries;
+	}
+	
+	/**
+	 * Lee el índice del pack; los datos se sirven desde el mismo buffer (normalmente mapeado)
+	 * @throws IOException si no es un pack o está truncado
+	 */
+	public static WebBundlePack read(ByteBuffer buffer) throws IOException {
+		ByteBuffer data = buffer.duplicate();
+		try {
+			if (data.getInt(0) != MAGIC || data.getInt(4) != FORMAT_VERSION) {
+				throw new IOException("No es un pack del bundle web (o es de otra versión)");
+			}
+			int count = data.getInt(8);
+			ByteBuffer index = data.duplicate();
+			index.position(HEADER_BYTES);
+			Map<String, Entry> entries = new HashMap<>(count * 2);
+			for (int i = 0; i < count; i++) {
+				String path = string(index, index.getShort() & 0xFFFF);
+				String mimeType = string(index, index.get() & 0xFF);
+				boolean immutable = index.get() != 0;
+				int offset = index.getInt();
+				int length = index.getInt();
+				if (offset < 0 || length < 0 || (long) offset + length > data.limit()) {
+					throw new IOException("Posición inválida de " + path);
+				}
+				entries.put(path, new Entry(mimeType, immutable, offset, length));
+			}
+			return new WebBundlePack(data, entries);
+		} catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+			throw new IOException("Pack del bundle web truncado", e);
+		}
+	}
+	
+	private static String string(ByteBuffer index, int length) {
+		byte[] bytes = new byte[length];
+		index.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	public int size() {
+		return entries.size();
+	}
+	
+	/**
+	 * Archivo del bundle
+	 * @param path relativo a la raíz del bundle, sin "/" inicial ("assets/index-3f2a.js")
+	 * @return null si el archivo no está en el pack
+	 */
+	public Resource find(String path) {
+		Entry entry = entries.get(path);
+		if (entry == null) {
+			return null;
+		}
+		ByteBuffer body = data.duplicate();
+		body.limit(entry.offset + entry.length);
+		body.position(entry.offset);
+		return new Resource(path, entry.mimeType, entry.immutable, body.slice());
+	}
+	
+	/**
+	 * InputStream sobre una porción del buffer mapeado: read() copia solo lo que pide el WebView
+	 */
+	private static final class BufferInputStream extends InputStream {
+		private final ByteBuffer buffer;
+		
+		BufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+		
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+		
+		@Override
+		public int read(byte[] bytes, int offset, int length) {
+			if (length == 0) {
+				return 0;
+			}
+			if (!buffer.hasRemaining()) {
+				return -1;
+			}
+			int count = Math.min(length, buffer.remaining());
+			buffer.get(bytes, offset, count);
+			return count;
+		}
+		
+		@Override
+		public long skip(long n) {
+			int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+			buffer.position(buffer.position() + count);
+			return count;
+		}
+		
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+	}
+}
@@ -0,0 +1,217 @@
+package com.deliveryapp.repartidor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Arma el pack del bundle web (WebBundlePack) a partir del dist de Vite copiado por
+ * "npx cap sync" a assets/public. Corre al compilar la app (tarea packWebBundle).
+ *
+ * Cada archivo se guarda sin comprimir, tal como se sirve mapeado (el APK ya va comprimido y
+ * el WebView no pide variantes gzip o br en las peticiones interceptadas). Quedan afuera los
+ * .html, que Capacitor sirve él mismo para inyectarles el bridge de JS, y el audio y video, que
+ * el WebView pide con Range y responde Capacitor.
+ *
+ * La lista de archivos empaquetados la usa el build para no copiarlos además sueltos de
+ * assets/public al APK.
+ *
+ * Uso: WebBundlePacker <directorio del bundle> <archivo del pack> [<lista de empaquetados>]
+ */
+public final class WebBundlePacker {
+	private static final Logger LOG = Logger.getLogger("WebBundlePacker");
+	// Vite pone los archivos con hash en el nombre bajo assets/
+	private static final String IMMUTABLE_PREFIX = "assets/";
+	private static final Map<String, String> MIME_TYPES = new HashMap<>();
+	
+	static {
+		MIME_TYPES.put("js", "application/javascript");
+		MIME_TYPES.put("mjs", "application/javascript");
+		MIME_TYPES.put("css", "text/css");
+		MIME_TYPES.put("json", "application/json");
+		MIME_TYPES.put("map", "application/json");
+		MIME_TYPES.put("webmanifest", "application/manifest+json");
+		MIME_TYPES.put("svg", "image/svg+xml");
+		MIME_TYPES.put("txt", "text/plain");
+		MIME_TYPES.put("xml", "application/xml");
+		MIME_TYPES.put("wasm", "application/wasm");
+		MIME_TYPES.put("png", "image/png");
+		MIME_TYPES.put("jpg", "image/jpeg");
+		MIME_TYPES.put("jpeg", "image/jpeg");
+		MIME_TYPES.put("gif", "image/gif");
+		MIME_TYPES.put("webp", "image/webp");
+		MIME_TYPES.put("ico", "image/x-icon");
+		MIME_TYPES.put("woff", "font/woff");
+		MIME_TYPES.put("woff2", "font/woff2");
+		MIME_TYPES.put("ttf", "font/ttf");
+	}
+	
+	// Lo sirve Capacitor: soporta Range (WebBundleServer no)
+	private static final Set<String> UNPACKED = new HashSet<>(Arrays.asList(
+		"html", "htm", "mp3", "wav", "ogg", "m4a", "mp4", "webm"));
+	
+	private static final class Packed {
+		final String path;
+		final String mimeType;
+		final boolean immutable;
+		final byte[] data;
+		
+		Packed(String path, String mimeType, boolean immutable, byte[] data) {
+			this.path = path;
+			this.mimeType = mimeType;
+			this.immutable = immutable;
+			this.data = data;
+		}
+	}
+	
+	private WebBundlePacker() {
+	}
+	
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2 && args.length != 3) {
+			System.err.println("Uso: WebBundlePacker <directorio del bundle> <archivo del pack> [<lista de empaquetados>]");
+			System.exit(2);
+		}
+		File root = new File(args[0]);
+		File output = new File(args[1]);
+		if (!root.isDirectory()) {
+			throw new IOException("No existe el bundle web en " + root + " (¿falta npx cap sync?)");
+		}
+		long bytes = pack(root, output);
+		LOG.info("✅ Bundle web empaquetado: " + output + " (" + bytes / 1024 + " KB)");
+		if (args.length == 3) {
+			File list = new File(args[2]);
+			File parent = list.getParentFile();
+			if (parent != null && !parent.exists() && !parent.mkdirs()) {
+				throw new IOException("No se pudo crear " + parent);
+			}
+			Files.write(list.toPath(), packedPaths(root), StandardCharsets.UTF_8);
+		}
+	}
+	
+	/**
+	 * Archivos de root que van en el pack, relativos a root y ordenados
+	 */
+	static List<String> packedPaths(File root) {
+		List<String> paths = new ArrayList<>();
+		collect(root, "", paths);
+		Collections.sort(paths);
+		List<String> packed = new ArrayList<>(paths.size());
+		for (String path : paths) {
+			if (!UNPACKED.contains(extension(path))) {
+				packed.add(path);
+			}
+		}
+		return packed;
+	}
+	
+	/**
+	 * Empaqueta los archivos de root según packedPaths
+	 * @return tamaño del pack
+	 */
+	static long pack(File root, File output) throws IOException {
+		List<Packed> files = new ArrayList<>();
+		for (String path : packedPaths(root)) {
+			files.add(new Packed(path, mimeType(extension(path)), path.startsWith(IMMUTABLE_PREFIX),
+				Files.readAllBytes(new File(root, path).toPath())));
+		}
+		
+		byte[] index = index(files, 0);
+		int dataStart = align(WebBundlePack.HEADER_BYTES + index.length);
+		// Con las posiciones reales: el largo del índice no depende de ellas
+		index = index(files, dataStart);
+		
+		File parent = output.getParentFile();
+		if (parent != null && !parent.exists() && !parent.mkdirs()) {
+			throw new IOException("No se pudo crear " + parent);
+		}
+		try (DataOutputStream out = new DataOutputStream(new FileOutputStream(output))) {
+			out.writeInt(WebBundlePack.MAGIC);
+			out.writeInt(WebBundlePack.FORMAT_VERSION);
+			out.writeInt(files.size());
+			out.writeInt(index.length);
+			out.write(index);
+			pad(out);
+			for (Packed packed : files) {
+				out.write(packed.data);
+				pad(out);
+			}
+			return out.size();
+		}
+	}
+	
+	/**
+	 * Índice con la posición de cada archivo, contando desde dataStart
+	 */
+	private static byte[] index(List<Packed> files, int dataStart) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		int offset = dataStart;
+		for (Packed packed : files) {
+			byte[] path = packed.path.getBytes(StandardCharsets.UTF_8);
+			byte[] mimeType = packed.mimeType.getBytes(StandardCharsets.UTF_8);
+			out.writeShort(path.length);
+			out.write(path);
+			out.writeByte(mimeType.length);
+			out.write(mimeType);
+			out.writeByte(packed.immutable ? 1 : 0);
+			out.writeInt(offset);
+			out.writeInt(packed.data.length);
+			offset = align(offset + packed.data.length);
+		}
+		out.flush();
+		return bytes.toByteArray();
+	}
+	
+	private static void collect(File directory, String prefix, List<String> paths) {
+		File[] children = directory.listFiles();
+		if (children == null) {
+			return;
+		}
+		for (File child : children) {
+			if (child.getName().startsWith(".")) {
+				continue;
+			}
+			if (child.isDirectory()) {
+				collect(child, prefix + child.getName() + "/", paths);
+			} else {
+				paths.add(prefix + child.getName());
+			}
+		}
+	}
+	
+	private static int align(int offset) {
+		int remainder = offset % WebBundlePack.ALIGNMENT;
+		return remainder == 0 ? offset : offset + WebBundlePack.ALIGNMENT - remainder;
+	}
+	
+	private static void pad(DataOutputStream out) throws IOException {
+		while (out.size() % WebBundlePack.ALIGNMENT != 0) {
+			out.writeByte(0);
+		}
+	}
+	
+	private static String extension(String path) {
+		int dot = path.lastIndexOf('.');
+		return dot > path.lastIndexOf('/') ? path.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+	}
+	
+	static String mimeType(String extension) {
+		String mimeType = MIME_TYPES.get(extension);
+		return mimeType != null ? mimeType : "application/octet-stream";
+	}
+}
@@ -0,0 +1,48 @@
+package com.deliveryapp.repartidor;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Pruebas de las cuentas del pipeline de fotos del chat.
+ */
+public class ChatImageSizingTest {
+
+	@Test
+	public void decodesCameraPhotosSubsampledButNeverBelowTheTarget() {
+		// 12 MP (4000x3000) a 1600: se decodifica a 2000x1500, no a 4000x3000
+		assertEquals(2, ChatImageSizing.sampleSize(4000, 3000, 1600));
+		assertEquals(4, ChatImageSizing.sampleSize(3000, 8000, 1600));
+		assertEquals(1, ChatImageSizing.sampleSize(1200, 900, 1600));
+		assertEquals(16, ChatImageSizing.sampleSize(4000, 3000, 240));
+
+		assertArrayEquals(new int[] { 1600, 1200 }, ChatImageSizing.scaledSize(4000, 3000, 1600));
+		assertArrayEquals(new int[] { 600, 1600 }, ChatImageSizing.scaledSize(1500, 4000, 1600));
+		assertArrayEquals(new int[] { 1200, 900 }, ChatImageSizing.scaledSize(1200, 900, 1600));
+	}
+
+	@Test
+	public void picksTheHighestQualityThatFitsTheBudget() throws Exception {
+		List<Integer> tried = new ArrayList<>();
+		// ~1 KB por punto de calidad
+		ChatImageSizing.Encoder encoder = quality -> {
+			tried.add(quality);
+			return new byte[quality * 1000];
+		};
+
+		assertEquals(85_000, ChatImageSizing.fitToBudget(encoder, 100_000).length);
+		assertEquals(1, tried.size());
+
+		tried.clear();
+		assertEquals(60_000, ChatImageSizing.fitToBudget(encoder, 62_000).length);
+		// Búsqueda binaria: pocas codificaciones, no una por cada calidad
+		assertTrue(tried.toString(), tried.size() <= 5);
+
+		// Ni la mínima entra: se manda la mínima
+		tried.clear();
+		assertEquals(ChatImageSizing.MIN_QUALITY * 1000, ChatImageSizing.fitToBudget(encoder, 10_000).length);
+	}
+}
@@ -0,0 +1,132 @@
+package com.deliveryapp.repartidor;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Pruebas de la copia local de mensajes de chat.
+ */
+public class ChatMessageStoreTest {
+
+	private static File chatsDirectory() throws Exception {
+		return Files.createTempDirectory("chats").toFile();
+	}
+
+	private static String message(int id, String senderType) {
+		return message(id, senderType, null);
+	}
+
+	private static String message(int id, String senderType, String readAt) {
+		return "{\"id\":" + id + ",\"created_at\":\"2026-10-16T12:00:" + (id < 10 ? "0" : "") + id
+			+ ".000000+00:00\",\"sender_type\":\"" + senderType + "\",\"message\":\"m" + id + "\",\"read_at\":"
+			+ (readAt != null ? "\"" + readAt + "\"" : "null") + "}";
+	}
+
+	private static List<String> messages(int from, int to) {
+		List<String> rows = new ArrayList<>();
+		for (int id = from; id <= to; id++) {
+			rows.add(message(id, id % 2 == 0 ? "driver" : "company"));
+		}
+		return rows;
+	}
+
+	@Test
+	public void pagesGoBackwardsFromTheNewestMessage() throws Exception {
+		ChatMessageStore store = new ChatMessageStore(chatsDirectory());
+		List<String> rows = messages(1, 25);
+		Collections.shuffle(rows);
+		assertEquals(25, store.put("order-1", rows));
+
+		ChatMessageStore.Page last = store.page("order-1", null, 10);
+		assertEquals(messages(16, 25), last.rows);
+		assertTrue(last.hasMore);
+		assertEquals("25", last.latest.id);
+
+		ChatMessageStore.Page previous = store.page("order-1", new ChatMessageStore.Cursor(
+			"2026-10-16T12:00:16.000000+00:00", "16"), 10);
+		assertEquals(messages(6, 15), previous.rows);
+		assertTrue(previous.hasMore);
+
+		ChatMessageStore.Page first = store.page("order-1", new ChatMessageStore.Cursor(
+			"2026-10-16T12:00:06.000000+00:00", "6"), 10);
+		assertEquals(messages(1, 5), first.rows);
+		assertFalse(first.hasMore);
+	}
+
+	@Test
+	public void reopenedStoreKeepsMessagesAndSyncCursor() throws Exception {
+		File directory = chatsDirectory();
+		ChatMessageStore store = new ChatMessageStore(directory);
+		store.put("order-1", messages(1, 3));
+		store.put("support-9", messages(1, 1));
+		// Solo cambió read_at del 2: se guarda la fila nueva; el 3 es idéntico y no cuenta
+		assertEquals(1, store.put("order-1", Arrays.asList(message(4, "company"),
+			message(2, "driver", "2026-10-16T12:01:00+00:00"), message(3, "company"))));
+
+		ChatMessageStore reopened = new ChatMessageStore(directory);
+		assertEquals("4", reopened.latest("order-1").id);
+		assertEquals(Arrays.asList(message(1, "company"), message(2, "driver", "2026-10-16T12:01:00+00:00"),
+			message(3, "company"), message(4, "company")), reopened.page("order-1", null, 50).rows);
+		assertEquals(1, reopened.page("support-9", null, 50).rows.size());
+		assertNull(reopened.latest("order-2"));
+	}
+
+	@Test
+	public void unreadCountsOnlyOtherSideAfterLastRead() throws Exception {
+		File directory = chatsDirectory();
+		ChatMessageStore store = new ChatMessageStore(directory);
+		store.put("order-1", Arrays.asList(message(1, "company", "2026-10-16T12:00:30+00:00"),
+			message(2, "company"), message(3, "driver"), message(4, "company")));
+		assertEquals(2, store.unread("order-1", "driver"));
+
+		assertEquals(2, store.markRead("order-1", "driver"));
+		assertEquals(0, store.markRead("order-1", "driver"));
+
+		store.put("order-1", messages(5, 7));
+		assertEquals(2, new ChatMessageStore(directory).unread("order-1", "driver"));
+	}
+
+	@Test
+	public void ignoresTemporaryRowsAndTruncatedTail() throws Exception {
+		File directory = chatsDirectory();
+		ChatMessageStore store = new ChatMessageStore(directory);
+		assertEquals(0, store.put("order-1", Arrays.asList(
+			"{\"id\":\"temp-1\",\"created_at\":\"2026-10-16T12:00:00Z\"}", "{\"id\":5}", "no es json")));
+		store.put("order-1", messages(1, 2));
+
+		File file = new File(directory, "order-1.chat");
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.setLength(raf.length() - 3);
+		}
+		ChatMessageStore reopened = new ChatMessageStore(directory);
+		assertEquals(messages(1, 1), reopened.page("order-1", null, 10).rows);
+		assertEquals(1, reopened.put("order-1", messages(2, 2)));
+		assertEquals(messages(1, 2), new ChatMessageStore(directory).page("order-1", null, 10).rows);
+	}
+
+	@Test
+	public void compactsRepeatedUpdatesAndPrunesIdleChats() throws Exception {
+		File directory = chatsDirectory();
+		ChatMessageStore store = new ChatMessageStore(directory);
+		store.put("order-1", messages(1, 1));
+		for (int i = 0; i < 100; i++) {
+			store.put("order-1", Collections.singletonList(message(1, "company", "2026-10-16T12:01:" + (10 + i % 50) + "+00:00")));
+		}
+		File file = new File(directory, "order-1.chat");
+		assertTrue(file.length() < 64 * 200);
+		assertEquals(1, new ChatMessageStore(directory).page("order-1", null, 10).rows.size());
+
+		assertTrue(file.setLastModified(1000L));
+		assertEquals(1, store.prune(60_000L, 100_000L));
+		assertFalse(file.exists());
+		assertNull(store.latest("order-1"));
+	}
+}
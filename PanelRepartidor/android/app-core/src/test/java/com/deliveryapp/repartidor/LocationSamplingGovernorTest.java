@@ -0,0 +1,101 @@
+package com.deliveryapp.repartidor;
+
+import static org.junit.Assert.*;
+
+import com.deliveryapp.repartidor.LocationSamplingGovernor.Phase;
+import com.deliveryapp.repartidor.LocationSamplingGovernor.Priority;
+import com.deliveryapp.repartidor.LocationSamplingGovernor.Profile;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Pruebas del gobernador de muestreo GPS, con un turno reproducido segundo a segundo
+ * (ShiftTrace): qué perfil usa en cada parte del turno y cada cuánto entrega posiciones. Las
+ * posiciones por hora y el tiempo despierto contra el muestreo fijo anterior los mide
+ * LocationSamplingBenchmark.
+ */
+public class LocationSamplingGovernorTest {
+
+	@Test
+	public void matchesTheFixRateToWhatTrackingNeeds() {
+		ShiftTrace.Replay governed = ShiftTrace.shift().replay(new LocationSamplingGovernor(), 100);
+
+		// Detenido sin pedido: desde que lo nota, a lo sumo una posición por intervalo de PARKED
+		long parkedFrom = LocationSamplingGovernor.STILL_AFTER_MS + ShiftTrace.TICK_MS;
+		long parkedTo = 20 * 60_000L;
+		assertTrue(governed.fixesBetween(parkedFrom, parkedTo)
+			<= (parkedTo - parkedFrom) / LocationSamplingGovernor.PARKED.intervalMs + 1);
+
+		// Entrega: desde el primer minuto de viaje, posiciones como máximo cada 5 s, y cada 3 s
+		// en los últimos 400 m
+		long deliveryStart = (20 + 5 + 8 + 15) * 60_000L;
+		long deliveryEnd = deliveryStart + 12 * 60_000L;
+		long nearStart = deliveryEnd - (long) (LocationSamplingGovernor.NEAR_DESTINATION_METERS / 8 * 1000);
+		assertTrue(governed.maxGapMs(deliveryStart + 60_000, nearStart) <= LocationSamplingGovernor.NAVIGATING.intervalMs + 1000);
+		assertTrue(governed.maxGapMs(nearStart + 10_000, deliveryEnd) <= LocationSamplingGovernor.NEAR_DESTINATION.intervalMs + 1000);
+
+		assertTrue(governed.profiles.contains(LocationSamplingGovernor.WAITING));
+		assertTrue(governed.profiles.contains(LocationSamplingGovernor.PARKED));
+	}
+
+	@Test
+	public void lowBatteryRelaxesEverythingButTheArrival() {
+		ShiftTrace trace = ShiftTrace.shift();
+		ShiftTrace.Replay normal = trace.replay(new LocationSamplingGovernor(), 80);
+		ShiftTrace.Replay low = trace.replay(new LocationSamplingGovernor(), 15);
+		assertTrue(low.fixes < normal.fixes);
+		for (Profile profile : low.profiles) {
+			assertTrue(profile.toString(), profile == LocationSamplingGovernor.NEAR_DESTINATION
+				|| profile.priority != Priority.HIGH_ACCURACY);
+		}
+		assertTrue(low.profiles.contains(LocationSamplingGovernor.NEAR_DESTINATION));
+
+		LocationSamplingGovernor governor = new LocationSamplingGovernor();
+		governor.setPhase(Phase.TO_DELIVERY, 0);
+		governor.setBattery(5, false, LocationSamplingGovernor.DOWNGRADE_AFTER_MS);
+		assertEquals(Priority.LOW_POWER, governor.profile().priority);
+		governor.setBattery(5, true, LocationSamplingGovernor.DOWNGRADE_AFTER_MS + 1000);
+		assertEquals(LocationSamplingGovernor.NAVIGATING, governor.profile());
+	}
+
+	@Test
+	public void raisesTheRateAtOnceButLowersItOnlyAfterAWhile() {
+		LocationSamplingGovernor governor = new LocationSamplingGovernor();
+		assertEquals(LocationSamplingGovernor.ROAMING, governor.profile());
+
+		assertTrue(governor.setPhase(Phase.TO_PICKUP, 0));
+		assertEquals(LocationSamplingGovernor.NAVIGATING, governor.profile());
+
+		// El pedido se cancela: no se baja enseguida
+		assertFalse(governor.setPhase(Phase.IDLE, 10_000));
+		assertEquals(LocationSamplingGovernor.NAVIGATING, governor.profile());
+		assertTrue(governor.onFix(-33.45, -70.65, 10, 8, LocationSamplingGovernor.DOWNGRADE_AFTER_MS));
+		assertEquals(LocationSamplingGovernor.ROAMING, governor.profile());
+	}
+
+	@Test
+	public void gpsJitterDoesNotLookLikeMovement() {
+		LocationSamplingGovernor governor = new LocationSamplingGovernor();
+		Random random = new Random(3);
+		for (long t = 0; t <= LocationSamplingGovernor.STILL_AFTER_MS; t += 5_000) {
+			// Fixes de red con ~60 m de precisión que saltan hasta ~80 m entre sí, sin velocidad
+			governor.onFix(-33.45 + (random.nextDouble() - 0.5) * 0.0007, -70.65, 60, Float.NaN, t);
+		}
+		assertTrue(governor.isStationary());
+		assertEquals(LocationSamplingGovernor.PARKED, governor.profile());
+
+		governor.onFix(-33.45, -70.65, 10, 6, LocationSamplingGovernor.STILL_AFTER_MS + 5_000);
+		assertFalse(governor.isStationary());
+		assertEquals(LocationSamplingGovernor.ROAMING, governor.profile());
+		// Sin posiciones nuevas (LocationManager filtra por distancia mínima): también parado
+		LocationSamplingGovernor quiet = new LocationSamplingGovernor();
+		quiet.setPhase(Phase.TO_PICKUP, 0);
+		quiet.onFix(-33.45, -70.65, 8, 0, 0);
+		assertFalse(quiet.onTick(LocationSamplingGovernor.STILL_AFTER_MS - 1));
+		assertTrue(quiet.onTick(LocationSamplingGovernor.STILL_AFTER_MS));
+		assertEquals(LocationSamplingGovernor.WAITING, quiet.profile());
+
+		assertEquals(Phase.TO_DELIVERY, Phase.parse(" to_delivery"));
+		assertEquals(Phase.IDLE, Phase.parse(null));
+	}
+}
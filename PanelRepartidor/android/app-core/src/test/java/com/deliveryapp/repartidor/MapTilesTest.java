@@ -0,0 +1,87 @@
+package com.deliveryapp.repartidor;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Pruebas de los tiles de OpenStreetMap servidos desde el pack.
+ */
+public class MapTilesTest {
+
+	private MockWebServer server;
+	private TilePack pack;
+	private MapTiles tiles;
+
+	@Before
+	public void setUp() throws Exception {
+		server = new MockWebServer();
+		server.start();
+		pack = new TilePack(new File(Files.createTempDirectory("tiles").toFile(), "tiles.pack"), 256, 64 * 1024);
+		String baseUrl = server.url("/").toString();
+		tiles = new MapTiles(pack, new NativeHttpClient(new OkHttpClient.Builder()),
+			baseUrl.substring(0, baseUrl.length() - 1));
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		pack.close();
+		server.shutdown();
+	}
+
+	private static MockResponse png(int length) {
+		return new MockResponse().setBody(new Buffer().write(new byte[length])).setHeader("Content-Type", "image/png");
+	}
+
+	@Test
+	public void recognizesOnlyOpenStreetMapTileUrls() {
+		long key = MapTiles.keyForUrl("https://b.tile.openstreetmap.org/16/19906/39233.png");
+		assertEquals(MapTiles.key(16, 19906, 39233), key);
+		assertEquals(key, MapTiles.keyForUrl("https://tile.openstreetmap.org/16/19906/39233.png"));
+		assertEquals(-1, MapTiles.keyForUrl("https://a.tile.openstreetmap.org/3/8/1.png"));
+		assertEquals(-1, MapTiles.keyForUrl("https://unpkg.com/leaflet/dist/images/marker-icon.png"));
+		assertEquals(-1, MapTiles.keyForUrl("https://a.tile.openstreetmap.org/16/19906/39233.png?x=1"));
+
+		assertEquals(19906, MapTiles.tileX(-70.6506, 16));
+		assertEquals(39233, MapTiles.tileY(-33.4372, 16));
+	}
+
+	@Test
+	public void downloadsEachTileOnce() throws Exception {
+		server.enqueue(png(1200));
+		long key = MapTiles.key(16, 19906, 39233);
+
+		assertEquals(1200, tiles.tile(key).length);
+		assertEquals(1200, tiles.tile(key).length);
+		assertEquals(1, server.getRequestCount());
+		RecordedRequest request = server.takeRequest();
+		assertEquals("/16/19906/39233.png", request.getPath());
+		assertEquals("DeliveryApp/1.0", request.getHeader("User-Agent"));
+
+		server.enqueue(new MockResponse().setResponseCode(503));
+		assertNull(tiles.tile(MapTiles.key(16, 19906, 39234)));
+	}
+
+	@Test
+	public void prefetchSkipsStoredTilesAndRespectsLimit() throws Exception {
+		for (int i = 0; i < 20; i++) {
+			server.enqueue(png(100));
+		}
+		// Radio chico: un tile en z14 y z15, y los vecinos que toque en z16
+		int first = tiles.prefetch(-33.4372, -70.6506, 200, 14, 16, 3);
+		assertEquals(3, first);
+		int rest = tiles.prefetch(-33.4372, -70.6506, 200, 14, 16, 20);
+		assertEquals(first + rest, server.getRequestCount());
+		assertEquals(first + rest, pack.size());
+		assertEquals(0, tiles.prefetch(-33.4372, -70.6506, 200, 14, 16, 20));
+	}
+}
@@ -0,0 +1,161 @@
+package com.deliveryapp.repartidor;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.ByteString;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Pruebas de la subida reanudable (TUS) a Storage: tramos desde el archivo, reanudación tras
+ * un corte y continuación de una subida guardada.
+ */
+public class ResumableUploadTest {
+	private static final Map<String, String> AUTH = Collections.singletonMap("apikey", "anon");
+
+	private MockWebServer server;
+	private ResumableUpload upload;
+	private File file;
+
+	@Before
+	public void setUp() throws Exception {
+		server = new MockWebServer();
+		server.start();
+		// Tramos de 4 bytes para un archivo de 10. Sin el reintento automático de OkHttp, para
+		// que el corte llegue a ResumableUpload
+		upload = new ResumableUpload(new NativeHttpClient(new OkHttpClient.Builder().retryOnConnectionFailure(false)),
+			server.url("/storage/v1/upload/resumable").toString(), 4);
+		file = new File(Files.createTempDirectory("upload").toFile(), "photo.jpg");
+		Files.write(file.toPath(), "0123456789".getBytes("UTF-8"));
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		server.shutdown();
+	}
+
+	private static MockResponse created(String location) {
+		return new MockResponse().setResponseCode(201).setHeader("Location", location);
+	}
+
+	private static MockResponse accepted(long offset) {
+		return new MockResponse().setResponseCode(204).setHeader("Upload-Offset", offset);
+	}
+
+	private File stateFile() {
+		return new File(file.getPath() + ".tus");
+	}
+
+	@Test
+	public void createsTheUploadAndSendsTheFileInChunks() throws Exception {
+		server.enqueue(created("/storage/v1/upload/resumable/abc"));
+		server.enqueue(accepted(4));
+		server.enqueue(accepted(8));
+		server.enqueue(accepted(10));
+
+		upload.upload(file, "avatars", "chat_images/1_2_3.jpg", "image/jpeg", "3600", AUTH);
+
+		RecordedRequest create = server.takeRequest();
+		assertEquals("POST", create.getMethod());
+		assertEquals("10", create.getHeader("Upload-Length"));
+		assertEquals("1.0.0", create.getHeader("Tus-Resumable"));
+		assertEquals("anon", create.getHeader("apikey"));
+		String metadata = create.getHeader("Upload-Metadata");
+		assertTrue(metadata.startsWith("bucketName " + ByteString.encodeUtf8("avatars").base64() + ","));
+		assertTrue(metadata.contains("objectName " + ByteString.encodeUtf8("chat_images/1_2_3.jpg").base64()));
+
+		String[] bodies = { "0123", "4567", "89" };
+		for (int i = 0; i < bodies.length; i++) {
+			RecordedRequest chunk = server.takeRequest();
+			assertEquals("PATCH", chunk.getMethod());
+			assertEquals("/storage/v1/upload/resumable/abc", chunk.getPath());
+			assertEquals(String.valueOf(i * 4), chunk.getHeader("Upload-Offset"));
+			assertEquals("application/offset+octet-stream", chunk.getHeader("Content-Type"));
+			assertEquals(bodies[i], chunk.getBody().readUtf8());
+		}
+		assertFalse(stateFile().exists());
+	}
+
+	@Test
+	public void resumesFromTheServerOffsetAfterAConnectionDrop() throws Exception {
+		server.enqueue(created("/storage/v1/upload/resumable/abc"));
+		server.enqueue(accepted(4));
+		server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST));
+		server.enqueue(new MockResponse().setHeader("Upload-Offset", 4));
+		server.enqueue(accepted(8));
+		server.enqueue(accepted(10));
+
+		upload.upload(file, "avatars", "chat_images/a.jpg", "image/jpeg", "3600", AUTH);
+
+		assertEquals("POST", server.takeRequest().getMethod());
+		assertEquals("PATCH", server.takeRequest().getMethod());
+		assertEquals("PATCH", server.takeRequest().getMethod());
+		RecordedRequest head = server.takeRequest();
+		assertEquals("HEAD", head.getMethod());
+		assertEquals("/storage/v1/upload/resumable/abc", head.getPath());
+		RecordedRequest resumed = server.takeRequest();
+		assertEquals("4", resumed.getHeader("Upload-Offset"));
+		assertEquals("4567", resumed.getBody().readUtf8());
+		assertEquals(6, server.getRequestCount());
+		assertFalse(stateFile().exists());
+	}
+
+	@Test
+	public void continuesASavedUploadOrStartsOverIfItExpired() throws Exception {
+		Files.write(stateFile().toPath(), server.url("/storage/v1/upload/resumable/old").toString().getBytes("UTF-8"));
+		server.enqueue(new MockResponse().setHeader("Upload-Offset", 8));
+		server.enqueue(accepted(10));
+
+		upload.upload(file, "avatars", "chat_images/a.jpg", "image/jpeg", "3600", AUTH);
+
+		assertEquals("HEAD", server.takeRequest().getMethod());
+		RecordedRequest last = server.takeRequest();
+		assertEquals("8", last.getHeader("Upload-Offset"));
+		assertEquals("89", last.getBody().readUtf8());
+
+		// Subida vencida en el servidor: se crea otra
+		Files.write(stateFile().toPath(), server.url("/storage/v1/upload/resumable/gone").toString().getBytes("UTF-8"));
+		server.enqueue(new MockResponse().setResponseCode(404));
+		server.enqueue(created("/storage/v1/upload/resumable/new"));
+		server.enqueue(accepted(4));
+		server.enqueue(accepted(8));
+		server.enqueue(accepted(10));
+		upload.upload(file, "avatars", "chat_images/a.jpg", "image/jpeg", "3600", AUTH);
+		assertEquals("HEAD", server.takeRequest().getMethod());
+		assertEquals("POST", server.takeRequest().getMethod());
+		assertEquals("/storage/v1/upload/resumable/new", server.takeRequest().getPath());
+	}
+
+	@Test
+	public void existingObjectCountsAsUploadedAndFailuresKeepTheState() throws Exception {
+		server.enqueue(new MockResponse().setResponseCode(409));
+		upload.upload(file, "avatars", "chat_images/a.jpg", "image/jpeg", "3600", AUTH);
+		assertEquals(1, server.getRequestCount());
+
+		server.enqueue(created("/storage/v1/upload/resumable/abc"));
+		for (int i = 0; i < 3; i++) {
+			server.enqueue(new MockResponse().setResponseCode(500));
+			if (i < 2) {
+				server.enqueue(new MockResponse().setHeader("Upload-Offset", 0));
+			}
+		}
+		try {
+			upload.upload(file, "avatars", "chat_images/b.jpg", "image/jpeg", "3600", AUTH);
+			fail("Se esperaba IOException");
+		} catch (java.io.IOException e) {
+			assertTrue(e.getMessage().contains("500"));
+		}
+		// La próxima llamada continúa esta subida
+		assertTrue(stateFile().exists());
+	}
+}
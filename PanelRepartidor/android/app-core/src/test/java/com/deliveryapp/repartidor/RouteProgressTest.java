@@ -0,0 +1,109 @@
+package com.deliveryapp.repartidor;
+
+import static org.junit.Assert.*;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+/**
+ * Pruebas del avance sobre una ruta: proyección de posiciones, ETA y desvíos.
+ */
+public class RouteProgressTest {
+	// ~111 m por milésima de grado de latitud
+	private static final double STEP = 0.001;
+
+	/**
+	 * Ruta hacia el norte por la misma longitud y luego hacia el este, como la devuelve GeoLookup
+	 */
+	private static JSONObject route(double durationMin) throws Exception {
+		JSONArray coordinates = new JSONArray();
+		for (int i = 0; i <= 10; i++) {
+			coordinates.put(new JSONArray().put(-70.6).put(-33.45 + i * STEP));
+		}
+		for (int i = 1; i <= 10; i++) {
+			coordinates.put(new JSONArray().put(-70.6 + i * STEP).put(-33.44));
+		}
+		return new JSONObject()
+			.put("distance", 2.0)
+			.put("duration", durationMin)
+			.put("geometry", new JSONObject().put("type", "LineString").put("coordinates", coordinates));
+	}
+
+	@Test
+	public void remainingDistanceAndEtaFollowTheDriver() throws Exception {
+		RouteProgress progress = RouteProgress.fromRoute(route(4));
+		double total = progress.totalMeters();
+		// 10 tramos de ~111 m hacia el norte y 10 de ~93 m hacia el este
+		assertEquals(2040, total, 30);
+
+		RouteProgress.Fix start = progress.update(-33.45, -70.6);
+		assertEquals(total, start.remainingMeters, 1);
+		assertEquals(240, start.remainingSeconds, 1);
+		assertFalse(start.offRoute);
+
+		// A mitad del primer tramo, corrido 10 m al costado: sigue en la ruta
+		RouteProgress.Fix middle = progress.update(-33.445, -70.6001);
+		assertEquals(total - 556, middle.remainingMeters, 5);
+		assertEquals(9, middle.distanceFromRoute, 2);
+		assertFalse(middle.offRoute);
+		assertFalse(middle.needsReroute);
+
+		RouteProgress.Fix corner = progress.update(-33.44, -70.595);
+		assertEquals(total - 1112 - 465, corner.remainingMeters, 10);
+		assertTrue(corner.remainingSeconds < middle.remainingSeconds);
+
+		RouteProgress.Fix end = progress.update(-33.44, -70.5901);
+		assertTrue(end.arrived);
+		assertEquals(-33.44, progress.destinationLat(), 1e-6);
+		assertEquals(-70.59, progress.destinationLon(), 1e-6);
+	}
+
+	@Test
+	public void reroutesOnlyAfterLeavingTheCorridor() throws Exception {
+		RouteProgress progress = RouteProgress.fromRoute(route(4));
+		progress.update(-33.448, -70.6);
+
+		// Un punto suelto fuera del corredor (GPS impreciso) no pide otra ruta
+		RouteProgress.Fix jitter = progress.update(-33.447, -70.6008);
+		assertTrue(jitter.offRoute);
+		assertFalse(jitter.needsReroute);
+		assertFalse(progress.update(-33.446, -70.6).offRoute);
+
+		// Varios seguidos sí
+		RouteProgress.Fix fix = null;
+		for (int i = 0; i < RouteProgress.OFF_ROUTE_FIXES; i++) {
+			fix = progress.update(-33.446 + i * 0.0002, -70.6008);
+			assertEquals(i == RouteProgress.OFF_ROUTE_FIXES - 1, fix.needsReroute);
+		}
+		assertFalse(fix.arrived);
+
+		// Muy lejos de la ruta, de inmediato
+		RouteProgress far = RouteProgress.fromRoute(route(4));
+		assertTrue(far.update(-33.45, -70.61).needsReroute);
+	}
+
+	@Test
+	public void findsTheDriverAfterAJumpAlongTheRoute() throws Exception {
+		RouteProgress progress = RouteProgress.fromRoute(route(4));
+		progress.update(-33.45, -70.6);
+		// Sin posiciones intermedias (app en segundo plano): igual se ubica en el último tramo
+		RouteProgress.Fix fix = progress.update(-33.44, -70.5915);
+		assertFalse(fix.offRoute);
+		assertEquals(140, fix.remainingMeters, 10);
+	}
+
+	@Test
+	public void singlePointRouteAndMissingDuration() throws Exception {
+		JSONObject point = new JSONObject()
+			.put("distance", 0)
+			.put("geometry", new JSONObject().put("coordinates",
+				new JSONArray().put(new JSONArray().put(-70.6).put(-33.45))));
+		RouteProgress progress = RouteProgress.fromRoute(point);
+		assertEquals(0, progress.totalMeters(), 0);
+		RouteProgress.Fix fix = progress.update(-33.45, -70.6);
+		assertTrue(fix.arrived);
+		assertEquals(0, fix.remainingSeconds, 0);
+		assertTrue(progress.update(-33.449, -70.6).offRoute);
+	}
+}
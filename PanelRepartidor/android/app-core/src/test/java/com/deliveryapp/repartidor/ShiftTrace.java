@@ -0,0 +1,210 @@
+package com.deliveryapp.repartidor;
+
+import com.deliveryapp.repartidor.LocationSamplingGovernor.Phase;
+import com.deliveryapp.repartidor.LocationSamplingGovernor.Priority;
+import com.deliveryapp.repartidor.LocationSamplingGovernor.Profile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Recorrido de un driver segundo a segundo para reproducirlo contra el gobernador de muestreo
+ * GPS. Lo usan LocationSamplingGovernorTest (qué perfil y cada cuánto) y
+ * LocationSamplingBenchmark (cuántas posiciones y cuánto tiempo despierto contra el muestreo fijo).
+ */
+final class ShiftTrace {
+	// Muestreo fijo anterior: GPS cada 5 s / 5 m todo el tiempo
+	static final Profile LEGACY = new Profile("legacy", Priority.HIGH_ACCURACY, 5_000, 5);
+
+	// Costo estimado: con GPS a 10 s o menos el receptor no se apaga nunca (cuenta todo el tiempo,
+	// se entreguen o no posiciones); con intervalos mayores cada fix es un arranque en caliente.
+	// Red y bajo consumo solo despiertan la CPU para procesar cada fix.
+	private static final long GPS_CONTINUOUS_MAX_INTERVAL_MS = 10_000;
+	private static final long GPS_WARM_START_MS = 6_000;
+	private static final long NETWORK_FIX_MS = 1_000;
+	private static final long LOW_POWER_FIX_MS = 300;
+	// Revisión periódica del tracker (NativeLocationTracker.CHECK_INTERVAL_MS)
+	static final long TICK_MS = 15_000;
+
+	/**
+	 * Un segundo del recorrido
+	 */
+	private static final class Point {
+		final long timeMs;
+		final double lat;
+		final double lon;
+		final float speed;
+		final Phase phase;
+		// Distancia al destino del tramo (NaN sin pedido en curso)
+		final double remaining;
+
+		Point(long timeMs, double lat, double lon, float speed, Phase phase, double remaining) {
+			this.timeMs = timeMs;
+			this.lat = lat;
+			this.lon = lon;
+			this.speed = speed;
+			this.phase = phase;
+			this.remaining = remaining;
+		}
+	}
+
+	private final List<Point> points = new ArrayList<>();
+	private final Random random = new Random(7);
+	private double lat = -33.45;
+	private double lon = -70.65;
+
+	ShiftTrace park(Phase phase, int seconds) {
+		for (int i = 0; i < seconds; i++) {
+			double noise = 0.0002; // ±10 m, lo típico del GPS detenido en ciudad
+			add(lat + (random.nextDouble() - 0.5) * noise, lon + (random.nextDouble() - 0.5) * noise,
+				(float) (random.nextDouble() * 0.5), phase, phase == Phase.IDLE ? Double.NaN : 0);
+		}
+		return this;
+	}
+
+	/**
+	 * Hacia el norte a velocidad constante; el destino del tramo es el final del trayecto
+	 */
+	ShiftTrace drive(Phase phase, int seconds, float speed) {
+		double step = speed / 111_195.0;
+		for (int i = 1; i <= seconds; i++) {
+			lat += step;
+			double remaining = phase.onTrip() ? (seconds - i) * speed : Double.NaN;
+			add(lat, lon, speed, phase, remaining);
+		}
+		return this;
+	}
+
+	private void add(double pointLat, double pointLon, float speed, Phase phase, double remaining) {
+		points.add(new Point(points.size() * 1000L, pointLat, pointLon, speed, phase, remaining));
+	}
+
+	/**
+	 * Resultado de reproducir el recorrido
+	 */
+	static final class Replay {
+		int fixes;
+		// Tiempo con el GPS o la CPU despiertos según el costo estimado de arriba
+		long awakeMs;
+		long durationMs;
+		final List<Long> fixTimes = new ArrayList<>();
+		final List<Profile> profiles = new ArrayList<>();
+
+		double fixesPerHour() {
+			return fixes * 3_600_000.0 / durationMs;
+		}
+
+		/**
+		 * Posiciones entregadas dentro de [fromMs, toMs)
+		 */
+		int fixesBetween(long fromMs, long toMs) {
+			int count = 0;
+			for (long time : fixTimes) {
+				if (time >= fromMs && time < toMs) {
+					count++;
+				}
+			}
+			return count;
+		}
+
+		/**
+		 * Mayor separación entre posiciones entregadas dentro de [fromMs, toMs)
+		 */
+		long maxGapMs(long fromMs, long toMs) {
+			long gap = 0;
+			long previous = fromMs;
+			for (long time : fixTimes) {
+				if (time < fromMs) {
+					continue;
+				}
+				if (time >= toMs) {
+					break;
+				}
+				gap = Math.max(gap, time - previous);
+				previous = time;
+			}
+			return Math.max(gap, toMs - previous);
+		}
+	}
+
+	/**
+	 * Entrega posiciones como LocationManager: solo si pasó el intervalo y el driver se movió la
+	 * distancia mínima desde la última entregada
+	 * @param governor null = perfil fijo LEGACY
+	 */
+	Replay replay(LocationSamplingGovernor governor, int battery) {
+		Replay result = new Replay();
+		Profile profile = LEGACY;
+		Phase phase = null;
+		Point delivered = null;
+		if (governor != null) {
+			governor.setBattery(battery, false, 0);
+			profile = governor.profile();
+		}
+		for (Point point : points) {
+			if (governor != null && point.phase != phase) {
+				phase = point.phase;
+				governor.setPhase(phase, point.timeMs);
+				profile = governor.profile();
+			}
+			if (governor != null && point.timeMs % TICK_MS == 0 && governor.onTick(point.timeMs)) {
+				profile = governor.profile();
+				result.profiles.add(profile);
+			}
+			if (gpsAlwaysOn(profile)) {
+				result.awakeMs += 1000;
+			}
+			boolean due = delivered == null || (point.timeMs - delivered.timeMs >= profile.intervalMs
+				&& LocationSamplingGovernor.distanceMeters(delivered.lat, delivered.lon, point.lat, point.lon) >= profile.minDistanceMeters);
+			if (!due) {
+				continue;
+			}
+			delivered = point;
+			result.fixes++;
+			result.fixTimes.add(point.timeMs);
+			result.awakeMs += fixCost(profile);
+			if (governor != null) {
+				governor.setRemainingMeters(point.remaining);
+				governor.onFix(point.lat, point.lon, profile.priority == Priority.HIGH_ACCURACY ? 8 : 40,
+					profile.priority == Priority.HIGH_ACCURACY ? point.speed : Float.NaN, point.timeMs);
+				if (governor.profile() != profile) {
+					profile = governor.profile();
+					result.profiles.add(profile);
+				}
+			}
+		}
+		result.durationMs = points.size() * 1000L;
+		return result;
+	}
+
+	private static boolean gpsAlwaysOn(Profile profile) {
+		return profile.priority == Priority.HIGH_ACCURACY && profile.intervalMs <= GPS_CONTINUOUS_MAX_INTERVAL_MS;
+	}
+
+	private static long fixCost(Profile profile) {
+		switch (profile.priority) {
+			case HIGH_ACCURACY:
+				return gpsAlwaysOn(profile) ? 0 : GPS_WARM_START_MS;
+			case BALANCED:
+				return NETWORK_FIX_MS;
+			default:
+				return LOW_POWER_FIX_MS;
+		}
+	}
+
+	/**
+	 * Turno de ~75 min: espera sin pedido, reubicación, viaje al local, espera del pedido,
+	 * entrega y vuelta a esperar
+	 */
+	static ShiftTrace shift() {
+		return new ShiftTrace()
+			.park(Phase.IDLE, 20 * 60)
+			.drive(Phase.IDLE, 5 * 60, 6)
+			.drive(Phase.TO_PICKUP, 8 * 60, 8)
+			.park(Phase.TO_PICKUP, 15 * 60)
+			.drive(Phase.TO_DELIVERY, 12 * 60, 8)
+			.park(Phase.TO_DELIVERY, 3 * 60)
+			.park(Phase.IDLE, 10 * 60);
+	}
+
+}
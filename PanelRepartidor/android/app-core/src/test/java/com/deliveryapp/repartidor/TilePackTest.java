@@ -0,0 +1,126 @@
+package com.deliveryapp.repartidor;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.junit.Test;
+
+/**
+ * Pruebas del pack de tiles mapeado en memoria (anillo de datos con índice).
+ */
+public class TilePackTest {
+
+	private static File packFile() throws Exception {
+		return new File(Files.createTempDirectory("tiles").toFile(), "tiles.pack");
+	}
+
+	private static byte[] tile(int seed, int length) {
+		byte[] data = new byte[length];
+		Arrays.fill(data, (byte) seed);
+		return data;
+	}
+
+	@Test
+	public void storesAndReopensTiles() throws Exception {
+		File file = packFile();
+		try (TilePack pack = new TilePack(file, 16, 4096)) {
+			assertTrue(pack.put(MapTiles.key(16, 19906, 39233), tile(1, 300)));
+			assertTrue(pack.put(MapTiles.key(16, 19906, 39234), tile(2, 200)));
+			// Reemplazar un tile deja una sola copia
+			assertTrue(pack.put(MapTiles.key(16, 19906, 39233), tile(3, 100)));
+			assertEquals(2, pack.size());
+		}
+
+		try (TilePack reopened = new TilePack(file, 16, 4096)) {
+			assertArrayEquals(tile(3, 100), reopened.get(MapTiles.key(16, 19906, 39233)));
+			assertArrayEquals(tile(2, 200), reopened.get(MapTiles.key(16, 19906, 39234)));
+			assertNull(reopened.get(MapTiles.key(15, 9953, 19616)));
+			assertEquals(1, reopened.stats().getLong("misses"));
+		}
+
+		// Con otro tamaño el pack se recrea vacío
+		try (TilePack resized = new TilePack(file, 32, 4096)) {
+			assertEquals(0, resized.size());
+		}
+	}
+
+	@Test
+	public void evictsOldestTilesWhenTheRingWraps() throws Exception {
+		try (TilePack pack = new TilePack(packFile(), 64, 1000)) {
+			for (int i = 1; i <= 10; i++) {
+				assertTrue(pack.put(i, tile(i, 100)));
+			}
+			assertEquals(10, pack.size());
+
+			// El 11 vuelve al principio y pisa al 1; el 12 pisa al 2
+			pack.put(11, tile(11, 100));
+			pack.put(12, tile(12, 100));
+			assertNull(pack.get(1));
+			assertNull(pack.get(2));
+			assertArrayEquals(tile(3, 100), pack.get(3));
+			assertEquals(10, pack.size());
+			assertEquals(1000, pack.stats().getLong("bytes"));
+			assertFalse(pack.put(13, tile(13, 126)));
+		}
+	}
+
+	@Test
+	public void readTilesSurviveAndSlotsAreBounded() throws Exception {
+		try (TilePack pack = new TilePack(packFile(), 64, 1000)) {
+			for (int i = 1; i <= 10; i++) {
+				pack.put(i, tile(i, 100));
+			}
+			// El 1 está por ser pisado: al leerlo se reescribe en la cabeza del anillo
+			assertNotNull(pack.get(1));
+			for (int i = 11; i <= 18; i++) {
+				pack.put(i, tile(i, 100));
+			}
+			assertArrayEquals(tile(1, 100), pack.get(1));
+			assertNull(pack.get(2));
+			assertNull(pack.get(3));
+		}
+
+		try (TilePack pack = new TilePack(packFile(), 4, 1000)) {
+			for (int i = 1; i <= 6; i++) {
+				pack.put(i, tile(i, 10));
+			}
+			assertEquals(4, pack.size());
+			assertNull(pack.get(1));
+			assertNotNull(pack.get(6));
+		}
+	}
+
+	@Test
+	public void dropsTilesWithBadChecksum() throws Exception {
+		File file = packFile();
+		try (TilePack pack = new TilePack(file, 8, 1000)) {
+			pack.put(7, tile(7, 50));
+			pack.put(8, tile(8, 50));
+		}
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			// Primer byte de datos (después de la cabecera y las 8 ranuras)
+			raf.seek(64 + 8 * 24);
+			raf.write(0x55);
+		}
+		try (TilePack pack = new TilePack(file, 8, 1000)) {
+			assertNull(pack.get(7));
+			assertArrayEquals(tile(8, 50), pack.get(8));
+			assertEquals(1, pack.size());
+		}
+	}
+
+	@Test
+	public void onlyOneOpenPackPerFile() throws Exception {
+		File file = packFile();
+		try (TilePack pack = new TilePack(file, 8, 1000)) {
+			pack.put(7, tile(7, 50));
+			assertNull(TilePack.tryOpen(file, 8, 1000));
+		}
+		try (TilePack pack = TilePack.tryOpen(file, 8, 1000)) {
+			assertArrayEquals(tile(7, 50), pack.get(7));
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package com.deliveryapp.repartidor;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Pruebas del pack del bundle web: armado desde un dist de prueba y lectura mapeada.
+ */
+public class WebBundlePackTest {
+
+	private static final String SCRIPT = repeat("export const pedido = { estado: 'pendiente' };\n", 200);
+
+	private static String repeat(String text, int times) {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < times; i++) {
+			builder.append(text);
+		}
+		return builder.toString();
+	}
+
+	private static File bundle() throws Exception {
+		File root = Files.createTempDirectory("dist").toFile();
+		new File(root, "assets").mkdirs();
+		write(new File(root, "index.html"), "<html></html>".getBytes(StandardCharsets.UTF_8));
+		write(new File(root, "assets/index-3f2a9c.js"), SCRIPT.getBytes(StandardCharsets.UTF_8));
+		byte[] png = new byte[500];
+		new Random(7).nextBytes(png);
+		write(new File(root, "assets/logo-88b1.png"), png);
+		write(new File(root, "manifest.json"), "{\"name\":\"Repartidor\"}".getBytes(StandardCharsets.UTF_8));
+		write(new File(root, "assets/aviso-5c1d.mp3"), new byte[64]);
+		return root;
+	}
+
+	private static void write(File file, byte[] data) throws IOException {
+		Files.write(file.toPath(), data);
+	}
+
+	private static WebBundlePack open(File file) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			// El mapeo sigue vivo después de cerrar el archivo, igual que en la app
+			return WebBundlePack.read(raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length()));
+		}
+	}
+
+	private static byte[] readAll(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[1000];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+		return out.toByteArray();
+	}
+
+	@Test
+	public void servesFilesFromTheMappedPack() throws Exception {
+		File root = bundle();
+		File file = new File(Files.createTempDirectory("pack").toFile(), "web-bundle.pack");
+		WebBundlePacker.pack(root, file);
+		WebBundlePack pack = open(file);
+
+		// El index.html lo sirve Capacitor (inyecta el bridge), y también el audio (lo pide con Range)
+		assertEquals(3, pack.size());
+		assertNull(pack.find("index.html"));
+		assertNull(pack.find("assets/aviso-5c1d.mp3"));
+
+		WebBundlePack.Resource script = pack.find("assets/index-3f2a9c.js");
+		assertEquals("application/javascript", script.mimeType);
+		assertTrue(script.immutable);
+		assertEquals("public, max-age=31536000, immutable", script.cacheControl());
+		assertEquals(SCRIPT.length(), script.length());
+		assertEquals(SCRIPT, new String(readAll(script.open()), StandardCharsets.UTF_8));
+
+		WebBundlePack.Resource png = pack.find("assets/logo-88b1.png");
+		assertEquals("image/png", png.mimeType);
+		assertArrayEquals(Files.readAllBytes(new File(root, "assets/logo-88b1.png").toPath()), readAll(png.open()));
+
+		WebBundlePack.Resource manifest = pack.find("manifest.json");
+		assertFalse(manifest.immutable);
+		assertEquals("no-cache", manifest.cacheControl());
+		assertNull(pack.find("assets/otro.js"));
+	}
+
+	@Test
+	public void alignsEveryFile() throws Exception {
+		File file = new File(Files.createTempDirectory("pack").toFile(), "web-bundle.pack");
+		long bytes = WebBundlePacker.pack(bundle(), file);
+
+		assertEquals(Files.size(file.toPath()), bytes);
+		assertEquals(0, bytes % WebBundlePack.ALIGNMENT);
+		// Cada stream es independiente del otro
+		WebBundlePack.Resource script = open(file).find("assets/index-3f2a9c.js");
+		InputStream first = script.open();
+		assertEquals('e', first.read());
+		assertEquals(SCRIPT, new String(readAll(script.open()), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void listsWhatGoesInThePackSoTheBuildSkipsIt() throws Exception {
+		assertEquals(Arrays.asList("assets/index-3f2a9c.js", "assets/logo-88b1.png", "manifest.json"),
+			WebBundlePacker.packedPaths(bundle()));
+	}
+
+	@Test(expected = IOException.class)
+	public void rejectsAnythingElse() throws Exception {
+		WebBundlePack.read(ByteBuffer.wrap(new byte[64]));
+	}
+}
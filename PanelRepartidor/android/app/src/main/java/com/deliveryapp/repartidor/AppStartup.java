@@ -0,0 +1,123 @@
+package com.deliveryapp.repartidor;
+
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.content.Context;
+import android.os.Build;
+import android.util.Log;
+import androidx.annotation.WorkerThread;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tareas de arranque que no necesita el primer frame: canal de notificaciones de pedidos,
+ * trabajos de WorkManager y vaciado de la cola offline. MainActivity las lanza en un hilo
+ * aparte para no demorar la creación del bridge ni la primera pintura del WebView.
+ */
+final class AppStartup {
+	private static final String TAG = "AppStartup";
+	static final String PERIODIC_WORK_NAME = "order_notification_work";
+	static final String ORDER_CHANNEL_ID = "order_notifications";
+	
+	private static final Executor EXECUTOR = Executors.newSingleThreadExecutor();
+	
+	private AppStartup() {
+	}
+	
+	static void runDeferred(Context context) {
+		runDeferred(context, EXECUTOR, StartupTrace.get());
+	}
+	
+	/**
+	 * Tareas cortas de la UI que tocan disco, en el mismo hilo que las diferidas del arranque
+	 */
+	static void runInBackground(Runnable task) {
+		EXECUTOR.execute(task);
+	}
+	
+	static void runDeferred(Context context, Executor executor, StartupTrace trace) {
+		Context app = context.getApplicationContext();
+		executor.execute(() -> {
+			try {
+				createOrderNotificationChannel(app);
+				// Programar verificación periódica de pedidos en segundo plano
+				ensurePeriodicWork(app);
+				OrderCheckScheduler.ensureScheduled(app);
+				// Aplicar acciones que quedaron en la cola offline en una sesión anterior
+				OfflineQueue.scheduleDrain(app);
+			} catch (Exception e) {
+				Log.e(TAG, "❌ Error en tareas diferidas del arranque", e);
+			} finally {
+				trace.mark(StartupTrace.DEFERRED_DONE);
+			}
+		});
+	}
+	
+	/**
+	 * Crea el canal de notificaciones de alta prioridad para pedidos nuevos
+	 * Este canal es diferente al del BackgroundService y tiene alta prioridad
+	 */
+	static void createOrderNotificationChannel(Context context) {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+			NotificationManager manager = context.getSystemService(NotificationManager.class);
+			if (manager == null || manager.getNotificationChannel(ORDER_CHANNEL_ID) != null) {
+				return;
+			}
+			NotificationChannel channel = new NotificationChannel(
+				ORDER_CHANNEL_ID, // ID del canal (debe coincidir con el usado en JS)
+				"Nuevos Pedidos", // Nombre visible para el usuario
+				NotificationManager.IMPORTANCE_HIGH // Alta prioridad - aparece como notificación importante
+			);
+			channel.setDescription("Notificaciones cuando llegan nuevos pedidos disponibles");
+			channel.setShowBadge(true);
+			channel.enableVibration(true);
+			channel.enableLights(true);
+			channel.setLightColor(0xFFF59E0B); // Color naranja
+			manager.createNotificationChannel(channel);
+			Log.d(TAG, "✅ Canal de notificaciones de pedidos creado (alta prioridad)");
+		}
+	}
+	
+	/**
+	 * Programa el Worker periódico (cada 15 minutos, el mínimo de Android) si no está ya
+	 * programado, para no reiniciar su intervalo en cada apertura.
+	 * @return true si se programó, false si ya existía
+	 */
+	@WorkerThread
+	static boolean ensurePeriodicWork(Context context) {
+		if (OrderCheckScheduler.hasPendingWork(context, PERIODIC_WORK_NAME)) {
+			return false;
+		}
+		
+		// Crear restricciones: requiere conexión a internet, pero no requiere que el dispositivo esté cargando
+		Constraints constraints = new Constraints.Builder()
+			.setRequiredNetworkType(NetworkType.CONNECTED)
+			.setRequiresBatteryNotLow(false) // No requiere batería alta
+			.setRequiresCharging(false) // No requiere que esté cargando
+			.setRequiresDeviceIdle(false) // No requiere que el dispositivo esté inactivo
+			.build();
+		
+		PeriodicWorkRequest periodicWork = new PeriodicWorkRequest.Builder(
+			OrderNotificationWorker.class,
+			15, // Intervalo mínimo: 15 minutos
+			TimeUnit.MINUTES
+		)
+		.setConstraints(constraints)
+		.setInitialDelay(1, TimeUnit.MINUTES) // Ejecutar después de 1 minuto inicialmente
+		.build();
+		
+		WorkManager.getInstance(context).enqueueUniquePeriodicWork(
+			PERIODIC_WORK_NAME,
+			ExistingPeriodicWorkPolicy.KEEP,
+			periodicWork
+		);
+		Log.d(TAG, "✅ Worker de notificaciones programado (periódico cada 15min)");
+		return true;
+	}
+}
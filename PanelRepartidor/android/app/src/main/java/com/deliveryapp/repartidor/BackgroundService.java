@@ -5,21 +5,88 @@ import android.app.NotificationChannel;
 import android.app.NotificationManager;
 import android.app.PendingIntent;
 import android.app.Service;
+import android.content.Context;
 import android.content.Intent;
+import android.content.SharedPreferences;
+import android.content.pm.ServiceInfo;
 import android.os.Build;
 import android.os.IBinder;
 import android.util.Log;
 import androidx.core.app.NotificationCompat;
+import okhttp3.OkHttpClient;
+import org.json.JSONObject;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class BackgroundService extends Service {
 	private static final String TAG = "BackgroundService";
 	private static final int NOTIFICATION_ID = 1000;
 	private static final String CHANNEL_ID = "background_service_channel";
 	
+	// Opt-in del suscriptor Realtime nativo (lo guarda la WebView en CapacitorStorage)
+	static final String REALTIME_FLAG_KEY = DriverSession.REALTIME_FLAG_KEY;
+	// Opt-in del tracking GPS nativo (reemplaza al de la WebView)
+	static final String LOCATION_FLAG_KEY = "native_location";
+	// Estado del pedido en curso ("idle", "assigned", "to_pickup", "to_delivery") para el muestreo GPS
+	static final String TRIP_PHASE_KEY = "trip_phase";
+	private static final long HEARTBEAT_INTERVAL_MS = 25_000;
+	
+	private ScheduledExecutorService realtimeScheduler;
+	private ExecutorService syncExecutor;
+	private OkHttpClient httpClient;
+	private RealtimeOrderSubscriber subscriber;
+	private NativeLocationTracker locationTracker;
+	private final AtomicBoolean syncQueued = new AtomicBoolean(false);
+	private SharedPreferences prefs;
+	private SharedPreferences.OnSharedPreferenceChangeListener prefsListener;
+	
+	/**
+	 * Indica si el driver activó el suscriptor Realtime nativo
+	 */
+	static boolean isRealtimeEnabled(SharedPreferences prefs) {
+		return isFlagEnabled(prefs, REALTIME_FLAG_KEY);
+	}
+	
+	/**
+	 * Indica si el driver activó el tracking GPS nativo
+	 */
+	static boolean isLocationEnabled(SharedPreferences prefs) {
+		return isFlagEnabled(prefs, LOCATION_FLAG_KEY);
+	}
+	
+	private static boolean isFlagEnabled(SharedPreferences prefs, String key) {
+		return DriverSession.parseFlag(prefs.getString(key, null));
+	}
+	
 	@Override
 	public void onCreate() {
 		super.onCreate();
 		createNotificationChannel();
+		
+		realtimeScheduler = Executors.newSingleThreadScheduledExecutor();
+		syncExecutor = Executors.newSingleThreadExecutor();
+		// Deriva del cliente compartido (mismo pool de conexiones y dispatcher).
+		// Sin read timeout: el websocket queda abierto indefinidamente y los heartbeats detectan caídas
+		httpClient = NativeHttpClient.getInstance().getClient().newBuilder()
+			.readTimeout(0, TimeUnit.MILLISECONDS)
+			.build();
+		
+		prefs = getSharedPreferences(OrderFeedSync.PREFS_NAME, Context.MODE_PRIVATE);
+		prefsListener = (sharedPreferences, key) -> {
+			if ("isOnline".equals(key) || "driver".equals(key)
+					|| REALTIME_FLAG_KEY.equals(key) || LOCATION_FLAG_KEY.equals(key)) {
+				realtimeScheduler.execute(this::refreshSubscription);
+			} else if (TRIP_PHASE_KEY.equals(key)) {
+				realtimeScheduler.execute(this::refreshTripPhase);
+			}
+		};
+		prefs.registerOnSharedPreferenceChangeListener(prefsListener);
+		
 		Log.d(TAG, "✅ BackgroundService creado");
 	}
 	
@@ -28,11 +95,14 @@ public class BackgroundService extends Service {
 		// Crear notificación persistente
 		Notification notification = createNotification();
 		
-		// Iniciar como servicio en primer plano
-		startForeground(NOTIFICATION_ID, notification);
+		// Iniciar como servicio en primer plano (el tipo location se agrega al iniciar el tracking)
+		startForegroundWithTypes(notification, false);
 		
 		Log.d(TAG, "✅ BackgroundService iniciado en primer plano");
 		
+		// Conectar (o reconfigurar) el suscriptor Realtime fuera del hilo principal
+		realtimeScheduler.execute(this::refreshSubscription);
+		
 		// Retornar START_STICKY para que se reinicie si Android lo mata
 		return START_STICKY;
 	}
@@ -45,9 +115,171 @@ public class BackgroundService extends Service {
 	@Override
 	public void onDestroy() {
 		super.onDestroy();
+		prefs.unregisterOnSharedPreferenceChangeListener(prefsListener);
+		if (subscriber != null) {
+			subscriber.stop();
+			subscriber = null;
+		}
+		if (locationTracker != null) {
+			locationTracker.stop();
+			locationTracker = null;
+		}
+		realtimeScheduler.shutdown();
+		syncExecutor.shutdown();
 		Log.d(TAG, "⚠️ BackgroundService destruido");
 	}
 	
+	/**
+	 * Crea, reemplaza o detiene el suscriptor Realtime y el tracking GPS según los opt-in,
+	 * la sesión y el estado "en línea". Corre en realtimeScheduler.
+	 */
+	private void refreshSubscription() {
+		boolean realtimeEnabled = isRealtimeEnabled(prefs);
+		boolean locationEnabled = isLocationEnabled(prefs);
+		DriverSession.Config config = realtimeEnabled || locationEnabled
+			? DriverSession.get(this).activeConfig()
+			: null;
+		
+		refreshLocationTracker(locationEnabled ? config : null);
+		
+		if (config == null || !realtimeEnabled) {
+			if (subscriber != null) {
+				subscriber.stop();
+				subscriber = null;
+			}
+			if (locationTracker == null) {
+				// Desactivado, sin sesión o desconectado: no tiene sentido mantener el servicio
+				Log.d(TAG, "ℹ️ Realtime y tracking nativos inactivos, deteniendo servicio");
+				stopSelf();
+			}
+			return;
+		}
+		
+		if (subscriber != null && subscriber.getCompanyId().equals(config.companyId)) {
+			return;
+		}
+		if (subscriber != null) {
+			subscriber.stop();
+		}
+		
+		subscriber = new RealtimeOrderSubscriber(
+			httpClient,
+			config.supabaseUrl,
+			config.supabaseKey,
+			config.companyId,
+			new RealtimeOrderSubscriber.Listener() {
+				@Override
+				public void onSubscribed(boolean reconnected) {
+					// Catch-up por REST de lo que llegó mientras no había conexión
+					requestSync();
+				}
+				
+				@Override
+				public void onOrderChange(String type, JSONObject record, JSONObject oldRecord) {
+					if ("INSERT".equals(type) && record != null && "Pendiente".equals(record.optString("status"))) {
+						requestSync();
+					} else if ("UPDATE".equals(type) && record != null && !"Pendiente".equals(record.optString("status"))) {
+						// Otro repartidor lo tomó (o se canceló): retirar su notificación
+						NotificationEngine.get(BackgroundService.this)
+							.cancelOrders(Collections.singletonList(record.optLong("id")));
+					} else if ("DELETE".equals(type) && oldRecord != null) {
+						NotificationEngine.get(BackgroundService.this)
+							.cancelOrders(Collections.singletonList(oldRecord.optLong("id")));
+					}
+				}
+			},
+			realtimeScheduler,
+			new Backoff(1_000, 60_000, new Random()),
+			HEARTBEAT_INTERVAL_MS
+		);
+		subscriber.start();
+	}
+	
+	/**
+	 * Inicia, reemplaza o detiene el tracking GPS nativo. config null = inactivo.
+	 */
+	private void refreshLocationTracker(DriverSession.Config config) {
+		if (config == null) {
+			if (locationTracker != null) {
+				locationTracker.stop();
+				locationTracker = null;
+			}
+			return;
+		}
+		if (locationTracker != null && locationTracker.getDriverId().equals(config.driverId)) {
+			return;
+		}
+		if (locationTracker != null) {
+			locationTracker.stop();
+			locationTracker = null;
+		}
+		
+		// El tipo "location" del servicio en primer plano es obligatorio para recibir ubicaciones en segundo plano
+		if (!startForegroundWithTypes(createNotification(), true)) {
+			return;
+		}
+		NativeLocationTracker tracker = new NativeLocationTracker(this, config.driverId, config.supabaseUrl, config.supabaseKey);
+		if (tracker.start()) {
+			locationTracker = tracker;
+			refreshTripPhase();
+		}
+	}
+	
+	/**
+	 * Pasa al tracking el estado del pedido que guardó la WebView. Corre en realtimeScheduler.
+	 */
+	private void refreshTripPhase() {
+		if (locationTracker != null) {
+			locationTracker.setPhase(LocationSamplingGovernor.Phase.parse(prefs.getString(TRIP_PHASE_KEY, null)));
+		}
+	}
+	
+	/**
+	 * Pasa el servicio a primer plano declarando dataSync y, si corresponde, location.
+	 * @return false si no se pudo declarar el tipo location (sin permiso o iniciado desde segundo plano)
+	 */
+	private boolean startForegroundWithTypes(Notification notification, boolean withLocation) {
+		if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) {
+			startForeground(NOTIFICATION_ID, notification);
+			return true;
+		}
+		int types = ServiceInfo.FOREGROUND_SERVICE_TYPE_DATA_SYNC;
+		if (withLocation && NativeLocationTracker.hasLocationPermission(this)) {
+			types |= ServiceInfo.FOREGROUND_SERVICE_TYPE_LOCATION;
+		}
+		try {
+			startForeground(NOTIFICATION_ID, notification, types);
+			return !withLocation || (types & ServiceInfo.FOREGROUND_SERVICE_TYPE_LOCATION) != 0;
+		} catch (SecurityException e) {
+			Log.w(TAG, "⚠️ No se pudo iniciar el servicio con tipo location: " + e.getMessage());
+			startForeground(NOTIFICATION_ID, notification, ServiceInfo.FOREGROUND_SERVICE_TYPE_DATA_SYNC);
+			return false;
+		}
+	}
+	
+	/**
+	 * Encola una sincronización incremental del feed. Si ya hay una pendiente, la ráfaga se
+	 * resuelve con esa misma consulta (el cursor trae todos los pedidos nuevos).
+	 */
+	private void requestSync() {
+		if (!syncQueued.compareAndSet(false, true)) {
+			return;
+		}
+		syncExecutor.execute(() -> {
+			syncQueued.set(false);
+			CheckMetrics metrics = CheckMetrics.get();
+			CheckMetrics.CheckRun run = metrics.begin("realtime", 0);
+			try {
+				new OrderFeedSync(getApplicationContext()).syncNewOrders(run);
+				ProcessStores.exportMetrics(getApplicationContext(), metrics.finish(run, false));
+			} catch (Exception e) {
+				// El próximo evento, la reconexión o el Worker periódico vuelven a intentar
+				Log.w(TAG, "⚠️ Error sincronizando pedidos desde Realtime: " + e.getMessage());
+				ProcessStores.exportMetrics(getApplicationContext(), metrics.finish(run, true));
+			}
+		});
+	}
+	
 	private void createNotificationChannel() {
 		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
 			NotificationChannel channel = new NotificationChannel(
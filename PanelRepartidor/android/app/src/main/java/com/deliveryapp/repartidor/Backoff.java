@@ -0,0 +1,44 @@
+package com.deliveryapp.repartidor;
+
+import java.util.Random;
+
+/**
+ * Backoff exponencial con jitter para reconexiones.
+ * Cada intento duplica la ventana (hasta maxDelayMs) y elige un punto al azar en su mitad superior,
+ * para que muchos repartidores que pierden la conexión a la vez no reconecten sincronizados.
+ */
+public final class Backoff {
+	private final long baseDelayMs;
+	private final long maxDelayMs;
+	private final Random random;
+	private int attempts;
+	
+	public Backoff(long baseDelayMs, long maxDelayMs, Random random) {
+		this.baseDelayMs = baseDelayMs;
+		this.maxDelayMs = maxDelayMs;
+		this.random = random;
+	}
+	
+	/**
+	 * Retorna la espera antes del siguiente intento y avanza el contador
+	 */
+	public synchronized long nextDelayMs() {
+		// Limitar el exponente para no desbordar
+		int exponent = Math.min(attempts, 20);
+		long window = Math.min(maxDelayMs, baseDelayMs << exponent);
+		attempts++;
+		long half = window / 2;
+		return half + (long) (random.nextDouble() * (window - half));
+	}
+	
+	/**
+	 * Vuelve al retardo base (después de una conexión exitosa)
+	 */
+	public synchronized void reset() {
+		attempts = 0;
+	}
+	
+	public synchronized int getAttempts() {
+		return attempts;
+	}
+}
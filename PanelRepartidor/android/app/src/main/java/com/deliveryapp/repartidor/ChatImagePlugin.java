@@ -0,0 +1,324 @@
+package com.deliveryapp.repartidor;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+import android.util.Base64;
+import android.util.Log;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+/**
+ * Fotos del chat procesadas en el dispositivo antes de subirlas: el WebView pasa el archivo
+ * elegido de a tramos (nunca entero en memoria de JS), se decodifica submuestreado, se escala
+ * al lado largo pedido con la rotación del EXIF aplicada, se vuelve a codificar en JPEG dentro
+ * de un presupuesto de bytes (sin EXIF: ni la ubicación del driver ni datos de la cámara) y se
+ * genera una miniatura para la lista del chat. La subida a Storage es reanudable (ResumableUpload).
+ *
+ * Flujo: stage (tramos) → process (devuelve la miniatura) → upload → { url, thumbnailUrl }.
+ */
+@CapacitorPlugin(name = "ChatImage")
+public class ChatImagePlugin extends Plugin {
+	private static final String TAG = "ChatImagePlugin";
+	private static final String DIRECTORY = "chat_images";
+	private static final Pattern ID = Pattern.compile("[A-Za-z0-9-]{1,64}");
+	private static final int DEFAULT_MAX_EDGE = 1600;
+	private static final int DEFAULT_MAX_BYTES = 350 * 1024;
+	private static final int DEFAULT_THUMB_EDGE = 240;
+	private static final int THUMB_QUALITY = 70;
+	private static final String CACHE_CONTROL = "3600";
+	// Un tramo de más de esto no viene del JS de la app
+	private static final int MAX_STAGE_CHUNK_BYTES = 2 * 1024 * 1024;
+	// Decodificar y subir puede tardar segundos: fuera del hilo de los plugins, una foto a la vez
+	private static final ExecutorService worker = Executors.newSingleThreadExecutor();
+	
+	private File directory() {
+		File directory = new File(getContext().getCacheDir(), DIRECTORY);
+		directory.mkdirs();
+		return directory;
+	}
+	
+	private File staged(String id) {
+		return new File(directory(), id + ".part");
+	}
+	
+	private File image(String id) {
+		return new File(directory(), id + ".jpg");
+	}
+	
+	private File thumbnail(String id) {
+		return new File(directory(), id + "_thumb.jpg");
+	}
+	
+	/**
+	 * { stageId?, data (base64) } → { stageId, bytes } — agrega un tramo del archivo original
+	 */
+	@PluginMethod
+	public void stage(PluginCall call) {
+		String stageId = call.getString("stageId", UUID.randomUUID().toString());
+		String data = call.getString("data");
+		if (!ID.matcher(stageId).matches() || data == null) {
+			call.reject("stageId inválido o falta data");
+			return;
+		}
+		try {
+			byte[] chunk = Base64.decode(data, Base64.DEFAULT);
+			if (chunk.length > MAX_STAGE_CHUNK_BYTES) {
+				call.reject("Tramo demasiado grande");
+				return;
+			}
+			File file = staged(stageId);
+			try (FileOutputStream out = new FileOutputStream(file, true)) {
+				out.write(chunk);
+			}
+			JSObject ret = new JSObject();
+			ret.put("stageId", stageId);
+			ret.put("bytes", file.length());
+			call.resolve(ret);
+		} catch (Exception e) {
+			call.reject("No se pudo guardar la imagen", e);
+		}
+	}
+	
+	/**
+	 * { stageId, maxEdge?, maxBytes?, thumbEdge? } → { imageId, width, height, bytes, thumbnail (data URL) }
+	 */
+	@PluginMethod
+	public void process(PluginCall call) {
+		worker.execute(() -> processStaged(call));
+	}
+	
+	private void processStaged(PluginCall call) {
+		String id = call.getString("stageId");
+		if (id == null || !ID.matcher(id).matches() || !staged(id).exists()) {
+			call.reject("No hay imagen cargada con ese stageId");
+			return;
+		}
+		int maxEdge = Math.max(320, call.getInt("maxEdge", DEFAULT_MAX_EDGE));
+		int maxBytes = Math.max(32 * 1024, call.getInt("maxBytes", DEFAULT_MAX_BYTES));
+		int thumbEdge = Math.max(64, call.getInt("thumbEdge", DEFAULT_THUMB_EDGE));
+		File source = staged(id);
+		Bitmap scaled = null;
+		try {
+			long start = System.currentTimeMillis();
+			scaled = decodeScaled(source, maxEdge);
+			if (scaled == null) {
+				call.reject("El archivo no es una imagen");
+				return;
+			}
+			final Bitmap encodable = scaled;
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream(maxBytes);
+			byte[] jpeg = ChatImageSizing.fitToBudget(quality -> compress(encodable, quality, buffer), maxBytes);
+			write(image(id), jpeg);
+			
+			int[] thumbSize = ChatImageSizing.scaledSize(scaled.getWidth(), scaled.getHeight(), thumbEdge);
+			Bitmap thumb = Bitmap.createScaledBitmap(scaled, thumbSize[0], thumbSize[1], true);
+			byte[] thumbJpeg = compress(thumb, THUMB_QUALITY, buffer);
+			if (thumb != scaled) {
+				thumb.recycle();
+			}
+			write(thumbnail(id), thumbJpeg);
+			
+			Log.d(TAG, "🖼️ Foto de " + source.length() / 1024 + " KB → " + jpeg.length / 1024 + " KB ("
+				+ scaled.getWidth() + "x" + scaled.getHeight() + ") en " + (System.currentTimeMillis() - start) + " ms");
+			JSObject ret = new JSObject();
+			ret.put("imageId", id);
+			ret.put("width", scaled.getWidth());
+			ret.put("height", scaled.getHeight());
+			ret.put("bytes", jpeg.length);
+			ret.put("thumbnail", "data:image/jpeg;base64," + Base64.encodeToString(thumbJpeg, Base64.NO_WRAP));
+			call.resolve(ret);
+		} catch (OutOfMemoryError e) {
+			call.reject("Sin memoria para procesar la imagen");
+		} catch (Exception e) {
+			Log.w(TAG, "⚠️ No se pudo procesar la imagen: " + e.getMessage());
+			call.reject("No se pudo procesar la imagen", e);
+		} finally {
+			if (scaled != null) {
+				scaled.recycle();
+			}
+			source.delete();
+		}
+	}
+	
+	/**
+	 * Decodifica submuestreado y escala una sola vez al tamaño final, con la rotación del EXIF
+	 * @return null si el archivo no es una imagen
+	 */
+	private static Bitmap decodeScaled(File source, int maxEdge) throws IOException {
+		BitmapFactory.Options bounds = new BitmapFactory.Options();
+		bounds.inJustDecodeBounds = true;
+		BitmapFactory.decodeFile(source.getPath(), bounds);
+		if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+			return null;
+		}
+		
+		BitmapFactory.Options options = new BitmapFactory.Options();
+		options.inSampleSize = ChatImageSizing.sampleSize(bounds.outWidth, bounds.outHeight, maxEdge);
+		// Sin alfa en una foto: la mitad de memoria que ARGB_8888
+		options.inPreferredConfig = Bitmap.Config.RGB_565;
+		Bitmap decoded = BitmapFactory.decodeFile(source.getPath(), options);
+		if (decoded == null) {
+			return null;
+		}
+		
+		int[] size = ChatImageSizing.scaledSize(decoded.getWidth(), decoded.getHeight(), maxEdge);
+		Matrix matrix = new Matrix();
+		matrix.postScale((float) size[0] / decoded.getWidth(), (float) size[1] / decoded.getHeight());
+		applyOrientation(matrix, new ExifInterface(source.getPath())
+			.getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL));
+		if (matrix.isIdentity()) {
+			return decoded;
+		}
+		Bitmap scaled = Bitmap.createBitmap(decoded, 0, 0, decoded.getWidth(), decoded.getHeight(), matrix, true);
+		if (scaled != decoded) {
+			decoded.recycle();
+		}
+		return scaled;
+	}
+	
+	private static void applyOrientation(Matrix matrix, int orientation) {
+		switch (orientation) {
+			case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+				matrix.postScale(-1, 1);
+				break;
+			case ExifInterface.ORIENTATION_ROTATE_180:
+				matrix.postRotate(180);
+				break;
+			case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+				matrix.postScale(1, -1);
+				break;
+			case ExifInterface.ORIENTATION_TRANSPOSE:
+				matrix.postRotate(90);
+				matrix.postScale(-1, 1);
+				break;
+			case ExifInterface.ORIENTATION_ROTATE_90:
+				matrix.postRotate(90);
+				break;
+			case ExifInterface.ORIENTATION_TRANSVERSE:
+				matrix.postRotate(-90);
+				matrix.postScale(-1, 1);
+				break;
+			case ExifInterface.ORIENTATION_ROTATE_270:
+				matrix.postRotate(-90);
+				break;
+			default:
+				break;
+		}
+	}
+	
+	private static byte[] compress(Bitmap bitmap, int quality, ByteArrayOutputStream buffer) {
+		buffer.reset();
+		bitmap.compress(Bitmap.CompressFormat.JPEG, quality, buffer);
+		return buffer.toByteArray();
+	}
+	
+	private static void write(File file, byte[] data) throws IOException {
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			out.write(data);
+		}
+	}
+	
+	/**
+	 * { imageId, bucket, path } → { url, thumbnailUrl? } — sube la foto y su miniatura
+	 * ("<path sin extensión>_thumb.jpg"). Si se corta, volver a llamar continúa la subida.
+	 */
+	@PluginMethod
+	public void upload(PluginCall call) {
+		worker.execute(() -> uploadProcessed(call));
+	}
+	
+	private void uploadProcessed(PluginCall call) {
+		String id = call.getString("imageId");
+		String bucket = call.getString("bucket");
+		String path = call.getString("path");
+		if (id == null || !ID.matcher(id).matches() || bucket == null || path == null) {
+			call.reject("imageId, bucket y path son obligatorios");
+			return;
+		}
+		File image = image(id);
+		if (!image.exists()) {
+			call.reject("No hay imagen procesada con ese imageId");
+			return;
+		}
+		DriverSession.Config config = DriverSession.get(getContext()).current();
+		if (config.supabaseUrl == null || config.supabaseKey == null) {
+			call.reject("Sin sesión de Supabase");
+			return;
+		}
+		Map<String, String> headers = new HashMap<>();
+		headers.put("apikey", config.supabaseKey);
+		headers.put("Authorization", "Bearer " + config.supabaseKey);
+		ResumableUpload uploader = new ResumableUpload(NativeHttpClient.getInstance(), config.supabaseUrl);
+		
+		try {
+			uploader.upload(image, bucket, path, "image/jpeg", CACHE_CONTROL, headers);
+		} catch (Exception e) {
+			// Los archivos quedan: otra llamada con el mismo imageId continúa la subida
+			Log.w(TAG, "⚠️ No se pudo subir la imagen: " + e.getMessage());
+			call.reject("No se pudo subir la imagen", e);
+			return;
+		}
+		JSObject ret = new JSObject();
+		ret.put("url", publicUrl(config.supabaseUrl, bucket, path));
+		File thumb = thumbnail(id);
+		if (thumb.exists()) {
+			String thumbPath = thumbnailPath(path);
+			try {
+				uploader.upload(thumb, bucket, thumbPath, "image/jpeg", CACHE_CONTROL, headers);
+				ret.put("thumbnailUrl", publicUrl(config.supabaseUrl, bucket, thumbPath));
+			} catch (Exception e) {
+				// No es crítico: la lista muestra la foto completa
+				Log.w(TAG, "⚠️ No se pudo subir la miniatura: " + e.getMessage());
+			}
+		}
+		delete(id);
+		call.resolve(ret);
+	}
+	
+	/**
+	 * { imageId } — descarta los archivos de una foto que no se va a enviar
+	 */
+	@PluginMethod
+	public void discard(PluginCall call) {
+		String id = call.getString("imageId");
+		if (id != null && ID.matcher(id).matches()) {
+			// En el mismo hilo: no borra una foto a mitad de procesarla o subirla
+			worker.execute(() -> delete(id));
+		}
+		call.resolve();
+	}
+	
+	private void delete(String id) {
+		staged(id).delete();
+		for (File file : new File[] { image(id), thumbnail(id) }) {
+			ResumableUpload.forget(file);
+			file.delete();
+		}
+	}
+	
+	static String thumbnailPath(String path) {
+		int dot = path.lastIndexOf('.');
+		int slash = path.lastIndexOf('/');
+		String base = dot > slash ? path.substring(0, dot) : path;
+		return base + "_thumb.jpg";
+	}
+	
+	private static String publicUrl(String supabaseUrl, String bucket, String path) {
+		return supabaseUrl + "/storage/v1/object/public/" + bucket + "/" + path;
+	}
+}
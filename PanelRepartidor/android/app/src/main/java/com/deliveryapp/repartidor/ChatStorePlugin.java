@@ -0,0 +1,167 @@
+package com.deliveryapp.repartidor;
+
+import android.content.Context;
+import android.util.Log;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import org.json.JSONObject;
+
+/**
+ * Expone al WebView la copia local de los mensajes de chat (ChatMessageStore): el chat se pinta
+ * desde aquí al abrirlo y a Supabase solo se le piden los mensajes posteriores al último guardado.
+ * Las claves de chat son "order-<id>" y "support-<id>".
+ */
+@CapacitorPlugin(name = "ChatStore")
+public class ChatStorePlugin extends Plugin {
+	private static final String TAG = "ChatStorePlugin";
+	private static final String DIRECTORY = "chats";
+	private static final int DEFAULT_PAGE_SIZE = 50;
+	private static final int MAX_PAGE_SIZE = 500;
+	// Los chats de pedido vencen a las 24 h; los de soporte se siguen usando y no llegan a esto
+	private static final long MAX_IDLE_MS = 14L * 24 * 60 * 60 * 1000;
+	
+	private static ChatMessageStore store;
+	
+	static synchronized ChatMessageStore store(Context context) {
+		if (store == null) {
+			store = new ChatMessageStore(new File(context.getApplicationContext().getFilesDir(), DIRECTORY));
+			int pruned = store.prune(MAX_IDLE_MS, System.currentTimeMillis());
+			if (pruned > 0) {
+				Log.d(TAG, "🧹 Chats viejos borrados: " + pruned);
+			}
+		}
+		return store;
+	}
+	
+	/**
+	 * { chat, beforeCreatedAt?, beforeId?, limit? } → { rows, hasMore, latestCreatedAt?, latestId? }
+	 * (rows es el JSON del arreglo en orden cronológico, para no volver a serializar cada fila en el puente)
+	 */
+	@PluginMethod
+	public void page(PluginCall call) {
+		String chat = call.getString("chat");
+		if (chat == null) {
+			call.reject("chat es obligatorio");
+			return;
+		}
+		String beforeCreatedAt = call.getString("beforeCreatedAt");
+		String beforeId = call.getString("beforeId");
+		ChatMessageStore.Cursor before = beforeCreatedAt != null && beforeId != null
+			? new ChatMessageStore.Cursor(beforeCreatedAt, beforeId) : null;
+		int limit = Math.max(1, Math.min(MAX_PAGE_SIZE, call.getInt("limit", DEFAULT_PAGE_SIZE)));
+		try {
+			ChatMessageStore.Page page = store(getContext()).page(chat, before, limit);
+			StringBuilder rows = new StringBuilder(page.rows.size() * 256 + 2).append('[');
+			for (int i = 0; i < page.rows.size(); i++) {
+				if (i > 0) {
+					rows.append(',');
+				}
+				rows.append(page.rows.get(i));
+			}
+			JSObject ret = new JSObject();
+			ret.put("rows", rows.append(']').toString());
+			ret.put("hasMore", page.hasMore);
+			if (page.latest != null) {
+				ret.put("latestCreatedAt", page.latest.createdAt);
+				ret.put("latestId", page.latest.id);
+			}
+			call.resolve(ret);
+		} catch (Exception e) {
+			Log.w(TAG, "⚠️ No se pudieron leer los mensajes: " + e.getMessage());
+			call.reject("No se pudieron leer los mensajes", e);
+		}
+	}
+	
+	/**
+	 * { chat, rows: [...] } → { added } — guarda las filas recibidas de Supabase
+	 */
+	@PluginMethod
+	public void put(PluginCall call) {
+		String chat = call.getString("chat");
+		JSArray rows = call.getArray("rows");
+		if (chat == null || rows == null) {
+			call.reject("chat y rows son obligatorios");
+			return;
+		}
+		try {
+			List<String> json = new ArrayList<>(rows.length());
+			for (int i = 0; i < rows.length(); i++) {
+				JSONObject row = rows.optJSONObject(i);
+				if (row != null) {
+					json.add(row.toString());
+				}
+			}
+			JSObject ret = new JSObject();
+			ret.put("added", store(getContext()).put(chat, json));
+			call.resolve(ret);
+		} catch (Exception e) {
+			Log.w(TAG, "⚠️ No se pudieron guardar los mensajes: " + e.getMessage());
+			call.reject("No se pudieron guardar los mensajes", e);
+		}
+	}
+	
+	/**
+	 * { chat, selfType } → { unread } — marca el chat como leído y devuelve cuántos mensajes
+	 * estaban sin leer
+	 */
+	@PluginMethod
+	public void markRead(PluginCall call) {
+		String chat = call.getString("chat");
+		String selfType = call.getString("selfType");
+		if (chat == null || selfType == null) {
+			call.reject("chat y selfType son obligatorios");
+			return;
+		}
+		try {
+			JSObject ret = new JSObject();
+			ret.put("unread", store(getContext()).markRead(chat, selfType));
+			call.resolve(ret);
+		} catch (Exception e) {
+			call.reject("No se pudo marcar el chat como leído", e);
+		}
+	}
+	
+	/**
+	 * { chats: [...], selfType } → { counts: { [chat]: n } }
+	 */
+	@PluginMethod
+	public void unreadCounts(PluginCall call) {
+		JSArray chats = call.getArray("chats");
+		String selfType = call.getString("selfType");
+		if (chats == null || selfType == null) {
+			call.reject("chats y selfType son obligatorios");
+			return;
+		}
+		try {
+			ChatMessageStore chatStore = store(getContext());
+			JSObject counts = new JSObject();
+			for (int i = 0; i < chats.length(); i++) {
+				String chat = chats.getString(i);
+				counts.put(chat, chatStore.unread(chat, selfType));
+			}
+			JSObject ret = new JSObject();
+			ret.put("counts", counts);
+			call.resolve(ret);
+		} catch (Exception e) {
+			call.reject("No se pudieron contar los mensajes sin leer", e);
+		}
+	}
+	
+	@PluginMethod
+	public void remove(PluginCall call) {
+		String chat = call.getString("chat");
+		if (chat == null) {
+			call.reject("chat es obligatorio");
+			return;
+		}
+		store(getContext()).delete(chat);
+		call.resolve();
+	}
+}
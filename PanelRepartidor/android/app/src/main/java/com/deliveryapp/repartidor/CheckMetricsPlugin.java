@@ -0,0 +1,51 @@
+package com.deliveryapp.repartidor;
+
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+import java.io.File;
+import org.json.JSONObject;
+
+/**
+ * Expone al WebView las métricas de las verificaciones de pedidos (CheckMetrics) y del cliente
+ * HTTP nativo, los tiempos del último arranque (StartupTrace) y la ubicación del archivo
+ * rotativo donde se exporta cada verificación (ProcessStores.exportMetrics).
+ */
+@CapacitorPlugin(name = "CheckMetrics")
+public class CheckMetricsPlugin extends Plugin {
+	@PluginMethod
+	public void getMetrics(PluginCall call) {
+		try {
+			JSONObject snapshot = CheckMetrics.get().snapshot();
+			
+			HttpMetrics http = NativeHttpClient.getInstance().getMetrics();
+			JSONObject httpJson = new JSONObject();
+			httpJson.put("requests", http.getRequests());
+			httpJson.put("failures", http.getFailures());
+			httpJson.put("notModified", http.getNotModified());
+			httpJson.put("reusedConnections", http.getReusedConnections());
+			httpJson.put("bytesSent", http.getBytesSent());
+			httpJson.put("bytesReceived", http.getBytesReceived());
+			snapshot.put("http", httpJson);
+			snapshot.put("startup", StartupTrace.get().toJson());
+			
+			File directory = ProcessStores.metricsDirectory(getContext());
+			snapshot.put("exportFile", new File(directory, CheckMetrics.EXPORT_FILE).getAbsolutePath());
+			snapshot.put("exportFileOld", new File(directory, CheckMetrics.EXPORT_FILE_OLD).getAbsolutePath());
+			call.resolve(new JSObject(snapshot.toString()));
+		} catch (Exception e) {
+			call.reject("No se pudieron leer las métricas", e);
+		}
+	}
+	
+	/**
+	 * Reinicia los agregados en memoria (el archivo exportado se conserva)
+	 */
+	@PluginMethod
+	public void reset(PluginCall call) {
+		CheckMetrics.get().reset();
+		call.resolve();
+	}
+}
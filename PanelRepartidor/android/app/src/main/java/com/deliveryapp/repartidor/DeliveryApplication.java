@@ -0,0 +1,120 @@
+package com.deliveryapp.repartidor;
+
+import android.app.ActivityManager;
+import android.app.Application;
+import android.content.Context;
+import android.os.Build;
+import android.os.Process;
+import androidx.annotation.NonNull;
+import androidx.work.Configuration;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Aplicación con dos procesos:
+ *
+ * - El de la UI (el principal): MainActivity con el bridge de Capacitor y el WebView, los
+ *   plugins y el BackgroundService.
+ * - ":sync": solo WorkManager y sus Workers (verificación de pedidos, cola offline, precarga de
+ *   tiles). No crea el bridge ni el WebView, no carga los ContentProviders de androidx.startup y
+ *   en onCreate no hace nada, así cada verificación en segundo plano arranca un proceso chico y
+ *   rápido que el sistema tarda más en matar.
+ *
+ * Los Workers le pasan su trabajo al proceso de la UI por SyncBridgeProvider cuando ese proceso
+ * ya está vivo (tiene la sesión, el snapshot y el WebView al día); si no, lo hacen en :sync.
+ * Lo que comparten los dos procesos va en archivos con ProcessFileLock (ProcessStores), nunca
+ * en SharedPreferences, y :sync no carga las clases de los plugins.
+ */
+public class DeliveryApplication extends Application implements Configuration.Provider {
+	static final String SYNC_PROCESS_SUFFIX = ":sync";
+	
+	private static volatile String processName;
+	
+	@NonNull
+	@Override
+	public Configuration getWorkManagerConfiguration() {
+		// WorkManager programa y ejecuta solo en :sync; el proceso de la UI solo encola
+		return new Configuration.Builder()
+			.setDefaultProcessName(getPackageName() + SYNC_PROCESS_SUFFIX)
+			.build();
+	}
+	
+	/**
+	 * true en el proceso :sync
+	 */
+	static boolean isSyncProcess(Context context) {
+		return isSyncProcessName(context.getPackageName(), currentProcessName(context));
+	}
+	
+	static boolean isSyncProcessName(String packageName, String processName) {
+		return processName != null && processName.equals(packageName + SYNC_PROCESS_SUFFIX);
+	}
+	
+	/**
+	 * Indica si el proceso de la UI está corriendo (en cualquier estado, también en cache),
+	 * sin arrancarlo: getRunningAppProcesses solo informa los procesos de la propia app
+	 */
+	static boolean isUiProcessAlive(Context context) {
+		ActivityManager manager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+		if (manager == null) {
+			return false;
+		}
+		List<ActivityManager.RunningAppProcessInfo> processes = manager.getRunningAppProcesses();
+		if (processes == null) {
+			return false;
+		}
+		String packageName = context.getPackageName();
+		for (ActivityManager.RunningAppProcessInfo process : processes) {
+			if (packageName.equals(process.processName)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	static String currentProcessName(Context context) {
+		String name = processName;
+		if (name != null) {
+			return name;
+		}
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+			name = Application.getProcessName();
+		} else {
+			name = readCmdline();
+			if (name == null) {
+				name = findInRunningProcesses(context);
+			}
+		}
+		processName = name;
+		return name;
+	}
+	
+	private static String readCmdline() {
+		byte[] buffer = new byte[256];
+		try (FileInputStream in = new FileInputStream("/proc/self/cmdline")) {
+			int length = in.read(buffer);
+			int end = 0;
+			while (end < length && buffer[end] != 0) {
+				end++;
+			}
+			return end > 0 ? new String(buffer, 0, end, "UTF-8") : null;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+	
+	private static String findInRunningProcesses(Context context) {
+		ActivityManager manager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+		List<ActivityManager.RunningAppProcessInfo> processes = manager != null ? manager.getRunningAppProcesses() : null;
+		if (processes != null) {
+			int pid = Process.myPid();
+			for (ActivityManager.RunningAppProcessInfo process : processes) {
+				if (process.pid == pid) {
+					return process.processName;
+				}
+			}
+		}
+		return null;
+	}
+}
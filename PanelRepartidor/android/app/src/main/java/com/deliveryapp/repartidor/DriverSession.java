@@ -0,0 +1,285 @@
+package com.deliveryapp.repartidor;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import org.json.JSONObject;
+
+/**
+ * Sesión del driver decodificada una sola vez desde CapacitorStorage y compartida por los
+ * componentes nativos (Worker, BackgroundService, tracking).
+ *
+ * La WebView escribe "driver" (JSON), "isOnline", "supabase_url" y "supabase_key" con Capacitor
+ * Preferences. Esta clase las decodifica al primer acceso, guarda el resultado en memoria y lo
+ * invalida con un OnSharedPreferenceChangeListener cuando alguna de esas claves cambia. Mientras
+ * nada cambie, leer la sesión no parsea JSON ni copia el mapa de preferencias.
+ *
+ * Solo el proceso de la UI lee CapacitorStorage: es el que recibe los cambios de la WebView.
+ * Ahí esta clase copia las claves que necesita el código nativo (MIRRORED_KEYS) al
+ * SyncStateStore, y en :sync la sesión se decodifica desde esa copia, que se vuelve a leer solo
+ * cuando el archivo cambia. Así :sync nunca escribe CapacitorStorage ni lee una copia vieja.
+ */
+public final class DriverSession {
+	private static final String TAG = "DriverSession";
+	
+	static final String DRIVER_KEY = "driver";
+	static final String ONLINE_KEY = "isOnline";
+	static final String SUPABASE_URL_KEY = "supabase_url";
+	static final String SUPABASE_KEY_KEY = "supabase_key";
+	// Radio de notificación en km; 0 o negativo notifica todos los pedidos
+	static final String NOTIFICATION_RADIUS_KEY = "notification_radius_km";
+	// Opt-in del suscriptor Realtime nativo
+	static final String REALTIME_FLAG_KEY = "native_realtime";
+	// Lo que lee el código nativo de :sync, copiado con este prefijo al SyncStateStore
+	private static final String[] MIRRORED_KEYS = {
+		DRIVER_KEY, ONLINE_KEY, SUPABASE_URL_KEY, SUPABASE_KEY_KEY, NOTIFICATION_RADIUS_KEY, REALTIME_FLAG_KEY
+	};
+	static final String MIRROR_PREFIX = "capacitor.";
+	
+	private static DriverSession instance;
+	
+	/**
+	 * De dónde salen los valores: CapacitorStorage o su copia
+	 */
+	interface Values {
+		String get(String key);
+	}
+	
+	// CapacitorStorage; null en :sync
+	private final SharedPreferences prefs;
+	// En la UI, adonde se copian las claves (null sin copia); en :sync, de donde se leen
+	private final SyncStateStore mirror;
+	private final Executor executor;
+	// Generación de la copia con la que se decodificó la sesión (solo en :sync)
+	private long mirrorGeneration = -1;
+	private volatile Config cached;
+	// Se incrementa en cada invalidación, para no guardar una decodificación que quedó vieja a mitad de camino
+	private volatile int version;
+	
+	// SharedPreferences guarda los listeners con referencias débiles: mantener una referencia fuerte
+	private final SharedPreferences.OnSharedPreferenceChangeListener listener =
+		(sharedPreferences, key) -> onPreferenceChanged(key);
+	
+	/**
+	 * Datos de la sesión. Los campos de texto pueden ser null si la WebView aún no los guardó.
+	 */
+	public static final class Config {
+		public final String driverId;
+		public final String companyId;
+		public final boolean online;
+		public final String supabaseUrl;
+		public final String supabaseKey;
+		
+		Config(String driverId, String companyId, boolean online, String supabaseUrl, String supabaseKey) {
+			this.driverId = driverId;
+			this.companyId = companyId;
+			this.online = online;
+			this.supabaseUrl = supabaseUrl;
+			this.supabaseKey = supabaseKey;
+		}
+		
+		/**
+		 * Hay sesión, el driver está en línea y se conoce el endpoint de Supabase
+		 */
+		public boolean isActive() {
+			return online && driverId != null && companyId != null && supabaseUrl != null && supabaseKey != null;
+		}
+		
+		@Override
+		public String toString() {
+			return "driver=" + driverId + " company=" + companyId + " online=" + online
+				+ " supabase=" + (supabaseUrl != null && supabaseKey != null ? "configurado" : "falta");
+		}
+	}
+	
+	public static synchronized DriverSession get(Context context) {
+		if (instance == null) {
+			Context app = context.getApplicationContext();
+			SyncStateStore state = ProcessStores.syncState(app);
+			instance = DeliveryApplication.isSyncProcess(app)
+				? new DriverSession(state)
+				: new DriverSession(app.getSharedPreferences(OrderFeedSync.PREFS_NAME, Context.MODE_PRIVATE),
+					state, AppStartup::runInBackground);
+		}
+		return instance;
+	}
+	
+	DriverSession(SharedPreferences prefs) {
+		this(prefs, null, null);
+	}
+	
+	/**
+	 * Proceso de la UI: lee CapacitorStorage y copia las claves de MIRRORED_KEYS a mirror
+	 * (ahora y en cada cambio, en executor)
+	 */
+	DriverSession(SharedPreferences prefs, SyncStateStore mirror, Executor executor) {
+		this.prefs = prefs;
+		this.mirror = mirror;
+		this.executor = executor;
+		prefs.registerOnSharedPreferenceChangeListener(listener);
+		if (mirror != null) {
+			executor.execute(this::copyToMirror);
+		}
+	}
+	
+	/**
+	 * Proceso :sync: lee la copia que dejó la UI
+	 */
+	DriverSession(SyncStateStore mirror) {
+		this.prefs = null;
+		this.mirror = mirror;
+		this.executor = null;
+	}
+	
+	/**
+	 * Sesión actual (decodificada solo si cambió algo desde la última lectura)
+	 */
+	public Config current() {
+		if (prefs == null && mirrorChanged()) {
+			invalidate();
+		}
+		Config config = cached;
+		if (config != null) {
+			return config;
+		}
+		int seen = version;
+		config = decode(this::value);
+		synchronized (this) {
+			if (version == seen) {
+				cached = config;
+			}
+		}
+		return config;
+	}
+	
+	/**
+	 * Sesión actual si está activa (en línea y con endpoint), o null
+	 */
+	public Config activeConfig() {
+		Config config = current();
+		return config.isActive() ? config : null;
+	}
+	
+	/**
+	 * Valor de CapacitorStorage (en :sync, el de la copia), o null
+	 */
+	String value(String key) {
+		if (prefs != null) {
+			return prefs.getString(key, null);
+		}
+		try {
+			return mirror.get(MIRROR_PREFIX + key);
+		} catch (IOException e) {
+			Log.w(TAG, "⚠️ No se pudo leer la sesión copiada: " + e.getMessage());
+			return null;
+		}
+	}
+	
+	private void onPreferenceChanged(String key) {
+		// key null: se limpiaron todas las preferencias (API 30+)
+		if (key == null || DRIVER_KEY.equals(key) || ONLINE_KEY.equals(key)
+				|| SUPABASE_URL_KEY.equals(key) || SUPABASE_KEY_KEY.equals(key)) {
+			invalidate();
+		}
+		if (mirror != null && (key == null || isMirrored(key))) {
+			// Corre en el hilo principal: la escritura del archivo va aparte
+			executor.execute(this::copyToMirror);
+		}
+	}
+	
+	private synchronized boolean mirrorChanged() {
+		long generation;
+		try {
+			generation = mirror.generation();
+		} catch (IOException e) {
+			Log.w(TAG, "⚠️ No se pudo leer la sesión copiada: " + e.getMessage());
+			return false;
+		}
+		if (generation == mirrorGeneration) {
+			return false;
+		}
+		mirrorGeneration = generation;
+		return true;
+	}
+	
+	private void copyToMirror() {
+		try {
+			mirror.edit(values -> {
+				for (String key : MIRRORED_KEYS) {
+					values.put(MIRROR_PREFIX + key, prefs.getString(key, null));
+				}
+			});
+		} catch (IOException e) {
+			// El próximo cambio vuelve a copiar todo
+			Log.w(TAG, "⚠️ No se pudo copiar la sesión para :sync: " + e.getMessage());
+		}
+	}
+	
+	private static boolean isMirrored(String key) {
+		for (String mirrored : MIRRORED_KEYS) {
+			if (mirrored.equals(key)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	void invalidate() {
+		synchronized (this) {
+			version++;
+			cached = null;
+		}
+	}
+	
+	static Config decode(Values values) {
+		String driverId = null;
+		String companyId = null;
+		String driverJson = values.get(DRIVER_KEY);
+		if (driverJson != null) {
+			try {
+				JSONObject driver = new JSONObject(driverJson);
+				driverId = emptyToNull(driver.optString("id"));
+				companyId = emptyToNull(driver.optString("companyId"));
+				if (companyId == null) {
+					companyId = emptyToNull(driver.optString("company_id"));
+				}
+			} catch (Exception e) {
+				Log.w(TAG, "⚠️ Datos de driver inválidos en CapacitorStorage: " + e.getMessage());
+			}
+		}
+		
+		Config config = new Config(
+			driverId,
+			companyId,
+			parseFlag(values.get(ONLINE_KEY)),
+			emptyToNull(values.get(SUPABASE_URL_KEY)),
+			emptyToNull(values.get(SUPABASE_KEY_KEY))
+		);
+		Log.d(TAG, "📊 Sesión decodificada: " + config);
+		return config;
+	}
+	
+	/**
+	 * Capacitor guarda los booleanos como JSON ("true") o con comillas ("\"true\"")
+	 */
+	static boolean parseFlag(String value) {
+		if (value == null) {
+			return false;
+		}
+		int start = 0;
+		int end = value.length();
+		while (start < end && (value.charAt(start) == '"' || Character.isWhitespace(value.charAt(start)))) {
+			start++;
+		}
+		while (end > start && (value.charAt(end - 1) == '"' || Character.isWhitespace(value.charAt(end - 1)))) {
+			end--;
+		}
+		return end - start == 4 && value.regionMatches(true, start, "true", 0, 4);
+	}
+	
+	private static String emptyToNull(String value) {
+		return value == null || value.isEmpty() ? null : value;
+	}
+}
@@ -0,0 +1,89 @@
+package com.deliveryapp.repartidor;
+
+import android.util.Log;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+import org.json.JSONObject;
+
+/**
+ * Expone al WebView la geocodificación y las rutas nativas con cache (GeoLookup): la cache
+ * sobrevive al WebView y la comparte el código nativo (Worker, servicio) por ProcessStores.
+ */
+@CapacitorPlugin(name = "GeoCache")
+public class GeoCachePlugin extends Plugin {
+	private static final String TAG = "GeoCachePlugin";
+	
+	/**
+	 * { address, cacheOnly? } → { found, lat?, lon? }
+	 */
+	@PluginMethod
+	public void geocode(PluginCall call) {
+		String address = call.getString("address");
+		if (address == null || address.trim().isEmpty()) {
+			call.reject("address es obligatorio");
+			return;
+		}
+		try {
+			// cacheOnly: para pintar sin esperar a Nominatim (solo lo que ya está en cache)
+			GeoLookup geo = ProcessStores.geo(getContext());
+			JSONObject coords = call.getBoolean("cacheOnly", false) ? geo.cachedGeocode(address) : geo.geocode(address);
+			JSObject ret = coords != null ? new JSObject(coords.toString()) : new JSObject();
+			ret.put("found", coords != null);
+			call.resolve(ret);
+		} catch (Exception e) {
+			Log.w(TAG, "⚠️ Error geocodificando: " + e.getMessage());
+			call.reject("No se pudo geocodificar la dirección", e);
+		}
+	}
+	
+	/**
+	 * { fromLat, fromLon, toLat, toLon } → { found, distance?, duration?, geometry? }
+	 */
+	@PluginMethod
+	public void route(PluginCall call) {
+		Double fromLat = call.getDouble("fromLat");
+		Double fromLon = call.getDouble("fromLon");
+		Double toLat = call.getDouble("toLat");
+		Double toLon = call.getDouble("toLon");
+		if (fromLat == null || fromLon == null || toLat == null || toLon == null) {
+			call.reject("fromLat, fromLon, toLat y toLon son obligatorios");
+			return;
+		}
+		try {
+			JSONObject route = ProcessStores.geo(getContext()).route(fromLat, fromLon, toLat, toLon);
+			JSObject ret = route != null ? new JSObject(route.toString()) : new JSObject();
+			ret.put("found", route != null);
+			call.resolve(ret);
+		} catch (Exception e) {
+			Log.w(TAG, "⚠️ Error obteniendo ruta: " + e.getMessage());
+			call.reject("No se pudo obtener la ruta", e);
+		}
+	}
+	
+	/**
+	 * Aciertos y fallos de cada cache: { geocode: {...}, route: {...} }
+	 */
+	@PluginMethod
+	public void getStats(PluginCall call) {
+		try {
+			GeoLookup geo = ProcessStores.geo(getContext());
+			JSObject ret = new JSObject();
+			ret.put("geocode", geo.getGeocodeCache().stats());
+			ret.put("route", geo.getRouteCache().stats());
+			call.resolve(ret);
+		} catch (Exception e) {
+			call.reject("No se pudieron leer las estadísticas", e);
+		}
+	}
+	
+	@PluginMethod
+	public void clear(PluginCall call) {
+		GeoLookup geo = ProcessStores.geo(getContext());
+		geo.getGeocodeCache().clear();
+		geo.getRouteCache().clear();
+		call.resolve();
+	}
+}
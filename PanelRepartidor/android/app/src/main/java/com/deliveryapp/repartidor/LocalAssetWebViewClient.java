@@ -0,0 +1,55 @@
+package com.deliveryapp.repartidor;
+
+import android.util.Log;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+import android.webkit.WebView;
+import com.getcapacitor.Bridge;
+import com.getcapacitor.BridgeWebViewClient;
+import java.io.ByteArrayInputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * WebViewClient del bridge que responde desde archivos locales lo que no hace falta pedir de
+ * nuevo: el bundle web (JS, CSS, imágenes) desde su pack mapeado (WebBundleServer) y los tiles
+ * de OpenStreetMap de OrderMap/SimpleMap desde el pack nativo (MapTiles). El resto de las
+ * peticiones sigue por Capacitor.
+ * Si el tile no está y no se puede bajar, la petición sigue su curso normal en el WebView.
+ */
+public class LocalAssetWebViewClient extends BridgeWebViewClient {
+	private static final String TAG = "LocalAssetWebViewClient";
+	
+	// Host del servidor local de Capacitor; null con server.url (live reload): ahí el bundle es otro
+	private final String localHost;
+	
+	public LocalAssetWebViewClient(Bridge bridge) {
+		super(bridge);
+		this.localHost = bridge.getServerUrl() == null ? bridge.getHost() : null;
+	}
+	
+	@Override
+	public WebResourceResponse shouldInterceptRequest(WebView view, WebResourceRequest request) {
+		WebResourceResponse bundled = WebBundleServer.serve(view.getContext(), request, localHost);
+		if (bundled != null) {
+			return bundled;
+		}
+		if ("GET".equals(request.getMethod())) {
+			long key = MapTiles.keyForUrl(request.getUrl().toString());
+			if (key != -1) {
+				try {
+					byte[] tile = ProcessStores.tiles(view.getContext()).tile(key);
+					if (tile != null) {
+						Map<String, String> headers = new HashMap<>();
+						headers.put("Cache-Control", "max-age=86400");
+						headers.put("Access-Control-Allow-Origin", "*");
+						return new WebResourceResponse("image/png", null, 200, "OK", headers, new ByteArrayInputStream(tile));
+					}
+				} catch (Exception e) {
+					Log.w(TAG, "⚠️ No se pudo servir el tile desde el pack: " + e.getMessage());
+				}
+			}
+		}
+		return super.shouldInterceptRequest(view, request);
+	}
+}
@@ -0,0 +1,206 @@
+package com.deliveryapp.repartidor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Buffer circular compacto de posiciones GPS pendientes de subir.
+ *
+ * Guarda cada fix en arreglos primitivos paralelos (sin un objeto por posición) y descarta
+ * los casi duplicados: un fix nuevo solo entra si el repartidor se movió al menos
+ * minDistanceMeters o pasó maxSilenceMs desde el último aceptado. Si el buffer se llena
+ * (por ejemplo, en un tramo largo sin conexión) se sobrescriben los fixes más antiguos.
+ *
+ * No es thread-safe: NativeLocationTracker lo usa desde un único hilo.
+ */
+public final class LocationBuffer {
+	private static final int FILE_MAGIC = 0x4C4F4342; // "LOCB"
+	private static final int FILE_VERSION = 1;
+	private static final double EARTH_RADIUS_METERS = 6_371_000;
+	
+	private final int capacity;
+	private final float minDistanceMeters;
+	private final long maxSilenceMs;
+	
+	private final double[] latitudes;
+	private final double[] longitudes;
+	private final float[] accuracies;
+	private final long[] times;
+	private int head; // índice del fix más antiguo
+	private int size;
+	
+	// Último fix aceptado (se mantiene aunque el buffer se vacíe al subir)
+	private boolean hasLast;
+	private double lastLatitude;
+	private double lastLongitude;
+	private long lastTime;
+	
+	public LocationBuffer(int capacity, float minDistanceMeters, long maxSilenceMs) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("capacity debe ser positiva");
+		}
+		this.capacity = capacity;
+		this.minDistanceMeters = minDistanceMeters;
+		this.maxSilenceMs = maxSilenceMs;
+		this.latitudes = new double[capacity];
+		this.longitudes = new double[capacity];
+		this.accuracies = new float[capacity];
+		this.times = new long[capacity];
+	}
+	
+	/**
+	 * Agrega un fix si no es casi duplicado del último aceptado.
+	 * @return true si el fix quedó en el buffer
+	 */
+	public boolean offer(double latitude, double longitude, float accuracy, long timeMs) {
+		if (hasLast) {
+			if (timeMs <= lastTime) {
+				// Fix repetido o fuera de orden
+				return false;
+			}
+			boolean moved = distanceMeters(lastLatitude, lastLongitude, latitude, longitude) >= minDistanceMeters;
+			boolean silent = timeMs - lastTime >= maxSilenceMs;
+			if (!moved && !silent) {
+				return false;
+			}
+		}
+		
+		int index = (head + size) % capacity;
+		if (size == capacity) {
+			// Lleno: se pierde el más antiguo
+			head = (head + 1) % capacity;
+		} else {
+			size++;
+		}
+		latitudes[index] = latitude;
+		longitudes[index] = longitude;
+		accuracies[index] = accuracy;
+		times[index] = timeMs;
+		
+		hasLast = true;
+		lastLatitude = latitude;
+		lastLongitude = longitude;
+		lastTime = timeMs;
+		return true;
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	/**
+	 * Antigüedad del fix pendiente más viejo, o 0 si no hay ninguno
+	 */
+	public long oldestAgeMs(long nowMs) {
+		return size == 0 ? 0 : Math.max(0, nowMs - times[head]);
+	}
+	
+	// Acceso por posición: 0 es el fix pendiente más antiguo
+	
+	public double latitudeAt(int i) {
+		return latitudes[index(i)];
+	}
+	
+	public double longitudeAt(int i) {
+		return longitudes[index(i)];
+	}
+	
+	public float accuracyAt(int i) {
+		return accuracies[index(i)];
+	}
+	
+	public long timeAt(int i) {
+		return times[index(i)];
+	}
+	
+	/**
+	 * Elimina los count fixes más antiguos (después de subirlos con éxito)
+	 */
+	public void removeOldest(int count) {
+		int removed = Math.min(count, size);
+		head = (head + removed) % capacity;
+		size -= removed;
+	}
+	
+	/**
+	 * Guarda los fixes pendientes en un archivo binario (escritura atómica vía archivo temporal)
+	 */
+	public void writeTo(File file) throws IOException {
+		File tmp = new File(file.getPath() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+			out.writeInt(FILE_MAGIC);
+			out.writeInt(FILE_VERSION);
+			out.writeInt(size);
+			for (int i = 0; i < size; i++) {
+				int index = index(i);
+				out.writeDouble(latitudes[index]);
+				out.writeDouble(longitudes[index]);
+				out.writeFloat(accuracies[index]);
+				out.writeLong(times[index]);
+			}
+		}
+		if (!tmp.renameTo(file)) {
+			// renameTo no reemplaza en todos los sistemas de archivos
+			if (!file.delete() || !tmp.renameTo(file)) {
+				throw new IOException("No se pudo reemplazar " + file);
+			}
+		}
+	}
+	
+	/**
+	 * Carga los fixes guardados con writeTo. Un archivo inexistente o corrupto se ignora.
+	 * @return cantidad de fixes restaurados
+	 */
+	public int readFrom(File file) {
+		if (!file.exists()) {
+			return 0;
+		}
+		int restored = 0;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+				return 0;
+			}
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				double latitude = in.readDouble();
+				double longitude = in.readDouble();
+				float accuracy = in.readFloat();
+				long time = in.readLong();
+				if (offer(latitude, longitude, accuracy, time)) {
+					restored++;
+				}
+			}
+		} catch (IOException e) {
+			// Archivo truncado: quedarse con lo que se alcanzó a leer
+		}
+		return restored;
+	}
+	
+	private int index(int i) {
+		if (i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException("Fix " + i + " de " + size);
+		}
+		return (head + i) % capacity;
+	}
+	
+	/**
+	 * Distancia haversine en metros
+	 */
+	static double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
+		double dLat = Math.toRadians(lat2 - lat1);
+		double dLon = Math.toRadians(lon2 - lon1);
+		double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+			+ Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+		return 2 * EARTH_RADIUS_METERS * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+	}
+}
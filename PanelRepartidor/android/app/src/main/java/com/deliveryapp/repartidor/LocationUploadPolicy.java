@@ -0,0 +1,46 @@
+package com.deliveryapp.repartidor;
+
+/**
+ * Cada cuánto subir la posición según la conexión disponible.
+ * driver_locations guarda una sola fila por driver, así que no se agrupan fixes: se sube el
+ * último pendiente, como mucho una vez por minIntervalMs. Con Wi-Fi se sube seguido; con datos
+ * móviles las subidas se espacian más para despertar menos la radio; sin conexión solo se guarda el último.
+ */
+public enum LocationUploadPolicy {
+	UNMETERED(10_000),
+	CELLULAR(30_000),
+	CONSTRAINED(60_000),
+	OFFLINE(Long.MAX_VALUE);
+	
+	// Tiempo mínimo entre dos subidas
+	public final long minIntervalMs;
+	
+	LocationUploadPolicy(long minIntervalMs) {
+		this.minIntervalMs = minIntervalMs;
+	}
+	
+	/**
+	 * Elige la política a partir del estado de la red
+	 * @param constrained red móvil lenta (2G) o con ahorro de datos activo
+	 */
+	public static LocationUploadPolicy forNetwork(boolean connected, boolean metered, boolean constrained) {
+		if (!connected) {
+			return OFFLINE;
+		}
+		if (constrained) {
+			return CONSTRAINED;
+		}
+		return metered ? CELLULAR : UNMETERED;
+	}
+	
+	/**
+	 * @param pending hay un fix aceptado sin subir (el buffer ya descartó los casi duplicados)
+	 * @param sinceLastUploadMs tiempo desde la última subida exitosa
+	 */
+	public boolean shouldUpload(boolean pending, long sinceLastUploadMs) {
+		if (this == OFFLINE || !pending) {
+			return false;
+		}
+		return sinceLastUploadMs >= minIntervalMs;
+	}
+}
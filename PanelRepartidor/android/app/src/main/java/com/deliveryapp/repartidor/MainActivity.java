@@ -1,8 +1,6 @@
 package com.deliveryapp.repartidor;
 
 import android.Manifest;
-import android.app.NotificationChannel;
-import android.app.NotificationManager;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.net.Uri;
@@ -10,68 +8,134 @@ import android.os.Build;
 import android.os.Bundle;
 import android.os.PowerManager;
 import android.provider.Settings;
+import android.view.View;
+import android.view.ViewTreeObserver;
+import android.webkit.WebView;
 import static android.content.Context.POWER_SERVICE;
 import android.content.Context;
+import android.content.SharedPreferences;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
-import androidx.work.Constraints;
-import androidx.work.ExistingPeriodicWorkPolicy;
-import androidx.work.NetworkType;
-import androidx.work.OneTimeWorkRequest;
-import androidx.work.PeriodicWorkRequest;
-import androidx.work.WorkManager;
 import com.getcapacitor.BridgeActivity;
+import com.getcapacitor.WebViewListener;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
 
 public class MainActivity extends BridgeActivity {
 	private static final int PERMISSION_REQUEST_CODE = 1001;
-	private static final String WORK_NAME = "order_notification_work";
+	
+	private SharedPreferences capacitorPrefs;
+	private boolean pageLoaded;
+	private final SharedPreferences.OnSharedPreferenceChangeListener serviceFlagsListener = (prefs, key) -> {
+		// Al volver a estar en línea (o activar un opt-in) levantar el Realtime / tracking nativos
+		if ("isOnline".equals(key) || BackgroundService.REALTIME_FLAG_KEY.equals(key)
+				|| BackgroundService.LOCATION_FLAG_KEY.equals(key)) {
+			startBackgroundServiceIfEnabled();
+		}
+		// Ponerse en línea arranca la cadena de verificaciones; desconectarse la detiene
+		if ("isOnline".equals(key) || BackgroundService.REALTIME_FLAG_KEY.equals(key)) {
+			OrderCheckScheduler.reschedule(this);
+		}
+	};
 	
 	@Override
 	public void onCreate(Bundle savedInstanceState) {
+		StartupTrace trace = StartupTrace.get();
+		trace.mark(StartupTrace.ACTIVITY_CREATE);
+		
+		// Plugins locales: deben registrarse antes de que se cree el bridge
+		registerPlugin(OfflineQueuePlugin.class);
+		registerPlugin(CheckMetricsPlugin.class);
+		registerPlugin(OrderSnapshotPlugin.class);
+		registerPlugin(GeoCachePlugin.class);
+		registerPlugin(OrderEventsPlugin.class);
+		registerPlugin(ChatStorePlugin.class);
+		registerPlugin(MapTilesPlugin.class);
+		registerPlugin(RouteProgressPlugin.class);
+		registerPlugin(ChatImagePlugin.class);
 		super.onCreate(savedInstanceState);
+		// El bundle web (WebBundleServer) y los tiles de los mapas (MapTiles) se sirven desde sus packs nativos
+		getBridge().setWebViewClient(new LocalAssetWebViewClient(getBridge()));
+		trace.mark(StartupTrace.BRIDGE_READY);
 		
-		// Crear canal de notificaciones de alta prioridad para pedidos
-		createOrderNotificationChannel();
+		// Iniciar servicio en primer plano para mantener la app activa
+		// COMENTADO: Se desactivó la notificación persistente de "activo en segundo plano"
+		// startBackgroundService();
+		// Solo se inicia si el driver activó el Realtime o el tracking GPS nativos (opt-in)
+		capacitorPrefs = getSharedPreferences(OrderFeedSync.PREFS_NAME, Context.MODE_PRIVATE);
+		capacitorPrefs.registerOnSharedPreferenceChangeListener(serviceFlagsListener);
+		startBackgroundServiceIfEnabled();
+		
+		// Canal de notificaciones, WorkManager y cola offline: en segundo plano, no los necesita el primer frame
+		AppStartup.runDeferred(this);
+		onNotificationOpened(getIntent());
+		
+		observeFirstFrame(trace);
+		getBridge().addWebViewListener(new WebViewListener() {
+			@Override
+			public void onPageLoaded(WebView webView) {
+				onFirstPageLoaded(trace);
+			}
+		});
+		trace.mark(StartupTrace.CREATE_DONE);
+	}
+	
+	@Override
+	protected void onNewIntent(Intent intent) {
+		super.onNewIntent(intent);
+		onNotificationOpened(intent);
+	}
+	
+	/**
+	 * Si la app se abrió desde una notificación de pedido, esa notificación ya se cerró sola
+	 */
+	private void onNotificationOpened(Intent intent) {
+		if (intent == null || !intent.hasExtra(NotificationEngine.EXTRA_ORDER_ID)) {
+			return;
+		}
+		long orderId = intent.getLongExtra(NotificationEngine.EXTRA_ORDER_ID, NotificationEngine.ALL_ORDERS);
+		intent.removeExtra(NotificationEngine.EXTRA_ORDER_ID);
+		AppStartup.runInBackground(() -> NotificationEngine.get(this).onDismissed(orderId));
+	}
+	
+	private void observeFirstFrame(StartupTrace trace) {
+		View decor = getWindow().getDecorView();
+		decor.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+			@Override
+			public boolean onPreDraw() {
+				decor.getViewTreeObserver().removeOnPreDrawListener(this);
+				trace.mark(StartupTrace.FIRST_FRAME);
+				return true;
+			}
+		});
+	}
+	
+	/**
+	 * Con la app ya visible: pedir permisos y la exclusión de optimización de batería, que
+	 * abren diálogos o pantallas encima del WebView
+	 */
+	private void onFirstPageLoaded(StartupTrace trace) {
+		if (pageLoaded) {
+			return;
+		}
+		pageLoaded = true;
+		trace.mark(StartupTrace.PAGE_LOADED);
+		trace.log();
 		
 		// Solicitar permisos necesarios
 		requestPermissions();
 		
 		// Solicitar desactivar optimización de batería (importante para segundo plano)
 		requestIgnoreBatteryOptimizations();
-		
-		// Iniciar servicio en primer plano para mantener la app activa
-		// COMENTADO: Se desactivó la notificación persistente de "activo en segundo plano"
-		// startBackgroundService();
-		
-		// Programar verificación periódica de pedidos en segundo plano
-		scheduleOrderNotificationWorker();
 	}
 	
 	/**
-	 * Crea el canal de notificaciones de alta prioridad para pedidos nuevos
-	 * Este canal es diferente al del BackgroundService y tiene alta prioridad
+	 * Inicia el BackgroundService (websocket de Realtime y/o tracking GPS) si algún opt-in está activo.
+	 * El servicio se detiene solo cuando el driver se desconecta.
 	 */
-	private void createOrderNotificationChannel() {
-		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-			NotificationChannel channel = new NotificationChannel(
-				"order_notifications", // ID del canal (debe coincidir con el usado en JS)
-				"Nuevos Pedidos", // Nombre visible para el usuario
-				NotificationManager.IMPORTANCE_HIGH // Alta prioridad - aparece como notificación importante
-			);
-			channel.setDescription("Notificaciones cuando llegan nuevos pedidos disponibles");
-			channel.setShowBadge(true);
-			channel.enableVibration(true);
-			channel.enableLights(true);
-			channel.setLightColor(0xFFF59E0B); // Color naranja
-			
-			NotificationManager manager = getSystemService(NotificationManager.class);
-			if (manager != null) {
-				manager.createNotificationChannel(channel);
-				android.util.Log.d("MainActivity", "✅ Canal de notificaciones de pedidos creado (alta prioridad)");
-			}
+	private void startBackgroundServiceIfEnabled() {
+		if (BackgroundService.isRealtimeEnabled(capacitorPrefs) || BackgroundService.isLocationEnabled(capacitorPrefs)) {
+			startBackgroundService();
 		}
 	}
 	
@@ -153,74 +217,10 @@ public class MainActivity extends BridgeActivity {
 		}
 	}
 	
-	/**
-	 * Programa el Worker para verificar nuevos pedidos periódicamente en segundo plano
-	 */
-	private void scheduleOrderNotificationWorker() {
-		// Crear restricciones: requiere conexión a internet, pero no requiere que el dispositivo esté cargando
-		Constraints constraints = new Constraints.Builder()
-			.setRequiredNetworkType(NetworkType.CONNECTED)
-			.setRequiresBatteryNotLow(false) // No requiere batería alta
-			.setRequiresCharging(false) // No requiere que esté cargando
-			.setRequiresDeviceIdle(false) // No requiere que el dispositivo esté inactivo
-			.build();
-		
-		// Crear trabajo periódico: cada 15 minutos (mínimo permitido por Android)
-		PeriodicWorkRequest periodicWork = new PeriodicWorkRequest.Builder(
-			OrderNotificationWorker.class,
-			15, // Intervalo mínimo: 15 minutos
-			TimeUnit.MINUTES
-		)
-		.setConstraints(constraints)
-		.setInitialDelay(1, TimeUnit.MINUTES) // Ejecutar después de 1 minuto inicialmente
-		.build();
-		
-		// Programar el trabajo periódico (reemplaza si ya existe)
-		WorkManager.getInstance(this).enqueueUniquePeriodicWork(
-			WORK_NAME,
-			ExistingPeriodicWorkPolicy.REPLACE,
-			periodicWork
-		);
-		
-		// Programar múltiples verificaciones inmediatas con delays cortos para detectar pedidos más rápido
-		// Esto compensa la limitación de 15 minutos del trabajo periódico
-		scheduleMultipleChecks(constraints);
-		
-		android.util.Log.d("MainActivity", "✅ Worker de notificaciones programado (periódico cada 15min + verificaciones frecuentes)");
-	}
-	
-	/**
-	 * Programa múltiples verificaciones con delays cortos para detectar pedidos más rápido
-	 * Se programa una cadena de verificaciones para cubrir los primeros minutos después de cerrar la app
-	 */
-	private void scheduleMultipleChecks(Constraints constraints) {
-		WorkManager workManager = WorkManager.getInstance(this);
-		
-		// Ejecutar inmediatamente
-		OneTimeWorkRequest immediateWork = new OneTimeWorkRequest.Builder(OrderNotificationWorker.class)
-			.setConstraints(constraints)
-			.build();
-		workManager.enqueue(immediateWork);
-		
-		// Programar verificaciones frecuentes en los primeros minutos: 15s, 30s, 45s, 1min, 2min, 3min, 5min, 7min, 10min
-		// Esto ayuda a detectar pedidos más rápido cuando la app está cerrada
-		// Después de 10 minutos, el trabajo periódico (cada 15min) toma el control
-		long[] delays = {15, 30, 45, 60, 120, 180, 300, 420, 600}; // segundos
-		
-		for (long delay : delays) {
-			OneTimeWorkRequest delayedWork = new OneTimeWorkRequest.Builder(OrderNotificationWorker.class)
-				.setConstraints(constraints)
-				.setInitialDelay(delay, TimeUnit.SECONDS)
-				.build();
-			workManager.enqueue(delayedWork);
-		}
-		
-		android.util.Log.d("MainActivity", "✅ Verificaciones programadas: inmediata + 15s, 30s, 45s, 1min, 2min, 3min, 5min, 7min, 10min");
-	}
-	
 	@Override
 	public void onDestroy() {
 		super.onDestroy();
+		capacitorPrefs.unregisterOnSharedPreferenceChangeListener(serviceFlagsListener);
 		// No detenemos el Worker aquí porque queremos que siga funcionando en segundo plano
 		// El Worker seguirá verificando nuevos pedidos periódicamente
 	}
@@ -0,0 +1,59 @@
+package com.deliveryapp.repartidor;
+
+import android.util.Log;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+import java.io.IOException;
+
+/**
+ * Cache nativa de tiles de mapa (MapTiles sobre un TilePack): los mapas del WebView la usan a
+ * través de LocalAssetWebViewClient y desde aquí el JS pide precargar la zona del driver.
+ */
+@CapacitorPlugin(name = "MapTiles")
+public class MapTilesPlugin extends Plugin {
+	private static final String TAG = "MapTilesPlugin";
+	private static final int DEFAULT_RADIUS_METERS = 3000;
+	private static final int MAX_RADIUS_METERS = 8000;
+	
+	/**
+	 * { lat, lon, radiusMeters? } — programa la precarga de la zona para cuando haya Wi-Fi
+	 */
+	@PluginMethod
+	public void prefetchZone(PluginCall call) {
+		Double lat = call.getDouble("lat");
+		Double lon = call.getDouble("lon");
+		if (lat == null || lon == null) {
+			call.reject("lat y lon son obligatorios");
+			return;
+		}
+		int radius = Math.max(500, Math.min(MAX_RADIUS_METERS, call.getInt("radiusMeters", DEFAULT_RADIUS_METERS)));
+		TilePrefetchWorker.schedule(getContext(), lat, lon, radius);
+		call.resolve();
+	}
+	
+	/**
+	 * Aciertos, fallos y ocupación del pack
+	 */
+	@PluginMethod
+	public void getStats(PluginCall call) {
+		try {
+			call.resolve(new JSObject(ProcessStores.tiles(getContext()).getPack().stats().toString()));
+		} catch (Exception e) {
+			call.reject("No se pudieron leer las estadísticas", e);
+		}
+	}
+	
+	@PluginMethod
+	public void clear(PluginCall call) {
+		try {
+			ProcessStores.tiles(getContext()).getPack().clear();
+			call.resolve();
+		} catch (IOException e) {
+			Log.w(TAG, "⚠️ No se pudo vaciar el pack de tiles: " + e.getMessage());
+			call.reject("No se pudo vaciar el pack de tiles", e);
+		}
+	}
+}
@@ -0,0 +1,413 @@
+package com.deliveryapp.repartidor;
+
+import android.Manifest;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.PackageManager;
+import android.location.Location;
+import android.location.LocationListener;
+import android.location.LocationManager;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkInfo;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.telephony.TelephonyManager;
+import android.util.Log;
+import androidx.core.content.ContextCompat;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Tracking GPS nativo del repartidor, independiente de la WebView.
+ *
+ * Recibe fixes de LocationManager y deja pendiente el último en un LocationBuffer de un solo
+ * lugar, que descarta los casi duplicados (menos de MIN_DISTANCE_METERS y de MAX_SILENCE_MS
+ * desde el anterior) y se persiste en disco para sobrevivir a reinicios del servicio. Ese fix
+ * se sube a driver_locations (una fila por driver) como mucho una vez por el intervalo de la
+ * red actual (LocationUploadPolicy).
+ *
+ * La frecuencia y el proveedor (GPS o red) los decide un LocationSamplingGovernor según el
+ * movimiento, el estado del pedido que informa la WebView y la batería: el GPS solo corre
+ * seguido cuando el driver va en camino con un pedido.
+ *
+ * Todo corre en un único HandlerThread: callbacks de ubicación, decisiones de subida y
+ * la subida misma, así el buffer y el gobernador no necesitan sincronización.
+ */
+public class NativeLocationTracker {
+	private static final String TAG = "NativeLocationTracker";
+	
+	private static final String BUFFER_FILE = "location_buffer.bin";
+	// Solo importa el último fix: la fila de driver_locations se reemplaza en cada subida
+	private static final int BUFFER_CAPACITY = 1;
+	private static final float MIN_DISTANCE_METERS = 15;
+	private static final long MAX_SILENCE_MS = 60_000;
+	
+	// Revisión periódica de la política y del perfil de muestreo (no usa la radio)
+	private static final long CHECK_INTERVAL_MS = 15_000;
+	private static final int UPLOAD_TIMEOUT_MS = 15_000;
+	
+	private final Context context;
+	private final String driverId;
+	private final String supabaseUrl;
+	private final String supabaseKey;
+	private final LocationBuffer buffer = new LocationBuffer(BUFFER_CAPACITY, MIN_DISTANCE_METERS, MAX_SILENCE_MS);
+	private final File bufferFile;
+	private final LocationSamplingGovernor governor = new LocationSamplingGovernor();
+	
+	private HandlerThread thread;
+	private volatile Handler handler;
+	private LocationManager locationManager;
+	private ConnectivityManager connectivityManager;
+	private ConnectivityManager.NetworkCallback networkCallback;
+	private boolean dirty;
+	// Última subida exitosa (reloj del sistema); 0 para subir el primer fix sin esperar
+	private long lastUploadMs;
+	
+	private final LocationListener locationListener = new LocationListener() {
+		@Override
+		public void onLocationChanged(Location location) {
+			onFix(location);
+		}
+		
+		// Requeridos antes de API 30 (no tienen implementación por defecto)
+		@Override
+		public void onStatusChanged(String provider, int status, Bundle extras) {
+		}
+		
+		@Override
+		public void onProviderEnabled(String provider) {
+		}
+		
+		@Override
+		public void onProviderDisabled(String provider) {
+		}
+	};
+	
+	private final Runnable periodicCheck = new Runnable() {
+		@Override
+		public void run() {
+			maybeFlush();
+			long now = System.currentTimeMillis();
+			boolean changed = readBattery(now);
+			if (governor.onTick(now) || changed) {
+				applyProfile();
+			}
+			Handler current = handler;
+			if (current != null) {
+				current.postDelayed(this, CHECK_INTERVAL_MS);
+			}
+		}
+	};
+	
+	public NativeLocationTracker(Context context, String driverId, String supabaseUrl, String supabaseKey) {
+		this.context = context.getApplicationContext();
+		this.driverId = driverId;
+		this.supabaseUrl = supabaseUrl;
+		this.supabaseKey = supabaseKey;
+		this.bufferFile = new File(this.context.getFilesDir(), BUFFER_FILE);
+	}
+	
+	/**
+	 * Indica si la app tiene algún permiso de ubicación concedido
+	 */
+	static boolean hasLocationPermission(Context context) {
+		return ContextCompat.checkSelfPermission(context, Manifest.permission.ACCESS_FINE_LOCATION) == PackageManager.PERMISSION_GRANTED
+			|| ContextCompat.checkSelfPermission(context, Manifest.permission.ACCESS_COARSE_LOCATION) == PackageManager.PERMISSION_GRANTED;
+	}
+	
+	public String getDriverId() {
+		return driverId;
+	}
+	
+	/**
+	 * Empieza a escuchar ubicaciones.
+	 * @return false si no hay permiso de ubicación o ningún proveedor disponible
+	 */
+	public boolean start() {
+		if (!hasLocationPermission(context)) {
+			Log.w(TAG, "⚠️ Sin permiso de ubicación, tracking nativo no iniciado");
+			return false;
+		}
+		locationManager = (LocationManager) context.getSystemService(Context.LOCATION_SERVICE);
+		connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+		if (locationManager == null) {
+			return false;
+		}
+		
+		thread = new HandlerThread("location-tracker");
+		thread.start();
+		handler = new Handler(thread.getLooper());
+		
+		handler.post(() -> {
+			int restored = buffer.readFrom(bufferFile);
+			if (restored > 0) {
+				Log.d(TAG, "📍 Fixes pendientes restaurados del disco: " + restored);
+			}
+		});
+		
+		readBattery(System.currentTimeMillis());
+		boolean requested = requestUpdates();
+		if (!requested) {
+			Log.w(TAG, "⚠️ Ningún proveedor de ubicación disponible");
+			stop();
+			return false;
+		}
+		
+		registerNetworkCallback();
+		handler.postDelayed(periodicCheck, CHECK_INTERVAL_MS);
+		Log.d(TAG, "✅ Tracking nativo iniciado para driver " + driverId);
+		return true;
+	}
+	
+	/**
+	 * Deja de escuchar ubicaciones, intenta una última subida y guarda lo pendiente en disco
+	 */
+	public void stop() {
+		if (locationManager != null) {
+			locationManager.removeUpdates(locationListener);
+		}
+		if (networkCallback != null) {
+			try {
+				connectivityManager.unregisterNetworkCallback(networkCallback);
+			} catch (IllegalArgumentException e) {
+				// Ya estaba desregistrado
+			}
+			networkCallback = null;
+		}
+		if (handler != null) {
+			handler.removeCallbacks(periodicCheck);
+			handler.post(() -> {
+				if (!buffer.isEmpty() && currentPolicy() != LocationUploadPolicy.OFFLINE) {
+					flush();
+				}
+				persist();
+			});
+			thread.quitSafely();
+			handler = null;
+		}
+		Log.d(TAG, "🔌 Tracking nativo detenido");
+	}
+	
+	/**
+	 * Estado del pedido del driver informado por la WebView
+	 */
+	public void setPhase(final LocationSamplingGovernor.Phase phase) {
+		Handler current = handler;
+		if (current == null) {
+			return;
+		}
+		current.post(() -> {
+			if (governor.setPhase(phase, System.currentTimeMillis())) {
+				applyProfile();
+			}
+		});
+	}
+	
+	/**
+	 * Registra el listener con la frecuencia y los proveedores del perfil actual
+	 * @return false si no quedó registrado ningún proveedor
+	 */
+	private boolean requestUpdates() {
+		LocationSamplingGovernor.Profile profile = governor.profile();
+		boolean requested = false;
+		try {
+			locationManager.removeUpdates(locationListener);
+			for (String provider : providersFor(profile.priority)) {
+				if (locationManager.isProviderEnabled(provider)) {
+					locationManager.requestLocationUpdates(provider, profile.intervalMs, profile.minDistanceMeters,
+						locationListener, thread.getLooper());
+					requested = true;
+				}
+			}
+			// Sin ubicación por red (desactivada o sin servicios de Google): GPS con el mismo intervalo
+			if (!requested && locationManager.isProviderEnabled(LocationManager.GPS_PROVIDER)) {
+				locationManager.requestLocationUpdates(LocationManager.GPS_PROVIDER, profile.intervalMs,
+					profile.minDistanceMeters, locationListener, thread.getLooper());
+				requested = true;
+			}
+		} catch (SecurityException e) {
+			Log.w(TAG, "⚠️ Permiso de ubicación revocado: " + e.getMessage());
+		}
+		return requested;
+	}
+	
+	private static String[] providersFor(LocationSamplingGovernor.Priority priority) {
+		if (priority == LocationSamplingGovernor.Priority.HIGH_ACCURACY) {
+			return new String[] { LocationManager.GPS_PROVIDER, LocationManager.NETWORK_PROVIDER };
+		}
+		return new String[] { LocationManager.NETWORK_PROVIDER };
+	}
+	
+	private void applyProfile() {
+		if (handler == null || locationManager == null) {
+			return;
+		}
+		if (requestUpdates()) {
+			Log.d(TAG, "📍 Muestreo GPS: " + governor.profile());
+		} else {
+			Log.w(TAG, "⚠️ Ningún proveedor de ubicación disponible para " + governor.profile());
+		}
+	}
+	
+	/**
+	 * Nivel de batería del broadcast persistente (no registra ningún receiver)
+	 * @return true si cambió el perfil
+	 */
+	private boolean readBattery(long now) {
+		Intent battery = context.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+		if (battery == null) {
+			return false;
+		}
+		int level = battery.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+		int scale = battery.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+		if (level < 0 || scale <= 0) {
+			return false;
+		}
+		int status = battery.getIntExtra(BatteryManager.EXTRA_STATUS, -1);
+		boolean charging = status == BatteryManager.BATTERY_STATUS_CHARGING || status == BatteryManager.BATTERY_STATUS_FULL;
+		return governor.setBattery(level * 100 / scale, charging, now);
+	}
+	
+	private void onFix(Location location) {
+		governor.setRemainingMeters(RouteProgressPlugin.onFix(context, location.getLatitude(), location.getLongitude()));
+		if (governor.onFix(location.getLatitude(), location.getLongitude(), location.getAccuracy(),
+				location.hasSpeed() ? location.getSpeed() : Float.NaN, System.currentTimeMillis())) {
+			applyProfile();
+		}
+		if (buffer.offer(location.getLatitude(), location.getLongitude(), location.getAccuracy(), location.getTime())) {
+			dirty = true;
+			maybeFlush();
+		}
+	}
+	
+	private void maybeFlush() {
+		if (buffer.isEmpty()) {
+			return;
+		}
+		LocationUploadPolicy policy = currentPolicy();
+		if (policy.shouldUpload(true, System.currentTimeMillis() - lastUploadMs)) {
+			flush();
+		} else if (policy == LocationUploadPolicy.OFFLINE && dirty) {
+			// Sin conexión: dejar el fix pendiente en disco por si el servicio muere
+			persist();
+		}
+	}
+	
+	/**
+	 * Sube el fix pendiente con un upsert sobre la fila del driver (on_conflict=driver_id)
+	 */
+	private void flush() {
+		int count = buffer.size();
+		int latest = count - 1;
+		try {
+			JSONObject row = new JSONObject();
+			row.put("driver_id", driverId);
+			row.put("latitude", buffer.latitudeAt(latest));
+			row.put("longitude", buffer.longitudeAt(latest));
+			row.put("order_id", JSONObject.NULL);
+			row.put("updated_at", formatTimestamp(buffer.timeAt(latest)));
+			JSONArray rows = new JSONArray().put(row);
+			
+			Map<String, String> headers = new HashMap<>();
+			headers.put("apikey", supabaseKey);
+			headers.put("Authorization", "Bearer " + supabaseKey);
+			headers.put("Prefer", "resolution=merge-duplicates,return=minimal");
+			
+			int code = NativeHttpClient.getInstance().postJson(
+				supabaseUrl + "/rest/v1/driver_locations?on_conflict=driver_id",
+				headers,
+				rows.toString(),
+				UPLOAD_TIMEOUT_MS
+			);
+			if (code >= 200 && code < 300) {
+				buffer.removeOldest(count);
+				lastUploadMs = System.currentTimeMillis();
+				dirty = true;
+				persist();
+				Log.d(TAG, "✅ Ubicación subida");
+			} else {
+				Log.w(TAG, "⚠️ Error subiendo ubicación: " + code);
+				persist();
+			}
+		} catch (Exception e) {
+			Log.w(TAG, "⚠️ No se pudo subir la ubicación: " + e.getMessage());
+			persist();
+		}
+	}
+	
+	private void persist() {
+		if (!dirty) {
+			return;
+		}
+		try {
+			buffer.writeTo(bufferFile);
+			dirty = false;
+		} catch (Exception e) {
+			Log.w(TAG, "⚠️ No se pudo guardar el buffer de ubicaciones: " + e.getMessage());
+		}
+	}
+	
+	@SuppressWarnings("deprecation")
+	private LocationUploadPolicy currentPolicy() {
+		if (connectivityManager == null) {
+			return LocationUploadPolicy.OFFLINE;
+		}
+		NetworkInfo info = connectivityManager.getActiveNetworkInfo();
+		boolean connected = info != null && info.isConnected();
+		boolean metered = connectivityManager.isActiveNetworkMetered();
+		boolean constrained = false;
+		if (connected && info.getType() == ConnectivityManager.TYPE_MOBILE) {
+			switch (info.getSubtype()) {
+				case TelephonyManager.NETWORK_TYPE_GPRS:
+				case TelephonyManager.NETWORK_TYPE_EDGE:
+				case TelephonyManager.NETWORK_TYPE_CDMA:
+				case TelephonyManager.NETWORK_TYPE_1xRTT:
+				case TelephonyManager.NETWORK_TYPE_IDEN:
+					constrained = true;
+					break;
+				default:
+					break;
+			}
+		}
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N
+				&& connectivityManager.getRestrictBackgroundStatus() == ConnectivityManager.RESTRICT_BACKGROUND_STATUS_ENABLED) {
+			constrained = true;
+		}
+		return LocationUploadPolicy.forNetwork(connected, metered, constrained);
+	}
+	
+	/**
+	 * Al recuperar la conexión, subir el fix pendiente sin esperar a la próxima revisión periódica
+	 */
+	private void registerNetworkCallback() {
+		if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N || connectivityManager == null) {
+			return;
+		}
+		final Handler trackerHandler = handler;
+		networkCallback = new ConnectivityManager.NetworkCallback() {
+			@Override
+			public void onAvailable(Network network) {
+				trackerHandler.post(NativeLocationTracker.this::maybeFlush);
+			}
+		};
+		connectivityManager.registerDefaultNetworkCallback(networkCallback);
+	}
+	
+	private static String formatTimestamp(long timeMs) {
+		SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
+		format.setTimeZone(TimeZone.getTimeZone("UTC"));
+		return format.format(new Date(timeMs));
+	}
+}
@@ -0,0 +1,340 @@
+package com.deliveryapp.repartidor;
+
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.util.Log;
+import androidx.core.app.NotificationCompat;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Publica las notificaciones de pedidos nuevos, compartido por el Worker y el BackgroundService.
+ *
+ * - Deduplica con un NotifiedOrderLog (LRU persistido), así un pedido visto por el Worker y por
+ *   Realtime, o reenviado tras reiniciar el cursor, se notifica una sola vez.
+ * - Publica una notificación por pedido y, cuando hay varias visibles, las agrupa bajo un
+ *   resumen InboxStyle.
+ * - Cancela la notificación cuando otro repartidor toma el pedido.
+ * - Al tocar o descartar una notificación (OrderNotificationReceiver, MainActivity) el pedido
+ *   deja de contar como visible, para que el resumen y la verificación de tomados no lo sigan.
+ *
+ * El registro lo escriben el proceso de la UI y :sync: vive en el SyncStateStore y cada cambio
+ * es una lectura, modificación y escritura con el lock del archivo, así ninguno pisa los
+ * pedidos que acaba de registrar el otro.
+ */
+public final class NotificationEngine {
+	private static final String TAG = "NotificationEngine";
+	private static final String CHANNEL_ID = "new_orders_channel";
+	private static final String GROUP_KEY = "com.deliveryapp.repartidor.NEW_ORDERS";
+	// El antiguo id fijo queda para el resumen del grupo
+	private static final int SUMMARY_NOTIFICATION_ID = 1001;
+	private static final int ORDER_NOTIFICATION_BASE = 2000;
+	
+	// Extra de los intents de tocar y descartar: el pedido, o ALL_ORDERS para el resumen
+	static final String EXTRA_ORDER_ID = "com.deliveryapp.repartidor.ORDER_ID";
+	static final long ALL_ORDERS = -1;
+	
+	// Preferencias donde estaba el registro antes del SyncStateStore: solo se leen si falta la clave
+	private static final String LEGACY_PREFS_NAME = "order_notifications";
+	private static final String LOG_KEY = "notified_orders";
+	private static final int LOG_CAPACITY = 200;
+	private static final int SUMMARY_MAX_LINES = 5;
+	
+	private static NotificationEngine instance;
+	
+	private final Context context;
+	private final SyncStateStore state;
+	// Último registro leído o escrito, con el texto del que salió: sin cambios no se vuelve a parsear
+	private NotifiedOrderLog log;
+	private String logSource;
+	
+	/**
+	 * Cambio sobre el registro más reciente (dentro de la edición del SyncStateStore)
+	 */
+	private interface LogEdit {
+		void apply(NotifiedOrderLog log);
+	}
+	
+	public static synchronized NotificationEngine get(Context context) {
+		if (instance == null) {
+			instance = new NotificationEngine(context.getApplicationContext());
+		}
+		return instance;
+	}
+	
+	private NotificationEngine(Context context) {
+		this.context = context;
+		this.state = ProcessStores.syncState(context);
+		createNotificationChannel();
+	}
+	
+	/**
+	 * Notifica los pedidos que aún no fueron notificados.
+	 * @param run medición de la verificación en curso: registra la latencia de cada notificación publicada
+	 * @return cantidad de notificaciones nuevas publicadas
+	 */
+	public synchronized int notifyOrders(List<OrderSummary> orders, CheckMetrics.CheckRun run) {
+		NotificationManager manager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+		if (manager == null || orders.isEmpty()) {
+			return 0;
+		}
+		// Asegurar que el canal existe antes de publicar (Android 8+)
+		createNotificationChannel();
+		
+		int[] posted = { 0 };
+		update(log -> {
+			for (OrderSummary order : orders) {
+				if (!log.markNotified(order.getId(), OrderNotificationText.summaryLine(order))) {
+					continue;
+				}
+				manager.notify(notificationId(order.getId()), buildOrderNotification(order).build());
+				posted[0]++;
+				run.addNotified(order.getCreatedAt(), System.currentTimeMillis());
+			}
+			if (posted[0] > 0) {
+				updateSummary(manager, log);
+			}
+		});
+		return posted[0];
+	}
+	
+	/**
+	 * Cancela las notificaciones de pedidos que ya no están disponibles (tomados o eliminados)
+	 */
+	public synchronized void cancelOrders(Collection<Long> orderIds) {
+		NotificationManager manager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+		if (manager == null) {
+			return;
+		}
+		int[] cancelled = { 0 };
+		update(log -> {
+			for (long orderId : orderIds) {
+				if (log.deactivate(orderId)) {
+					manager.cancel(notificationId(orderId));
+					cancelled[0]++;
+				}
+			}
+			if (cancelled[0] > 0) {
+				updateSummary(manager, log);
+			}
+		});
+		if (cancelled[0] > 0) {
+			Log.d(TAG, "🔕 Notificaciones canceladas (pedidos tomados): " + cancelled[0]);
+		}
+	}
+	
+	/**
+	 * El driver tocó o descartó la notificación del pedido (ALL_ORDERS: el resumen del grupo)
+	 */
+	public synchronized void onDismissed(long orderId) {
+		NotificationManager manager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+		if (manager == null) {
+			return;
+		}
+		update(log -> {
+			boolean changed = false;
+			if (orderId == ALL_ORDERS) {
+				for (long id : log.activeIds()) {
+					changed |= log.deactivate(id);
+					manager.cancel(notificationId(id));
+				}
+			} else {
+				changed = log.deactivate(orderId);
+			}
+			if (changed) {
+				updateSummary(manager, log);
+			}
+		});
+	}
+	
+	/**
+	 * Cierre de sesión: retira las notificaciones visibles y olvida los pedidos notificados, para
+	 * que el próximo driver de este dispositivo reciba los que sigan pendientes
+	 */
+	public synchronized void clear() {
+		NotificationManager manager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+		update(log -> {
+			if (manager != null) {
+				for (long id : log.activeIds()) {
+					manager.cancel(notificationId(id));
+				}
+				manager.cancel(SUMMARY_NOTIFICATION_ID);
+			}
+			log.clear();
+		});
+		Log.d(TAG, "🧹 Registro de pedidos notificados borrado");
+	}
+	
+	/**
+	 * Ids de pedidos con notificación visible, para verificar si siguen disponibles
+	 */
+	public synchronized List<Long> activeOrderIds() {
+		try {
+			return parsed(stored(state.get(LOG_KEY))).activeIds();
+		} catch (IOException e) {
+			Log.w(TAG, "⚠️ No se pudo leer el registro de notificados: " + e.getMessage());
+			return log != null ? log.activeIds() : Collections.<Long>emptyList();
+		}
+	}
+	
+	/**
+	 * Aplica el cambio sobre el registro que está en el archivo (lo pudo cambiar el otro proceso)
+	 * y lo guarda. Si el archivo falla, el cambio queda solo en memoria hasta la próxima lectura.
+	 */
+	private void update(LogEdit edit) {
+		boolean[] applied = { false };
+		try {
+			state.edit(values -> {
+				NotifiedOrderLog current = parsed(stored(values.get(LOG_KEY)));
+				edit.apply(current);
+				applied[0] = true;
+				String serialized = current.serialize();
+				values.put(LOG_KEY, serialized);
+				logSource = serialized;
+			});
+		} catch (IOException e) {
+			Log.w(TAG, "⚠️ No se pudo guardar el registro de notificados: " + e.getMessage());
+			// Sin leer el archivo: el cambio se aplica sobre el último registro conocido
+			if (!applied[0]) {
+				edit.apply(parsed(logSource));
+			}
+		}
+	}
+	
+	/**
+	 * El valor guardado, o el de las preferencias anteriores si todavía no se escribió
+	 */
+	private String stored(String value) {
+		if (value != null) {
+			return value;
+		}
+		SharedPreferences legacy = context.getSharedPreferences(LEGACY_PREFS_NAME, Context.MODE_PRIVATE);
+		return legacy.getString(LOG_KEY, null);
+	}
+	
+	private NotifiedOrderLog parsed(String serialized) {
+		if (log == null || !Objects.equals(serialized, logSource)) {
+			log = NotifiedOrderLog.parse(serialized, LOG_CAPACITY);
+			logSource = serialized;
+		}
+		return log;
+	}
+	
+	private NotificationCompat.Builder buildOrderNotification(OrderSummary order) {
+		String title = OrderNotificationText.title(order);
+		String body = OrderNotificationText.body(order);
+		
+		return new NotificationCompat.Builder(context, CHANNEL_ID)
+			.setSmallIcon(android.R.drawable.ic_menu_mylocation) // Icono de ubicación/envío
+			.setContentTitle(title)
+			.setContentText(body)
+			.setPriority(NotificationCompat.PRIORITY_HIGH)
+			.setAutoCancel(true)
+			.setContentIntent(openIntent(order.getId()))
+			.setDeleteIntent(dismissIntent(order.getId()))
+			.setVibrate(new long[]{0, 500, 200, 500})
+			.setStyle(new NotificationCompat.BigTextStyle().bigText(body))
+			.setGroup(GROUP_KEY)
+			// En una ráfaga suena solo el resumen, no cada pedido
+			.setGroupAlertBehavior(NotificationCompat.GROUP_ALERT_SUMMARY);
+	}
+	
+	/**
+	 * Publica, actualiza o retira el resumen del grupo según cuántos pedidos siguen visibles
+	 */
+	private void updateSummary(NotificationManager manager, NotifiedOrderLog log) {
+		int active = log.activeCount();
+		if (active < 2) {
+			manager.cancel(SUMMARY_NOTIFICATION_ID);
+			return;
+		}
+		
+		String title = OrderNotificationText.summaryTitle(active);
+		NotificationCompat.InboxStyle style = new NotificationCompat.InboxStyle().setBigContentTitle(title);
+		for (String line : log.activeLines(SUMMARY_MAX_LINES)) {
+			style.addLine(line);
+		}
+		if (active > SUMMARY_MAX_LINES) {
+			style.setSummaryText("y " + (active - SUMMARY_MAX_LINES) + " más");
+		}
+		
+		NotificationCompat.Builder summary = new NotificationCompat.Builder(context, CHANNEL_ID)
+			.setSmallIcon(android.R.drawable.ic_menu_mylocation)
+			.setContentTitle(title)
+			.setContentText("Toca para ver los pedidos")
+			.setPriority(NotificationCompat.PRIORITY_HIGH)
+			.setAutoCancel(true)
+			.setContentIntent(openIntent(ALL_ORDERS))
+			.setDeleteIntent(dismissIntent(ALL_ORDERS))
+			.setStyle(style)
+			.setNumber(active)
+			.setGroup(GROUP_KEY)
+			.setGroupSummary(true)
+			.setGroupAlertBehavior(NotificationCompat.GROUP_ALERT_SUMMARY);
+		manager.notify(SUMMARY_NOTIFICATION_ID, summary.build());
+	}
+	
+	/**
+	 * Abre la app en la lista de pedidos; MainActivity avisa con onDismissed (la notificación
+	 * se cierra sola al tocarla y en ese caso Android no envía el intent de descarte)
+	 */
+	private PendingIntent openIntent(long orderId) {
+		Intent intent = new Intent(context, MainActivity.class)
+			.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_SINGLE_TOP)
+			.putExtra(EXTRA_ORDER_ID, orderId);
+		return PendingIntent.getActivity(context, requestCode(orderId), intent,
+			PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT);
+	}
+	
+	private PendingIntent dismissIntent(long orderId) {
+		Intent intent = new Intent(context, OrderNotificationReceiver.class)
+			.setAction(OrderNotificationReceiver.ACTION_DISMISSED)
+			.putExtra(EXTRA_ORDER_ID, orderId);
+		return PendingIntent.getBroadcast(context, requestCode(orderId), intent,
+			PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT);
+	}
+	
+	private static int requestCode(long orderId) {
+		// Un PendingIntent distinto por pedido (los extras no los distinguen)
+		return orderId == ALL_ORDERS ? SUMMARY_NOTIFICATION_ID : notificationId(orderId);
+	}
+	
+	private static int notificationId(long orderId) {
+		// Fuera del rango de los ids fijos (1000 servicio, 1001 resumen)
+		return ORDER_NOTIFICATION_BASE + (Long.hashCode(orderId) & 0x3FFFFFFF);
+	}
+	
+	/**
+	 * 🔴 IMPORTANTE: Crea el canal de notificación (requerido en Android 8+)
+	 * Si no existe el canal, las notificaciones no se mostrarán
+	 * Este método es seguro llamarlo múltiples veces (si el canal ya existe, no hace nada)
+	 */
+	private void createNotificationChannel() {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+			NotificationManager manager = context.getSystemService(NotificationManager.class);
+			if (manager == null || manager.getNotificationChannel(CHANNEL_ID) != null) {
+				return;
+			}
+			
+			NotificationChannel channel = new NotificationChannel(
+				CHANNEL_ID,
+				"Nuevos Pedidos",
+				NotificationManager.IMPORTANCE_HIGH
+			);
+			channel.setDescription("Notificaciones de nuevos pedidos disponibles");
+			channel.enableVibration(true);
+			channel.enableLights(true);
+			
+			manager.createNotificationChannel(channel);
+			Log.d(TAG, "✅ Canal de notificación creado: " + CHANNEL_ID);
+		}
+	}
+}
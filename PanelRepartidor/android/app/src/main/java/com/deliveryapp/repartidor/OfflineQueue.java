@@ -0,0 +1,262 @@
+package com.deliveryapp.repartidor;
+
+import android.content.Context;
+import android.util.Log;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.json.JSONArray;
+import org.json.JSONException;
+
+/**
+ * Cola persistente de acciones del driver (cambios de estado, mensajes, ubicación) para cuando
+ * no hay conexión. Cada mutación se escribe primero en un WriteAheadLog y un Worker con
+ * restricción de red la aplica contra PostgREST en orden, confirmando el log lote a lote.
+ */
+public final class OfflineQueue {
+	private static final String TAG = "OfflineQueue";
+	static final String WORK_NAME = "offline_queue_drain";
+	private static final String DIRECTORY = "offline_queue";
+	// Mutaciones que se leen del log por pasada
+	private static final int DRAIN_WINDOW = 200;
+	private static final int SEND_TIMEOUT_MS = 15000;
+	
+	/**
+	 * Resultado de un vaciado de la cola
+	 */
+	public enum DrainResult {
+		// No quedan mutaciones pendientes
+		DONE,
+		// Falló la red o el servidor: reintentar más tarde
+		RETRY,
+		// Sin credenciales de Supabase (sin sesión): esperar a que el driver inicie sesión
+		NO_SESSION
+	}
+	
+	private static volatile OfflineQueue instance;
+	
+	private final Context context;
+	private final WriteAheadLog log;
+	// Claves de idempotencia de las mutaciones pendientes
+	private final Set<String> pendingKeys = new HashSet<>();
+	// Un solo vaciado a la vez (Worker y flush manual)
+	private final Object drainLock = new Object();
+	
+	public static OfflineQueue get(Context context) throws IOException {
+		OfflineQueue local = instance;
+		if (local == null) {
+			synchronized (OfflineQueue.class) {
+				local = instance;
+				if (local == null) {
+					local = new OfflineQueue(context.getApplicationContext());
+					instance = local;
+				}
+			}
+		}
+		return local;
+	}
+	
+	/**
+	 * Cola propia, que se cierra con close(): la usa el Worker en el proceso :sync cuando el
+	 * proceso de la UI, dueño de la instancia compartida, no está vivo
+	 * @return null si otro proceso tiene la cola abierta (la UI arrancó después de verificarlo)
+	 */
+	static OfflineQueue open(Context context) throws IOException {
+		WriteAheadLog log = WriteAheadLog.tryOpen(directory(context));
+		return log != null ? new OfflineQueue(context.getApplicationContext(), log) : null;
+	}
+	
+	private static File directory(Context context) {
+		return new File(context.getApplicationContext().getFilesDir(), DIRECTORY);
+	}
+	
+	private OfflineQueue(Context context) throws IOException {
+		// Si :sync la tiene abierta, se espera a que termine su vaciado
+		this(context, new WriteAheadLog(directory(context)));
+	}
+	
+	private OfflineQueue(Context context, WriteAheadLog log) {
+		this.context = context;
+		this.log = log;
+		for (QueuedMutation mutation : readPending(Integer.MAX_VALUE)) {
+			if (mutation.key != null) {
+				pendingKeys.add(mutation.key);
+			}
+		}
+		if (log.pendingCount() > 0) {
+			Log.d(TAG, "📦 Mutaciones pendientes recuperadas: " + log.pendingCount());
+		}
+	}
+	
+	/**
+	 * Persiste la mutación y programa el vaciado.
+	 * @return false si ya había una mutación pendiente con la misma clave de idempotencia
+	 */
+	public boolean enqueue(QueuedMutation mutation) throws IOException {
+		synchronized (pendingKeys) {
+			if (mutation.key != null && !pendingKeys.add(mutation.key)) {
+				return false;
+			}
+		}
+		try {
+			log.append(mutation.toJson());
+		} catch (IOException e) {
+			synchronized (pendingKeys) {
+				pendingKeys.remove(mutation.key);
+			}
+			throw e;
+		}
+		scheduleDrain(context);
+		return true;
+	}
+	
+	public int pendingCount() {
+		return log.pendingCount();
+	}
+	
+	void close() throws IOException {
+		log.close();
+	}
+	
+	/**
+	 * Aplica las mutaciones pendientes en orden. Se detiene en el primer error de red o del
+	 * servidor para no reordenar acciones; un rechazo definitivo (4xx) descarta solo ese lote.
+	 */
+	public DrainResult drain() {
+		synchronized (drainLock) {
+			DriverSession.Config config = DriverSession.get(context).current();
+			if (config.supabaseUrl == null || config.supabaseKey == null) {
+				return log.pendingCount() == 0 ? DrainResult.DONE : DrainResult.NO_SESSION;
+			}
+			
+			List<QueuedMutation> pending;
+			while (!(pending = readPending(DRAIN_WINDOW)).isEmpty()) {
+				for (QueuedMutation.Batch batch : QueuedMutation.plan(pending)) {
+					int code;
+					try {
+						code = send(batch, config);
+					} catch (IOException e) {
+						Log.w(TAG, "⚠️ Sin conexión aplicando la cola: " + e.getMessage());
+						return DrainResult.RETRY;
+					}
+					if (code >= 500 || code == 408 || code == 429) {
+						Log.w(TAG, "⚠️ Error del servidor aplicando la cola: " + code);
+						return DrainResult.RETRY;
+					}
+					if (code >= 300) {
+						// Reintentar no va a cambiar la respuesta: descartar para no bloquear la cola
+						Log.e(TAG, "❌ Mutación rechazada (" + code + ") en " + batch.first().table
+							+ ", se descartan " + batch.mutations.size());
+					}
+					if (!acknowledge(batch.ackSeq, pending)) {
+						return DrainResult.RETRY;
+					}
+				}
+			}
+			Log.d(TAG, "✅ Cola sin mutaciones pendientes");
+			return DrainResult.DONE;
+		}
+	}
+	
+	/**
+	 * Programa el Worker de vaciado (con red). APPEND_OR_REPLACE garantiza una pasada posterior
+	 * a cada encolado aunque ya haya un vaciado en curso.
+	 */
+	public static void scheduleDrain(Context context) {
+		Constraints constraints = new Constraints.Builder()
+			.setRequiredNetworkType(NetworkType.CONNECTED)
+			.build();
+		OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(OfflineQueueWorker.class)
+			.setConstraints(constraints)
+			.setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 10, TimeUnit.SECONDS)
+			.build();
+		WorkManager.getInstance(context.getApplicationContext())
+			.enqueueUniqueWork(WORK_NAME, ExistingWorkPolicy.APPEND_OR_REPLACE, request);
+	}
+	
+	private int send(QueuedMutation.Batch batch, DriverSession.Config config) throws IOException {
+		QueuedMutation head = batch.first();
+		Map<String, String> headers = new HashMap<>();
+		headers.put("apikey", config.supabaseKey);
+		headers.put("Authorization", "Bearer " + config.supabaseKey);
+		
+		String url = config.supabaseUrl + "/rest/v1/" + head.table;
+		if (QueuedMutation.UPDATE.equals(head.kind)) {
+			headers.put("Prefer", "return=minimal");
+			return NativeHttpClient.getInstance().sendJson("PATCH", url + "?" + head.filter,
+				headers, head.body.toString(), SEND_TIMEOUT_MS);
+		}
+		
+		// Si se pierde la respuesta, el batch se reenvía entero. Solo con on_conflict sobre una
+		// columna única cuyo valor trae el body (client_mutation_id en los inserts, generado en el
+		// dispositivo) el servidor ignora (insert) o fusiona (upsert) la fila repetida; un insert
+		// sin onConflict se vuelve a insertar. La clave de la mutación no llega al servidor: solo
+		// evita encolar dos veces lo mismo
+		String prefer = "return=minimal,missing=default";
+		if (head.onConflict != null) {
+			url += "?on_conflict=" + head.onConflict;
+			prefer = (QueuedMutation.UPSERT.equals(head.kind) ? "resolution=merge-duplicates," : "resolution=ignore-duplicates,") + prefer;
+		} else if (QueuedMutation.UPSERT.equals(head.kind)) {
+			prefer = "resolution=merge-duplicates," + prefer;
+		}
+		headers.put("Prefer", prefer);
+		
+		JSONArray rows = new JSONArray();
+		for (QueuedMutation mutation : batch.mutations) {
+			rows.put(mutation.body);
+		}
+		return NativeHttpClient.getInstance().postJson(url, headers, rows.toString(), SEND_TIMEOUT_MS);
+	}
+	
+	/**
+	 * Confirma el log hasta ackSeq y libera las claves de idempotencia de lo confirmado
+	 * (incluidas las mutaciones reemplazadas por coalesceKey)
+	 */
+	private boolean acknowledge(long ackSeq, List<QueuedMutation> pending) {
+		try {
+			log.acknowledge(ackSeq);
+		} catch (IOException e) {
+			Log.e(TAG, "❌ No se pudo confirmar el log de la cola", e);
+			return false;
+		}
+		synchronized (pendingKeys) {
+			for (QueuedMutation mutation : pending) {
+				if (mutation.seq <= ackSeq && mutation.key != null) {
+					pendingKeys.remove(mutation.key);
+				}
+			}
+		}
+		return true;
+	}
+	
+	private List<QueuedMutation> readPending(int max) {
+		List<QueuedMutation> mutations = new ArrayList<>();
+		for (WriteAheadLog.Entry entry : log.pending(max)) {
+			try {
+				mutations.add(QueuedMutation.fromJson(entry.payload, entry.seq));
+			} catch (JSONException e) {
+				// Registro ilegible: confirmarlo para que no bloquee la cola
+				Log.e(TAG, "❌ Mutación inválida en el log (seq " + entry.seq + "): " + e.getMessage());
+				try {
+					if (mutations.isEmpty()) {
+						log.acknowledge(entry.seq);
+					}
+				} catch (IOException ignored) {
+				}
+			}
+		}
+		return mutations;
+	}
+}
@@ -0,0 +1,71 @@
+package com.deliveryapp.repartidor;
+
+import android.util.Log;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+import java.util.UUID;
+import org.json.JSONObject;
+
+/**
+ * Expone la OfflineQueue al WebView: el JS encola aquí las mutaciones que no pudo enviar por
+ * falta de red y la cola nativa las aplica al reconectar, aunque la app ya esté cerrada.
+ */
+@CapacitorPlugin(name = "OfflineQueue")
+public class OfflineQueuePlugin extends Plugin {
+	private static final String TAG = "OfflineQueuePlugin";
+	
+	/**
+	 * { kind, table, body, filter?, onConflict?, coalesceKey?, key? } → { queued, pending }
+	 */
+	@PluginMethod
+	public void enqueue(PluginCall call) {
+		JSONObject body = call.getObject("body");
+		String key = call.getString("key");
+		try {
+			QueuedMutation mutation = new QueuedMutation(
+				key != null ? key : UUID.randomUUID().toString(),
+				call.getString("kind", QueuedMutation.INSERT),
+				call.getString("table"),
+				call.getString("filter"),
+				call.getString("onConflict"),
+				call.getString("coalesceKey"),
+				body,
+				System.currentTimeMillis());
+			OfflineQueue queue = OfflineQueue.get(getContext());
+			boolean queued = queue.enqueue(mutation);
+			
+			JSObject ret = new JSObject();
+			ret.put("queued", queued);
+			ret.put("pending", queue.pendingCount());
+			call.resolve(ret);
+		} catch (IllegalArgumentException e) {
+			call.reject(e.getMessage());
+		} catch (Exception e) {
+			Log.e(TAG, "❌ No se pudo encolar la mutación", e);
+			call.reject("No se pudo encolar la mutación", e);
+		}
+	}
+	
+	@PluginMethod
+	public void getStatus(PluginCall call) {
+		try {
+			JSObject ret = new JSObject();
+			ret.put("pending", OfflineQueue.get(getContext()).pendingCount());
+			call.resolve(ret);
+		} catch (Exception e) {
+			call.reject("No se pudo leer la cola", e);
+		}
+	}
+	
+	/**
+	 * Programa un vaciado inmediato (por ejemplo, al recuperar la conexión en el WebView)
+	 */
+	@PluginMethod
+	public void flush(PluginCall call) {
+		OfflineQueue.scheduleDrain(getContext());
+		call.resolve();
+	}
+}
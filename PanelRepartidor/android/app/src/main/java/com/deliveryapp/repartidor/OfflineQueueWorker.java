@@ -0,0 +1,61 @@
+package com.deliveryapp.repartidor;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+/**
+ * Vacía la OfflineQueue cuando hay red. Si falla, WorkManager reintenta con backoff exponencial.
+ * Corre en el proceso :sync: si el proceso de la UI está vivo, el vaciado se hace allá con la
+ * cola que ya tiene abierta (SyncBridgeProvider); si no, con una cola propia que se cierra al terminar.
+ */
+public class OfflineQueueWorker extends Worker {
+	private static final String TAG = "OfflineQueueWorker";
+	
+	public OfflineQueueWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+		super(context, params);
+	}
+	
+	@NonNull
+	@Override
+	public Result doWork() {
+		Context context = getApplicationContext();
+		Bundle remote = SyncBridgeProvider.call(context, SyncBridgeProvider.METHOD_DRAIN_QUEUE, null);
+		if (remote != null) {
+			if (remote.getBoolean(SyncBridgeProvider.FAILED_KEY)) {
+				return Result.retry();
+			}
+			return toResult(OfflineQueue.DrainResult.valueOf(remote.getString(SyncBridgeProvider.RESULT_KEY)));
+		}
+		OfflineQueue queue = null;
+		try {
+			queue = OfflineQueue.open(context);
+			if (queue == null) {
+				// La UI arrancó y abrió la cola: el próximo intento se lo pasa a ella
+				Log.d(TAG, "ℹ️ La cola offline está abierta en el proceso de la UI, se reintenta");
+				return Result.retry();
+			}
+			return toResult(queue.drain());
+		} catch (Exception e) {
+			Log.e(TAG, "❌ Error vaciando la cola offline", e);
+			return Result.retry();
+		} finally {
+			if (queue != null) {
+				try {
+					queue.close();
+				} catch (Exception e) {
+					Log.w(TAG, "⚠️ No se pudo cerrar la cola offline: " + e.getMessage());
+				}
+			}
+		}
+	}
+	
+	private static Result toResult(OfflineQueue.DrainResult result) {
+		Log.d(TAG, "📡 Vaciado de la cola offline: " + result);
+		// Sin sesión no se reintenta: se vuelve a programar al encolar o al abrir la app
+		return result == OfflineQueue.DrainResult.RETRY ? Result.retry() : Result.success();
+	}
+}
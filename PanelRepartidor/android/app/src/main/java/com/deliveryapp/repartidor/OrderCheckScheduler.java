@@ -0,0 +1,210 @@
+package com.deliveryapp.repartidor;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.SharedPreferences;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.BatteryManager;
+import android.os.PowerManager;
+import android.util.Log;
+import androidx.annotation.WorkerThread;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Programa la próxima verificación de pedidos en segundo plano según la tasa de llegada de
+ * pedidos de la empresa a esta hora (ArrivalRateModel) y el estado del dispositivo
+ * (CheckIntervalPolicy).
+ *
+ * Mantiene como máximo una verificación pendiente: todas usan el mismo nombre único y cada
+ * ejecución encadena la siguiente al terminar. Complementa al trabajo periódico de 15 minutos.
+ */
+public final class OrderCheckScheduler {
+	private static final String TAG = "OrderCheckScheduler";
+	static final String WORK_NAME = "order_check_next";
+	// Marca en el input del Worker: la ejecución pertenece a la cadena adaptativa
+	static final String CHAINED_KEY = "chained";
+	// Hora (epoch ms) para la que se programó la verificación, para medir el retraso del Worker
+	static final String DUE_AT_KEY = "due_at";
+	
+	// El modelo lo actualiza el Worker en :sync y lo lee también la UI al reprogramar: va en el
+	// SyncStateStore. Las preferencias quedan solo para leer el modelo guardado antes
+	private static final String LEGACY_PREFS_NAME = "order_check_scheduler";
+	private static final String MODEL_KEY_PREFIX = "arrival_rate_";
+	
+	private OrderCheckScheduler() {
+	}
+	
+	/**
+	 * Reinicia la cadena (al abrir la app o al ponerse en línea): reemplaza la verificación
+	 * pendiente, si la hay, por una nueva calculada con el estado actual.
+	 */
+	public static void reschedule(Context context) {
+		// Se llama desde listeners de CapacitorStorage, que pueden correr antes que el de
+		// DriverSession: forzar una lectura fresca del estado "en línea"
+		DriverSession.get(context).invalidate();
+		enqueueNext(context, ExistingWorkPolicy.REPLACE);
+	}
+	
+	/**
+	 * Al abrir la app: conserva la verificación pendiente si ya hay una (sin reiniciar su
+	 * espera) y solo programa una nueva si la cadena se cortó.
+	 * @return true si se programó una verificación
+	 */
+	@WorkerThread
+	static boolean ensureScheduled(Context context) {
+		if (hasPendingWork(context, WORK_NAME)) {
+			return false;
+		}
+		reschedule(context);
+		return true;
+	}
+	
+	/**
+	 * Indica si el trabajo único está encolado o en ejecución (consulta bloqueante a WorkManager)
+	 */
+	@WorkerThread
+	static boolean hasPendingWork(Context context, String uniqueWorkName) {
+		try {
+			for (WorkInfo info : WorkManager.getInstance(context).getWorkInfosForUniqueWork(uniqueWorkName).get()) {
+				if (!info.getState().isFinished()) {
+					return true;
+				}
+			}
+		} catch (ExecutionException e) {
+			Log.w(TAG, "⚠️ No se pudo consultar " + uniqueWorkName + ": " + e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return false;
+	}
+	
+	/**
+	 * Llamado por el Worker al terminar una verificación encadenada: registra la observación y
+	 * agrega la siguiente verificación a la cadena.
+	 * @param newOrders pedidos que llegaron al feed de la empresa, antes del filtro de distancia:
+	 *                  con los notificados, un driver lejos de la zona subestimaría la tasa
+	 */
+	public static void onCheckCompleted(Context context, int newOrders) {
+		DriverSession.Config config = DriverSession.get(context).current();
+		if (config.companyId != null) {
+			String key = MODEL_KEY_PREFIX + config.companyId;
+			SharedPreferences legacy = legacyPrefs(context);
+			try {
+				ProcessStores.syncState(context).edit(values -> {
+					String stored = values.containsKey(key) ? values.get(key) : legacy.getString(key, null);
+					ArrivalRateModel model = ArrivalRateModel.parse(stored);
+					model.observe(Calendar.getInstance().get(Calendar.HOUR_OF_DAY), newOrders, System.currentTimeMillis());
+					values.put(key, model.serialize());
+				});
+			} catch (IOException e) {
+				// Se pierde una observación: el modelo se sigue ajustando con las próximas
+				Log.w(TAG, "⚠️ No se pudo guardar el modelo de llegadas: " + e.getMessage());
+			}
+		}
+		// La ejecución actual sigue RUNNING: APPEND la deja terminar y encola la siguiente detrás
+		enqueueNext(context, ExistingWorkPolicy.APPEND_OR_REPLACE);
+	}
+	
+	/**
+	 * Mantiene viva la cadena sin registrar observación (la verificación se omitió porque la app
+	 * ya consulta el feed en primer plano)
+	 */
+	static void continueChain(Context context) {
+		enqueueNext(context, ExistingWorkPolicy.APPEND_OR_REPLACE);
+	}
+	
+	private static void enqueueNext(Context context, ExistingWorkPolicy policy) {
+		Context app = context.getApplicationContext();
+		DriverSession session = DriverSession.get(app);
+		if (DriverSession.parseFlag(session.value(DriverSession.REALTIME_FLAG_KEY))) {
+			// Con Realtime nativo los pedidos llegan por el websocket
+			cancel(app);
+			return;
+		}
+		
+		DriverSession.Config config = session.current();
+		int hour = Calendar.getInstance().get(Calendar.HOUR_OF_DAY);
+		double rate = config.companyId != null
+			? ArrivalRateModel.parse(storedModel(app, MODEL_KEY_PREFIX + config.companyId)).rateAt(hour)
+			: ArrivalRateModel.PRIOR_RATE_PER_HOUR;
+		
+		long delay = CheckIntervalPolicy.nextDelaySeconds(rate, readConditions(app, config.isActive()));
+		if (delay < 0) {
+			// Desconectado o sin sesión: no despertar al dispositivo
+			cancel(app);
+			Log.d(TAG, "ℹ️ Driver fuera de línea, sin verificaciones adaptativas");
+			return;
+		}
+		
+		Constraints constraints = new Constraints.Builder()
+			.setRequiredNetworkType(NetworkType.CONNECTED)
+			.build();
+		OneTimeWorkRequest next = new OneTimeWorkRequest.Builder(OrderNotificationWorker.class)
+			.setConstraints(constraints)
+			.setInitialDelay(delay, TimeUnit.SECONDS)
+			.setInputData(new Data.Builder()
+				.putBoolean(CHAINED_KEY, true)
+				.putLong(DUE_AT_KEY, System.currentTimeMillis() + delay * 1000)
+				.build())
+			.build();
+		WorkManager.getInstance(app).enqueueUniqueWork(WORK_NAME, policy, next);
+		Log.d(TAG, String.format("📊 Próxima verificación en %ds (%.1f pedidos/h esperados a las %dh)", delay, rate, hour));
+	}
+	
+	private static void cancel(Context context) {
+		WorkManager.getInstance(context).cancelUniqueWork(WORK_NAME);
+	}
+	
+	@SuppressWarnings("deprecation")
+	private static CheckIntervalPolicy.Conditions readConditions(Context context, boolean online) {
+		int batteryPercent = -1;
+		boolean charging = false;
+		// Broadcast sticky: no registra ningún receiver
+		Intent battery = context.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+		if (battery != null) {
+			int level = battery.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+			int scale = battery.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+			if (level >= 0 && scale > 0) {
+				batteryPercent = level * 100 / scale;
+			}
+			int status = battery.getIntExtra(BatteryManager.EXTRA_STATUS, -1);
+			charging = status == BatteryManager.BATTERY_STATUS_CHARGING || status == BatteryManager.BATTERY_STATUS_FULL;
+		}
+		
+		PowerManager power = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+		boolean powerSave = power != null && power.isPowerSaveMode();
+		
+		ConnectivityManager connectivity = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+		NetworkInfo network = connectivity != null ? connectivity.getActiveNetworkInfo() : null;
+		boolean connected = network != null && network.isConnected();
+		boolean metered = connectivity != null && connectivity.isActiveNetworkMetered();
+		
+		return new CheckIntervalPolicy.Conditions(online, batteryPercent, charging, powerSave, connected, metered);
+	}
+	
+	private static String storedModel(Context context, String key) {
+		try {
+			String stored = ProcessStores.syncState(context).get(key);
+			return stored != null ? stored : legacyPrefs(context).getString(key, null);
+		} catch (IOException e) {
+			Log.w(TAG, "⚠️ No se pudo leer el modelo de llegadas: " + e.getMessage());
+			return null;
+		}
+	}
+	
+	private static SharedPreferences legacyPrefs(Context context) {
+		return context.getSharedPreferences(LEGACY_PREFS_NAME, Context.MODE_PRIVATE);
+	}
+}
@@ -0,0 +1,210 @@
+package com.deliveryapp.repartidor;
+
+import android.util.Log;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.json.JSONObject;
+
+/**
+ * Puente de cambios de pedidos del código nativo al WebView: OrderFeedSync publica aquí los
+ * pedidos nuevos, los modificados y los tomados (evento "orderDelta") en vez de que el JS vuelva
+ * a consultar.
+ *
+ * Con la app visible y el driver en línea, el JS pide una sincronización en primer plano. El
+ * disparador es Realtime: por cada INSERT o UPDATE en orders el JS llama a syncNow (con los ids
+ * modificados) y este plugin trae solo el delta. Además consulta cada DEFAULT_INTERVAL_MS sin
+ * eventos, por si Realtime se cae o pierde alguno; mientras tanto el Worker omite sus
+ * verificaciones (un solo consultor por driver).
+ */
+@CapacitorPlugin(name = "OrderEvents")
+public class OrderEventsPlugin extends Plugin {
+	private static final String TAG = "OrderEventsPlugin";
+	static final String EVENT = "orderDelta";
+	// Respaldo de Realtime: solo consulta si pasó este tiempo sin un syncNow
+	private static final long DEFAULT_INTERVAL_MS = 60_000;
+	private static final long MIN_INTERVAL_MS = 5_000;
+	
+	private ScheduledExecutorService scheduler;
+	private ScheduledFuture<?> loop;
+	private boolean requested;
+	private long intervalMs = DEFAULT_INTERVAL_MS;
+	// Pedidos modificados según Realtime, hasta la próxima sincronización
+	private final Set<Long> pendingUpdates = new LinkedHashSet<>();
+	
+	// Sin WebView activo OrderFeedSync no tiene a quién publicar
+	private final OrderFeedSync.DeltaListener deltaListener = this::publish;
+	
+	@Override
+	public void load() {
+		OrderFeedSync.setDeltaListener(deltaListener);
+	}
+	
+	@Override
+	protected void handleOnDestroy() {
+		stopLoop();
+		OrderFeedSync.removeDeltaListener(deltaListener);
+	}
+	
+	/**
+	 * Publica pedidos nuevos y modificados (filas completas de la consulta de App.jsx) y ids de
+	 * pedidos que dejaron de estar pendientes
+	 */
+	private void publish(List<JSONObject> inserted, List<Long> taken, List<JSONObject> updated, String source) {
+		if (inserted.isEmpty() && taken.isEmpty() && updated.isEmpty()) {
+			return;
+		}
+		JSArray takenJson = new JSArray();
+		for (Long id : taken) {
+			takenJson.put(id);
+		}
+		JSObject data = new JSObject();
+		data.put("inserted", toArray(inserted));
+		data.put("taken", takenJson);
+		data.put("updated", toArray(updated));
+		data.put("source", source);
+		notifyListeners(EVENT, data);
+	}
+	
+	private static JSArray toArray(List<JSONObject> rows) {
+		JSArray array = new JSArray();
+		for (JSONObject row : rows) {
+			array.put(row);
+		}
+		return array;
+	}
+	
+	/**
+	 * { intervalMs? } — empieza a consultar el feed mientras la app esté visible
+	 */
+	@PluginMethod
+	public void startForegroundSync(PluginCall call) {
+		intervalMs = Math.max(MIN_INTERVAL_MS, call.getLong("intervalMs", DEFAULT_INTERVAL_MS));
+		requested = true;
+		startLoop();
+		call.resolve();
+	}
+	
+	/**
+	 * Llegó un INSERT o UPDATE por Realtime: sincroniza el delta ya y reinicia la espera del
+	 * respaldo. Una ráfaga de eventos deja a lo sumo una consulta en curso y otra pendiente, que
+	 * trae juntos todos los pedidos modificados.
+	 * { updatedIds? } → { synced } (false si no hay sincronización en primer plano activa)
+	 */
+	@PluginMethod
+	public void syncNow(PluginCall call) {
+		JSArray updatedIds = call.getArray("updatedIds", new JSArray());
+		boolean synced;
+		synchronized (this) {
+			synced = restartLoop();
+			if (synced) {
+				for (int i = 0; i < updatedIds.length(); i++) {
+					long id = updatedIds.optLong(i, -1);
+					if (id > 0) {
+						pendingUpdates.add(id);
+					}
+				}
+			}
+		}
+		JSObject result = new JSObject();
+		result.put("synced", synced);
+		call.resolve(result);
+	}
+	
+	@PluginMethod
+	public void stopForegroundSync(PluginCall call) {
+		requested = false;
+		stopLoop();
+		call.resolve();
+	}
+	
+	/**
+	 * Cierre de sesión: retira las notificaciones de pedidos, borra el registro de notificados y
+	 * la marca de agua del feed
+	 */
+	@PluginMethod
+	public void clearNotifications(PluginCall call) {
+		NotificationEngine.get(getContext()).clear();
+		OrderFeedSync.reset(getContext());
+		call.resolve();
+	}
+	
+	@Override
+	protected void handleOnResume() {
+		super.handleOnResume();
+		if (requested) {
+			startLoop();
+		}
+	}
+	
+	@Override
+	protected void handleOnPause() {
+		super.handleOnPause();
+		// En segundo plano vuelven a consultar el Worker / el servicio
+		stopLoop();
+	}
+	
+	private synchronized void startLoop() {
+		if (loop != null) {
+			return;
+		}
+		if (scheduler == null) {
+			scheduler = Executors.newSingleThreadScheduledExecutor();
+		}
+		OrderFeedSync.markForegroundSync(intervalMs);
+		loop = scheduler.scheduleWithFixedDelay(this::syncOnce, 0, intervalMs, TimeUnit.MILLISECONDS);
+		Log.d(TAG, "✅ Sincronización en primer plano (respaldo cada " + intervalMs + " ms)");
+	}
+	
+	/**
+	 * Consulta ahora y vuelve a contar el intervalo del respaldo desde esta consulta. La
+	 * programada que se cancela no corre; la que ya estaba corriendo termina (mismo hilo, en orden)
+	 * @return false si el loop no está activo (app en segundo plano o sin pedir)
+	 */
+	private synchronized boolean restartLoop() {
+		if (loop == null) {
+			return false;
+		}
+		loop.cancel(false);
+		loop = scheduler.scheduleWithFixedDelay(this::syncOnce, 0, intervalMs, TimeUnit.MILLISECONDS);
+		return true;
+	}
+	
+	private synchronized void stopLoop() {
+		if (loop != null) {
+			loop.cancel(false);
+			loop = null;
+		}
+		OrderFeedSync.markForegroundSync(0);
+	}
+	
+	private synchronized List<Long> takeUpdates() {
+		List<Long> ids = new ArrayList<>(pendingUpdates);
+		pendingUpdates.clear();
+		return ids;
+	}
+	
+	private void syncOnce() {
+		CheckMetrics metrics = CheckMetrics.get();
+		CheckMetrics.CheckRun run = metrics.begin("foreground", 0);
+		try {
+			new OrderFeedSync(getContext()).syncForeground(run, takeUpdates());
+			OrderFeedSync.markForegroundSynced();
+			ProcessStores.exportMetrics(getContext(), metrics.finish(run, false));
+		} catch (Exception e) {
+			Log.w(TAG, "⚠️ Error en sincronización en primer plano: " + e.getMessage());
+			ProcessStores.exportMetrics(getContext(), metrics.finish(run, true));
+		}
+	}
+}
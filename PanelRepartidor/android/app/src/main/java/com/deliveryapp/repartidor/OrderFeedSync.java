@@ -0,0 +1,525 @@
+package com.deliveryapp.repartidor;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.location.Location;
+import android.location.LocationManager;
+import android.util.Log;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Sincronización incremental del feed de pedidos pendientes.
+ * La usan tanto OrderNotificationWorker (verificaciones periódicas) como el suscriptor
+ * Realtime del BackgroundService (catch-up al conectar y al recibir un INSERT).
+ *
+ * Es el adaptador Android de OrderFeedPipeline (módulo order-feed-core): aporta la sesión del
+ * driver, el cursor en el SyncStateStore, los nombres de locales y clientes (el feed solo trae
+ * sus ids) y las notificaciones de NotificationEngine. Además
+ * mantiene al día el snapshot local de pedidos (OrderSnapshotStore) para que la app abra con
+ * los pedidos nuevos ya en la lista, publica los cambios al WebView abierto (el DeltaListener
+ * que registra OrderEventsPlugin) para que no vuelva a consultarlos, y solo notifica los pedidos
+ * de locales cercanos a la última ubicación conocida del driver (LocalsIndex), del más cercano
+ * al más lejano.
+ *
+ * Corre también en el proceso :sync, así que no referencia clases de Capacitor: los plugins se
+ * enganchan desde el proceso de la UI (setDeltaListener, markForegroundSync).
+ *
+ * La sincronización en primer plano (syncForeground) pide el feed con la proyección de la lista
+ * de App.jsx (ORDER_SELECT), así el WebView recibe filas completas y también las de los pedidos
+ * que Realtime avisó como modificados. Las de segundo plano piden la proyección mínima y solo
+ * publican los pedidos tomados.
+ */
+public class OrderFeedSync {
+	private static final String TAG = "OrderFeedSync";
+	
+	// Capacitor Preferences guarda en "CapacitorStorage" (solo la lee el proceso de la UI)
+	static final String PREFS_NAME = "CapacitorStorage";
+	
+	// Claves de la marca de agua del feed. Van en el SyncStateStore (las escriben los dos procesos);
+	// en CapacitorStorage quedan las de versiones anteriores, que solo se leen una vez
+	static final String CURSOR_CREATED_AT_KEY = "order_feed_cursor_created_at";
+	static final String CURSOR_ID_KEY = "order_feed_cursor_id";
+	static final String CURSOR_RECENT_KEY = "order_feed_cursor_recent";
+	// Empresa de la marca de agua: otra sesión empieza de cero
+	static final String CURSOR_COMPANY_KEY = "order_feed_cursor_company";
+	// Máximo de notificaciones visibles a verificar por sincronización (las más recientes)
+	private static final int MAX_TAKEN_CHECK = 50;
+	// Igual que PROXIMITY_RADIUS_KM de la lista de pedidos en App.jsx
+	private static final double DEFAULT_RADIUS_KM = 5;
+	// Una ubicación más vieja que esto ya no dice dónde está el driver
+	private static final long MAX_FIX_AGE_MS = 30 * 60 * 1000L;
+	private static final String LOCALS_FILE = "locals_catalog.json";
+	private static final String CLIENTS_FILE = "clients_directory.json";
+	// Igual que ORDER_SELECT de App.jsx: las filas publicadas al WebView pasan directo por formatOrder
+	static final String ORDER_SELECT = "*,clients(name,phone,address),locals(name,address),company_users(name),drivers(name,phone)";
+	
+	/**
+	 * Recibe los cambios de pedidos de cada sincronización (lo registra OrderEventsPlugin
+	 * mientras hay un WebView)
+	 */
+	interface DeltaListener {
+		/**
+		 * Pedidos nuevos y modificados (filas completas de la consulta de App.jsx) e ids de
+		 * pedidos que dejaron de estar pendientes
+		 */
+		void onOrderDelta(List<JSONObject> inserted, List<Long> taken, List<JSONObject> updated, String source);
+	}
+	
+	private static LocalsCatalog locals;
+	private static ClientsDirectory clients;
+	private static volatile DeltaListener deltaListener;
+	// Marca de la última sincronización en primer plano: el Worker no consulta mientras sea reciente
+	private static volatile long foregroundSyncAt;
+	private static volatile long foregroundIntervalMs;
+	
+	// El Worker y el servicio pueden sincronizar a la vez: una sola sincronización por proceso
+	// (entre procesos no hace falta: el Worker de :sync solo sincroniza si la UI no está viva, y
+	// si llegaran a cruzarse, el cursor guardado nunca retrocede)
+	private static final Object LOCK = new Object();
+	
+	private final Context context;
+	
+	public OrderFeedSync(Context context) {
+		this.context = context.getApplicationContext();
+	}
+	
+	static synchronized void setDeltaListener(DeltaListener listener) {
+		deltaListener = listener;
+	}
+	
+	/**
+	 * Deja de publicar a listener (si no lo reemplazó otro, p. ej. el plugin de una actividad nueva)
+	 */
+	static synchronized void removeDeltaListener(DeltaListener listener) {
+		if (deltaListener == listener) {
+			deltaListener = null;
+		}
+	}
+	
+	/**
+	 * La app empezó a consultar el feed en primer plano cada intervalMs (0: dejó de hacerlo)
+	 */
+	static void markForegroundSync(long intervalMs) {
+		foregroundIntervalMs = intervalMs;
+	}
+	
+	static void markForegroundSynced() {
+		foregroundSyncAt = System.currentTimeMillis();
+	}
+	
+	/**
+	 * true si la app está consultando el feed en primer plano (el Worker puede omitir su consulta)
+	 */
+	static boolean isForegroundSyncActive() {
+		long interval = foregroundIntervalMs;
+		return interval > 0 && System.currentTimeMillis() - foregroundSyncAt < interval * 2;
+	}
+	
+	/**
+	 * Cierre de sesión: olvida la marca de agua, así el próximo driver empieza desde el pedido
+	 * más reciente
+	 */
+	static void reset(Context context) {
+		try {
+			ProcessStores.syncState(context).edit(values -> {
+				values.put(CURSOR_CREATED_AT_KEY, null);
+				values.put(CURSOR_ID_KEY, null);
+				values.put(CURSOR_RECENT_KEY, null);
+				// Vacía y no borrada: no vuelve a leer la marca anterior de CapacitorStorage
+				values.put(CURSOR_COMPANY_KEY, "");
+			});
+		} catch (IOException e) {
+			Log.w(TAG, "⚠️ No se pudo borrar la marca de agua: " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * Consulta los pedidos pendientes posteriores a la marca de agua y notifica cada uno.
+	 * @param run medición de la verificación (tiempos de red y lectura, pedidos vistos y notificados)
+	 * @return cantidad de pedidos que llegaron al feed desde la verificación anterior, antes del
+	 *         filtro de distancia y de los ya notificados (0 si el driver no está en línea). Los
+	 *         notificados quedan en run.
+	 * @throws Exception si falla la red, para que el llamador reintente
+	 */
+	public int syncNewOrders(CheckMetrics.CheckRun run) throws Exception {
+		return sync(run, false, Collections.<Long>emptyList());
+	}
+	
+	/**
+	 * Como syncNewOrders, con la app visible: trae las filas completas de la lista, las publica
+	 * al WebView junto con las de los pedidos modificados que avisó Realtime
+	 * @param updatedIds pedidos con un UPDATE desde la última sincronización
+	 */
+	public int syncForeground(CheckMetrics.CheckRun run, Collection<Long> updatedIds) throws Exception {
+		return sync(run, true, updatedIds);
+	}
+	
+	private int sync(CheckMetrics.CheckRun run, boolean foreground, Collection<Long> updatedIds) throws Exception {
+		synchronized (LOCK) {
+			// Sesión cacheada: sin cambios desde la última ejecución no hay que parsear nada
+			DriverSession.Config config = DriverSession.get(context).activeConfig();
+			if (config == null) {
+				run.markSkipped();
+				return 0;
+			}
+			
+			NotificationEngine engine = NotificationEngine.get(context);
+			OrderFeedPipeline.Endpoint endpoint = new OrderFeedPipeline.Endpoint(
+				config.supabaseUrl, config.supabaseKey, config.companyId);
+			// Con la proyección de la lista los nombres ya vienen embebidos
+			OrderFeedPipeline.NameDictionary names = foreground ? null : this::fillNames;
+			OrderFeedPipeline pipeline = new OrderFeedPipeline(NativeHttpClient.getInstance(),
+				new StoredCursor(config.companyId),
+				(orders, syncRun) -> {
+					// El snapshot y el WebView reciben todos: la lista de la app aplica su propio filtro de distancia
+					List<JSONObject> rows = foreground ? fullRows(orders) : partialRows(config.companyId, orders);
+					saveToSnapshot(config.companyId, rows);
+					if (foreground) {
+						publish(rows, Collections.<Long>emptyList(), Collections.<JSONObject>emptyList(), syncRun.source);
+					}
+					List<OrderSummary> nearby = filterByProximity(endpoint, orders);
+					return nearby.isEmpty() ? 0 : engine.notifyOrders(nearby, syncRun);
+				},
+				names, foreground ? ORDER_SELECT : null);
+			
+			pipeline.sync(endpoint, run);
+			cancelTakenOrders(pipeline, engine, endpoint, run);
+			if (foreground && !updatedIds.isEmpty()) {
+				publishUpdatedOrders(pipeline, endpoint, config.driverId, updatedIds, run);
+			}
+			return pipeline.lastArrivals();
+		}
+	}
+	
+	/**
+	 * Marca de agua de la empresa en el SyncStateStore. Se guarda con el lock del archivo y sin
+	 * retroceder: si el otro proceso ya dejó una más adelantada, queda esa.
+	 */
+	private final class StoredCursor implements OrderFeedPipeline.CursorStore {
+		private final String companyId;
+		
+		StoredCursor(String companyId) {
+			this.companyId = companyId;
+		}
+		
+		@Override
+		public OrderFeedCursor load() {
+			SyncStateStore state = ProcessStores.syncState(context);
+			try {
+				String company = state.get(CURSOR_COMPANY_KEY);
+				if (company == null) {
+					// Todavía no se guardó ninguna: la de CapacitorStorage de versiones anteriores
+					SharedPreferences legacy = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+					return OrderFeedCursor.fromStored(legacy.getString(CURSOR_CREATED_AT_KEY, null),
+						legacy.getString(CURSOR_ID_KEY, null), legacy.getString(CURSOR_RECENT_KEY, null));
+				}
+				if (!company.equals(companyId)) {
+					return null;
+				}
+				return OrderFeedCursor.fromStored(state.get(CURSOR_CREATED_AT_KEY), state.get(CURSOR_ID_KEY),
+					state.get(CURSOR_RECENT_KEY));
+			} catch (IOException e) {
+				// Como la primera ejecución: solo el pedido más reciente
+				Log.w(TAG, "⚠️ No se pudo leer la marca de agua: " + e.getMessage());
+				return null;
+			}
+		}
+		
+		@Override
+		public void save(OrderFeedCursor cursor) {
+			try {
+				ProcessStores.syncState(context).edit(values -> {
+					if (companyId.equals(values.get(CURSOR_COMPANY_KEY))) {
+						OrderFeedCursor stored = OrderFeedCursor.fromStored(values.get(CURSOR_CREATED_AT_KEY),
+							values.get(CURSOR_ID_KEY), values.get(CURSOR_RECENT_KEY));
+						if (stored != null && cursor.isBefore(stored.getCreatedAt(), stored.getId())) {
+							return;
+						}
+					}
+					values.put(CURSOR_COMPANY_KEY, companyId);
+					values.put(CURSOR_CREATED_AT_KEY, cursor.getCreatedAt());
+					values.put(CURSOR_ID_KEY, String.valueOf(cursor.getId()));
+					values.put(CURSOR_RECENT_KEY, cursor.getStoredRecent());
+				});
+			} catch (IOException e) {
+				// La próxima verificación vuelve a pedir desde la marca anterior (el registro de
+				// notificados evita repetir notificaciones)
+				Log.w(TAG, "⚠️ No se pudo guardar la marca de agua: " + e.getMessage());
+			}
+		}
+	}
+	
+	private static void publish(List<JSONObject> inserted, List<Long> taken, List<JSONObject> updated, String source) {
+		DeltaListener listener = deltaListener;
+		if (listener != null) {
+			listener.onOrderDelta(inserted, taken, updated, source);
+		}
+	}
+	
+	/**
+	 * Publica las filas completas de los pedidos modificados; los que ya no existen van como
+	 * tomados. Si la consulta falla, el WebView los recarga en la próxima carga completa.
+	 */
+	private void publishUpdatedOrders(OrderFeedPipeline pipeline, OrderFeedPipeline.Endpoint endpoint,
+			String driverId, Collection<Long> updatedIds, CheckMetrics.CheckRun run) {
+		List<OrderSummary> found;
+		try {
+			found = pipeline.findOrders(endpoint, updatedIds, run);
+		} catch (Exception e) {
+			Log.w(TAG, "⚠️ No se pudo consultar pedidos modificados: " + e.getMessage());
+			return;
+		}
+		if (found == null) {
+			return;
+		}
+		
+		List<JSONObject> updated = fullRows(found);
+		Set<Long> gone = new HashSet<>(updatedIds);
+		List<Long> notAvailable = new ArrayList<>();
+		for (JSONObject row : updated) {
+			long id = row.optLong("id");
+			gone.remove(id);
+			// Ya no está pendiente ni es de este driver: sale de la lista y del snapshot
+			if (!"Pendiente".equals(row.optString("status")) && !driverId.equals(row.optString("driver_id"))) {
+				notAvailable.add(id);
+			}
+		}
+		notAvailable.addAll(gone);
+		removeFromSnapshot(endpoint.companyId, notAvailable);
+		publish(Collections.<JSONObject>emptyList(), new ArrayList<>(gone), updated, run.source);
+	}
+	
+	/**
+	 * Retira las notificaciones de pedidos que ya no están pendientes (los tomó otro repartidor
+	 * o se cancelaron). Solo consulta los ids con notificación visible.
+	 */
+	private void cancelTakenOrders(OrderFeedPipeline pipeline, NotificationEngine engine,
+			OrderFeedPipeline.Endpoint endpoint, CheckMetrics.CheckRun run) {
+		List<Long> active = engine.activeOrderIds();
+		if (active.isEmpty()) {
+			return;
+		}
+		if (active.size() > MAX_TAKEN_CHECK) {
+			active = active.subList(active.size() - MAX_TAKEN_CHECK, active.size());
+		}
+		
+		Set<Long> stillPending;
+		try {
+			stillPending = pipeline.findStillPending(endpoint, active, run);
+		} catch (Exception e) {
+			// No es crítico: se vuelve a verificar en la próxima sincronización
+			Log.w(TAG, "⚠️ No se pudo verificar pedidos tomados: " + e.getMessage());
+			return;
+		}
+		if (stillPending == null) {
+			return;
+		}
+		
+		List<Long> taken = new ArrayList<>();
+		for (Long id : active) {
+			if (!stillPending.contains(id)) {
+				taken.add(id);
+			}
+		}
+		engine.cancelOrders(taken);
+		removeFromSnapshot(endpoint.companyId, taken);
+		publish(Collections.<JSONObject>emptyList(), taken, Collections.<JSONObject>emptyList(), run.source);
+	}
+	
+	/**
+	 * Descarta los pedidos de locales fuera del radio y ordena el resto por distancia.
+	 * Sin ubicación reciente o sin coordenadas del local, el pedido se notifica igual.
+	 */
+	private List<OrderSummary> filterByProximity(OrderFeedPipeline.Endpoint endpoint, List<OrderSummary> orders) {
+		double radiusKm = notificationRadiusKm(DriverSession.get(context).value(DriverSession.NOTIFICATION_RADIUS_KEY));
+		if (radiusKm <= 0) {
+			return orders;
+		}
+		Location fix = lastKnownFix();
+		if (fix == null) {
+			return orders;
+		}
+		
+		LocalsIndex index = locals(context).refresh(endpoint, System.currentTimeMillis());
+		List<LocalsIndex.Ranked> ranked = index.rank(orders, fix.getLatitude(), fix.getLongitude(), radiusKm);
+		List<OrderSummary> nearby = new ArrayList<>(ranked.size());
+		for (LocalsIndex.Ranked item : ranked) {
+			nearby.add(item.order);
+		}
+		if (nearby.size() < orders.size()) {
+			Log.d(TAG, "📍 " + (orders.size() - nearby.size()) + " pedido(s) fuera de " + radiusKm
+				+ " km no notificados (" + index.size() + " locales indexados)");
+		}
+		return nearby;
+	}
+	
+	/**
+	 * Completa los nombres desde las copias locales de locales y clientes (sin joins en el feed)
+	 */
+	private List<OrderSummary> fillNames(OrderFeedPipeline.Endpoint endpoint, List<OrderSummary> orders) {
+		Set<String> localIds = new HashSet<>();
+		Set<String> clientIds = new HashSet<>();
+		for (OrderSummary order : orders) {
+			if (order.getLocalId() != null) {
+				localIds.add(order.getLocalId());
+			}
+			if (order.getClientId() != null) {
+				clientIds.add(order.getClientId());
+			}
+		}
+		long now = System.currentTimeMillis();
+		Map<String, String> localNames = locals(context).names(endpoint, localIds, now);
+		Map<String, String> clientNames = clients(context).names(endpoint, clientIds, now);
+		
+		List<OrderSummary> named = new ArrayList<>(orders.size());
+		for (OrderSummary order : orders) {
+			named.add(order.withNames(clientNames.get(order.getClientId()), localNames.get(order.getLocalId())));
+		}
+		return named;
+	}
+	
+	private static double notificationRadiusKm(String stored) {
+		if (stored == null) {
+			return DEFAULT_RADIUS_KM;
+		}
+		try {
+			// Capacitor Preferences guarda texto; puede venir como JSON ("5") o número
+			return Double.parseDouble(stored.replace("\"", "").trim());
+		} catch (NumberFormatException e) {
+			return DEFAULT_RADIUS_KM;
+		}
+	}
+	
+	/**
+	 * Última ubicación que conoce el sistema (sin encender el GPS), o null si no hay una reciente
+	 */
+	@SuppressWarnings("MissingPermission")
+	private Location lastKnownFix() {
+		if (!NativeLocationTracker.hasLocationPermission(context)) {
+			return null;
+		}
+		LocationManager manager = (LocationManager) context.getSystemService(Context.LOCATION_SERVICE);
+		if (manager == null) {
+			return null;
+		}
+		Location best = null;
+		for (String provider : manager.getProviders(false)) {
+			try {
+				Location location = manager.getLastKnownLocation(provider);
+				if (location != null && (best == null || location.getTime() > best.getTime())) {
+					best = location;
+				}
+			} catch (SecurityException e) {
+				// Permiso revocado entre medio
+			}
+		}
+		if (best == null || System.currentTimeMillis() - best.getTime() > MAX_FIX_AGE_MS) {
+			return null;
+		}
+		return best;
+	}
+	
+	private static synchronized LocalsCatalog locals(Context context) {
+		if (locals == null) {
+			locals = new LocalsCatalog(new File(context.getFilesDir(), LOCALS_FILE),
+				NativeHttpClient.getInstance(), ProcessStores.geo(context));
+		}
+		return locals;
+	}
+	
+	private static synchronized ClientsDirectory clients(Context context) {
+		if (clients == null) {
+			clients = new ClientsDirectory(new File(context.getFilesDir(), CLIENTS_FILE), NativeHttpClient.getInstance());
+		}
+		return clients;
+	}
+	
+	/**
+	 * Agrega al snapshot los pedidos del feed como filas parciales (aunque vengan completas nunca
+	 * pisan la fila de una carga completa; la próxima del WebView las reemplaza)
+	 */
+	private void saveToSnapshot(String companyId, List<JSONObject> rows) {
+		if (rows.isEmpty()) {
+			return;
+		}
+		try {
+			OrderSnapshotStore snapshot = ProcessStores.snapshot(context);
+			for (JSONObject row : rows) {
+				snapshot.putPartial(companyId, row.optLong("id"), row.toString());
+			}
+		} catch (Exception e) {
+			// No es crítico: solo se pierde el pintado instantáneo de estos pedidos
+			Log.w(TAG, "⚠️ No se pudo actualizar el snapshot: " + e.getMessage());
+		}
+	}
+	
+	private void removeFromSnapshot(String companyId, Collection<Long> orderIds) {
+		if (orderIds.isEmpty()) {
+			return;
+		}
+		try {
+			ProcessStores.snapshot(context).delete(companyId, orderIds);
+		} catch (Exception e) {
+			Log.w(TAG, "⚠️ No se pudo actualizar el snapshot: " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * Filas tal como las devolvió PostgREST con ORDER_SELECT
+	 */
+	private static List<JSONObject> fullRows(List<OrderSummary> orders) {
+		List<JSONObject> rows = new ArrayList<>(orders.size());
+		for (OrderSummary order : orders) {
+			try {
+				rows.add(new JSONObject(order.getRow()));
+			} catch (JSONException e) {
+				// El decodificador ya la leyó como objeto: no ocurre
+				Log.w(TAG, "⚠️ Fila de pedido ilegible: " + order.getId());
+			}
+		}
+		return rows;
+	}
+	
+	/**
+	 * Filas con la forma de la consulta de App.jsx (orders + relaciones) para el snapshot; solo
+	 * traen los campos del feed
+	 */
+	private static List<JSONObject> partialRows(String companyId, List<OrderSummary> orders) {
+		List<JSONObject> rows = new ArrayList<>(orders.size());
+		for (OrderSummary order : orders) {
+			rows.add(partialRow(companyId, order));
+		}
+		return rows;
+	}
+	
+	private static JSONObject partialRow(String companyId, OrderSummary order) {
+		JSONObject row = new JSONObject();
+		try {
+			row.put("id", order.getId());
+			row.put("created_at", order.getCreatedAt());
+			row.put("updated_at", order.getCreatedAt());
+			row.put("status", "Pendiente");
+			row.put("company_id", companyId);
+			row.putOpt("local_id", order.getLocalId());
+			row.putOpt("client_id", order.getClientId());
+			row.put("delivery_address", order.getDeliveryAddress());
+			row.put("suggested_price", order.getSuggestedPrice());
+			row.put("clients", new JSONObject().put("name", order.getClientName()));
+			row.put("locals", new JSONObject().put("name", order.getLocalName()));
+			row.put("_partial", true);
+		} catch (JSONException e) {
+			// Claves fijas y valores simples: no ocurre
+		}
+		return row;
+	}
+}
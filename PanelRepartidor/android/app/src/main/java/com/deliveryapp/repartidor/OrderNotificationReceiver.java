@@ -0,0 +1,22 @@
+package com.deliveryapp.repartidor;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+/**
+ * Recibe el descarte (deslizar o "borrar todo") de las notificaciones de pedidos, para que
+ * NotificationEngine deje de contarlas como visibles
+ */
+public class OrderNotificationReceiver extends BroadcastReceiver {
+	static final String ACTION_DISMISSED = "com.deliveryapp.repartidor.ORDER_NOTIFICATION_DISMISSED";
+	
+	@Override
+	public void onReceive(Context context, Intent intent) {
+		if (!ACTION_DISMISSED.equals(intent.getAction()) || !intent.hasExtra(NotificationEngine.EXTRA_ORDER_ID)) {
+			return;
+		}
+		NotificationEngine.get(context).onDismissed(
+			intent.getLongExtra(NotificationEngine.EXTRA_ORDER_ID, NotificationEngine.ALL_ORDERS));
+	}
+}
@@ -0,0 +1,95 @@
+package com.deliveryapp.repartidor;
+
+import android.util.Log;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.json.JSONObject;
+
+/**
+ * Expone al WebView el snapshot local de pedidos (OrderSnapshotStore): al abrir la app la
+ * lista se pinta desde aquí y la carga desde Supabase lo reemplaza al terminar. El store es el
+ * de ProcessStores, el mismo en el que OrderFeedSync agrega los pedidos del feed.
+ */
+@CapacitorPlugin(name = "OrderSnapshot")
+public class OrderSnapshotPlugin extends Plugin {
+	private static final String TAG = "OrderSnapshotPlugin";
+	
+	/**
+	 * { driverId, companyId } → { found, savedAt?, rows? } (rows es el JSON del arreglo, para no
+	 * volver a serializar cada fila en el puente)
+	 */
+	@PluginMethod
+	public void load(PluginCall call) {
+		String driverId = call.getString("driverId");
+		if (driverId == null) {
+			call.reject("driverId es obligatorio");
+			return;
+		}
+		try {
+			OrderSnapshotStore.Snapshot snapshot = ProcessStores.snapshot(getContext()).load(driverId, call.getString("companyId"));
+			JSObject ret = new JSObject();
+			ret.put("found", snapshot != null);
+			if (snapshot != null) {
+				StringBuilder rows = new StringBuilder(snapshot.rows.size() * 512 + 2).append('[');
+				for (int i = 0; i < snapshot.rows.size(); i++) {
+					if (i > 0) {
+						rows.append(',');
+					}
+					rows.append(snapshot.rows.get(i));
+				}
+				ret.put("savedAt", snapshot.savedAt);
+				ret.put("rows", rows.append(']').toString());
+			}
+			call.resolve(ret);
+		} catch (Exception e) {
+			Log.w(TAG, "⚠️ No se pudo leer el snapshot: " + e.getMessage());
+			call.reject("No se pudo leer el snapshot", e);
+		}
+	}
+	
+	/**
+	 * { driverId, companyId, rows: [...] } — reemplaza el snapshot con la última carga completa
+	 */
+	@PluginMethod
+	public void replace(PluginCall call) {
+		String driverId = call.getString("driverId");
+		JSArray rows = call.getArray("rows");
+		if (driverId == null || rows == null) {
+			call.reject("driverId y rows son obligatorios");
+			return;
+		}
+		try {
+			Map<Long, String> byId = new LinkedHashMap<>();
+			for (int i = 0; i < rows.length(); i++) {
+				JSONObject row = rows.optJSONObject(i);
+				if (row != null && row.has("id")) {
+					byId.put(row.getLong("id"), row.toString());
+				}
+			}
+			ProcessStores.snapshot(getContext()).replace(driverId, call.getString("companyId"), byId, System.currentTimeMillis());
+			JSObject ret = new JSObject();
+			ret.put("saved", byId.size());
+			call.resolve(ret);
+		} catch (Exception e) {
+			Log.w(TAG, "⚠️ No se pudo guardar el snapshot: " + e.getMessage());
+			call.reject("No se pudo guardar el snapshot", e);
+		}
+	}
+	
+	@PluginMethod
+	public void clear(PluginCall call) {
+		try {
+			ProcessStores.snapshot(getContext()).clear();
+			call.resolve();
+		} catch (Exception e) {
+			Log.w(TAG, "⚠️ No se pudo borrar el snapshot: " + e.getMessage());
+			call.reject("No se pudo borrar el snapshot", e);
+		}
+	}
+}
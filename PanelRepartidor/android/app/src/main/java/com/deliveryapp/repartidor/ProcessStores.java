@@ -0,0 +1,113 @@
+package com.deliveryapp.repartidor;
+
+import android.content.Context;
+import android.util.Log;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Instancias por proceso de los archivos nativos que comparten los plugins, el servicio y los
+ * Workers: estado de sincronización, snapshot de pedidos, caches de geocodificación y rutas,
+ * pack de tiles y métricas exportadas.
+ *
+ * Viven aquí y no en los plugins para que el proceso :sync no cargue clases de Capacitor: los
+ * Workers solo tocan esta clase, OrderFeedSync y el núcleo.
+ */
+final class ProcessStores {
+	private static final String TAG = "ProcessStores";
+	private static final String SYNC_STATE_FILE = "sync_state.properties";
+	private static final String SNAPSHOT_FILE = "order_snapshot.bin";
+	private static final String METRICS_DIRECTORY = "metrics";
+	private static final int GEOCODE_MEMORY_ENTRIES = 256;
+	private static final long GEOCODE_DISK_BYTES = 1024 * 1024;
+	// Las geometrías completas de OSRM pesan decenas de KB cada una
+	private static final int ROUTE_MEMORY_ENTRIES = 32;
+	private static final long ROUTE_DISK_BYTES = 8 * 1024 * 1024;
+	private static final String TILES_FILE = "tiles.pack";
+	// Un tile de OSM pesa ~10-20 KB: el pack guarda unos 3.000 (la zona de trabajo en z13-z16 y lo que se navega)
+	private static final int PACK_SLOTS = 8192;
+	private static final int PACK_BYTES = 48 * 1024 * 1024;
+	
+	private static SyncStateStore syncState;
+	private static OrderSnapshotStore snapshot;
+	private static GeoLookup geo;
+	private static MapTiles tiles;
+	
+	private ProcessStores() {
+	}
+	
+	/**
+	 * Sesión copiada de CapacitorStorage, cursor del feed, notificados y modelo de llegadas
+	 */
+	static synchronized SyncStateStore syncState(Context context) {
+		if (syncState == null) {
+			syncState = new SyncStateStore(new File(context.getApplicationContext().getFilesDir(), SYNC_STATE_FILE));
+		}
+		return syncState;
+	}
+	
+	/**
+	 * Snapshot de la lista de pedidos (OrderSnapshotPlugin y OrderFeedSync)
+	 */
+	static synchronized OrderSnapshotStore snapshot(Context context) {
+		if (snapshot == null) {
+			snapshot = new OrderSnapshotStore(new File(context.getApplicationContext().getFilesDir(), SNAPSHOT_FILE));
+		}
+		return snapshot;
+	}
+	
+	/**
+	 * Geocodificación y rutas con cache (GeoCachePlugin y los locales de OrderFeedSync)
+	 */
+	static synchronized GeoLookup geo(Context context) {
+		if (geo == null) {
+			File directory = new File(context.getApplicationContext().getCacheDir(), "geo");
+			geo = new GeoLookup(NativeHttpClient.getInstance(),
+				new GeoCache(new File(directory, "geocode"), GEOCODE_MEMORY_ENTRIES, GEOCODE_DISK_BYTES),
+				new GeoCache(new File(directory, "route"), ROUTE_MEMORY_ENTRIES, ROUTE_DISK_BYTES));
+		}
+		return geo;
+	}
+	
+	/**
+	 * Pack de tiles del proceso de la UI, compartido por el WebViewClient, el plugin y la
+	 * precarga pedida por :sync
+	 */
+	static synchronized MapTiles tiles(Context context) throws IOException {
+		if (tiles == null) {
+			// No se espera a :sync (una precarga puede tardar minutos): mientras tanto los tiles
+			// van por la red y el próximo pedido vuelve a intentar abrir el pack
+			tiles = openTiles(context);
+			if (tiles == null) {
+				throw new IOException("El pack de tiles está abierto en otro proceso");
+			}
+		}
+		return tiles;
+	}
+	
+	/**
+	 * Instancia propia del pack (la cierra quien la abre): la usa el Worker de precarga en el
+	 * proceso :sync cuando el proceso de la UI no está vivo
+	 * @return null si otro proceso tiene el pack abierto
+	 */
+	static MapTiles openTiles(Context context) throws IOException {
+		File file = new File(new File(context.getApplicationContext().getCacheDir(), "tiles"), TILES_FILE);
+		TilePack pack = TilePack.tryOpen(file, PACK_SLOTS, PACK_BYTES);
+		return pack != null ? new MapTiles(pack, NativeHttpClient.getInstance()) : null;
+	}
+	
+	static File metricsDirectory(Context context) {
+		return new File(context.getApplicationContext().getFilesDir(), METRICS_DIRECTORY);
+	}
+	
+	/**
+	 * Agrega la línea de una verificación al archivo rotativo de métricas (no crítico si falla)
+	 */
+	static void exportMetrics(Context context, String line) {
+		try {
+			CheckMetrics.get().export(metricsDirectory(context), line);
+		} catch (IOException e) {
+			Log.w(TAG, "⚠️ No se pudieron exportar las métricas: " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,161 @@
+package com.deliveryapp.repartidor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Mutación de PostgREST encolada mientras no hay conexión (insert, upsert o update de una tabla).
+ *
+ * Se serializa como JSON en el WriteAheadLog. Las mutaciones con la misma coalesceKey se
+ * reemplazan entre sí (solo importa la última, por ejemplo la ubicación del driver) y los
+ * inserts/upserts consecutivos a la misma tabla se agrupan en un solo POST con arreglo JSON.
+ */
+public final class QueuedMutation {
+	public static final String INSERT = "insert";
+	public static final String UPSERT = "upsert";
+	public static final String UPDATE = "update";
+	
+	// PostgREST acepta arreglos grandes, pero un lote acotado limita el reintento si falla
+	static final int MAX_BATCH = 50;
+	
+	public final String key;
+	public final String kind;
+	public final String table;
+	// Filtro PostgREST para updates, por ejemplo "id=eq.42"
+	public final String filter;
+	public final String onConflict;
+	public final String coalesceKey;
+	public final JSONObject body;
+	public final long createdAt;
+	
+	// Secuencia en el log (no se serializa)
+	long seq;
+	
+	public QueuedMutation(String key, String kind, String table, String filter, String onConflict,
+			String coalesceKey, JSONObject body, long createdAt) {
+		if (!INSERT.equals(kind) && !UPSERT.equals(kind) && !UPDATE.equals(kind)) {
+			throw new IllegalArgumentException("Tipo de mutación inválido: " + kind);
+		}
+		if (table == null || table.isEmpty()) {
+			throw new IllegalArgumentException("Falta la tabla");
+		}
+		if (UPDATE.equals(kind) && (filter == null || filter.isEmpty())) {
+			// Un PATCH sin filtro actualizaría la tabla completa
+			throw new IllegalArgumentException("Un update requiere filtro");
+		}
+		if (body == null) {
+			throw new IllegalArgumentException("Falta el cuerpo");
+		}
+		this.key = key;
+		this.kind = kind;
+		this.table = table;
+		this.filter = filter;
+		this.onConflict = onConflict;
+		this.coalesceKey = coalesceKey;
+		this.body = body;
+		this.createdAt = createdAt;
+	}
+	
+	public String toJson() {
+		try {
+			JSONObject json = new JSONObject();
+			json.put("key", key);
+			json.put("kind", kind);
+			json.put("table", table);
+			json.putOpt("filter", filter);
+			json.putOpt("onConflict", onConflict);
+			json.putOpt("coalesceKey", coalesceKey);
+			json.put("body", body);
+			json.put("createdAt", createdAt);
+			return json.toString();
+		} catch (JSONException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	/**
+	 * Reconstruye una mutación desde el log
+	 * @throws JSONException si el registro no es una mutación válida
+	 */
+	public static QueuedMutation fromJson(String payload, long seq) throws JSONException {
+		JSONObject json = new JSONObject(payload);
+		QueuedMutation mutation;
+		try {
+			mutation = new QueuedMutation(
+				json.optString("key", null),
+				json.getString("kind"),
+				json.getString("table"),
+				json.optString("filter", null),
+				json.optString("onConflict", null),
+				json.optString("coalesceKey", null),
+				json.getJSONObject("body"),
+				json.optLong("createdAt"));
+		} catch (IllegalArgumentException e) {
+			throw new JSONException(e.getMessage());
+		}
+		mutation.seq = seq;
+		return mutation;
+	}
+	
+	/**
+	 * Grupo de mutaciones que se envía en una sola petición
+	 */
+	public static final class Batch {
+		public final List<QueuedMutation> mutations = new ArrayList<>();
+		// Secuencia hasta la que se puede confirmar el log cuando el lote se aplica
+		// (incluye las mutaciones anteriores que quedaron reemplazadas)
+		public long ackSeq;
+		
+		public QueuedMutation first() {
+			return mutations.get(0);
+		}
+		
+		boolean accepts(QueuedMutation next) {
+			QueuedMutation head = first();
+			return !UPDATE.equals(head.kind)
+				&& mutations.size() < MAX_BATCH
+				&& head.kind.equals(next.kind)
+				&& head.table.equals(next.table)
+				&& equalsNullable(head.onConflict, next.onConflict);
+		}
+	}
+	
+	/**
+	 * Arma los lotes a enviar, en orden: descarta las mutaciones reemplazadas por una posterior
+	 * con la misma coalesceKey y agrupa inserts/upserts consecutivos compatibles.
+	 */
+	public static List<Batch> plan(List<QueuedMutation> pending) {
+		Map<String, Long> latest = new HashMap<>();
+		for (QueuedMutation mutation : pending) {
+			if (mutation.coalesceKey != null) {
+				latest.put(mutation.coalesceKey, mutation.seq);
+			}
+		}
+		
+		List<Batch> batches = new ArrayList<>();
+		Batch current = null;
+		long skippedSeq = 0;
+		for (QueuedMutation mutation : pending) {
+			if (mutation.coalesceKey != null && latest.get(mutation.coalesceKey) != mutation.seq) {
+				// Hay una versión más nueva más adelante: se confirma junto con el próximo lote
+				skippedSeq = mutation.seq;
+				continue;
+			}
+			if (current == null || !current.accepts(mutation)) {
+				current = new Batch();
+				batches.add(current);
+			}
+			current.mutations.add(mutation);
+			current.ackSeq = Math.max(mutation.seq, skippedSeq);
+		}
+		return batches;
+	}
+	
+	private static boolean equalsNullable(String a, String b) {
+		return a == null ? b == null : a.equals(b);
+	}
+}
@@ -0,0 +1,288 @@
+package com.deliveryapp.repartidor;
+
+import android.util.Log;
+import androidx.annotation.NonNull;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Suscriptor nativo al canal Realtime de Supabase para la tabla orders de una empresa.
+ *
+ * Mantiene un único websocket (protocolo Phoenix de Supabase Realtime) con heartbeats,
+ * detecta conexiones muertas cuando un heartbeat queda sin respuesta y reconecta con
+ * backoff exponencial con jitter. Todo el estado se maneja en el scheduler recibido,
+ * así que los callbacks de OkHttp nunca lo tocan directamente.
+ */
+public class RealtimeOrderSubscriber {
+	private static final String TAG = "RealtimeOrderSubscriber";
+	
+	/**
+	 * Eventos del canal. Se invocan en el hilo del scheduler.
+	 */
+	public interface Listener {
+		/**
+		 * El canal quedó suscrito. Momento de hacer catch-up por REST de lo perdido mientras no había conexión.
+		 * @param reconnected true si ya había estado suscrito antes en esta sesión
+		 */
+		void onSubscribed(boolean reconnected);
+		
+		/**
+		 * Cambio en un pedido de la empresa (type: INSERT, UPDATE o DELETE)
+		 */
+		void onOrderChange(String type, JSONObject record, JSONObject oldRecord);
+	}
+	
+	private final OkHttpClient client;
+	private final String websocketUrl;
+	private final String apiKey;
+	private final String companyId;
+	private final String topic;
+	private final Listener listener;
+	private final ScheduledExecutorService scheduler;
+	private final Backoff backoff;
+	private final long heartbeatIntervalMs;
+	
+	// Estado: solo se lee y modifica desde el scheduler
+	private WebSocket socket;
+	private int generation;
+	private int nextRef = 1;
+	private String joinRef;
+	private String pendingHeartbeatRef;
+	private boolean running;
+	private boolean subscribed;
+	private boolean everSubscribed;
+	private ScheduledFuture<?> heartbeatTask;
+	private ScheduledFuture<?> reconnectTask;
+	
+	public RealtimeOrderSubscriber(OkHttpClient client, String supabaseUrl, String apiKey, String companyId,
+			Listener listener, ScheduledExecutorService scheduler, Backoff backoff, long heartbeatIntervalMs) {
+		this.client = client;
+		this.websocketUrl = websocketUrl(supabaseUrl, apiKey);
+		this.apiKey = apiKey;
+		this.companyId = companyId;
+		this.topic = "realtime:orders-company-" + companyId;
+		this.listener = listener;
+		this.scheduler = scheduler;
+		this.backoff = backoff;
+		this.heartbeatIntervalMs = heartbeatIntervalMs;
+	}
+	
+	/**
+	 * URL del websocket de Realtime a partir de la URL REST del proyecto
+	 */
+	static String websocketUrl(String supabaseUrl, String apiKey) {
+		String base = supabaseUrl.endsWith("/") ? supabaseUrl.substring(0, supabaseUrl.length() - 1) : supabaseUrl;
+		if (base.startsWith("https://")) {
+			base = "wss://" + base.substring("https://".length());
+		} else if (base.startsWith("http://")) {
+			base = "ws://" + base.substring("http://".length());
+		}
+		return base + "/realtime/v1/websocket?apikey=" + apiKey + "&vsn=1.0.0";
+	}
+	
+	public void start() {
+		scheduler.execute(() -> {
+			if (running) return;
+			running = true;
+			connect();
+		});
+	}
+	
+	public void stop() {
+		scheduler.execute(() -> {
+			running = false;
+			closeSocket("stop");
+			if (reconnectTask != null) {
+				reconnectTask.cancel(false);
+				reconnectTask = null;
+			}
+		});
+	}
+	
+	public String getCompanyId() {
+		return companyId;
+	}
+	
+	private void connect() {
+		if (!running) return;
+		reconnectTask = null;
+		final int socketGeneration = ++generation;
+		Log.d(TAG, "🔌 Conectando a Realtime (intento " + (backoff.getAttempts() + 1) + ")");
+		
+		Request request = new Request.Builder().url(websocketUrl).build();
+		socket = client.newWebSocket(request, new WebSocketListener() {
+			@Override
+			public void onOpen(@NonNull WebSocket webSocket, @NonNull Response response) {
+				scheduler.execute(() -> {
+					if (socketGeneration == generation) onOpened();
+				});
+			}
+			
+			@Override
+			public void onMessage(@NonNull WebSocket webSocket, @NonNull String text) {
+				scheduler.execute(() -> {
+					if (socketGeneration == generation) onText(text);
+				});
+			}
+			
+			@Override
+			public void onClosing(@NonNull WebSocket webSocket, int code, @NonNull String reason) {
+				webSocket.close(1000, null);
+			}
+			
+			@Override
+			public void onClosed(@NonNull WebSocket webSocket, int code, @NonNull String reason) {
+				scheduler.execute(() -> {
+					if (socketGeneration == generation) scheduleReconnect("cerrado (" + code + ")");
+				});
+			}
+			
+			@Override
+			public void onFailure(@NonNull WebSocket webSocket, @NonNull Throwable t, Response response) {
+				scheduler.execute(() -> {
+					if (socketGeneration == generation) scheduleReconnect("falla: " + t.getMessage());
+				});
+			}
+		});
+	}
+	
+	private void onOpened() {
+		joinRef = nextRef();
+		pendingHeartbeatRef = null;
+		send(topic, "phx_join", joinPayload(), joinRef);
+		
+		if (heartbeatTask != null) heartbeatTask.cancel(false);
+		heartbeatTask = scheduler.scheduleAtFixedRate(this::heartbeat,
+			heartbeatIntervalMs, heartbeatIntervalMs, TimeUnit.MILLISECONDS);
+	}
+	
+	private void heartbeat() {
+		if (socket == null) return;
+		if (pendingHeartbeatRef != null) {
+			// El heartbeat anterior no tuvo respuesta: la conexión está muerta aunque TCP no lo sepa
+			scheduleReconnect("heartbeat sin respuesta");
+			return;
+		}
+		pendingHeartbeatRef = nextRef();
+		send("phoenix", "heartbeat", new JSONObject(), pendingHeartbeatRef);
+	}
+	
+	private void onText(String text) {
+		JSONObject message;
+		try {
+			message = new JSONObject(text);
+		} catch (JSONException e) {
+			Log.w(TAG, "⚠️ Mensaje Realtime inválido: " + e.getMessage());
+			return;
+		}
+		
+		String event = message.optString("event");
+		String ref = message.isNull("ref") ? null : message.optString("ref", null);
+		JSONObject payload = message.optJSONObject("payload");
+		
+		if ("phx_reply".equals(event)) {
+			if (ref != null && ref.equals(pendingHeartbeatRef)) {
+				pendingHeartbeatRef = null;
+			} else if (ref != null && ref.equals(joinRef)) {
+				String status = payload != null ? payload.optString("status") : "";
+				if ("ok".equals(status)) {
+					boolean reconnected = everSubscribed;
+					subscribed = true;
+					everSubscribed = true;
+					backoff.reset();
+					Log.d(TAG, "✅ Suscrito a " + topic);
+					listener.onSubscribed(reconnected);
+				} else {
+					scheduleReconnect("join rechazado: " + payload);
+				}
+			}
+			return;
+		}
+		
+		if (!topic.equals(message.optString("topic"))) {
+			return;
+		}
+		
+		if ("postgres_changes".equals(event) && payload != null) {
+			JSONObject data = payload.optJSONObject("data");
+			if (data != null) {
+				listener.onOrderChange(data.optString("type"), data.optJSONObject("record"), data.optJSONObject("old_record"));
+			}
+		} else if ("phx_error".equals(event) || "phx_close".equals(event)) {
+			scheduleReconnect(event);
+		}
+	}
+	
+	private JSONObject joinPayload() {
+		try {
+			JSONObject change = new JSONObject()
+				.put("event", "*")
+				.put("schema", "public")
+				.put("table", "orders")
+				.put("filter", "company_id=eq." + companyId);
+			JSONObject config = new JSONObject()
+				.put("broadcast", new JSONObject().put("self", false))
+				.put("presence", new JSONObject().put("key", ""))
+				.put("postgres_changes", new JSONArray().put(change));
+			return new JSONObject()
+				.put("config", config)
+				.put("access_token", apiKey);
+		} catch (JSONException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	private void send(String messageTopic, String event, JSONObject payload, String ref) {
+		if (socket == null) return;
+		try {
+			JSONObject message = new JSONObject()
+				.put("topic", messageTopic)
+				.put("event", event)
+				.put("payload", payload)
+				.put("ref", ref);
+			if ("phx_join".equals(event)) {
+				message.put("join_ref", ref);
+			}
+			socket.send(message.toString());
+		} catch (JSONException e) {
+			Log.w(TAG, "⚠️ No se pudo armar el mensaje " + event, e);
+		}
+	}
+	
+	private void scheduleReconnect(String reason) {
+		closeSocket(reason);
+		if (!running || reconnectTask != null) return;
+		long delay = backoff.nextDelayMs();
+		Log.w(TAG, "⚠️ Realtime desconectado (" + reason + "), reintentando en " + delay + " ms");
+		reconnectTask = scheduler.schedule(this::connect, delay, TimeUnit.MILLISECONDS);
+	}
+	
+	private void closeSocket(String reason) {
+		// Invalidar callbacks del socket anterior
+		generation++;
+		subscribed = false;
+		pendingHeartbeatRef = null;
+		if (heartbeatTask != null) {
+			heartbeatTask.cancel(false);
+			heartbeatTask = null;
+		}
+		if (socket != null) {
+			socket.cancel();
+			socket = null;
+			Log.d(TAG, "🔌 Socket Realtime cerrado: " + reason);
+		}
+	}
+	
+	private String nextRef() {
+		return String.valueOf(nextRef++);
+	}
+}
@@ -0,0 +1,219 @@
+package com.deliveryapp.repartidor;
+
+import android.content.Context;
+import android.util.Log;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.json.JSONObject;
+
+/**
+ * ETA y avance del driver calculados en el dispositivo (RouteProgress): la ruta de cada tramo
+ * (hasta el local o hasta la entrega) se pide una sola vez y las posiciones GPS, tanto las del
+ * tracking nativo como las que manda el JS, se proyectan sobre ella. Solo si el driver sale del
+ * corredor de la ruta se pide otra desde su posición. Los cambios llegan al WebView con el
+ * evento "routeProgress".
+ */
+@CapacitorPlugin(name = "RouteProgress")
+public class RouteProgressPlugin extends Plugin {
+	private static final String TAG = "RouteProgressPlugin";
+	static final String EVENT = "routeProgress";
+	// Como máximo una ruta nueva cada 30 s por tramo (el OSRM público no es para uso intensivo)
+	private static final long MIN_REROUTE_INTERVAL_MS = 30_000;
+	
+	private static final class Leg {
+		final String id;
+		final double toLat;
+		final double toLon;
+		RouteProgress progress;
+		long reroutedAt;
+		boolean rerouting;
+		
+		Leg(String id, double toLat, double toLon, RouteProgress progress) {
+			this.id = id;
+			this.toLat = toLat;
+			this.toLon = toLon;
+			this.progress = progress;
+		}
+	}
+	
+	// Todo el acceso a los tramos (y a sus RouteProgress) va sincronizado sobre este mapa
+	private static final Map<String, Leg> legs = new HashMap<>();
+	private static final ExecutorService router = Executors.newSingleThreadExecutor();
+	private static volatile RouteProgressPlugin instance;
+	private static volatile double[] lastFix;
+	
+	@Override
+	public void load() {
+		instance = this;
+	}
+	
+	@Override
+	protected void handleOnDestroy() {
+		if (instance == this) {
+			instance = null;
+		}
+	}
+	
+	/**
+	 * Nueva posición del driver: actualiza los tramos activos y publica su avance
+	 * @return metros que faltan hasta el destino más cercano por ruta, o NaN sin tramos activos
+	 */
+	static double onFix(Context context, double lat, double lon) {
+		lastFix = new double[] { lat, lon };
+		List<JSObject> updates = new ArrayList<>();
+		double remaining = Double.NaN;
+		synchronized (legs) {
+			if (legs.isEmpty()) {
+				return remaining;
+			}
+			long now = System.currentTimeMillis();
+			for (Leg leg : legs.values()) {
+				RouteProgress.Fix fix = leg.progress.update(lat, lon);
+				updates.add(toJson(leg.id, fix));
+				if (Double.isNaN(remaining) || fix.remainingMeters < remaining) {
+					remaining = fix.remainingMeters;
+				}
+				if (fix.needsReroute && !fix.arrived && !leg.rerouting && now - leg.reroutedAt >= MIN_REROUTE_INTERVAL_MS) {
+					leg.rerouting = true;
+					leg.reroutedAt = now;
+					reroute(context.getApplicationContext(), leg, lat, lon);
+				}
+			}
+		}
+		for (JSObject update : updates) {
+			publish(update);
+		}
+		return remaining;
+	}
+	
+	private static void reroute(final Context context, final Leg leg, final double lat, final double lon) {
+		router.execute(new Runnable() {
+			@Override
+			public void run() {
+				JSONObject route = null;
+				try {
+					route = ProcessStores.geo(context).route(lat, lon, leg.toLat, leg.toLon);
+				} catch (Exception e) {
+					Log.w(TAG, "⚠️ No se pudo recalcular la ruta del tramo " + leg.id + ": " + e.getMessage());
+				}
+				JSObject update = null;
+				synchronized (legs) {
+					leg.rerouting = false;
+					if (route == null || legs.get(leg.id) != leg) {
+						return;
+					}
+					try {
+						leg.progress = RouteProgress.fromRoute(route);
+						update = toJson(leg.id, leg.progress.update(lat, lon));
+						update.put("geometry", new JSObject(route.getJSONObject("geometry").toString()));
+					} catch (Exception e) {
+						Log.w(TAG, "⚠️ Ruta recalculada inválida: " + e.getMessage());
+						return;
+					}
+				}
+				Log.d(TAG, "🗺️ Ruta recalculada para el tramo " + leg.id);
+				publish(update);
+			}
+		});
+	}
+	
+	private static void publish(JSObject data) {
+		RouteProgressPlugin plugin = instance;
+		if (plugin != null) {
+			plugin.notifyListeners(EVENT, data);
+		}
+	}
+	
+	private static JSObject toJson(String legId, RouteProgress.Fix fix) {
+		JSObject data = new JSObject();
+		data.put("legId", legId);
+		data.put("remainingKm", fix.remainingMeters / 1000);
+		data.put("etaMin", fix.remainingSeconds / 60);
+		data.put("distanceFromRoute", fix.distanceFromRoute);
+		data.put("offRoute", fix.offRoute);
+		data.put("arrived", fix.arrived);
+		return data;
+	}
+	
+	/**
+	 * { legId, toLat, toLon, fromLat?, fromLon? } → { found, distance?, duration?, geometry?, remainingKm?, etaMin? }
+	 * Sin origen se usa la última posición conocida del driver.
+	 */
+	@PluginMethod
+	public void startLeg(PluginCall call) {
+		String legId = call.getString("legId");
+		Double toLat = call.getDouble("toLat");
+		Double toLon = call.getDouble("toLon");
+		if (legId == null || toLat == null || toLon == null) {
+			call.reject("legId, toLat y toLon son obligatorios");
+			return;
+		}
+		double[] fix = lastFix;
+		Double fromLat = call.getDouble("fromLat", fix != null ? fix[0] : null);
+		Double fromLon = call.getDouble("fromLon", fix != null ? fix[1] : null);
+		if (fromLat == null || fromLon == null) {
+			call.reject("No hay posición de origen para el tramo");
+			return;
+		}
+		try {
+			JSONObject route = ProcessStores.geo(getContext()).route(fromLat, fromLon, toLat, toLon);
+			if (route == null) {
+				JSObject ret = new JSObject();
+				ret.put("found", false);
+				call.resolve(ret);
+				return;
+			}
+			RouteProgress progress = RouteProgress.fromRoute(route);
+			JSObject ret = new JSObject(route.toString());
+			synchronized (legs) {
+				Leg leg = new Leg(legId, toLat, toLon, progress);
+				legs.put(legId, leg);
+				RouteProgress.Fix start = progress.update(fromLat, fromLon);
+				ret.put("remainingKm", start.remainingMeters / 1000);
+				ret.put("etaMin", start.remainingSeconds / 60);
+			}
+			ret.put("found", true);
+			call.resolve(ret);
+		} catch (Exception e) {
+			Log.w(TAG, "⚠️ No se pudo calcular la ruta del tramo: " + e.getMessage());
+			call.reject("No se pudo calcular la ruta del tramo", e);
+		}
+	}
+	
+	/**
+	 * { lat, lon } — posición del driver conocida por el WebView (cuando no corre el tracking nativo)
+	 */
+	@PluginMethod
+	public void update(PluginCall call) {
+		Double lat = call.getDouble("lat");
+		Double lon = call.getDouble("lon");
+		if (lat == null || lon == null) {
+			call.reject("lat y lon son obligatorios");
+			return;
+		}
+		onFix(getContext(), lat, lon);
+		call.resolve();
+	}
+	
+	@PluginMethod
+	public void endLeg(PluginCall call) {
+		String legId = call.getString("legId");
+		if (legId == null) {
+			call.reject("legId es obligatorio");
+			return;
+		}
+		synchronized (legs) {
+			legs.remove(legId);
+		}
+		call.resolve();
+	}
+}
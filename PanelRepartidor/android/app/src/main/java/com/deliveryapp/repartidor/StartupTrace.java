@@ -0,0 +1,89 @@
+package com.deliveryapp.repartidor;
+
+import android.os.Build;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Tiempos del arranque en frío: milisegundos desde el inicio del proceso hasta cada fase
+ * (onCreate, bridge listo, primer frame, página del WebView cargada, tareas diferidas).
+ * Cada fase se registra una sola vez por proceso; CheckMetricsPlugin la expone al WebView.
+ */
+final class StartupTrace {
+	private static final String TAG = "StartupTrace";
+	
+	static final String ACTIVITY_CREATE = "activity_create";
+	static final String BRIDGE_READY = "bridge_ready";
+	static final String CREATE_DONE = "create_done";
+	static final String FIRST_FRAME = "first_frame";
+	static final String PAGE_LOADED = "page_loaded";
+	static final String DEFERRED_DONE = "deferred_done";
+	
+	interface Clock {
+		long uptimeMillis();
+	}
+	
+	private static StartupTrace instance;
+	
+	private final Clock clock;
+	private final long origin;
+	private final Map<String, Long> phases = new LinkedHashMap<>();
+	
+	StartupTrace(Clock clock, long origin) {
+		this.clock = clock;
+		this.origin = origin;
+	}
+	
+	static synchronized StartupTrace get() {
+		if (instance == null) {
+			// Desde Android 7 se conoce el inicio real del proceso; antes se mide desde la primera fase
+			long origin = Build.VERSION.SDK_INT >= Build.VERSION_CODES.N
+				? Process.getStartUptimeMillis()
+				: SystemClock.uptimeMillis();
+			instance = new StartupTrace(SystemClock::uptimeMillis, origin);
+		}
+		return instance;
+	}
+	
+	/**
+	 * Registra la fase (solo la primera vez)
+	 * @return milisegundos desde el inicio del proceso
+	 */
+	synchronized long mark(String phase) {
+		Long elapsed = phases.get(phase);
+		if (elapsed == null) {
+			elapsed = clock.uptimeMillis() - origin;
+			phases.put(phase, elapsed);
+		}
+		return elapsed;
+	}
+	
+	/**
+	 * Milisegundos desde el inicio del proceso hasta la fase, o -1 si todavía no ocurrió
+	 */
+	synchronized long elapsed(String phase) {
+		Long elapsed = phases.get(phase);
+		return elapsed != null ? elapsed : -1;
+	}
+	
+	synchronized JSONObject toJson() {
+		JSONObject json = new JSONObject();
+		try {
+			for (Map.Entry<String, Long> entry : phases.entrySet()) {
+				json.put(entry.getKey() + "_ms", entry.getValue());
+			}
+		} catch (JSONException e) {
+			// Claves fijas y valores numéricos: no ocurre
+		}
+		return json;
+	}
+	
+	void log() {
+		Log.i(TAG, "⏱️ Arranque: " + toJson());
+	}
+}
@@ -0,0 +1,147 @@
+package com.deliveryapp.repartidor;
+
+import android.content.ContentProvider;
+import android.content.ContentProviderClient;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Bundle;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Canal de los Workers (proceso :sync) al proceso de la UI: una llamada sincrónica por Binder
+ * con ContentProvider.call, sin AIDL ni servicio enlazado.
+ *
+ * Si el proceso de la UI está vivo, el Worker le pasa el trabajo y ese proceso lo hace con su
+ * estado en memoria: la sesión de CapacitorStorage, el snapshot y el WebView (que recibe los
+ * pedidos nuevos), la cola offline y el pack de tiles abiertos. Si no está vivo, call()
+ * devuelve null sin arrancarlo y el Worker hace el trabajo en :sync.
+ *
+ * La UI puede arrancar justo después de esa verificación, así que esto solo evita trabajo
+ * duplicado: la exclusión la dan los ProcessFileLock de cada archivo. La cola offline y el pack
+ * de tiles quedan tomados mientras están abiertos (el Worker que no los consigue reintenta), y
+ * el snapshot y el SyncStateStore (copia de la sesión, cursor, notificados) se bloquean en cada
+ * escritura.
+ */
+public class SyncBridgeProvider extends ContentProvider {
+	private static final String TAG = "SyncBridgeProvider";
+	private static final String AUTHORITY_SUFFIX = ".syncbridge";
+	
+	static final String METHOD_CHECK_ORDERS = "checkOrders";
+	static final String METHOD_DRAIN_QUEUE = "drainOfflineQueue";
+	static final String METHOD_PREFETCH_TILES = "prefetchTiles";
+	
+	// Resultado: pedidos llegados al feed (-1 si se omitió), resultado del vaciado o tiles precargados
+	static final String RESULT_KEY = "result";
+	// El trabajo falló en el proceso de la UI: el Worker reintenta
+	static final String FAILED_KEY = "failed";
+	
+	@Override
+	public boolean onCreate() {
+		// Se crea al arrancar el proceso de la UI, antes que MainActivity: no hacer nada aquí
+		return true;
+	}
+	
+	/**
+	 * Llama al proceso de la UI desde :sync
+	 * @return respuesta, o null si el proceso de la UI no está vivo, si ya se está en él o si
+	 *         la llamada falló (el llamador hace el trabajo en su proceso)
+	 */
+	@Nullable
+	static Bundle call(Context context, String method, Bundle extras) {
+		// Pedir el provider con el proceso muerto lo arrancaría, que es justo lo que se evita
+		if (!DeliveryApplication.isSyncProcess(context) || !DeliveryApplication.isUiProcessAlive(context)) {
+			return null;
+		}
+		// Inestable: si el proceso de la UI muere durante la llamada, :sync no muere con él
+		ContentProviderClient client = context.getContentResolver()
+			.acquireUnstableContentProviderClient(context.getPackageName() + AUTHORITY_SUFFIX);
+		if (client == null) {
+			return null;
+		}
+		try {
+			return client.call(method, null, extras);
+		} catch (Exception e) {
+			Log.w(TAG, "⚠️ Sin respuesta del proceso de la UI (" + method + "): " + e.getMessage());
+			return null;
+		} finally {
+			release(client);
+		}
+	}
+	
+	@SuppressWarnings("deprecation")
+	private static void release(ContentProviderClient client) {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+			client.close();
+		} else {
+			client.release();
+		}
+	}
+	
+	/**
+	 * Corre en un hilo de Binder del proceso de la UI
+	 */
+	@Nullable
+	@Override
+	public Bundle call(@NonNull String method, @Nullable String arg, @Nullable Bundle extras) {
+		Context context = getContext();
+		Bundle input = extras != null ? extras : new Bundle();
+		Bundle result = new Bundle();
+		try {
+			switch (method) {
+				case METHOD_CHECK_ORDERS:
+					result.putInt(RESULT_KEY, OrderNotificationWorker.check(context,
+						input.getBoolean(OrderCheckScheduler.CHAINED_KEY),
+						input.getInt(OrderNotificationWorker.ATTEMPT_KEY),
+						input.getLong(OrderCheckScheduler.DUE_AT_KEY)));
+					break;
+				case METHOD_DRAIN_QUEUE:
+					result.putString(RESULT_KEY, OfflineQueue.get(context).drain().name());
+					break;
+				case METHOD_PREFETCH_TILES:
+					result.putInt(RESULT_KEY, TilePrefetchWorker.prefetch(ProcessStores.tiles(context), input));
+					break;
+				default:
+					return null;
+			}
+		} catch (Exception e) {
+			Log.e(TAG, "❌ Error en " + method + " pedido por :sync", e);
+			result.putBoolean(FAILED_KEY, true);
+		}
+		return result;
+	}
+	
+	@Nullable
+	@Override
+	public Cursor query(@NonNull Uri uri, @Nullable String[] projection, @Nullable String selection,
+			@Nullable String[] selectionArgs, @Nullable String sortOrder) {
+		return null;
+	}
+	
+	@Nullable
+	@Override
+	public String getType(@NonNull Uri uri) {
+		return null;
+	}
+	
+	@Nullable
+	@Override
+	public Uri insert(@NonNull Uri uri, @Nullable ContentValues values) {
+		return null;
+	}
+	
+	@Override
+	public int delete(@NonNull Uri uri, @Nullable String selection, @Nullable String[] selectionArgs) {
+		return 0;
+	}
+	
+	@Override
+	public int update(@NonNull Uri uri, @Nullable ContentValues values, @Nullable String selection,
+			@Nullable String[] selectionArgs) {
+		return 0;
+	}
+}
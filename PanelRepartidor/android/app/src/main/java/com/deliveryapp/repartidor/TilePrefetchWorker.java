@@ -0,0 +1,109 @@
+package com.deliveryapp.repartidor;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+/**
+ * Precarga los tiles de la zona de trabajo del driver en el pack, solo con red sin límite de
+ * datos (Wi-Fi) y batería suficiente. Los tiles que ya están no se vuelven a bajar.
+ * Corre en el proceso :sync: si el proceso de la UI está vivo, la precarga se hace allá sobre
+ * el pack que ya tiene abierto (SyncBridgeProvider); si no, con un pack propio que se cierra al terminar.
+ */
+public class TilePrefetchWorker extends Worker {
+	private static final String TAG = "TilePrefetchWorker";
+	private static final String WORK_NAME = "tile_prefetch";
+	private static final String LAT_KEY = "lat";
+	private static final String LON_KEY = "lon";
+	private static final String RADIUS_KEY = "radius";
+	// Zooms en los que se usan los mapas de pedidos (vista de ciudad a calle)
+	private static final int MIN_ZOOM = 13;
+	private static final int MAX_ZOOM = 16;
+	// La política de OSM no permite descargas masivas: una zona chica por pasada
+	private static final int MAX_TILES = 400;
+	
+	public TilePrefetchWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+		super(context, params);
+	}
+	
+	/**
+	 * Programa la precarga de la zona (reemplaza a una precarga anterior todavía pendiente)
+	 */
+	static void schedule(Context context, double lat, double lon, int radiusMeters) {
+		Constraints constraints = new Constraints.Builder()
+			.setRequiredNetworkType(NetworkType.UNMETERED)
+			.setRequiresBatteryNotLow(true)
+			.build();
+		Data input = new Data.Builder()
+			.putDouble(LAT_KEY, lat)
+			.putDouble(LON_KEY, lon)
+			.putInt(RADIUS_KEY, radiusMeters)
+			.build();
+		OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(TilePrefetchWorker.class)
+			.setConstraints(constraints)
+			.setInputData(input)
+			.build();
+		WorkManager.getInstance(context.getApplicationContext())
+			.enqueueUniqueWork(WORK_NAME, ExistingWorkPolicy.REPLACE, request);
+	}
+	
+	@NonNull
+	@Override
+	public Result doWork() {
+		Context context = getApplicationContext();
+		Data input = getInputData();
+		Bundle zone = new Bundle();
+		zone.putDouble(LAT_KEY, input.getDouble(LAT_KEY, 0));
+		zone.putDouble(LON_KEY, input.getDouble(LON_KEY, 0));
+		zone.putInt(RADIUS_KEY, input.getInt(RADIUS_KEY, 0));
+		
+		Bundle remote = SyncBridgeProvider.call(context, SyncBridgeProvider.METHOD_PREFETCH_TILES, zone);
+		if (remote != null) {
+			if (remote.getBoolean(SyncBridgeProvider.FAILED_KEY)) {
+				return Result.failure();
+			}
+			Log.d(TAG, "🗺️ Tiles precargados por la UI: " + remote.getInt(SyncBridgeProvider.RESULT_KEY));
+			return Result.success();
+		}
+		MapTiles tiles = null;
+		try {
+			tiles = ProcessStores.openTiles(context);
+			if (tiles == null) {
+				// La UI arrancó y abrió el pack: el próximo intento se lo pasa a ella
+				Log.d(TAG, "ℹ️ El pack de tiles está abierto en el proceso de la UI, se reintenta");
+				return Result.retry();
+			}
+			Log.d(TAG, "🗺️ Tiles precargados: " + prefetch(tiles, zone));
+			return Result.success();
+		} catch (Exception e) {
+			Log.e(TAG, "❌ Error precargando tiles", e);
+			return Result.failure();
+		} finally {
+			if (tiles != null) {
+				try {
+					tiles.getPack().close();
+				} catch (Exception e) {
+					Log.w(TAG, "⚠️ No se pudo cerrar el pack de tiles: " + e.getMessage());
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Precarga la zona (lat, lon, radius) en el pack
+	 * @return tiles descargados
+	 */
+	static int prefetch(MapTiles tiles, Bundle zone) {
+		return tiles.prefetch(zone.getDouble(LAT_KEY), zone.getDouble(LON_KEY), zone.getInt(RADIUS_KEY),
+			MIN_ZOOM, MAX_ZOOM, MAX_TILES);
+	}
+}
@@ -0,0 +1,105 @@
+package com.deliveryapp.repartidor;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.net.Uri;
+import android.util.Log;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sirve el bundle web (JS, CSS, imágenes, fuentes) desde el pack que arma packWebBundle al
+ * compilar, mapeado en memoria directo desde el APK: el asset va sin comprimir, así que no hay
+ * que inflarlo ni copiarlo en cada arranque, y los archivos con hash salen con caché inmutable.
+ *
+ * El HTML (y todo lo que no está en el pack) sigue por el servidor local de Capacitor, que le
+ * inyecta el bridge de JS. Lo que está en el pack el build no lo copia además a assets/public,
+ * así que el APK lleva el bundle una sola vez. Sin pack (build sin bundle web) todo sigue por
+ * Capacitor.
+ */
+final class WebBundleServer {
+	private static final String TAG = "WebBundleServer";
+	static final String PACK_ASSET = "web-bundle.pack";
+	
+	private static WebBundlePack pack;
+	private static boolean opened;
+	
+	private WebBundleServer() {
+	}
+	
+	/**
+	 * Pack mapeado, o null si la app se compiló sin él (se intenta abrir una sola vez)
+	 */
+	static synchronized WebBundlePack pack(Context context) {
+		if (!opened) {
+			opened = true;
+			long start = System.currentTimeMillis();
+			try (AssetFileDescriptor fd = context.getApplicationContext().getAssets().openFd(PACK_ASSET);
+				FileInputStream in = new FileInputStream(fd.getFileDescriptor())) {
+				// El mapeo sigue vivo al cerrar el descriptor
+				MappedByteBuffer buffer = in.getChannel()
+					.map(FileChannel.MapMode.READ_ONLY, fd.getStartOffset(), fd.getLength());
+				pack = WebBundlePack.read(buffer);
+				Log.d(TAG, "📦 Bundle web mapeado: " + pack.size() + " archivos, " + fd.getLength() / 1024
+					+ " KB en " + (System.currentTimeMillis() - start) + " ms");
+			} catch (FileNotFoundException e) {
+				// Build sin bundle web (sin "npx cap sync"), o el pack quedó comprimido en el APK (falta
+				// noCompress) y no se puede mapear
+				Log.w(TAG, "⚠️ Sin pack del bundle web");
+			} catch (Exception e) {
+				Log.w(TAG, "⚠️ No se pudo abrir el pack del bundle web: " + e.getMessage());
+			}
+		}
+		return pack;
+	}
+	
+	/**
+	 * Respuesta desde el pack para una petición al servidor local de la app
+	 * @param localHost host del servidor local de Capacitor ("localhost")
+	 * @return null si no corresponde al pack (la atiende Capacitor)
+	 */
+	static WebResourceResponse serve(Context context, WebResourceRequest request, String localHost) {
+		Uri url = request.getUrl();
+		if (!"GET".equals(request.getMethod()) || localHost == null || !localHost.equals(url.getHost())) {
+			return null;
+		}
+		// Las peticiones con Range (audio) las responde Capacitor con 206
+		String path = url.getPath();
+		if (path == null || path.length() < 2 || header(request, "Range") != null) {
+			return null;
+		}
+		WebBundlePack bundle = pack(context);
+		if (bundle == null) {
+			return null;
+		}
+		WebBundlePack.Resource resource = bundle.find(path.substring(1));
+		if (resource == null) {
+			return null;
+		}
+		Map<String, String> headers = new HashMap<>();
+		headers.put("Cache-Control", resource.cacheControl());
+		headers.put("Content-Length", String.valueOf(resource.length()));
+		String charset = resource.mimeType.startsWith("text/") || resource.mimeType.endsWith("javascript")
+			|| resource.mimeType.endsWith("json") ? "utf-8" : null;
+		return new WebResourceResponse(resource.mimeType, charset, 200, "OK", headers, resource.open());
+	}
+	
+	private static String header(WebResourceRequest request, String name) {
+		Map<String, String> headers = request.getRequestHeaders();
+		if (headers == null) {
+			return null;
+		}
+		for (Map.Entry<String, String> header : headers.entrySet()) {
+			if (name.equalsIgnoreCase(header.getKey())) {
+				return header.getValue();
+			}
+		}
+		return null;
+	}
+}
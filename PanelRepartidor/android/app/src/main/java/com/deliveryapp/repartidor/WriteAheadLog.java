@@ -0,0 +1,275 @@
+package com.deliveryapp.repartidor;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Log de escritura anticipada (write-ahead log) append-only en disco.
+ *
+ * Cada registro es [largo int][secuencia long][crc32 int][payload UTF-8] y se escribe con un
+ * solo write + fsync, así que tras un cierre abrupto del proceso a lo sumo queda un registro
+ * final incompleto, que se descarta al abrir (su CRC no coincide). Los registros confirmados
+ * se marcan en un archivo de checkpoint aparte con la última secuencia aplicada; cuando no
+ * queda nada pendiente el log se trunca, y si crece demasiado se reescribe solo lo pendiente.
+ *
+ * Mientras está abierto tiene tomado un ProcessFileLock: el estado pendiente vive en memoria,
+ * así que un solo proceso (la UI o :sync) puede tener el log abierto a la vez.
+ */
+public final class WriteAheadLog implements Closeable {
+	private static final String LOG_FILE = "wal.log";
+	private static final String ACK_FILE = "wal.ack";
+	private static final String LOCK_FILE = "wal.lock";
+	private static final int HEADER_BYTES = 4 + 8 + 4;
+	private static final int MAX_RECORD_BYTES = 1024 * 1024;
+	// Reescribir el log cuando lo ya confirmado ocupa más que esto
+	private static final long COMPACT_THRESHOLD_BYTES = 256 * 1024;
+	
+	/**
+	 * Registro pendiente de aplicar
+	 */
+	public static final class Entry {
+		public final long seq;
+		public final String payload;
+		
+		Entry(long seq, String payload) {
+			this.seq = seq;
+			this.payload = payload;
+		}
+	}
+	
+	private final File logFile;
+	private final File ackFile;
+	private final List<Entry> pending = new ArrayList<>();
+	private final ProcessFileLock lock;
+	private FileOutputStream out;
+	private long ackedSeq;
+	private long nextSeq;
+	private long logBytes;
+	
+	/**
+	 * Abre (o crea) el log en el directorio indicado, descartando un registro final corrupto.
+	 * Si otro proceso lo tiene abierto, espera a que lo cierre
+	 */
+	public WriteAheadLog(File directory) throws IOException {
+		this(directory, ProcessFileLock.acquire(new File(directory, LOCK_FILE)));
+	}
+	
+	/**
+	 * Abre el log solo si nadie más lo tiene abierto
+	 * @return null si lo tiene abierto otro proceso (u otra instancia de este)
+	 */
+	public static WriteAheadLog tryOpen(File directory) throws IOException {
+		ProcessFileLock lock = ProcessFileLock.tryAcquire(new File(directory, LOCK_FILE));
+		return lock != null ? new WriteAheadLog(directory, lock) : null;
+	}
+	
+	private WriteAheadLog(File directory, ProcessFileLock lock) throws IOException {
+		this.lock = lock;
+		this.logFile = new File(directory, LOG_FILE);
+		this.ackFile = new File(directory, ACK_FILE);
+		try {
+			this.ackedSeq = readAck();
+			recover();
+			this.out = new FileOutputStream(logFile, true);
+		} catch (IOException | RuntimeException e) {
+			lock.close();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Agrega un registro y lo fuerza a disco antes de retornar
+	 * @return secuencia asignada
+	 */
+	public synchronized long append(String payload) throws IOException {
+		byte[] data = payload.getBytes(StandardCharsets.UTF_8);
+		if (data.length > MAX_RECORD_BYTES) {
+			throw new IOException("Registro demasiado grande: " + data.length + " bytes");
+		}
+		long seq = nextSeq++;
+		ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + data.length);
+		record.putInt(data.length);
+		record.putLong(seq);
+		record.putInt(crc(seq, data));
+		record.put(data);
+		out.write(record.array());
+		out.getFD().sync();
+		logBytes += record.capacity();
+		pending.add(new Entry(seq, payload));
+		return seq;
+	}
+	
+	/**
+	 * Hasta max registros pendientes, en orden de escritura
+	 */
+	public synchronized List<Entry> pending(int max) {
+		return new ArrayList<>(pending.subList(0, Math.min(max, pending.size())));
+	}
+	
+	public synchronized int pendingCount() {
+		return pending.size();
+	}
+	
+	/**
+	 * Marca como aplicados todos los registros con secuencia menor o igual a seq
+	 */
+	public synchronized void acknowledge(long seq) throws IOException {
+		if (seq <= ackedSeq) {
+			return;
+		}
+		writeAck(seq);
+		ackedSeq = seq;
+		int done = 0;
+		while (done < pending.size() && pending.get(done).seq <= seq) {
+			done++;
+		}
+		pending.subList(0, done).clear();
+		
+		if (pending.isEmpty()) {
+			// Nada pendiente: empezar un log vacío
+			out.close();
+			out = new FileOutputStream(logFile, false);
+			out.getFD().sync();
+			logBytes = 0;
+		} else if (logBytes > COMPACT_THRESHOLD_BYTES) {
+			compact();
+		}
+	}
+	
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			out.close();
+		} finally {
+			lock.close();
+		}
+	}
+	
+	/**
+	 * Lee el log completo, conserva los registros no confirmados y trunca en el primer registro inválido
+	 */
+	private void recover() throws IOException {
+		long validBytes = 0;
+		long lastSeq = ackedSeq;
+		if (logFile.exists()) {
+			try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(logFile)))) {
+				while (true) {
+					int length;
+					try {
+						length = in.readInt();
+					} catch (EOFException e) {
+						break;
+					}
+					if (length < 0 || length > MAX_RECORD_BYTES) {
+						break;
+					}
+					long seq;
+					int expectedCrc;
+					byte[] data = new byte[length];
+					try {
+						seq = in.readLong();
+						expectedCrc = in.readInt();
+						in.readFully(data);
+					} catch (EOFException e) {
+						break;
+					}
+					if (crc(seq, data) != expectedCrc) {
+						break;
+					}
+					validBytes += HEADER_BYTES + length;
+					lastSeq = Math.max(lastSeq, seq);
+					if (seq > ackedSeq) {
+						pending.add(new Entry(seq, new String(data, StandardCharsets.UTF_8)));
+					}
+				}
+			}
+			if (validBytes < logFile.length()) {
+				// Registro final incompleto (escritura interrumpida): descartarlo
+				try (RandomAccessFile raf = new RandomAccessFile(logFile, "rw")) {
+					raf.setLength(validBytes);
+					raf.getFD().sync();
+				}
+			}
+		}
+		logBytes = validBytes;
+		nextSeq = lastSeq + 1;
+	}
+	
+	/**
+	 * Reescribe el log con solo los registros pendientes (archivo temporal + rename)
+	 */
+	private void compact() throws IOException {
+		File tmp = new File(logFile.getPath() + ".tmp");
+		long bytes = 0;
+		try (FileOutputStream tmpOut = new FileOutputStream(tmp, false)) {
+			for (Entry entry : pending) {
+				byte[] data = entry.payload.getBytes(StandardCharsets.UTF_8);
+				ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + data.length);
+				record.putInt(data.length);
+				record.putLong(entry.seq);
+				record.putInt(crc(entry.seq, data));
+				record.put(data);
+				tmpOut.write(record.array());
+				bytes += record.capacity();
+			}
+			tmpOut.getFD().sync();
+		}
+		out.close();
+		if (!tmp.renameTo(logFile)) {
+			out = new FileOutputStream(logFile, true);
+			throw new IOException("No se pudo compactar " + logFile);
+		}
+		out = new FileOutputStream(logFile, true);
+		logBytes = bytes;
+	}
+	
+	private long readAck() {
+		if (!ackFile.exists()) {
+			return 0;
+		}
+		try (DataInputStream in = new DataInputStream(new FileInputStream(ackFile))) {
+			long seq = in.readLong();
+			long check = in.readLong();
+			// El checkpoint guarda la secuencia y su complemento para detectar escrituras rotas
+			return check == ~seq ? seq : 0;
+		} catch (IOException e) {
+			return 0;
+		}
+	}
+	
+	private void writeAck(long seq) throws IOException {
+		File tmp = new File(ackFile.getPath() + ".tmp");
+		try (FileOutputStream fileOut = new FileOutputStream(tmp, false);
+				DataOutputStream data = new DataOutputStream(fileOut)) {
+			data.writeLong(seq);
+			data.writeLong(~seq);
+			data.flush();
+			fileOut.getFD().sync();
+		}
+		if (!tmp.renameTo(ackFile)) {
+			throw new IOException("No se pudo guardar el checkpoint " + ackFile);
+		}
+	}
+	
+	private static int crc(long seq, byte[] data) {
+		CRC32 crc = new CRC32();
+		for (int shift = 56; shift >= 0; shift -= 8) {
+			crc.update((int) (seq >>> shift) & 0xFF);
+		}
+		crc.update(data, 0, data.length);
+		return (int) crc.getValue();
+	}
+}
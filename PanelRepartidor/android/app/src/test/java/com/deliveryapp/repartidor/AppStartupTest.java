@@ -0,0 +1,78 @@
+package com.deliveryapp.repartidor;
+
+import static org.junit.Assert.*;
+
+import android.app.NotificationManager;
+import android.content.Context;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.work.Configuration;
+import androidx.work.testing.SynchronousExecutor;
+import androidx.work.testing.WorkManagerTestInitHelper;
+import java.util.ArrayList;
+import java.util.List;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Pruebas del arranque diferido (Robolectric): lo que no necesita el primer frame no corre en
+ * el hilo de onCreate, y los trabajos ya programados no se vuelven a programar.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 33)
+public class AppStartupTest {
+	private Context context;
+	
+	@Before
+	public void setUp() {
+		context = ApplicationProvider.getApplicationContext();
+		WorkManagerTestInitHelper.initializeTestWorkManager(context,
+			new Configuration.Builder().setExecutor(new SynchronousExecutor()).build());
+	}
+	
+	@Test
+	public void deferredTasksRunOnTheExecutorOnly() {
+		List<Runnable> queued = new ArrayList<>();
+		StartupTrace trace = new StartupTrace(() -> 1000L, 0L);
+		NotificationManager manager = context.getSystemService(NotificationManager.class);
+		
+		AppStartup.runDeferred(context, queued::add, trace);
+		
+		// Nada se ejecutó en el hilo que llamó (el de onCreate)
+		assertEquals(1, queued.size());
+		assertNull(manager.getNotificationChannel(AppStartup.ORDER_CHANNEL_ID));
+		assertEquals(-1, trace.elapsed(StartupTrace.DEFERRED_DONE));
+		
+		queued.get(0).run();
+		
+		assertNotNull(manager.getNotificationChannel(AppStartup.ORDER_CHANNEL_ID));
+		assertTrue(OrderCheckScheduler.hasPendingWork(context, AppStartup.PERIODIC_WORK_NAME));
+		assertEquals(1000, trace.elapsed(StartupTrace.DEFERRED_DONE));
+	}
+	
+	@Test
+	public void periodicWorkIsNotRescheduledOnEveryOpen() {
+		assertTrue(AppStartup.ensurePeriodicWork(context));
+		assertFalse(AppStartup.ensurePeriodicWork(context));
+		assertFalse(AppStartup.ensurePeriodicWork(context));
+	}
+	
+	@Test
+	public void traceKeepsTheFirstMarkOfEachPhase() throws Exception {
+		long[] now = {1000};
+		StartupTrace trace = new StartupTrace(() -> now[0], 400);
+		
+		assertEquals(600, trace.mark(StartupTrace.ACTIVITY_CREATE));
+		now[0] = 1500;
+		assertEquals(600, trace.mark(StartupTrace.ACTIVITY_CREATE));
+		assertEquals(1100, trace.mark(StartupTrace.FIRST_FRAME));
+		assertEquals(-1, trace.elapsed(StartupTrace.PAGE_LOADED));
+		
+		JSONObject json = trace.toJson();
+		assertEquals(600, json.getLong("activity_create_ms"));
+		assertEquals(1100, json.getLong("first_frame_ms"));
+	}
+}
@@ -0,0 +1,43 @@
+package com.deliveryapp.repartidor;
+
+import static org.junit.Assert.*;
+
+import android.content.Context;
+import android.os.Bundle;
+import androidx.test.core.app.ApplicationProvider;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Pruebas del reparto entre el proceso de la UI y :sync (Robolectric corre en el proceso
+ * principal, como la UI).
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 33)
+public class DeliveryApplicationTest {
+
+	@Test
+	public void workManagerRunsInTheSyncProcess() {
+		DeliveryApplication app = ApplicationProvider.getApplicationContext();
+		assertEquals(app.getPackageName() + ":sync", app.getWorkManagerConfiguration().getDefaultProcessName());
+	}
+
+	@Test
+	public void recognizesTheSyncProcessByName() {
+		String pkg = "com.deliveryapp.repartidor";
+		assertTrue(DeliveryApplication.isSyncProcessName(pkg, pkg + ":sync"));
+		assertFalse(DeliveryApplication.isSyncProcessName(pkg, pkg));
+		assertFalse(DeliveryApplication.isSyncProcessName(pkg, pkg + ":other"));
+		assertFalse(DeliveryApplication.isSyncProcessName(pkg, null));
+	}
+
+	@Test
+	public void uiProcessDoesTheWorkItself() {
+		Context context = ApplicationProvider.getApplicationContext();
+		assertFalse(DeliveryApplication.isSyncProcess(context));
+		// Desde el proceso de la UI no se llama a sí mismo por Binder: el Worker hace el trabajo ahí
+		assertNull(SyncBridgeProvider.call(context, SyncBridgeProvider.METHOD_DRAIN_QUEUE, new Bundle()));
+	}
+}
@@ -0,0 +1,126 @@
+package com.deliveryapp.repartidor;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Pruebas de la sesión cacheada del driver: decodificación desde CapacitorStorage, lecturas
+ * de preferencias solo después de un cambio relevante y la copia que lee el proceso :sync.
+ */
+public class DriverSessionTest {
+	private static final String DRIVER_JSON = "{\"id\":\"42\",\"name\":\"Pedro\",\"username\":\"pedro\","
+		+ "\"companyId\":\"7c9e6679-7425-40de-944b-e07fc1f90ae7\",\"phone\":\"+56911111111\",\"active\":true}";
+	
+	private FakeSharedPreferences prefs;
+	
+	@Before
+	public void setUp() {
+		prefs = new FakeSharedPreferences();
+		prefs.edit()
+			.putString("driver", DRIVER_JSON)
+			.putString("isOnline", "true")
+			.putString("supabase_url", "https://demo.supabase.co")
+			.putString("supabase_key", "anon-key")
+			.putString("order_feed_cursor_created_at", "2025-03-14T12:04:28+00:00")
+			.putString("order_feed_cursor_id", "1004")
+			.apply();
+	}
+	
+	@Test
+	public void decodesSessionFromCapacitorStorage() {
+		DriverSession.Config config = new DriverSession(prefs).activeConfig();
+		
+		assertNotNull(config);
+		assertEquals("42", config.driverId);
+		assertEquals("7c9e6679-7425-40de-944b-e07fc1f90ae7", config.companyId);
+		assertTrue(config.online);
+		assertEquals("https://demo.supabase.co", config.supabaseUrl);
+		assertEquals("anon-key", config.supabaseKey);
+	}
+	
+	@Test
+	public void fallsBackToSnakeCaseCompanyAndRejectsMissingIds() {
+		prefs.edit().putString("driver", "{\"id\":7,\"company_id\":3}").apply();
+		assertEquals("3", new DriverSession(prefs).activeConfig().companyId);
+		
+		prefs.edit().putString("driver", "{\"id\":7}").apply();
+		DriverSession.Config config = new DriverSession(prefs).current();
+		assertNull(config.companyId);
+		assertFalse(config.isActive());
+		
+		prefs.edit().putString("driver", "{no es json").apply();
+		assertNull(new DriverSession(prefs).activeConfig());
+	}
+	
+	@Test
+	public void parsesOnlineFlagAsWrittenByCapacitor() {
+		assertTrue(DriverSession.parseFlag("true"));
+		assertTrue(DriverSession.parseFlag("\"true\""));
+		assertTrue(DriverSession.parseFlag(" TRUE "));
+		assertFalse(DriverSession.parseFlag("false"));
+		assertFalse(DriverSession.parseFlag("\"\""));
+		assertFalse(DriverSession.parseFlag("truex"));
+		assertFalse(DriverSession.parseFlag(null));
+		
+		prefs.edit().putString("isOnline", "\"false\"").apply();
+		assertNull(new DriverSession(prefs).activeConfig());
+	}
+	
+	@Test
+	public void readsPreferencesOnlyAfterRelevantChanges() {
+		DriverSession session = new DriverSession(prefs);
+		DriverSession.Config first = session.current();
+		int readsAfterDecode = prefs.reads;
+		
+		assertSame(first, session.current());
+		assertSame(first, session.activeConfig());
+		// Cada ejecución del Worker lee la sesión: sin cambios no vuelve a tocar las preferencias
+		for (int i = 0; i < 1_000; i++) {
+			session.activeConfig();
+		}
+		assertEquals(readsAfterDecode, prefs.reads);
+		assertEquals(0, prefs.getAllCalls);
+		
+		// El cursor del feed cambia en cada sincronización y no afecta la sesión
+		prefs.edit().putString("order_feed_cursor_id", "1005").apply();
+		assertSame(first, session.current());
+		
+		prefs.edit().putString("isOnline", "false").apply();
+		DriverSession.Config offline = session.current();
+		assertNotSame(first, offline);
+		assertFalse(offline.online);
+		assertNull(session.activeConfig());
+		
+		prefs.edit().clear().apply();
+		assertNull(session.current().driverId);
+	}
+	
+	@Test
+	public void syncProcessReadsTheMirrorWrittenByTheUi() throws Exception {
+		File file = new File(Files.createTempDirectory("state").toFile(), "sync_state.properties");
+		// Dos instancias del archivo, como el proceso de la UI y :sync
+		DriverSession ui = new DriverSession(prefs, new SyncStateStore(file), Runnable::run);
+		DriverSession sync = new DriverSession(new SyncStateStore(file));
+		
+		DriverSession.Config first = sync.activeConfig();
+		assertNotNull(first);
+		assertEquals("42", first.driverId);
+		assertEquals("anon-key", first.supabaseKey);
+		// Sin cambios en el archivo no se vuelve a decodificar
+		assertSame(first, sync.current());
+		// El cursor no es parte de la sesión: no se copia
+		assertNull(sync.value("order_feed_cursor_id"));
+		
+		prefs.edit().putString("isOnline", "false").putString("native_realtime", "true").apply();
+		assertNull(sync.activeConfig());
+		assertTrue(DriverSession.parseFlag(sync.value(DriverSession.REALTIME_FLAG_KEY)));
+		assertFalse(ui.current().online);
+		
+		prefs.edit().clear().apply();
+		assertNull(sync.current().driverId);
+	}
+}
@@ -0,0 +1,172 @@
+package com.deliveryapp.repartidor;
+
+import android.content.SharedPreferences;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * SharedPreferences en memoria para pruebas JVM. Notifica a los listeners como la implementación
+ * de Android y cuenta las lecturas para verificar qué se vuelve a leer en cada ejecución.
+ */
+class FakeSharedPreferences implements SharedPreferences {
+	private final Map<String, Object> values = new HashMap<>();
+	private final List<OnSharedPreferenceChangeListener> listeners = new ArrayList<>();
+	int reads;
+	int getAllCalls;
+	
+	@Override
+	public Map<String, ?> getAll() {
+		getAllCalls++;
+		return new HashMap<>(values);
+	}
+	
+	@Override
+	public String getString(String key, String defValue) {
+		reads++;
+		Object value = values.get(key);
+		return value != null ? (String) value : defValue;
+	}
+	
+	@Override
+	@SuppressWarnings("unchecked")
+	public Set<String> getStringSet(String key, Set<String> defValues) {
+		reads++;
+		Object value = values.get(key);
+		return value != null ? (Set<String>) value : defValues;
+	}
+	
+	@Override
+	public int getInt(String key, int defValue) {
+		reads++;
+		Object value = values.get(key);
+		return value != null ? (Integer) value : defValue;
+	}
+	
+	@Override
+	public long getLong(String key, long defValue) {
+		reads++;
+		Object value = values.get(key);
+		return value != null ? (Long) value : defValue;
+	}
+	
+	@Override
+	public float getFloat(String key, float defValue) {
+		reads++;
+		Object value = values.get(key);
+		return value != null ? (Float) value : defValue;
+	}
+	
+	@Override
+	public boolean getBoolean(String key, boolean defValue) {
+		reads++;
+		Object value = values.get(key);
+		return value != null ? (Boolean) value : defValue;
+	}
+	
+	@Override
+	public boolean contains(String key) {
+		return values.containsKey(key);
+	}
+	
+	@Override
+	public Editor edit() {
+		return new FakeEditor();
+	}
+	
+	@Override
+	public void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+		listeners.add(listener);
+	}
+	
+	@Override
+	public void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+		listeners.remove(listener);
+	}
+	
+	private final class FakeEditor implements Editor {
+		private final Map<String, Object> pending = new HashMap<>();
+		private final Set<String> removed = new HashSet<>();
+		private boolean clear;
+		
+		@Override
+		public Editor putString(String key, String value) {
+			pending.put(key, value);
+			return this;
+		}
+		
+		@Override
+		public Editor putStringSet(String key, Set<String> value) {
+			pending.put(key, value);
+			return this;
+		}
+		
+		@Override
+		public Editor putInt(String key, int value) {
+			pending.put(key, value);
+			return this;
+		}
+		
+		@Override
+		public Editor putLong(String key, long value) {
+			pending.put(key, value);
+			return this;
+		}
+		
+		@Override
+		public Editor putFloat(String key, float value) {
+			pending.put(key, value);
+			return this;
+		}
+		
+		@Override
+		public Editor putBoolean(String key, boolean value) {
+			pending.put(key, value);
+			return this;
+		}
+		
+		@Override
+		public Editor remove(String key) {
+			removed.add(key);
+			return this;
+		}
+		
+		@Override
+		public Editor clear() {
+			clear = true;
+			return this;
+		}
+		
+		@Override
+		public boolean commit() {
+			List<String> changed = new ArrayList<>();
+			if (clear) {
+				values.clear();
+				changed.add(null);
+			}
+			for (String key : removed) {
+				if (values.remove(key) != null) {
+					changed.add(key);
+				}
+			}
+			for (Map.Entry<String, Object> entry : pending.entrySet()) {
+				values.put(entry.getKey(), entry.getValue());
+				changed.add(entry.getKey());
+			}
+			for (String key : changed) {
+				for (OnSharedPreferenceChangeListener listener : new ArrayList<>(listeners)) {
+					listener.onSharedPreferenceChanged(FakeSharedPreferences.this, key);
+				}
+			}
+			return true;
+		}
+		
+		@Override
+		public void apply() {
+			commit();
+		}
+	}
+}
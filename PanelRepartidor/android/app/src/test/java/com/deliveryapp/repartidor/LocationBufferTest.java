@@ -0,0 +1,148 @@
+package com.deliveryapp.repartidor;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import org.junit.Test;
+
+/**
+ * Pruebas del buffer circular de posiciones: deduplicación, sobrescritura, persistencia
+ * y política de subida según la red.
+ */
+public class LocationBufferTest {
+	// ~0.0001° de latitud son ~11 m
+	private static final double LAT = -33.4489;
+	private static final double LON = -70.6693;
+	
+	@Test
+	public void dropsNearDuplicatesUntilMovedOrSilent() {
+		LocationBuffer buffer = new LocationBuffer(16, 15, 60_000);
+		
+		assertTrue(buffer.offer(LAT, LON, 5, 1_000));
+		// 5 m después de 5 s: casi duplicado
+		assertFalse(buffer.offer(LAT + 0.000045, LON, 5, 6_000));
+		// Mismo instante o anterior: descartado
+		assertFalse(buffer.offer(LAT + 0.01, LON, 5, 1_000));
+		// 22 m: se movió
+		assertTrue(buffer.offer(LAT + 0.0002, LON, 5, 11_000));
+		// Quieto pero pasó el silencio máximo: se acepta como latido
+		assertTrue(buffer.offer(LAT + 0.0002, LON, 5, 71_000));
+		
+		assertEquals(3, buffer.size());
+		assertEquals(71_000, buffer.timeAt(2));
+	}
+	
+	@Test
+	public void overwritesOldestWhenFull() {
+		LocationBuffer buffer = new LocationBuffer(4, 0, 0);
+		for (int i = 0; i < 6; i++) {
+			assertTrue(buffer.offer(LAT + i * 0.001, LON, i, 1_000 + i));
+		}
+		
+		assertEquals(4, buffer.size());
+		assertEquals(1_002, buffer.timeAt(0));
+		assertEquals(1_005, buffer.timeAt(3));
+		assertEquals(LAT + 0.005, buffer.latitudeAt(3), 1e-9);
+		assertEquals(3f, buffer.accuracyAt(1), 0);
+	}
+	
+	@Test
+	public void removeOldestKeepsNewerFixesAndDedupState() {
+		LocationBuffer buffer = new LocationBuffer(8, 15, 60_000);
+		buffer.offer(LAT, LON, 5, 1_000);
+		buffer.offer(LAT + 0.001, LON, 5, 2_000);
+		buffer.offer(LAT + 0.002, LON, 5, 3_000);
+		
+		buffer.removeOldest(2);
+		assertEquals(1, buffer.size());
+		assertEquals(3_000, buffer.timeAt(0));
+		assertEquals(1_000, buffer.oldestAgeMs(4_000));
+		
+		buffer.removeOldest(10);
+		assertTrue(buffer.isEmpty());
+		assertEquals(0, buffer.oldestAgeMs(4_000));
+		// Tras vaciar, un fix en el mismo punto sigue siendo duplicado del último subido
+		assertFalse(buffer.offer(LAT + 0.002, LON, 5, 4_000));
+	}
+	
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void rejectsOutOfRangeIndex() {
+		LocationBuffer buffer = new LocationBuffer(4, 0, 0);
+		buffer.offer(LAT, LON, 5, 1_000);
+		buffer.timeAt(1);
+	}
+	
+	@Test
+	public void persistsAndRestoresPendingFixes() throws Exception {
+		File file = File.createTempFile("location_buffer", ".bin");
+		file.deleteOnExit();
+		
+		LocationBuffer buffer = new LocationBuffer(4, 0, 0);
+		for (int i = 0; i < 6; i++) {
+			buffer.offer(LAT + i * 0.001, LON - i * 0.001, 3 + i, 10_000 + i);
+		}
+		buffer.removeOldest(1);
+		buffer.writeTo(file);
+		assertEquals(4 + 4 + 4 + 3 * (8 + 8 + 4 + 8), file.length());
+		
+		LocationBuffer restored = new LocationBuffer(4, 0, 0);
+		assertEquals(3, restored.readFrom(file));
+		for (int i = 0; i < 3; i++) {
+			assertEquals(buffer.timeAt(i), restored.timeAt(i));
+			assertEquals(buffer.latitudeAt(i), restored.latitudeAt(i), 0);
+			assertEquals(buffer.longitudeAt(i), restored.longitudeAt(i), 0);
+			assertEquals(buffer.accuracyAt(i), restored.accuracyAt(i), 0);
+		}
+	}
+	
+	@Test
+	public void ignoresMissingCorruptOrTruncatedFiles() throws Exception {
+		LocationBuffer buffer = new LocationBuffer(4, 0, 0);
+		assertEquals(0, buffer.readFrom(new File("no-existe.bin")));
+		
+		File garbage = File.createTempFile("location_buffer", ".bin");
+		garbage.deleteOnExit();
+		try (FileOutputStream out = new FileOutputStream(garbage)) {
+			out.write(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+		}
+		assertEquals(0, buffer.readFrom(garbage));
+		
+		LocationBuffer source = new LocationBuffer(4, 0, 0);
+		source.offer(LAT, LON, 5, 1_000);
+		source.offer(LAT + 0.001, LON, 5, 2_000);
+		File truncated = File.createTempFile("location_buffer", ".bin");
+		truncated.deleteOnExit();
+		source.writeTo(truncated);
+		try (RandomAccessFile raf = new RandomAccessFile(truncated, "rw")) {
+			raf.setLength(raf.length() - 10);
+		}
+		assertEquals(1, buffer.readFrom(truncated));
+		assertEquals(1_000, buffer.timeAt(0));
+	}
+	
+	@Test
+	public void singleSlotBufferKeepsOnlyTheLatestFix() {
+		LocationBuffer buffer = new LocationBuffer(1, 15, 60_000);
+		assertTrue(buffer.offer(LAT, LON, 5, 1_000));
+		assertTrue(buffer.offer(LAT + 0.001, LON, 5, 2_000));
+		
+		assertEquals(1, buffer.size());
+		assertEquals(2_000, buffer.timeAt(0));
+	}
+	
+	@Test
+	public void uploadPolicyAdaptsToConnectivity() {
+		assertEquals(LocationUploadPolicy.OFFLINE, LocationUploadPolicy.forNetwork(false, true, true));
+		assertEquals(LocationUploadPolicy.UNMETERED, LocationUploadPolicy.forNetwork(true, false, false));
+		assertEquals(LocationUploadPolicy.CELLULAR, LocationUploadPolicy.forNetwork(true, true, false));
+		assertEquals(LocationUploadPolicy.CONSTRAINED, LocationUploadPolicy.forNetwork(true, true, true));
+		
+		assertFalse(LocationUploadPolicy.OFFLINE.shouldUpload(true, Long.MAX_VALUE - 1));
+		assertFalse(LocationUploadPolicy.CELLULAR.shouldUpload(false, Long.MAX_VALUE - 1));
+		assertFalse(LocationUploadPolicy.CELLULAR.shouldUpload(true, 29_000));
+		assertTrue(LocationUploadPolicy.CELLULAR.shouldUpload(true, 30_000));
+		assertTrue(LocationUploadPolicy.UNMETERED.minIntervalMs < LocationUploadPolicy.CONSTRAINED.minIntervalMs);
+	}
+}
@@ -0,0 +1,194 @@
+package com.deliveryapp.repartidor;
+
+import static org.junit.Assert.*;
+
+import androidx.annotation.NonNull;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Pruebas del suscriptor Realtime contra un servidor websocket local que imita
+ * el protocolo Phoenix de Supabase Realtime.
+ */
+public class RealtimeOrderSubscriberTest {
+	private static final String COMPANY_ID = "7c9e6679-7425-40de-944b-e07fc1f90ae7";
+	private static final String TOPIC = "realtime:orders-company-" + COMPANY_ID;
+	
+	private MockWebServer server;
+	private ScheduledExecutorService scheduler;
+	private OkHttpClient client;
+	private RealtimeOrderSubscriber subscriber;
+	private final RecordingListener listener = new RecordingListener();
+	
+	@Before
+	public void setUp() throws Exception {
+		server = new MockWebServer();
+		server.start();
+		scheduler = Executors.newSingleThreadScheduledExecutor();
+		client = new OkHttpClient.Builder().readTimeout(0, TimeUnit.MILLISECONDS).build();
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		if (subscriber != null) subscriber.stop();
+		scheduler.shutdownNow();
+		client.dispatcher().executorService().shutdown();
+		server.shutdown();
+	}
+	
+	@Test
+	public void joinsCompanyChannelAndDeliversInserts() throws Exception {
+		PhoenixStandIn realtime = new PhoenixStandIn();
+		server.enqueue(new MockResponse().withWebSocketUpgrade(realtime));
+		
+		startSubscriber(25_000);
+		assertEquals(Boolean.FALSE, listener.subscribed.poll(5, TimeUnit.SECONDS));
+		
+		JSONObject join = realtime.received.poll(1, TimeUnit.SECONDS);
+		assertNotNull(join);
+		assertEquals("phx_join", join.getString("event"));
+		assertEquals(TOPIC, join.getString("topic"));
+		JSONObject change = join.getJSONObject("payload").getJSONObject("config")
+			.getJSONArray("postgres_changes").getJSONObject(0);
+		assertEquals("orders", change.getString("table"));
+		assertEquals("company_id=eq." + COMPANY_ID, change.getString("filter"));
+		assertTrue(server.takeRequest().getPath().startsWith("/realtime/v1/websocket?apikey=test-key"));
+		
+		realtime.push("{\"topic\":\"" + TOPIC + "\",\"event\":\"postgres_changes\",\"ref\":null,"
+			+ "\"payload\":{\"data\":{\"type\":\"INSERT\",\"record\":{\"id\":77,\"status\":\"Pendiente\"},\"old_record\":null}}}");
+		assertEquals("INSERT:77", listener.changes.poll(5, TimeUnit.SECONDS));
+	}
+	
+	@Test
+	public void reconnectsWithBackoffWhenServerDropsConnection() throws Exception {
+		PhoenixStandIn first = new PhoenixStandIn();
+		PhoenixStandIn second = new PhoenixStandIn();
+		server.enqueue(new MockResponse().withWebSocketUpgrade(first));
+		server.enqueue(new MockResponse().withWebSocketUpgrade(second));
+		
+		startSubscriber(25_000);
+		assertEquals(Boolean.FALSE, listener.subscribed.poll(5, TimeUnit.SECONDS));
+		
+		first.socket.close(1001, "reinicio del servidor");
+		
+		// Tras reconectar se vuelve a suscribir y avisa que es una reconexión (para el catch-up REST)
+		assertEquals(Boolean.TRUE, listener.subscribed.poll(5, TimeUnit.SECONDS));
+		assertEquals(2, server.getRequestCount());
+	}
+	
+	@Test
+	public void reconnectsWhenHeartbeatIsNotAnswered() throws Exception {
+		PhoenixStandIn silent = new PhoenixStandIn();
+		silent.answerHeartbeats = false;
+		PhoenixStandIn healthy = new PhoenixStandIn();
+		server.enqueue(new MockResponse().withWebSocketUpgrade(silent));
+		server.enqueue(new MockResponse().withWebSocketUpgrade(healthy));
+		
+		startSubscriber(100);
+		assertEquals(Boolean.FALSE, listener.subscribed.poll(5, TimeUnit.SECONDS));
+		assertEquals(Boolean.TRUE, listener.subscribed.poll(5, TimeUnit.SECONDS));
+		
+		// El nuevo socket sí responde heartbeats y se mantiene
+		JSONObject heartbeat = healthy.awaitEvent("heartbeat", 5);
+		assertEquals("phoenix", heartbeat.getString("topic"));
+		assertNull(listener.subscribed.poll(300, TimeUnit.MILLISECONDS));
+	}
+	
+	@Test
+	public void backoffGrowsAndStaysWithinBounds() {
+		Backoff backoff = new Backoff(1000, 30_000, new Random(42));
+		long previousWindow = 0;
+		for (int i = 0; i < 10; i++) {
+			long window = Math.min(30_000, 1000L << i);
+			long delay = backoff.nextDelayMs();
+			assertTrue(delay >= window / 2 && delay <= window);
+			assertTrue(window >= previousWindow);
+			previousWindow = window;
+		}
+		backoff.reset();
+		assertTrue(backoff.nextDelayMs() <= 1000);
+	}
+	
+	private void startSubscriber(long heartbeatMs) {
+		subscriber = new RealtimeOrderSubscriber(client, server.url("/").toString(), "test-key", COMPANY_ID,
+			listener, scheduler, new Backoff(10, 50, new Random(1)), heartbeatMs);
+		subscriber.start();
+	}
+	
+	private static final class RecordingListener implements RealtimeOrderSubscriber.Listener {
+		final BlockingQueue<Boolean> subscribed = new LinkedBlockingQueue<>();
+		final BlockingQueue<String> changes = new LinkedBlockingQueue<>();
+		
+		@Override
+		public void onSubscribed(boolean reconnected) {
+			subscribed.add(reconnected);
+		}
+		
+		@Override
+		public void onOrderChange(String type, JSONObject record, JSONObject oldRecord) {
+			changes.add(type + ":" + record.optLong("id"));
+		}
+	}
+	
+	/**
+	 * Servidor Phoenix mínimo: responde el join y (opcionalmente) los heartbeats
+	 */
+	private static final class PhoenixStandIn extends WebSocketListener {
+		final BlockingQueue<JSONObject> received = new LinkedBlockingQueue<>();
+		volatile WebSocket socket;
+		volatile boolean answerHeartbeats = true;
+		
+		@Override
+		public void onOpen(@NonNull WebSocket webSocket, @NonNull Response response) {
+			socket = webSocket;
+		}
+		
+		@Override
+		public void onMessage(@NonNull WebSocket webSocket, @NonNull String text) {
+			try {
+				JSONObject message = new JSONObject(text);
+				received.add(message);
+				String event = message.getString("event");
+				if ("phx_join".equals(event) || ("heartbeat".equals(event) && answerHeartbeats)) {
+					webSocket.send(new JSONObject()
+						.put("topic", message.getString("topic"))
+						.put("event", "phx_reply")
+						.put("ref", message.getString("ref"))
+						.put("payload", new JSONObject().put("status", "ok").put("response", new JSONObject()))
+						.toString());
+				}
+			} catch (Exception e) {
+				throw new AssertionError(e);
+			}
+		}
+		
+		void push(String text) {
+			socket.send(text);
+		}
+		
+		JSONObject awaitEvent(String event, int seconds) throws InterruptedException {
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+			while (System.nanoTime() < deadline) {
+				JSONObject message = received.poll(100, TimeUnit.MILLISECONDS);
+				if (message != null && event.equals(message.optString("event"))) {
+					return message;
+				}
+			}
+			throw new AssertionError("No llegó el evento " + event);
+		}
+	}
+}
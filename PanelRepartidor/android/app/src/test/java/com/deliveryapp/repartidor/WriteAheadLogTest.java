@@ -0,0 +1,197 @@
+package com.deliveryapp.repartidor;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import org.json.JSONObject;
+import org.junit.Test;
+
+/**
+ * Pruebas del log de escritura anticipada de la cola offline (recuperación tras un corte,
+ * confirmación, compactación) y del armado de lotes de mutaciones.
+ */
+public class WriteAheadLogTest {
+	
+	@Test
+	public void replaysUnacknowledgedRecordsAfterReopen() throws Exception {
+		File dir = tempDir();
+		try (WriteAheadLog log = new WriteAheadLog(dir)) {
+			assertEquals(1, log.append("uno"));
+			assertEquals(2, log.append("dos"));
+			assertEquals(3, log.append("tres — ñandú"));
+			log.acknowledge(1);
+		}
+		
+		try (WriteAheadLog log = new WriteAheadLog(dir)) {
+			List<WriteAheadLog.Entry> pending = log.pending(10);
+			assertEquals(2, pending.size());
+			assertEquals(2, pending.get(0).seq);
+			assertEquals("tres — ñandú", pending.get(1).payload);
+			// La secuencia continúa después de la última escrita
+			assertEquals(4, log.append("cuatro"));
+		}
+	}
+	
+	@Test
+	public void dropsTornTailRecord() throws Exception {
+		File dir = tempDir();
+		try (WriteAheadLog log = new WriteAheadLog(dir)) {
+			log.append("completo");
+			log.append("interrumpido");
+		}
+		File file = new File(dir, "wal.log");
+		long intact = file.length() - 4;
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			// Simular un corte a mitad de la escritura del último registro
+			raf.setLength(intact);
+		}
+		
+		try (WriteAheadLog log = new WriteAheadLog(dir)) {
+			assertEquals(1, log.pendingCount());
+			assertEquals("completo", log.pending(10).get(0).payload);
+			log.append("nuevo");
+		}
+		try (WriteAheadLog log = new WriteAheadLog(dir)) {
+			assertEquals(2, log.pendingCount());
+			assertEquals("nuevo", log.pending(10).get(1).payload);
+		}
+	}
+	
+	@Test
+	public void dropsRecordWithCorruptChecksum() throws Exception {
+		File dir = tempDir();
+		try (WriteAheadLog log = new WriteAheadLog(dir)) {
+			log.append("bueno");
+			log.append("malo");
+		}
+		File file = new File(dir, "wal.log");
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.seek(file.length() - 1);
+			raf.write('X');
+		}
+		
+		try (WriteAheadLog log = new WriteAheadLog(dir)) {
+			assertEquals(1, log.pendingCount());
+		}
+	}
+	
+	@Test
+	public void truncatesWhenFullyAcknowledgedAndCompactsLargeLogs() throws Exception {
+		File dir = tempDir();
+		File file = new File(dir, "wal.log");
+		StringBuilder big = new StringBuilder();
+		for (int i = 0; i < 1024; i++) {
+			big.append('x');
+		}
+		try (WriteAheadLog log = new WriteAheadLog(dir)) {
+			log.append("a");
+			log.acknowledge(1);
+			assertEquals(0, file.length());
+			
+			long last = 0;
+			for (int i = 0; i < 300; i++) {
+				last = log.append(big.toString());
+			}
+			log.acknowledge(last - 1);
+			// Solo queda el último registro en disco
+			assertTrue("Tamaño tras compactar: " + file.length(), file.length() < 2 * 1024);
+			assertEquals(1, log.pendingCount());
+		}
+		try (WriteAheadLog log = new WriteAheadLog(dir)) {
+			assertEquals(1, log.pendingCount());
+			assertEquals(302, log.append("b"));
+		}
+	}
+	
+	@Test
+	public void ignoresCorruptCheckpoint() throws Exception {
+		File dir = tempDir();
+		try (WriteAheadLog log = new WriteAheadLog(dir)) {
+			log.append("a");
+			log.append("b");
+			log.acknowledge(1);
+		}
+		try (FileOutputStream out = new FileOutputStream(new File(dir, "wal.ack"))) {
+			out.write(new byte[] { 1, 2, 3 });
+		}
+		// Sin checkpoint válido se reaplica lo que quede en el log (las mutaciones son idempotentes)
+		try (WriteAheadLog log = new WriteAheadLog(dir)) {
+			assertEquals("b", log.pending(10).get(log.pendingCount() - 1).payload);
+		}
+	}
+	
+	@Test
+	public void coalescesSupersededMutationsAndBatchesInserts() throws Exception {
+		List<QueuedMutation> pending = new ArrayList<>();
+		pending.add(mutation(1, QueuedMutation.UPSERT, "driver_locations", "loc:7"));
+		pending.add(mutation(2, QueuedMutation.INSERT, "order_chat_messages", null));
+		pending.add(mutation(3, QueuedMutation.INSERT, "order_chat_messages", null));
+		pending.add(mutation(4, QueuedMutation.UPSERT, "driver_locations", "loc:7"));
+		pending.add(mutation(5, QueuedMutation.UPDATE, "orders", null));
+		pending.add(mutation(6, QueuedMutation.UPDATE, "orders", null));
+		pending.add(mutation(7, QueuedMutation.INSERT, "order_status_history", null));
+		
+		List<QueuedMutation.Batch> batches = QueuedMutation.plan(pending);
+		
+		assertEquals(5, batches.size());
+		// La ubicación 1 quedó reemplazada por la 4: se confirma junto con el primer lote
+		assertEquals(2, batches.get(0).mutations.size());
+		assertEquals("order_chat_messages", batches.get(0).first().table);
+		assertEquals(3, batches.get(0).ackSeq);
+		assertEquals(4, batches.get(1).first().seq);
+		// Los updates van uno por uno
+		assertEquals(1, batches.get(2).mutations.size());
+		assertEquals(1, batches.get(3).mutations.size());
+		assertEquals(7, batches.get(4).ackSeq);
+	}
+	
+	@Test
+	public void roundTripsMutationJson() throws Exception {
+		QueuedMutation original = new QueuedMutation("k1", QueuedMutation.UPDATE, "orders", "id=eq.42", null, null,
+			new JSONObject().put("status", "Entregado"), 1_700_000_000_000L);
+		QueuedMutation parsed = QueuedMutation.fromJson(original.toJson(), 9);
+		
+		assertEquals("k1", parsed.key);
+		assertEquals(QueuedMutation.UPDATE, parsed.kind);
+		assertEquals("id=eq.42", parsed.filter);
+		assertNull(parsed.onConflict);
+		assertEquals("Entregado", parsed.body.getString("status"));
+		assertEquals(9, parsed.seq);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsUpdateWithoutFilter() {
+		new QueuedMutation("k", QueuedMutation.UPDATE, "orders", null, null, null, new JSONObject(), 0);
+	}
+	
+	@Test
+	public void onlyOneOpenLogPerDirectory() throws Exception {
+		File dir = tempDir();
+		try (WriteAheadLog log = new WriteAheadLog(dir)) {
+			log.append("a");
+			// Otro proceso (o instancia) no lo puede abrir mientras esté abierto
+			assertNull(WriteAheadLog.tryOpen(dir));
+		}
+		try (WriteAheadLog log = WriteAheadLog.tryOpen(dir)) {
+			assertEquals(1, log.pendingCount());
+		}
+	}
+	
+	private static QueuedMutation mutation(long seq, String kind, String table, String coalesceKey) {
+		QueuedMutation mutation = new QueuedMutation("k" + seq, kind, table,
+			QueuedMutation.UPDATE.equals(kind) ? "id=eq." + seq : null, null, coalesceKey, new JSONObject(), seq);
+		mutation.seq = seq;
+		return mutation;
+	}
+	
+	private static File tempDir() throws Exception {
+		File dir = Files.createTempDirectory("wal").toFile();
+		dir.deleteOnExit();
+		return dir;
+	}
+}
@@ -0,0 +1,43 @@
+package com.deliveryapp.repartidor;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Genera respuestas de /orders con la misma forma que PostgREST (campos del feed más relaciones
+ * embebidas y columnas extra que el decodificador debe saltar).
+ */
+final class FeedPayloads {
+	static final String BASE_CREATED_AT = "2025-03-14T12:00:00.000000+00:00";
+	
+	private FeedPayloads() {
+	}
+	
+	static byte[] orders(int count, long firstId) {
+		StringBuilder json = new StringBuilder(count * 420).append('[');
+		for (int i = 0; i < count; i++) {
+			long id = firstId + i;
+			if (i > 0) {
+				json.append(',');
+			}
+			json.append("{\"id\":").append(id)
+				.append(",\"created_at\":\"").append(createdAt(i)).append('"')
+				.append(",\"status\":\"Pendiente\",\"company_id\":7")
+				.append(",\"delivery_address\":\"Calle ").append(i).append(" #").append(id).append(", Santiago\"")
+				.append(",\"pickup_address\":\"Av. Providencia ").append(1000 + i).append("\"")
+				.append(",\"suggested_price\":").append(2500 + i * 13.25)
+				.append(",\"notes\":\"Tocar el timbre \\\"B\\\" y esperar\"")
+				.append(",\"items\":[{\"sku\":\"A").append(i).append("\",\"qty\":2},{\"sku\":\"B\",\"qty\":1}]")
+				.append(",\"clients\":{\"name\":\"Cliente ").append(i).append("\",\"phone\":\"+5691234567\"}")
+				.append(",\"locals\":{\"name\":\"Local ").append(i % 7).append("\",\"address\":\"Centro\"}}");
+		}
+		return json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * created_at del pedido i: un segundo después del anterior, a partir de BASE_CREATED_AT
+	 */
+	static String createdAt(int i) {
+		int seconds = i + 1;
+		return String.format("2025-03-14T12:%02d:%02d.000000+00:00", (seconds / 60) % 60, seconds % 60);
+	}
+}
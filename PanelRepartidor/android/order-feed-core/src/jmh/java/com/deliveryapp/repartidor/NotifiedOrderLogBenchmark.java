@@ -0,0 +1,66 @@
+package com.deliveryapp.repartidor;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Costo de la deduplicación de notificaciones con el log lleno (capacidad de NotificationEngine):
+ * marcar pedidos nuevos y repetidos, armar el resumen y persistir/restaurar el log.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class NotifiedOrderLogBenchmark {
+	private static final int CAPACITY = 200;
+	
+	private NotifiedOrderLog log;
+	private String serialized;
+	private long nextId;
+	
+	@Setup
+	public void setUp() {
+		log = new NotifiedOrderLog(CAPACITY);
+		for (nextId = 1; nextId <= CAPACITY; nextId++) {
+			log.markNotified(nextId, "ORD-" + nextId + " · Local · $2500.00");
+		}
+		serialized = log.serialize();
+	}
+	
+	/**
+	 * Pedido nuevo con el log lleno: inserta y desaloja el más antiguo
+	 */
+	@Benchmark
+	public boolean markNew() {
+		long id = nextId++;
+		return log.markNotified(id, "ORD-" + id + " · Local · $2500.00");
+	}
+	
+	/**
+	 * Pedido ya notificado (el caso común cuando Worker y Realtime ven el mismo pedido)
+	 */
+	@Benchmark
+	public boolean markDuplicate() {
+		return log.markNotified(nextId - 1, "duplicado");
+	}
+	
+	@Benchmark
+	public Object summaryLines() {
+		return log.activeLines(5);
+	}
+	
+	@Benchmark
+	public String serialize() {
+		return log.serialize();
+	}
+	
+	@Benchmark
+	public NotifiedOrderLog parse() {
+		return NotifiedOrderLog.parse(serialized, CAPACITY);
+	}
+}
@@ -0,0 +1,105 @@
+package com.deliveryapp.repartidor;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Latencia de una verificación completa contra un servidor HTTP local: GET al feed con
+ * keep-alive, decodificación en streaming, avance del cursor, deduplicación y armado de los
+ * textos de notificación. Cada invocación parte del mismo cursor, así que siempre hay pedidos
+ * nuevos que procesar.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OrderCheckBenchmark {
+	@Param({ "0", "1", "5" })
+	public int newOrders;
+	
+	private MockWebServer server;
+	private OrderFeedPipeline pipeline;
+	private OrderFeedPipeline.Endpoint endpoint;
+	private NotifiedOrderLog log;
+	private final CheckMetrics metrics = new CheckMetrics();
+	private final OrderFeedCursor start = new OrderFeedCursor(FeedPayloads.BASE_CREATED_AT, 999);
+	
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		byte[] page = FeedPayloads.orders(newOrders, 1000);
+		server = new MockWebServer();
+		server.setDispatcher(new Dispatcher() {
+			@Override
+			public MockResponse dispatch(RecordedRequest request) {
+				return new MockResponse()
+					.setHeader("Content-Type", "application/json")
+					.setBody(new Buffer().write(page));
+			}
+		});
+		server.start();
+		endpoint = new OrderFeedPipeline.Endpoint(server.url("/").toString().replaceAll("/$", ""), "anon-key", "7");
+		
+		pipeline = new OrderFeedPipeline(new NativeHttpClient(new OkHttpClient.Builder()),
+			new OrderFeedPipeline.CursorStore() {
+				@Override
+				public OrderFeedCursor load() {
+					return start;
+				}
+				
+				@Override
+				public void save(OrderFeedCursor cursor) {
+					// Se descarta: la próxima invocación vuelve a partir del mismo cursor
+				}
+			},
+			this::deliver);
+	}
+	
+	@Setup(Level.Invocation)
+	public void resetLog() {
+		log = new NotifiedOrderLog(200);
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		server.shutdown();
+	}
+	
+	@Benchmark
+	public int check() throws IOException {
+		return pipeline.sync(endpoint, metrics.begin("benchmark", 0));
+	}
+	
+	/**
+	 * Sink equivalente a NotificationEngine sin NotificationManager: deduplica y arma los textos
+	 */
+	private int deliver(List<OrderSummary> orders, CheckMetrics.CheckRun run) {
+		int posted = 0;
+		for (OrderSummary order : orders) {
+			if (!log.markNotified(order.getId(), OrderNotificationText.summaryLine(order))) {
+				continue;
+			}
+			if (OrderNotificationText.title(order).isEmpty() || OrderNotificationText.body(order).isEmpty()) {
+				throw new IllegalStateException();
+			}
+			posted++;
+			run.addNotified(order.getCreatedAt(), System.currentTimeMillis());
+		}
+		return posted;
+	}
+}
@@ -0,0 +1,75 @@
+package com.deliveryapp.repartidor;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Throughput del decodificador en streaming del feed: una página típica (20 pedidos) y una
+ * respuesta grande como la del antiguo select=* sin límite, contra la ruta anterior con
+ * JSONArray. Las asignaciones por operación (B/op) salen con el profiler de GC:
+ * ./gradlew :order-feed-core:jmh -Pjmh.includes=Decode -Pjmh.profilers=gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class OrderFeedDecodeBenchmark {
+	@Param({ "20", "200" })
+	public int orders;
+	
+	private byte[] payload;
+	
+	@Setup
+	public void setUp() {
+		payload = FeedPayloads.orders(orders, 1000);
+	}
+	
+	@Benchmark
+	public int decodeAll(Blackhole blackhole) throws IOException {
+		return OrderFeedDecoder.decode(new ByteArrayInputStream(payload), order -> {
+			blackhole.consume(order);
+			return true;
+		});
+	}
+	
+	/**
+	 * Ruta anterior del Worker: leer todo a String y construir el árbol JSONArray/JSONObject
+	 */
+	@Benchmark
+	public int decodeWithJsonArray() {
+		JSONArray tree = new JSONArray(new String(payload, StandardCharsets.UTF_8));
+		int count = 0;
+		for (int i = 0; i < tree.length(); i++) {
+			JSONObject order = tree.getJSONObject(i);
+			if (order.optString("id") != null
+					&& order.optString("delivery_address") != null
+					&& order.optJSONObject("clients") != null
+					&& order.optJSONObject("locals") != null) {
+				order.optDouble("suggested_price", 0);
+				count++;
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * Corte temprano: el listener encuentra un pedido ya procesado en la quinta posición
+	 */
+	@Benchmark
+	public int decodeUntilKnownOrder() throws IOException {
+		long known = 1004;
+		return OrderFeedDecoder.decode(new ByteArrayInputStream(payload), order -> order.getId() != known);
+	}
+}
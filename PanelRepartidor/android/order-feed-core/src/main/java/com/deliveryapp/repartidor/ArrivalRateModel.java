@@ -0,0 +1,106 @@
+package com.deliveryapp.repartidor;
+
+import java.util.Locale;
+
+/**
+ * Tasa de llegada de pedidos (pedidos/hora) de una empresa por hora del día, suavizada con un
+ * promedio móvil exponencial (EWMA). Cada verificación aporta una observación: cuántos pedidos
+ * nuevos llegaron desde la anterior y cuánto tiempo pasó.
+ *
+ * No es thread-safe: OrderCheckScheduler lo carga, actualiza y guarda bajo su propio lock.
+ */
+public final class ArrivalRateModel {
+	static final int HOURS = 24;
+	// Sin historial se asume un ritmo moderado
+	static final double PRIOR_RATE_PER_HOUR = 2.0;
+	private static final double ALPHA = 0.3;
+	// Ventanas muy cortas dan tasas extremas; muy largas mezclan horas distintas
+	private static final long MIN_WINDOW_MS = 60_000;
+	private static final long MAX_WINDOW_MS = 2 * 60 * 60_000;
+	
+	private final double[] rates = new double[HOURS];
+	private long lastObservationMs;
+	
+	public ArrivalRateModel() {
+		for (int hour = 0; hour < HOURS; hour++) {
+			rates[hour] = PRIOR_RATE_PER_HOUR;
+		}
+	}
+	
+	/**
+	 * Registra una verificación.
+	 * @param hourOfDay hora local (0-23) en que se hizo la verificación
+	 * @param newOrders pedidos nuevos encontrados desde la verificación anterior
+	 */
+	public void observe(int hourOfDay, int newOrders, long nowMs) {
+		long windowMs = lastObservationMs > 0 ? nowMs - lastObservationMs : 0;
+		lastObservationMs = nowMs;
+		if (windowMs <= 0 || windowMs > MAX_WINDOW_MS) {
+			// Primera observación o hueco demasiado largo (driver desconectado): solo reiniciar la ventana
+			return;
+		}
+		double hours = Math.max(windowMs, MIN_WINDOW_MS) / 3_600_000.0;
+		double observed = Math.max(0, newOrders) / hours;
+		int bucket = bucket(hourOfDay);
+		rates[bucket] = ALPHA * observed + (1 - ALPHA) * rates[bucket];
+	}
+	
+	public double rateAt(int hourOfDay) {
+		return rates[bucket(hourOfDay)];
+	}
+	
+	long getLastObservationMs() {
+		return lastObservationMs;
+	}
+	
+	/**
+	 * Serializa como "últimaObservación;r0,r1,...,r23"
+	 */
+	public String serialize() {
+		StringBuilder out = new StringBuilder(HOURS * 6 + 16);
+		out.append(lastObservationMs).append(';');
+		for (int hour = 0; hour < HOURS; hour++) {
+			if (hour > 0) {
+				out.append(',');
+			}
+			out.append(String.format(Locale.US, "%.3f", rates[hour]));
+		}
+		return out.toString();
+	}
+	
+	/**
+	 * Restaura un modelo serializado; si el texto es inválido se parte del valor inicial
+	 */
+	public static ArrivalRateModel parse(String serialized) {
+		ArrivalRateModel model = new ArrivalRateModel();
+		if (serialized == null) {
+			return model;
+		}
+		int separator = serialized.indexOf(';');
+		if (separator < 0) {
+			return model;
+		}
+		String[] values = serialized.substring(separator + 1).split(",");
+		if (values.length != HOURS) {
+			return model;
+		}
+		try {
+			double[] rates = new double[HOURS];
+			for (int hour = 0; hour < HOURS; hour++) {
+				rates[hour] = Double.parseDouble(values[hour]);
+				if (rates[hour] < 0 || Double.isNaN(rates[hour]) || Double.isInfinite(rates[hour])) {
+					return model;
+				}
+			}
+			model.lastObservationMs = Long.parseLong(serialized.substring(0, separator));
+			System.arraycopy(rates, 0, model.rates, 0, HOURS);
+		} catch (NumberFormatException e) {
+			return new ArrivalRateModel();
+		}
+		return model;
+	}
+	
+	private static int bucket(int hourOfDay) {
+		return ((hourOfDay % HOURS) + HOURS) % HOURS;
+	}
+}
@@ -0,0 +1,76 @@
+package com.deliveryapp.repartidor;
+
+/**
+ * Elige cuánto esperar hasta la próxima verificación de pedidos en segundo plano.
+ *
+ * El punto de partida es la tasa esperada de pedidos a esta hora: con 12 pedidos/hora se
+ * verifica cada ~75 s, con menos de uno por hora se deja al trabajo periódico de 15 minutos.
+ * Después se ajusta según el dispositivo: batería baja o ahorro de energía espacian las
+ * verificaciones, cargando se permiten más seguidas.
+ */
+public final class CheckIntervalPolicy {
+	public static final long MIN_DELAY_SECONDS = 30;
+	// A partir de aquí ya cubre el trabajo periódico de 15 minutos
+	public static final long MAX_DELAY_SECONDS = 15 * 60;
+	// Verificaciones por intervalo esperado entre pedidos (más alto = menor latencia)
+	private static final double CHECKS_PER_ARRIVAL = 4;
+	private static final int LOW_BATTERY_PERCENT = 15;
+	
+	/**
+	 * Estado del dispositivo y del driver al momento de programar
+	 */
+	public static final class Conditions {
+		final boolean online;
+		final int batteryPercent;
+		final boolean charging;
+		final boolean powerSave;
+		final boolean connected;
+		final boolean metered;
+		
+		public Conditions(boolean online, int batteryPercent, boolean charging, boolean powerSave,
+				boolean connected, boolean metered) {
+			this.online = online;
+			this.batteryPercent = batteryPercent;
+			this.charging = charging;
+			this.powerSave = powerSave;
+			this.connected = connected;
+			this.metered = metered;
+		}
+	}
+	
+	private CheckIntervalPolicy() {
+	}
+	
+	/**
+	 * @param expectedRatePerHour pedidos/hora esperados para la empresa a esta hora
+	 * @return segundos hasta la próxima verificación, o -1 si no hay que programar ninguna
+	 */
+	public static long nextDelaySeconds(double expectedRatePerHour, Conditions conditions) {
+		if (!conditions.online) {
+			return -1;
+		}
+		if (!conditions.connected) {
+			// WorkManager igual espera la red; no tiene sentido despertar antes
+			return MAX_DELAY_SECONDS;
+		}
+		
+		double rate = Math.max(expectedRatePerHour, 0.01);
+		double delay = 3600.0 / (rate * CHECKS_PER_ARRIVAL);
+		
+		if (conditions.charging) {
+			delay *= 0.5;
+		} else {
+			if (conditions.batteryPercent >= 0 && conditions.batteryPercent <= LOW_BATTERY_PERCENT) {
+				delay *= 3;
+			}
+			if (conditions.powerSave) {
+				delay *= 2;
+			}
+		}
+		if (conditions.metered && !conditions.charging) {
+			delay *= 1.25;
+		}
+		
+		return Math.max(MIN_DELAY_SECONDS, Math.min(MAX_DELAY_SECONDS, Math.round(delay)));
+	}
+}
@@ -0,0 +1,317 @@
+package com.deliveryapp.repartidor;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Métricas en proceso de las verificaciones de pedidos (Worker periódico, cadena adaptativa y
+ * catch-up del Realtime). Todo es de tamaño fijo y sin locks: contadores atómicos e histogramas
+ * de potencias de 2. Cada verificación se registra con un CheckRun y, si se indica un
+ * directorio, se agrega como una línea JSON a un archivo rotativo.
+ */
+public final class CheckMetrics {
+	static final String EXPORT_FILE = "checks.jsonl";
+	static final String EXPORT_FILE_OLD = "checks.1.jsonl";
+	// Al superar este tamaño el archivo actual pasa a ser el anterior (se conservan dos)
+	static final long EXPORT_MAX_BYTES = 128 * 1024;
+	
+	public enum Outcome {
+		OK,
+		// Driver sin sesión o fuera de línea: no se consultó nada
+		SKIPPED_OFFLINE,
+		FAILED
+	}
+	
+	private static final CheckMetrics INSTANCE = new CheckMetrics();
+	
+	// Desde que el Worker despierta hasta que termina la verificación
+	final Histogram wakeToDoneMs = new Histogram();
+	// Retraso del Worker respecto de la hora programada (solo cadena adaptativa)
+	final Histogram wakeDelayMs = new Histogram();
+	// Hasta recibir los headers de la respuesta
+	final Histogram networkMs = new Histogram();
+	// Lectura y decodificación en streaming del cuerpo
+	final Histogram parseMs = new Histogram();
+	final Histogram bytesReceived = new Histogram();
+	// Desde el created_at del pedido hasta que se mostró la notificación
+	final Histogram notificationLatencyMs = new Histogram();
+	
+	final AtomicLong checks = new AtomicLong();
+	final AtomicLong failures = new AtomicLong();
+	final AtomicLong retries = new AtomicLong();
+	final AtomicLong skippedOffline = new AtomicLong();
+	final AtomicLong ordersSeen = new AtomicLong();
+	final AtomicLong ordersNotified = new AtomicLong();
+	
+	private final Object exportLock = new Object();
+	
+	public static CheckMetrics get() {
+		return INSTANCE;
+	}
+	
+	CheckMetrics() {
+	}
+	
+	/**
+	 * Inicia la medición de una verificación. El CheckRun pertenece al hilo que verifica.
+	 * @param source  origen de la verificación ("worker", "chain", "realtime")
+	 * @param attempt intento de WorkManager (0 en la primera ejecución)
+	 */
+	public CheckRun begin(String source, int attempt) {
+		return new CheckRun(this, source, attempt, System.nanoTime(), System.currentTimeMillis());
+	}
+	
+	/**
+	 * Mediciones de una sola verificación
+	 */
+	public static final class CheckRun {
+		private final CheckMetrics metrics;
+		final String source;
+		final int attempt;
+		final long startNanos;
+		final long startMillis;
+		long wakeDelayMs = -1;
+		long networkNanos;
+		long parseNanos;
+		long bytes;
+		int seen;
+		int notified;
+		boolean skipped;
+		
+		CheckRun(CheckMetrics metrics, String source, int attempt, long startNanos, long startMillis) {
+			this.metrics = metrics;
+			this.source = source;
+			this.attempt = attempt;
+			this.startNanos = startNanos;
+			this.startMillis = startMillis;
+		}
+		
+		/**
+		 * Retraso entre la hora programada y el inicio real del Worker
+		 */
+		public void setDueAt(long dueAtMillis) {
+			if (dueAtMillis > 0) {
+				wakeDelayMs = Math.max(0, startMillis - dueAtMillis);
+			}
+		}
+		
+		/**
+		 * El driver no tenía sesión activa (o la app ya consultaba en primer plano): la verificación no consultó nada
+		 */
+		public void markSkipped() {
+			skipped = true;
+		}
+		
+		/**
+		 * Una petición al feed: tiempo hasta los headers, tiempo leyendo el cuerpo y bytes leídos
+		 */
+		public void addFetch(long networkNanos, long parseNanos, long bytes, int orders) {
+			this.networkNanos += networkNanos;
+			this.parseNanos += parseNanos;
+			this.bytes += bytes;
+			this.seen += Math.max(0, orders);
+		}
+		
+		/**
+		 * Pedido notificado; createdAt es el timestamp ISO-8601 de PostgREST
+		 */
+		public void addNotified(String createdAt, long nowMillis) {
+			notified++;
+			long created = parseTimestamp(createdAt);
+			if (created > 0) {
+				metrics.notificationLatencyMs.record(nowMillis - created);
+			}
+		}
+	}
+	
+	/**
+	 * Cierra la medición y la suma a los agregados
+	 * @param failed la verificación terminó con error (se reintentará)
+	 * @return la línea JSON de la verificación (para exportar)
+	 */
+	public String finish(CheckRun run, boolean failed) {
+		Outcome outcome = failed ? Outcome.FAILED : run.skipped ? Outcome.SKIPPED_OFFLINE : Outcome.OK;
+		long elapsedMs = (System.nanoTime() - run.startNanos) / 1_000_000;
+		checks.incrementAndGet();
+		if (run.attempt > 0) {
+			retries.incrementAndGet();
+		}
+		switch (outcome) {
+			case SKIPPED_OFFLINE:
+				skippedOffline.incrementAndGet();
+				break;
+			case FAILED:
+				failures.incrementAndGet();
+				break;
+			default:
+				break;
+		}
+		wakeToDoneMs.record(elapsedMs);
+		if (run.wakeDelayMs >= 0) {
+			wakeDelayMs.record(run.wakeDelayMs);
+		}
+		if (outcome != Outcome.SKIPPED_OFFLINE) {
+			networkMs.record(run.networkNanos / 1_000_000);
+			parseMs.record(run.parseNanos / 1_000_000);
+			bytesReceived.record(run.bytes);
+		}
+		ordersSeen.addAndGet(run.seen);
+		ordersNotified.addAndGet(run.notified);
+		
+		try {
+			JSONObject line = new JSONObject();
+			line.put("ts", run.startMillis);
+			line.put("source", run.source);
+			line.put("outcome", outcome.name());
+			line.put("attempt", run.attempt);
+			line.put("wakeToDoneMs", elapsedMs);
+			if (run.wakeDelayMs >= 0) {
+				line.put("wakeDelayMs", run.wakeDelayMs);
+			}
+			line.put("networkMs", run.networkNanos / 1_000_000);
+			line.put("parseMs", run.parseNanos / 1_000_000);
+			line.put("bytes", run.bytes);
+			line.put("seen", run.seen);
+			line.put("notified", run.notified);
+			return line.toString();
+		} catch (JSONException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	/**
+	 * Agrega una línea al archivo rotativo del directorio indicado
+	 */
+	public void export(File directory, String line) throws IOException {
+		synchronized (exportLock) {
+			if (!directory.isDirectory() && !directory.mkdirs()) {
+				throw new IOException("No se pudo crear " + directory);
+			}
+			File current = new File(directory, EXPORT_FILE);
+			if (current.length() > EXPORT_MAX_BYTES) {
+				File old = new File(directory, EXPORT_FILE_OLD);
+				if (old.exists() && !old.delete()) {
+					throw new IOException("No se pudo rotar " + old);
+				}
+				if (!current.renameTo(old)) {
+					throw new IOException("No se pudo rotar " + current);
+				}
+			}
+			try (FileOutputStream out = new FileOutputStream(current, true)) {
+				out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+			}
+		}
+	}
+	
+	/**
+	 * Foto de todos los agregados (contadores y percentiles)
+	 */
+	public JSONObject snapshot() throws JSONException {
+		JSONObject counters = new JSONObject();
+		counters.put("checks", checks.get());
+		counters.put("failures", failures.get());
+		counters.put("retries", retries.get());
+		counters.put("skippedOffline", skippedOffline.get());
+		counters.put("ordersSeen", ordersSeen.get());
+		counters.put("ordersNotified", ordersNotified.get());
+		
+		JSONObject histograms = new JSONObject();
+		histograms.put("wakeToDoneMs", describe(wakeToDoneMs));
+		histograms.put("wakeDelayMs", describe(wakeDelayMs));
+		histograms.put("networkMs", describe(networkMs));
+		histograms.put("parseMs", describe(parseMs));
+		histograms.put("bytesReceived", describe(bytesReceived));
+		histograms.put("notificationLatencyMs", describe(notificationLatencyMs));
+		
+		JSONObject snapshot = new JSONObject();
+		snapshot.put("counters", counters);
+		snapshot.put("histograms", histograms);
+		return snapshot;
+	}
+	
+	public void reset() {
+		for (Histogram histogram : new Histogram[] { wakeToDoneMs, wakeDelayMs, networkMs, parseMs, bytesReceived, notificationLatencyMs }) {
+			histogram.reset();
+		}
+		for (AtomicLong counter : new AtomicLong[] { checks, failures, retries, skippedOffline, ordersSeen, ordersNotified }) {
+			counter.set(0);
+		}
+	}
+	
+	private static JSONObject describe(Histogram histogram) throws JSONException {
+		JSONObject json = new JSONObject();
+		json.put("count", histogram.getCount());
+		json.put("mean", Math.round(histogram.getMean()));
+		json.put("p50", histogram.percentile(0.5));
+		json.put("p90", histogram.percentile(0.9));
+		json.put("p99", histogram.percentile(0.99));
+		json.put("max", histogram.getMax());
+		return json;
+	}
+	
+	/**
+	 * Convierte un timestamp de PostgREST ("2025-03-14T12:04:28.004936+00:00", también con "Z"
+	 * o sin fracción) a milisegundos epoch, sin SimpleDateFormat (no admite microsegundos).
+	 * @return -1 si el formato no es válido
+	 */
+	static long parseTimestamp(String value) {
+		if (value == null || value.length() < 19 || value.charAt(4) != '-' || value.charAt(10) != 'T') {
+			return -1;
+		}
+		try {
+			int year = Integer.parseInt(value.substring(0, 4));
+			int month = Integer.parseInt(value.substring(5, 7));
+			int day = Integer.parseInt(value.substring(8, 10));
+			int hour = Integer.parseInt(value.substring(11, 13));
+			int minute = Integer.parseInt(value.substring(14, 16));
+			int second = Integer.parseInt(value.substring(17, 19));
+			
+			int i = 19;
+			long millis = 0;
+			if (i < value.length() && value.charAt(i) == '.') {
+				int digits = 0;
+				i++;
+				while (i < value.length() && Character.isDigit(value.charAt(i))) {
+					if (digits < 3) {
+						millis = millis * 10 + (value.charAt(i) - '0');
+					}
+					digits++;
+					i++;
+				}
+				for (; digits < 3; digits++) {
+					millis *= 10;
+				}
+			}
+			
+			long offsetMinutes = 0;
+			if (i < value.length() && (value.charAt(i) == '+' || value.charAt(i) == '-')) {
+				int sign = value.charAt(i) == '-' ? -1 : 1;
+				int offsetHours = Integer.parseInt(value.substring(i + 1, i + 3));
+				int offsetMins = value.length() >= i + 6 ? Integer.parseInt(value.substring(i + 4, i + 6)) : 0;
+				offsetMinutes = sign * (offsetHours * 60L + offsetMins);
+			}
+			
+			long seconds = daysFromCivil(year, month, day) * 86_400L + hour * 3600L + minute * 60L + second;
+			return (seconds - offsetMinutes * 60) * 1000 + millis;
+		} catch (NumberFormatException | IndexOutOfBoundsException e) {
+			return -1;
+		}
+	}
+	
+	/**
+	 * Días desde 1970-01-01 en el calendario gregoriano proléptico (algoritmo de H. Hinnant)
+	 */
+	private static long daysFromCivil(int year, int month, int day) {
+		year -= month <= 2 ? 1 : 0;
+		long era = (year >= 0 ? year : year - 399) / 400;
+		long yearOfEra = year - era * 400;
+		long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+		long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146_097 + dayOfEra - 719_468;
+	}
+}
@@ -0,0 +1,204 @@
+package com.deliveryapp.repartidor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Nombres de los clientes recientes de la empresa, para completar las notificaciones sin
+ * embeber clients(name) en el feed de pedidos.
+ *
+ * La tabla de clientes crece sin límite, así que no se copia entera: cada cliente se pide por
+ * id la primera vez que aparece en el feed (una sola consulta id=in.(...) por verificación) y se
+ * vuelve a pedir cuando su copia tiene más de una semana. Se conservan los más usados (LRU).
+ * Si la consulta falla se usa la copia vieja, y sin copia la notificación dice "Cliente".
+ */
+public final class ClientsDirectory {
+	private static final Logger LOG = Logger.getLogger("ClientsDirectory");
+	static final int MAX_ENTRIES = 2000;
+	static final long NAME_TTL_MS = 7 * 24 * 60 * 60 * 1000L;
+	// La URL con los ids tiene que caber cómoda en una línea de petición
+	private static final int MAX_IDS_PER_REQUEST = 100;
+	private static final int FETCH_TIMEOUT_MS = 15_000;
+	private static final int FORMAT_VERSION = 1;
+	
+	private static final class Entry {
+		// null si el cliente no existe (borrado): no se vuelve a pedir hasta que venza
+		final String name;
+		final long fetchedAt;
+		
+		Entry(String name, long fetchedAt) {
+			this.name = name;
+			this.fetchedAt = fetchedAt;
+		}
+	}
+	
+	private final File file;
+	private final NativeHttpClient http;
+	
+	private boolean loaded;
+	private String companyId;
+	// En orden de acceso: el primero es el que hace más tiempo no aparece en el feed
+	private final Map<String, Entry> clients = new LinkedHashMap<String, Entry>(64, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	};
+	
+	public ClientsDirectory(File file, NativeHttpClient http) {
+		this.file = file;
+		this.http = http;
+	}
+	
+	/**
+	 * Nombres de los clientes indicados; pide a Supabase los que no están o vencieron.
+	 * Los que no se conozcan no aparecen en el resultado.
+	 */
+	public synchronized Map<String, String> names(OrderFeedPipeline.Endpoint endpoint, Collection<String> ids, long now) {
+		load();
+		if (!endpoint.companyId.equals(companyId)) {
+			companyId = endpoint.companyId;
+			clients.clear();
+		}
+		
+		Set<String> stale = new LinkedHashSet<>();
+		for (String id : ids) {
+			Entry entry = id != null ? clients.get(id) : null;
+			if (id != null && (entry == null || now - entry.fetchedAt >= NAME_TTL_MS)) {
+				stale.add(id);
+			}
+		}
+		if (!stale.isEmpty()) {
+			try {
+				fetch(endpoint, new ArrayList<>(stale), now);
+				save();
+			} catch (IOException | JSONException e) {
+				LOG.log(Level.WARNING, "⚠️ No se pudieron leer clientes: " + e.getMessage());
+			}
+		}
+		
+		Map<String, String> names = new HashMap<>();
+		for (String id : ids) {
+			Entry entry = id != null ? clients.get(id) : null;
+			if (entry != null && entry.name != null) {
+				names.put(id, entry.name);
+			}
+		}
+		return names;
+	}
+	
+	private void fetch(OrderFeedPipeline.Endpoint endpoint, List<String> ids, long now) throws IOException, JSONException {
+		Map<String, String> headers = new HashMap<>();
+		headers.put("apikey", endpoint.supabaseKey);
+		headers.put("Authorization", "Bearer " + endpoint.supabaseKey);
+		headers.put("Accept", "application/json");
+		
+		for (int from = 0; from < ids.size(); from += MAX_IDS_PER_REQUEST) {
+			List<String> chunk = ids.subList(from, Math.min(ids.size(), from + MAX_IDS_PER_REQUEST));
+			StringBuilder list = new StringBuilder();
+			for (String id : chunk) {
+				if (list.length() > 0) {
+					list.append(',');
+				}
+				list.append(id);
+			}
+			String url = endpoint.supabaseUrl + "/rest/v1/clients?select=id,name&company_id=eq." + endpoint.companyId
+				+ "&id=in.(" + list + ")";
+			NativeHttpClient.Fetch<String> result = http.get(url, headers, FETCH_TIMEOUT_MS, false, ClientsDirectory::readString);
+			if (result.body == null) {
+				throw new IOException("Supabase respondió " + result.code + " al leer clientes");
+			}
+			
+			JSONArray rows = new JSONArray(result.body);
+			Map<String, String> found = new HashMap<>();
+			for (int i = 0; i < rows.length(); i++) {
+				JSONObject row = rows.getJSONObject(i);
+				found.put(String.valueOf(row.opt("id")), row.isNull("name") ? null : row.getString("name"));
+			}
+			for (String id : chunk) {
+				clients.put(id, new Entry(found.get(id), now));
+			}
+		}
+	}
+	
+	private void load() {
+		if (loaded) {
+			return;
+		}
+		loaded = true;
+		if (!file.exists()) {
+			return;
+		}
+		try (InputStream in = new FileInputStream(file)) {
+			JSONObject json = new JSONObject(readString(in));
+			if (json.optInt("version") != FORMAT_VERSION) {
+				return;
+			}
+			companyId = json.optString("companyId", null);
+			// [id, nombre, fetchedAt] del menos al más usado, para conservar el orden LRU
+			JSONArray stored = json.getJSONArray("clients");
+			for (int i = 0; i < stored.length(); i++) {
+				JSONArray item = stored.getJSONArray(i);
+				clients.put(item.getString(0), new Entry(item.isNull(1) ? null : item.getString(1), item.getLong(2)));
+			}
+		} catch (IOException | JSONException e) {
+			LOG.log(Level.WARNING, "⚠️ Directorio de clientes inválido, se descarta: " + e.getMessage());
+			companyId = null;
+			clients.clear();
+		}
+	}
+	
+	private void save() {
+		try {
+			JSONArray stored = new JSONArray();
+			for (Map.Entry<String, Entry> entry : clients.entrySet()) {
+				stored.put(new JSONArray()
+					.put(entry.getKey())
+					.put(entry.getValue().name != null ? entry.getValue().name : JSONObject.NULL)
+					.put(entry.getValue().fetchedAt));
+			}
+			JSONObject json = new JSONObject();
+			json.put("version", FORMAT_VERSION);
+			json.putOpt("companyId", companyId);
+			json.put("clients", stored);
+			
+			File tmp = new File(file.getPath() + ".tmp");
+			try (FileOutputStream out = new FileOutputStream(tmp)) {
+				out.write(json.toString().getBytes(StandardCharsets.UTF_8));
+			}
+			if (!tmp.renameTo(file)) {
+				throw new IOException("No se pudo renombrar " + tmp);
+			}
+		} catch (IOException | JSONException e) {
+			LOG.log(Level.WARNING, "⚠️ No se pudo guardar el directorio de clientes: " + e.getMessage());
+		}
+	}
+	
+	private static String readString(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,289 @@
+package com.deliveryapp.repartidor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Cache de dos niveles para geocodificación y rutas: LRU en memoria más un directorio en
+ * disco acotado en bytes, con vencimiento por entrada. El disco sobrevive al WebView y al
+ * proceso, así que el Worker, el servicio y el JS comparten los resultados.
+ *
+ * Cada entrada en disco es un archivo (nombre = SHA-1 de la clave) con la clave completa, la
+ * fecha de vencimiento y el valor; al superar el límite se borran las de acceso más antiguo.
+ */
+public final class GeoCache {
+	private static final Logger LOG = Logger.getLogger("GeoCache");
+	private static final int MAGIC = 0x47454F43; // "GEOC"
+	private static final String SUFFIX = ".entry";
+	// Al superar el límite en disco, recortar hasta este porcentaje para no recortar en cada put
+	private static final int TRIM_TO_PERCENT = 90;
+	
+	interface Clock {
+		long currentTimeMillis();
+	}
+	
+	private static final class Entry {
+		final String value;
+		final long expiresAt;
+		
+		Entry(String value, long expiresAt) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+	}
+	
+	private final File directory;
+	private final long maxDiskBytes;
+	private final Clock clock;
+	private final LinkedHashMap<String, Entry> memory;
+	// -1 hasta el primer acceso al disco (se calcula listando el directorio)
+	private long diskBytes = -1;
+	
+	private long memoryHits;
+	private long diskHits;
+	private long misses;
+	private long puts;
+	private long evictions;
+	
+	public GeoCache(File directory, int memoryEntries, long maxDiskBytes) {
+		this(directory, memoryEntries, maxDiskBytes, System::currentTimeMillis);
+	}
+	
+	GeoCache(File directory, final int memoryEntries, long maxDiskBytes, Clock clock) {
+		this.directory = directory;
+		this.maxDiskBytes = maxDiskBytes;
+		this.clock = clock;
+		this.memory = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				return size() > memoryEntries;
+			}
+		};
+	}
+	
+	/**
+	 * Clave de una dirección: sin tildes, en minúsculas y sin puntuación ni espacios repetidos,
+	 * para que "Av. Providencia 1234" y "av providencia  1234" compartan entrada
+	 */
+	public static String addressKey(String address) {
+		String plain = Normalizer.normalize(address, Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+		return "geo:" + plain.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}]+", " ").trim();
+	}
+	
+	/**
+	 * Clave de una ruta: coordenadas redondeadas a 4 decimales (~11 m), suficiente para que
+	 * pedidos repetidos desde el mismo local reutilicen la ruta
+	 */
+	public static String routeKey(double fromLat, double fromLon, double toLat, double toLon) {
+		return String.format(Locale.ROOT, "route:%.4f,%.4f;%.4f,%.4f", fromLat, fromLon, toLat, toLon);
+	}
+	
+	/**
+	 * Valor vigente para la clave, o null si no está o venció
+	 */
+	public synchronized String get(String key) {
+		long now = clock.currentTimeMillis();
+		Entry entry = memory.get(key);
+		if (entry != null) {
+			if (entry.expiresAt > now) {
+				memoryHits++;
+				return entry.value;
+			}
+			memory.remove(key);
+		}
+		
+		File file = fileFor(key);
+		entry = read(file, key);
+		if (entry == null || entry.expiresAt <= now) {
+			if (entry != null) {
+				deleteFile(file);
+			}
+			misses++;
+			return null;
+		}
+		// Marcar el acceso para el orden LRU del disco
+		file.setLastModified(now);
+		memory.put(key, entry);
+		diskHits++;
+		return entry.value;
+	}
+	
+	public synchronized void put(String key, String value, long ttlMillis) {
+		Entry entry = new Entry(value, clock.currentTimeMillis() + ttlMillis);
+		memory.put(key, entry);
+		puts++;
+		try {
+			write(fileFor(key), key, entry);
+		} catch (IOException e) {
+			// El nivel en memoria sigue sirviendo; el disco es una optimización
+			LOG.log(Level.WARNING, "⚠️ No se pudo guardar en cache: " + e.getMessage());
+		}
+	}
+	
+	public synchronized void clear() {
+		memory.clear();
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		diskBytes = 0;
+	}
+	
+	/**
+	 * Aciertos (memoria y disco), fallos y tamaño actual
+	 */
+	public synchronized JSONObject stats() {
+		JSONObject json = new JSONObject();
+		try {
+			long lookups = memoryHits + diskHits + misses;
+			json.put("memoryHits", memoryHits);
+			json.put("diskHits", diskHits);
+			json.put("misses", misses);
+			json.put("hitRate", lookups > 0 ? (double) (memoryHits + diskHits) / lookups : 0);
+			json.put("puts", puts);
+			json.put("evictions", evictions);
+			json.put("memoryEntries", memory.size());
+			json.put("diskBytes", diskBytes());
+		} catch (JSONException e) {
+			// Claves fijas y valores numéricos: no ocurre
+		}
+		return json;
+	}
+	
+	private Entry read(File file, String key) {
+		if (!file.exists()) {
+			return null;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != MAGIC) {
+				deleteFile(file);
+				return null;
+			}
+			long expiresAt = in.readLong();
+			if (!key.equals(in.readUTF())) {
+				// Colisión de SHA-1 (o archivo ajeno): tratarlo como fallo
+				return null;
+			}
+			byte[] value = new byte[in.readInt()];
+			in.readFully(value);
+			return new Entry(new String(value, StandardCharsets.UTF_8), expiresAt);
+		} catch (IOException e) {
+			// Archivo truncado: se descarta
+			deleteFile(file);
+			return null;
+		}
+	}
+	
+	private void write(File file, String key, Entry entry) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("No se pudo crear " + directory);
+		}
+		long before = diskBytes();
+		long previous = file.exists() ? file.length() : 0;
+		
+		byte[] value = entry.value.getBytes(StandardCharsets.UTF_8);
+		File tmp = new File(directory, file.getName() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+			out.writeInt(MAGIC);
+			out.writeLong(entry.expiresAt);
+			out.writeUTF(key);
+			out.writeInt(value.length);
+			out.write(value);
+		}
+		if (!tmp.renameTo(file)) {
+			tmp.delete();
+			throw new IOException("No se pudo renombrar " + tmp);
+		}
+		diskBytes = before - previous + file.length();
+		if (diskBytes > maxDiskBytes) {
+			trim();
+		}
+	}
+	
+	/**
+	 * Borra las entradas de acceso más antiguo hasta quedar bajo el límite
+	 */
+	private void trim() {
+		File[] files = directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+		if (files == null) {
+			return;
+		}
+		long[] modified = new long[files.length];
+		Integer[] order = new Integer[files.length];
+		for (int i = 0; i < files.length; i++) {
+			modified[i] = files[i].lastModified();
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Long.compare(modified[a], modified[b]);
+			}
+		});
+		
+		long target = maxDiskBytes * TRIM_TO_PERCENT / 100;
+		for (int i = 0; i < order.length && diskBytes > target; i++) {
+			File file = files[order[i]];
+			long length = file.length();
+			if (file.delete()) {
+				diskBytes -= length;
+				evictions++;
+			}
+		}
+	}
+	
+	private long diskBytes() {
+		if (diskBytes < 0) {
+			long total = 0;
+			File[] files = directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+			if (files != null) {
+				for (File file : files) {
+					total += file.length();
+				}
+			}
+			diskBytes = total;
+		}
+		return diskBytes;
+	}
+	
+	private void deleteFile(File file) {
+		long length = file.length();
+		if (file.delete() && diskBytes >= 0) {
+			diskBytes -= length;
+		}
+	}
+	
+	private File fileFor(String key) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes(StandardCharsets.UTF_8));
+			StringBuilder name = new StringBuilder(digest.length * 2 + SUFFIX.length());
+			for (byte b : digest) {
+				name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			}
+			return new File(directory, name.append(SUFFIX).toString());
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
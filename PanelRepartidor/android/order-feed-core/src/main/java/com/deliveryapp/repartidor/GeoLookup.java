@@ -0,0 +1,165 @@
+package com.deliveryapp.repartidor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Geocodificación (Nominatim) y rutas (OSRM) con GeoCache delante: las direcciones y rutas
+ * repetidas se sirven localmente. La usan el plugin GeoCache del WebView y el código nativo.
+ */
+public final class GeoLookup {
+	static final String NOMINATIM_URL = "https://nominatim.openstreetmap.org/search";
+	static final String OSRM_URL = "https://router.project-osrm.org/route/v1/driving/";
+	
+	// Las direcciones no cambian de lugar; las rutas sí (obras, sentidos de tránsito)
+	static final long GEOCODE_TTL_MS = 30L * 24 * 60 * 60 * 1000;
+	static final long ROUTE_TTL_MS = 7L * 24 * 60 * 60 * 1000;
+	// Una dirección sin resultados se vuelve a intentar al día siguiente
+	static final long NOT_FOUND_TTL_MS = 24L * 60 * 60 * 1000;
+	// Política de uso de Nominatim: como máximo una petición por segundo
+	private static final long NOMINATIM_INTERVAL_MS = 1000;
+	private static final int TIMEOUT_MS = 15_000;
+	private static final String NOT_FOUND = "null";
+	
+	private final NativeHttpClient http;
+	private final GeoCache geocodes;
+	private final GeoCache routes;
+	private final String nominatimUrl;
+	private final String osrmUrl;
+	private final Object nominatimLock = new Object();
+	private long lastNominatimAt;
+	
+	public GeoLookup(NativeHttpClient http, GeoCache geocodes, GeoCache routes) {
+		this(http, geocodes, routes, NOMINATIM_URL, OSRM_URL);
+	}
+	
+	GeoLookup(NativeHttpClient http, GeoCache geocodes, GeoCache routes, String nominatimUrl, String osrmUrl) {
+		this.http = http;
+		this.geocodes = geocodes;
+		this.routes = routes;
+		this.nominatimUrl = nominatimUrl;
+		this.osrmUrl = osrmUrl;
+	}
+	
+	public GeoCache getGeocodeCache() {
+		return geocodes;
+	}
+	
+	public GeoCache getRouteCache() {
+		return routes;
+	}
+	
+	/**
+	 * Coordenadas de la dirección solo si ya están en cache (sin red): { lat, lon }, o null si
+	 * no están o Nominatim no la encontró
+	 */
+	public JSONObject cachedGeocode(String address) throws JSONException {
+		String cached = geocodes.get(GeoCache.addressKey(address));
+		return cached == null || NOT_FOUND.equals(cached) ? null : new JSONObject(cached);
+	}
+	
+	/**
+	 * Coordenadas de la dirección: { lat, lon }, o null si Nominatim no la encuentra
+	 * @throws IOException si falla la red (no se guarda en cache)
+	 */
+	public JSONObject geocode(String address) throws IOException, JSONException {
+		String key = GeoCache.addressKey(address);
+		String cached = geocodes.get(key);
+		if (cached != null) {
+			return NOT_FOUND.equals(cached) ? null : new JSONObject(cached);
+		}
+		
+		String url = nominatimUrl + "?format=json&limit=1&q=" + URLEncoder.encode(address.trim(), "UTF-8");
+		Map<String, String> headers = new HashMap<>();
+		headers.put("User-Agent", "DeliveryApp/1.0");
+		headers.put("Accept-Language", "es,en");
+		NativeHttpClient.Fetch<String> fetch;
+		synchronized (nominatimLock) {
+			long wait = lastNominatimAt + NOMINATIM_INTERVAL_MS - System.currentTimeMillis();
+			if (wait > 0) {
+				try {
+					Thread.sleep(wait);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("Interrumpido esperando a Nominatim");
+				}
+			}
+			try {
+				fetch = http.get(url, headers, TIMEOUT_MS, false, GeoLookup::readString);
+			} finally {
+				lastNominatimAt = System.currentTimeMillis();
+			}
+		}
+		if (!fetch.isSuccessful() || fetch.body == null) {
+			throw new IOException("Nominatim respondió " + fetch.code);
+		}
+		
+		JSONArray results = new JSONArray(fetch.body);
+		if (results.length() == 0) {
+			geocodes.put(key, NOT_FOUND, NOT_FOUND_TTL_MS);
+			return null;
+		}
+		JSONObject first = results.getJSONObject(0);
+		JSONObject coords = new JSONObject();
+		coords.put("lat", Double.parseDouble(first.getString("lat")));
+		coords.put("lon", Double.parseDouble(first.getString("lon")));
+		geocodes.put(key, coords.toString(), GEOCODE_TTL_MS);
+		return coords;
+	}
+	
+	/**
+	 * Ruta en auto: { distance (km), duration (min), geometry (GeoJSON) }, o null si OSRM no
+	 * encuentra una
+	 * @throws IOException si falla la red (no se guarda en cache)
+	 */
+	public JSONObject route(double fromLat, double fromLon, double toLat, double toLon) throws IOException, JSONException {
+		String key = GeoCache.routeKey(fromLat, fromLon, toLat, toLon);
+		String cached = routes.get(key);
+		if (cached != null) {
+			return NOT_FOUND.equals(cached) ? null : new JSONObject(cached);
+		}
+		
+		String url = osrmUrl + String.format(Locale.ROOT, "%.6f,%.6f;%.6f,%.6f", fromLon, fromLat, toLon, toLat)
+			+ "?overview=full&geometries=geojson";
+		Map<String, String> headers = new HashMap<>();
+		headers.put("User-Agent", "DeliveryApp/1.0");
+		NativeHttpClient.Fetch<String> fetch = http.get(url, headers, TIMEOUT_MS, false, GeoLookup::readString);
+		if (fetch.body == null) {
+			throw new IOException("OSRM respondió " + fetch.code);
+		}
+		
+		JSONObject data = new JSONObject(fetch.body);
+		JSONArray found = data.optJSONArray("routes");
+		if (!"Ok".equals(data.optString("code")) || found == null || found.length() == 0) {
+			// NoRoute / NoSegment: puntos sin camino entre ellos, no va a cambiar pronto
+			routes.put(key, NOT_FOUND, NOT_FOUND_TTL_MS);
+			return null;
+		}
+		JSONObject first = found.getJSONObject(0);
+		JSONObject route = new JSONObject();
+		route.put("distance", first.getDouble("distance") / 1000); // Kilómetros
+		route.put("duration", first.getDouble("duration") / 60); // Minutos
+		route.put("geometry", first.getJSONObject("geometry"));
+		routes.put(key, route.toString(), ROUTE_TTL_MS);
+		return route;
+	}
+	
+	private static String readString(InputStream body) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int read;
+		while ((read = body.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,93 @@
+package com.deliveryapp.repartidor;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma de tamaño fijo y sin locks para valores no negativos (milisegundos, bytes).
+ *
+ * Usa cubetas de potencias de 2: la cubeta i cuenta los valores en [2^(i-1), 2^i), así que
+ * los percentiles son aproximados (error máximo de un factor 2) pero el registro es un solo
+ * incremento atómico y la memoria no crece con la cantidad de muestras.
+ */
+public final class Histogram {
+	// Cubeta 0: valor 0; la última acumula todo lo que exceda 2^38
+	static final int BUCKETS = 40;
+	
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+	
+	public void record(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+		buckets.incrementAndGet(bucketOf(value));
+		count.incrementAndGet();
+		sum.addAndGet(value);
+		long current;
+		while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+			// Otro hilo actualizó el máximo: reintentar con el valor nuevo
+		}
+	}
+	
+	public long getCount() {
+		return count.get();
+	}
+	
+	public long getSum() {
+		return sum.get();
+	}
+	
+	public long getMax() {
+		return max.get();
+	}
+	
+	public double getMean() {
+		long n = count.get();
+		return n == 0 ? 0 : (double) sum.get() / n;
+	}
+	
+	/**
+	 * Cota superior aproximada del percentil p (0..1): el límite de la cubeta que lo contiene,
+	 * acotado por el máximo observado
+	 */
+	public long percentile(double p) {
+		long total = 0;
+		long[] snapshot = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = buckets.get(i);
+			total += snapshot[i];
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long rank = (long) Math.ceil(p * total);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= rank && snapshot[i] > 0) {
+				return Math.min(upperBound(i), max.get());
+			}
+		}
+		return max.get();
+	}
+	
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			buckets.set(i, 0);
+		}
+		count.set(0);
+		sum.set(0);
+		max.set(0);
+	}
+	
+	static int bucketOf(long value) {
+		return Math.min(64 - Long.numberOfLeadingZeros(value), BUCKETS - 1);
+	}
+	
+	private static long upperBound(int bucket) {
+		return bucket == 0 ? 0 : (1L << bucket) - 1;
+	}
+}
@@ -0,0 +1,112 @@
+package com.deliveryapp.repartidor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Métricas de las peticiones HTTP nativas: bytes transferidos y tiempo hasta el primer byte (TTFB).
+ * Guarda totales acumulados y las últimas muestras en un buffer circular de tamaño fijo.
+ */
+public final class HttpMetrics {
+	private static final int MAX_SAMPLES = 50;
+	
+	/**
+	 * Una petición terminada
+	 */
+	public static final class Sample {
+		public final String path;
+		public final int code;
+		public final long ttfbMs;
+		public final long totalMs;
+		public final long bytesSent;
+		public final long bytesReceived;
+		public final boolean reusedConnection;
+		
+		Sample(String path, int code, long ttfbMs, long totalMs, long bytesSent, long bytesReceived, boolean reusedConnection) {
+			this.path = path;
+			this.code = code;
+			this.ttfbMs = ttfbMs;
+			this.totalMs = totalMs;
+			this.bytesSent = bytesSent;
+			this.bytesReceived = bytesReceived;
+			this.reusedConnection = reusedConnection;
+		}
+		
+		@Override
+		public String toString() {
+			return path + " " + code + " ttfb=" + ttfbMs + "ms total=" + totalMs + "ms rx=" + bytesReceived
+				+ "B tx=" + bytesSent + "B" + (reusedConnection ? " (keep-alive)" : "");
+		}
+	}
+	
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong failures = new AtomicLong();
+	private final AtomicLong notModified = new AtomicLong();
+	private final AtomicLong bytesSent = new AtomicLong();
+	private final AtomicLong bytesReceived = new AtomicLong();
+	private final AtomicLong reusedConnections = new AtomicLong();
+	
+	private final Sample[] samples = new Sample[MAX_SAMPLES];
+	private int nextSample;
+	
+	void record(Sample sample) {
+		requests.incrementAndGet();
+		bytesSent.addAndGet(sample.bytesSent);
+		bytesReceived.addAndGet(sample.bytesReceived);
+		if (sample.reusedConnection) {
+			reusedConnections.incrementAndGet();
+		}
+		if (sample.code == 304) {
+			notModified.incrementAndGet();
+		}
+		synchronized (samples) {
+			samples[nextSample] = sample;
+			nextSample = (nextSample + 1) % MAX_SAMPLES;
+		}
+	}
+	
+	void recordFailure() {
+		failures.incrementAndGet();
+	}
+	
+	/**
+	 * Últimas muestras, de la más antigua a la más reciente
+	 */
+	public List<Sample> getRecentSamples() {
+		List<Sample> result = new ArrayList<>(MAX_SAMPLES);
+		synchronized (samples) {
+			for (int i = 0; i < MAX_SAMPLES; i++) {
+				Sample sample = samples[(nextSample + i) % MAX_SAMPLES];
+				if (sample != null) {
+					result.add(sample);
+				}
+			}
+		}
+		return result;
+	}
+	
+	public long getRequests() {
+		return requests.get();
+	}
+	
+	public long getFailures() {
+		return failures.get();
+	}
+	
+	public long getNotModified() {
+		return notModified.get();
+	}
+	
+	public long getBytesSent() {
+		return bytesSent.get();
+	}
+	
+	public long getBytesReceived() {
+		return bytesReceived.get();
+	}
+	
+	public long getReusedConnections() {
+		return reusedConnections.get();
+	}
+}
@@ -0,0 +1,360 @@
+package com.deliveryapp.repartidor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Copia local de los locales de la empresa (nombre, dirección y coordenadas), y el LocalsIndex
+ * construido a partir de ella. Los nombres completan las notificaciones del feed, que ya no
+ * embebe locals(name).
+ *
+ * La tabla locals solo tiene la dirección: las coordenadas se obtienen con GeoLookup (cache
+ * compartida con la app). La sincronización es incremental por updated_at, con una pasada
+ * completa diaria para descartar locales borrados, y la geocodificación de direcciones nuevas
+ * se reparte entre verificaciones con un presupuesto de tiempo (Nominatim admite 1 petición
+ * por segundo).
+ */
+public final class LocalsCatalog {
+	private static final Logger LOG = Logger.getLogger("LocalsCatalog");
+	private static final long SYNC_INTERVAL_MS = 15 * 60 * 1000L;
+	private static final long FULL_SYNC_INTERVAL_MS = 24 * 60 * 60 * 1000L;
+	// Un pedido de un local desconocido adelanta la sincronización, como mucho una vez por minuto
+	private static final long MISS_SYNC_INTERVAL_MS = 60 * 1000L;
+	// Versión 2: agrega el nombre; los archivos anteriores se descartan y se vuelve a sincronizar
+	private static final int FORMAT_VERSION = 2;
+	private static final long GEOCODE_BUDGET_MS = 5_000;
+	private static final int PAGE_SIZE = 500;
+	private static final int MAX_PAGES = 20;
+	private static final int FETCH_TIMEOUT_MS = 15_000;
+	
+	private static final class Local {
+		final String name;
+		final String address;
+		// NaN hasta geocodificar (o si la dirección no se encontró)
+		double lat = Double.NaN;
+		double lon = Double.NaN;
+		boolean geocoded;
+		
+		Local(String name, String address) {
+			this.name = name;
+			this.address = address;
+		}
+	}
+	
+	private final File file;
+	private final NativeHttpClient http;
+	private final GeoLookup geo;
+	
+	private boolean loaded;
+	private String companyId;
+	private String cursor;
+	private long lastSyncAt;
+	private long lastFullSyncAt;
+	private long lastMissSyncAt;
+	private final Map<String, Local> locals = new LinkedHashMap<>();
+	private LocalsIndex index;
+	
+	public LocalsCatalog(File file, NativeHttpClient http, GeoLookup geo) {
+		this.file = file;
+		this.http = http;
+		this.geo = geo;
+	}
+	
+	/**
+	 * Sincroniza si corresponde y retorna el índice de los locales con coordenadas.
+	 * Los errores de red no se propagan: se usa el índice que ya había.
+	 */
+	public synchronized LocalsIndex refresh(OrderFeedPipeline.Endpoint endpoint, long now) {
+		load();
+		selectCompany(endpoint.companyId);
+		
+		boolean changed = false;
+		if (now - lastSyncAt >= SYNC_INTERVAL_MS) {
+			boolean full = now - lastFullSyncAt >= FULL_SYNC_INTERVAL_MS;
+			try {
+				changed = fetch(endpoint, full);
+				lastSyncAt = now;
+				if (full) {
+					lastFullSyncAt = now;
+				}
+			} catch (IOException | JSONException e) {
+				LOG.log(Level.WARNING, "⚠️ No se pudieron sincronizar los locales: " + e.getMessage());
+			}
+		}
+		changed |= geocodePending();
+		
+		if (changed || index == null) {
+			index = buildIndex();
+		}
+		if (changed || lastSyncAt == now) {
+			save();
+		}
+		return index;
+	}
+	
+	/**
+	 * Nombres de los locales indicados. Si alguno no está en la copia local (local nuevo), sincroniza
+	 * primero los cambios; los que sigan sin conocerse no aparecen en el resultado.
+	 */
+	public synchronized Map<String, String> names(OrderFeedPipeline.Endpoint endpoint, Collection<String> ids, long now) {
+		load();
+		selectCompany(endpoint.companyId);
+		
+		boolean missing = false;
+		for (String id : ids) {
+			missing |= id != null && !locals.containsKey(id);
+		}
+		if (missing && now - lastMissSyncAt >= MISS_SYNC_INTERVAL_MS) {
+			lastMissSyncAt = now;
+			try {
+				if (fetch(endpoint, false)) {
+					index = null;
+					save();
+				}
+			} catch (IOException | JSONException e) {
+				LOG.log(Level.WARNING, "⚠️ No se pudieron sincronizar los locales: " + e.getMessage());
+			}
+		}
+		
+		Map<String, String> names = new HashMap<>();
+		for (String id : ids) {
+			Local local = id != null ? locals.get(id) : null;
+			if (local != null && local.name != null) {
+				names.put(id, local.name);
+			}
+		}
+		return names;
+	}
+	
+	private void selectCompany(String id) {
+		if (!id.equals(companyId)) {
+			// Otra empresa (o primera vez): empezar de cero
+			companyId = id;
+			cursor = null;
+			lastSyncAt = 0;
+			lastFullSyncAt = 0;
+			lastMissSyncAt = 0;
+			locals.clear();
+			index = null;
+		}
+	}
+	
+	/**
+	 * @return true si cambió algún local
+	 */
+	private boolean fetch(OrderFeedPipeline.Endpoint endpoint, boolean full) throws IOException, JSONException {
+		String url = endpoint.supabaseUrl + "/rest/v1/locals?company_id=eq." + endpoint.companyId
+			+ "&select=id,name,address,updated_at&order=updated_at.asc,id.asc&limit=" + PAGE_SIZE;
+		if (!full && cursor != null) {
+			// gte: los empates en updated_at se vuelven a leer (aplicarlos es idempotente)
+			url += "&updated_at=gte." + URLEncoder.encode(cursor, "UTF-8");
+		}
+		Map<String, String> headers = new HashMap<>();
+		headers.put("apikey", endpoint.supabaseKey);
+		headers.put("Authorization", "Bearer " + endpoint.supabaseKey);
+		headers.put("Accept", "application/json");
+		
+		Map<String, String> seen = full ? new HashMap<String, String>() : null;
+		boolean changed = false;
+		for (int page = 0; page < MAX_PAGES; page++) {
+			NativeHttpClient.Fetch<String> result = http.get(url + "&offset=" + page * PAGE_SIZE, headers,
+				FETCH_TIMEOUT_MS, false, LocalsCatalog::readString);
+			if (result.body == null) {
+				throw new IOException("Supabase respondió " + result.code + " al leer locales");
+			}
+			JSONArray rows = new JSONArray(result.body);
+			for (int i = 0; i < rows.length(); i++) {
+				JSONObject row = rows.getJSONObject(i);
+				String id = String.valueOf(row.opt("id"));
+				String name = row.isNull("name") ? null : row.getString("name");
+				String address = row.isNull("address") ? null : row.getString("address");
+				changed |= apply(id, name, address);
+				if (seen != null) {
+					seen.put(id, address);
+				}
+				if (!row.isNull("updated_at")) {
+					cursor = row.getString("updated_at");
+				}
+			}
+			if (rows.length() < PAGE_SIZE) {
+				break;
+			}
+		}
+		
+		if (seen != null) {
+			// Pasada completa: lo que no vino fue borrado
+			Iterator<String> ids = locals.keySet().iterator();
+			while (ids.hasNext()) {
+				if (!seen.containsKey(ids.next())) {
+					ids.remove();
+					changed = true;
+				}
+			}
+		}
+		return changed;
+	}
+	
+	private boolean apply(String id, String name, String address) {
+		Local current = locals.get(id);
+		if (current != null && equalsNullable(current.address, address)) {
+			if (equalsNullable(current.name, name)) {
+				return false;
+			}
+			// Solo cambió el nombre: se conservan las coordenadas
+			Local renamed = new Local(name, address);
+			renamed.geocoded = current.geocoded;
+			renamed.lat = current.lat;
+			renamed.lon = current.lon;
+			locals.put(id, renamed);
+			return true;
+		}
+		locals.put(id, new Local(name, address));
+		return true;
+	}
+	
+	/**
+	 * Geocodifica direcciones pendientes hasta agotar el presupuesto de tiempo
+	 * @return true si se obtuvieron coordenadas nuevas
+	 */
+	private boolean geocodePending() {
+		long deadline = System.currentTimeMillis() + GEOCODE_BUDGET_MS;
+		boolean changed = false;
+		for (Local local : locals.values()) {
+			if (local.geocoded) {
+				continue;
+			}
+			if (local.address == null || local.address.trim().isEmpty()) {
+				local.geocoded = true;
+				continue;
+			}
+			if (System.currentTimeMillis() >= deadline) {
+				break;
+			}
+			try {
+				JSONObject coords = geo.geocode(local.address);
+				local.geocoded = true;
+				if (coords != null) {
+					local.lat = coords.getDouble("lat");
+					local.lon = coords.getDouble("lon");
+					changed = true;
+				}
+			} catch (IOException | JSONException e) {
+				// Sin red: se reintenta en la próxima verificación
+				break;
+			}
+		}
+		return changed;
+	}
+	
+	private LocalsIndex buildIndex() {
+		Map<String, double[]> coordinates = new HashMap<>();
+		for (Map.Entry<String, Local> entry : locals.entrySet()) {
+			Local local = entry.getValue();
+			if (!Double.isNaN(local.lat)) {
+				coordinates.put(entry.getKey(), new double[] { local.lat, local.lon });
+			}
+		}
+		return LocalsIndex.build(coordinates);
+	}
+	
+	private void load() {
+		if (loaded) {
+			return;
+		}
+		loaded = true;
+		if (!file.exists()) {
+			return;
+		}
+		try (InputStream in = new FileInputStream(file)) {
+			JSONObject json = new JSONObject(readString(in));
+			if (json.optInt("version", 1) < FORMAT_VERSION) {
+				return;
+			}
+			companyId = json.optString("companyId", null);
+			cursor = json.optString("cursor", null);
+			lastSyncAt = json.optLong("lastSyncAt");
+			lastFullSyncAt = json.optLong("lastFullSyncAt");
+			JSONObject stored = json.getJSONObject("locals");
+			Iterator<String> ids = stored.keys();
+			while (ids.hasNext()) {
+				String id = ids.next();
+				JSONObject item = stored.getJSONObject(id);
+				Local local = new Local(item.optString("name", null), item.optString("address", null));
+				local.geocoded = item.optBoolean("geocoded");
+				local.lat = item.optDouble("lat", Double.NaN);
+				local.lon = item.optDouble("lon", Double.NaN);
+				locals.put(id, local);
+			}
+		} catch (IOException | JSONException e) {
+			// Archivo dañado: se vuelve a sincronizar desde cero
+			LOG.log(Level.WARNING, "⚠️ Catálogo de locales inválido, se descarta: " + e.getMessage());
+			companyId = null;
+			locals.clear();
+		}
+	}
+	
+	private void save() {
+		try {
+			JSONObject stored = new JSONObject();
+			for (Map.Entry<String, Local> entry : locals.entrySet()) {
+				Local local = entry.getValue();
+				JSONObject item = new JSONObject();
+				item.putOpt("name", local.name);
+				item.putOpt("address", local.address);
+				item.put("geocoded", local.geocoded);
+				if (!Double.isNaN(local.lat)) {
+					item.put("lat", local.lat);
+					item.put("lon", local.lon);
+				}
+				stored.put(entry.getKey(), item);
+			}
+			JSONObject json = new JSONObject();
+			json.put("version", FORMAT_VERSION);
+			json.putOpt("companyId", companyId);
+			json.putOpt("cursor", cursor);
+			json.put("lastSyncAt", lastSyncAt);
+			json.put("lastFullSyncAt", lastFullSyncAt);
+			json.put("locals", stored);
+			
+			File tmp = new File(file.getPath() + ".tmp");
+			try (FileOutputStream out = new FileOutputStream(tmp)) {
+				out.write(json.toString().getBytes(StandardCharsets.UTF_8));
+			}
+			if (!tmp.renameTo(file)) {
+				throw new IOException("No se pudo renombrar " + tmp);
+			}
+		} catch (IOException | JSONException e) {
+			LOG.log(Level.WARNING, "⚠️ No se pudo guardar el catálogo de locales: " + e.getMessage());
+		}
+	}
+	
+	private static String readString(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+	
+	private static boolean equalsNullable(String a, String b) {
+		return a == null ? b == null : a.equals(b);
+	}
+}
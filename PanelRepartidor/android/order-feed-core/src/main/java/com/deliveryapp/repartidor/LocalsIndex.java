@@ -0,0 +1,213 @@
+package com.deliveryapp.repartidor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Índice espacial (KD-tree de 2 dimensiones) de los locales de la empresa, para filtrar y
+ * ordenar los pedidos pendientes por distancia al driver sin recorrer todos los locales.
+ *
+ * Las coordenadas se proyectan a kilómetros con una proyección equirectangular centrada en
+ * los locales (error despreciable a escala de ciudad); las distancias que se informan son
+ * de Haversine. Es inmutable: cuando cambian los locales se construye uno nuevo.
+ */
+public final class LocalsIndex {
+	private static final double EARTH_RADIUS_KM = 6371;
+	private static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180;
+	
+	/**
+	 * Pedido con la distancia del driver a su local (NaN si el local no tiene coordenadas)
+	 */
+	public static final class Ranked {
+		public final OrderSummary order;
+		public final double distanceKm;
+		
+		Ranked(OrderSummary order, double distanceKm) {
+			this.order = order;
+			this.distanceKm = distanceKm;
+		}
+	}
+	
+	private final String[] ids;
+	private final double[] lats;
+	private final double[] lons;
+	// Coordenadas proyectadas (km), ordenadas como KD-tree implícito: la mediana de cada rango es el nodo
+	private final double[] xs;
+	private final double[] ys;
+	private final double cosReference;
+	// Menor cos(lat) entre los locales: cota de cuánto subestima la proyección las distancias este-oeste
+	private final double minCos;
+	private final Map<String, Integer> positions;
+	
+	private LocalsIndex(String[] ids, double[] lats, double[] lons, double cosReference, double minCos) {
+		this.ids = ids;
+		this.lats = lats;
+		this.lons = lons;
+		this.cosReference = cosReference;
+		this.minCos = minCos;
+		this.xs = new double[ids.length];
+		this.ys = new double[ids.length];
+		this.positions = new HashMap<>(ids.length * 2);
+	}
+	
+	/**
+	 * Construye el índice (O(n log² n)) a partir de id de local → { lat, lon }
+	 */
+	public static LocalsIndex build(Map<String, double[]> coordinates) {
+		int n = coordinates.size();
+		final String[] ids = new String[n];
+		final double[][] points = new double[n][];
+		double latSum = 0;
+		int i = 0;
+		for (Map.Entry<String, double[]> entry : coordinates.entrySet()) {
+			ids[i] = entry.getKey();
+			points[i] = entry.getValue();
+			latSum += points[i][0];
+			i++;
+		}
+		double cosReference = Math.cos(Math.toRadians(n > 0 ? latSum / n : 0));
+		
+		Integer[] order = new Integer[n];
+		for (i = 0; i < n; i++) {
+			order[i] = i;
+		}
+		final double[] x = new double[n];
+		final double[] y = new double[n];
+		for (i = 0; i < n; i++) {
+			y[i] = points[i][0] * KM_PER_DEGREE;
+			x[i] = points[i][1] * KM_PER_DEGREE * cosReference;
+		}
+		arrange(order, 0, n, 0, x, y);
+		
+		String[] sortedIds = new String[n];
+		double[] lats = new double[n];
+		double[] lons = new double[n];
+		double minCos = 1;
+		for (i = 0; i < n; i++) {
+			sortedIds[i] = ids[order[i]];
+			lats[i] = points[order[i]][0];
+			lons[i] = points[order[i]][1];
+			minCos = Math.min(minCos, Math.cos(Math.toRadians(lats[i])));
+		}
+		LocalsIndex index = new LocalsIndex(sortedIds, lats, lons, cosReference, minCos);
+		for (i = 0; i < n; i++) {
+			index.xs[i] = x[order[i]];
+			index.ys[i] = y[order[i]];
+			index.positions.put(sortedIds[i], i);
+		}
+		return index;
+	}
+	
+	/**
+	 * Ordena [from, to) para que la mediana según el eje quede en el medio y recursivamente
+	 * cada mitad según el otro eje
+	 */
+	private static void arrange(Integer[] order, int from, int to, int depth, final double[] x, final double[] y) {
+		if (to - from <= 1) {
+			return;
+		}
+		final double[] axis = depth % 2 == 0 ? x : y;
+		Arrays.sort(order, from, to, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Double.compare(axis[a], axis[b]);
+			}
+		});
+		int mid = (from + to) >>> 1;
+		arrange(order, from, mid, depth + 1, x, y);
+		arrange(order, mid + 1, to, depth + 1, x, y);
+	}
+	
+	public int size() {
+		return ids.length;
+	}
+	
+	public boolean contains(String localId) {
+		return positions.containsKey(localId);
+	}
+	
+	/**
+	 * Ids de los locales a menos de radiusKm del punto: O(log n + k)
+	 */
+	public Set<String> within(double lat, double lon, double radiusKm) {
+		Set<String> result = new HashSet<>();
+		double qx = lon * KM_PER_DEGREE * cosReference;
+		double qy = lat * KM_PER_DEGREE;
+		// Margen de la proyección: filtrar con un radio algo mayor y confirmar con Haversine
+		double stretch = Math.max(1, cosReference / Math.max(1e-6, Math.min(minCos, Math.cos(Math.toRadians(lat)))));
+		double searchRadius = radiusKm * 1.02 * stretch + 0.05;
+		search(0, ids.length, 0, qx, qy, searchRadius * searchRadius, lat, lon, radiusKm, result);
+		return result;
+	}
+	
+	private void search(int from, int to, int depth, double qx, double qy, double radiusSquared,
+			double lat, double lon, double radiusKm, Set<String> result) {
+		if (from >= to) {
+			return;
+		}
+		int mid = (from + to) >>> 1;
+		double dx = xs[mid] - qx;
+		double dy = ys[mid] - qy;
+		if (dx * dx + dy * dy <= radiusSquared && haversineKm(lat, lon, lats[mid], lons[mid]) <= radiusKm) {
+			result.add(ids[mid]);
+		}
+		double split = depth % 2 == 0 ? dx : dy;
+		// split > 0: el nodo está a la derecha del punto; la mitad izquierda siempre puede tener candidatos
+		if (split >= 0 || split * split <= radiusSquared) {
+			search(from, mid, depth + 1, qx, qy, radiusSquared, lat, lon, radiusKm, result);
+		}
+		if (split <= 0 || split * split <= radiusSquared) {
+			search(mid + 1, to, depth + 1, qx, qy, radiusSquared, lat, lon, radiusKm, result);
+		}
+	}
+	
+	/**
+	 * Distancia del punto al local, o NaN si el local no está en el índice
+	 */
+	public double distanceKm(String localId, double lat, double lon) {
+		Integer position = localId != null ? positions.get(localId) : null;
+		return position != null ? haversineKm(lat, lon, lats[position], lons[position]) : Double.NaN;
+	}
+	
+	/**
+	 * Filtra los pedidos a los de locales dentro del radio y los ordena del más cercano al más
+	 * lejano. Los pedidos cuyo local no tiene coordenadas se conservan al final, en su orden
+	 * (igual que la lista de la app: sin coordenadas no se puede descartar).
+	 */
+	public List<Ranked> rank(List<OrderSummary> orders, double lat, double lon, double radiusKm) {
+		Set<String> nearby = within(lat, lon, radiusKm);
+		List<Ranked> ranked = new ArrayList<>(orders.size());
+		List<Ranked> unknown = new ArrayList<>();
+		for (OrderSummary order : orders) {
+			String localId = order.getLocalId();
+			if (localId == null || !positions.containsKey(localId)) {
+				unknown.add(new Ranked(order, Double.NaN));
+			} else if (nearby.contains(localId)) {
+				ranked.add(new Ranked(order, distanceKm(localId, lat, lon)));
+			}
+		}
+		Collections.sort(ranked, new Comparator<Ranked>() {
+			@Override
+			public int compare(Ranked a, Ranked b) {
+				return Double.compare(a.distanceKm, b.distanceKm);
+			}
+		});
+		ranked.addAll(unknown);
+		return ranked;
+	}
+	
+	static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+		double dLat = Math.toRadians(lat2 - lat1);
+		double dLon = Math.toRadians(lon2 - lon1);
+		double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+			+ Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+		return EARTH_RADIUS_KM * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+	}
+}
@@ -0,0 +1,293 @@
+package com.deliveryapp.repartidor;
+
+import okhttp3.Call;
+import okhttp3.ConnectionPool;
+import okhttp3.EventListener;
+import okhttp3.OkHttpClient;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Cliente HTTP nativo compartido por todo el proceso (Worker, servicio Realtime y plugins).
+ *
+ * - Un solo pool de conexiones keep-alive, así las verificaciones seguidas no repiten el handshake TLS.
+ * - Respuestas gzip decodificadas de forma transparente (OkHttp envía Accept-Encoding: gzip).
+ * - GET condicionales: reenvía el ETag recibido en If-None-Match y, si el servidor no usa ETag,
+ *   puede comparar un hash del contenido para detectar resultados sin cambios.
+ * - Timeouts por petición sobre el mismo pool.
+ * - Métricas de bytes transferidos y tiempo hasta el primer byte por petición (ver HttpMetrics).
+ */
+public final class NativeHttpClient {
+	// java.util.logging: el módulo no depende de Android (en el dispositivo llega igual a logcat)
+	private static final Logger LOG = Logger.getLogger("NativeHttpClient");
+	
+	private static final int MAX_IDLE_CONNECTIONS = 4;
+	private static final long KEEP_ALIVE_MINUTES = 5;
+	private static final int MAX_VALIDATORS = 64;
+	private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+	
+	private static NativeHttpClient instance;
+	
+	private final OkHttpClient client;
+	private final HttpMetrics metrics = new HttpMetrics();
+	
+	// Validadores (ETag o hash del contenido) por URL, con desalojo LRU
+	private final Map<String, Validator> validators = new LinkedHashMap<String, Validator>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Validator> eldest) {
+			return size() > MAX_VALIDATORS;
+		}
+	};
+	
+	/**
+	 * Lee el cuerpo de una respuesta exitosa
+	 */
+	public interface BodyReader<T> {
+		T read(InputStream body) throws IOException;
+	}
+	
+	/**
+	 * Resultado de un GET condicional
+	 */
+	public static final class Fetch<T> {
+		public final int code;
+		// true si el servidor respondió 304 o el contenido es idéntico al de la última vez
+		public final boolean unchanged;
+		// Valor leído por el BodyReader (null si hubo error o no hubo cambios)
+		public final T body;
+		
+		Fetch(int code, boolean unchanged, T body) {
+			this.code = code;
+			this.unchanged = unchanged;
+			this.body = body;
+		}
+		
+		public boolean isSuccessful() {
+			return unchanged || (code >= 200 && code < 300);
+		}
+	}
+	
+	private static final class Validator {
+		final String etag;
+		final byte[] contentHash;
+		
+		Validator(String etag, byte[] contentHash) {
+			this.etag = etag;
+			this.contentHash = contentHash;
+		}
+	}
+	
+	public static synchronized NativeHttpClient getInstance() {
+		if (instance == null) {
+			instance = new NativeHttpClient(new OkHttpClient.Builder());
+		}
+		return instance;
+	}
+	
+	NativeHttpClient(OkHttpClient.Builder builder) {
+		this.client = builder
+			.connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+			.connectTimeout(10, TimeUnit.SECONDS)
+			.readTimeout(15, TimeUnit.SECONDS)
+			.eventListenerFactory(call -> new MetricsListener())
+			.build();
+	}
+	
+	/**
+	 * Cliente OkHttp subyacente. Para websockets u otros usos, derivar con newBuilder()
+	 * para seguir compartiendo el pool de conexiones.
+	 */
+	public OkHttpClient getClient() {
+		return client;
+	}
+	
+	public HttpMetrics getMetrics() {
+		return metrics;
+	}
+	
+	/**
+	 * GET condicional.
+	 *
+	 * @param timeoutMs     timeout total de la petición (conexión + lectura)
+	 * @param compareContent si es true y el servidor no envía ETag, el cuerpo se lee completo a memoria
+	 *                       y se compara su hash con la respuesta anterior de la misma URL; si es false
+	 *                       el cuerpo se entrega en streaming al reader
+	 */
+	public <T> Fetch<T> get(String url, Map<String, String> headers, int timeoutMs, boolean compareContent,
+			BodyReader<T> reader) throws IOException {
+		Request.Builder request = new Request.Builder().url(url).get();
+		for (Map.Entry<String, String> header : headers.entrySet()) {
+			request.header(header.getKey(), header.getValue());
+		}
+		
+		Validator previous;
+		synchronized (validators) {
+			previous = validators.get(url);
+		}
+		if (previous != null && previous.etag != null) {
+			request.header("If-None-Match", previous.etag);
+		}
+		
+		OkHttpClient timed = client.newBuilder()
+			.callTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+			.build();
+		
+		try (Response response = timed.newCall(request.build()).execute()) {
+			int code = response.code();
+			if (code == 304) {
+				return new Fetch<>(code, true, null);
+			}
+			if (!response.isSuccessful()) {
+				return new Fetch<>(code, false, null);
+			}
+			
+			ResponseBody body = response.body();
+			String etag = response.header("ETag");
+			if (etag != null || !compareContent) {
+				remember(url, etag != null ? new Validator(etag, null) : null);
+				return new Fetch<>(code, false, reader.read(body.byteStream()));
+			}
+			
+			// Sin ETag: comparar el hash del contenido con la respuesta anterior
+			byte[] bytes = body.bytes();
+			byte[] hash = sha256(bytes);
+			if (previous != null && previous.contentHash != null && Arrays.equals(previous.contentHash, hash)) {
+				return new Fetch<>(code, true, null);
+			}
+			remember(url, new Validator(null, hash));
+			return new Fetch<>(code, false, reader.read(new ByteArrayInputStream(bytes)));
+		}
+	}
+	
+	/**
+	 * POST de un cuerpo JSON sin leer la respuesta (por ejemplo, upserts con return=minimal).
+	 * @return código HTTP de la respuesta
+	 */
+	public int postJson(String url, Map<String, String> headers, String json, int timeoutMs) throws IOException {
+		return sendJson("POST", url, headers, json, timeoutMs);
+	}
+	
+	/**
+	 * Envía un cuerpo JSON con el método indicado (POST o PATCH) sin leer la respuesta.
+	 * @return código HTTP de la respuesta
+	 */
+	public int sendJson(String method, String url, Map<String, String> headers, String json, int timeoutMs) throws IOException {
+		Request.Builder request = new Request.Builder().url(url).method(method, RequestBody.create(json, JSON));
+		for (Map.Entry<String, String> header : headers.entrySet()) {
+			request.header(header.getKey(), header.getValue());
+		}
+		
+		OkHttpClient timed = client.newBuilder()
+			.callTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+			.build();
+		
+		try (Response response = timed.newCall(request.build()).execute()) {
+			return response.code();
+		}
+	}
+	
+	private void remember(String url, Validator validator) {
+		synchronized (validators) {
+			if (validator != null) {
+				validators.put(url, validator);
+			} else {
+				validators.remove(url);
+			}
+		}
+	}
+	
+	private static byte[] sha256(byte[] bytes) {
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(bytes);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	/**
+	 * Mide cada llamada: TTFB desde el inicio de la llamada hasta los headers de respuesta,
+	 * bytes en el cable (antes de descomprimir gzip) y si la conexión venía del pool.
+	 */
+	private final class MetricsListener extends EventListener {
+		private long callStartNanos;
+		private long ttfbNanos = -1;
+		private long bytesSent;
+		private long bytesReceived;
+		private int code = -1;
+		private boolean connected;
+		
+		@Override
+		public void callStart(Call call) {
+			callStartNanos = System.nanoTime();
+		}
+		
+		@Override
+		public void connectStart(Call call, InetSocketAddress address, Proxy proxy) {
+			// Se abrió una conexión nueva: no hubo reutilización del pool
+			connected = true;
+		}
+		
+		@Override
+		public void requestBodyEnd(Call call, long byteCount) {
+			bytesSent += byteCount;
+		}
+		
+		@Override
+		public void responseHeadersStart(Call call) {
+			if (ttfbNanos < 0) {
+				ttfbNanos = System.nanoTime() - callStartNanos;
+			}
+		}
+		
+		@Override
+		public void responseHeadersEnd(Call call, Response response) {
+			code = response.code();
+			bytesReceived += response.headers().byteCount();
+		}
+		
+		@Override
+		public void responseBodyEnd(Call call, long byteCount) {
+			bytesReceived += byteCount;
+		}
+		
+		@Override
+		public void callEnd(Call call) {
+			finish(call);
+		}
+		
+		@Override
+		public void callFailed(Call call, IOException e) {
+			metrics.recordFailure();
+			LOG.warning("⚠️ Petición fallida " + call.request().url().encodedPath() + ": " + e.getMessage());
+			finish(call);
+		}
+		
+		private void finish(Call call) {
+			long totalMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - callStartNanos);
+			metrics.record(new HttpMetrics.Sample(
+				call.request().url().encodedPath(),
+				code,
+				ttfbNanos >= 0 ? TimeUnit.NANOSECONDS.toMillis(ttfbNanos) : -1,
+				totalMs,
+				bytesSent,
+				bytesReceived,
+				!connected
+			));
+		}
+	}
+}
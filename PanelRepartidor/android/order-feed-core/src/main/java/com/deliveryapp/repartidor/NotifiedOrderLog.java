@@ -0,0 +1,152 @@
+package com.deliveryapp.repartidor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registro acotado (LRU) de los pedidos ya notificados.
+ *
+ * Reemplaza a last_notified_order_id: un solo id no alcanza para deduplicar cuando hay varios
+ * pedidos pendientes a la vez o cuando el Worker y el suscriptor Realtime ven el mismo pedido.
+ * Además recuerda qué notificaciones siguen visibles (activas) y su línea de resumen, para armar
+ * el grupo InboxStyle y cancelarlas si otro repartidor toma el pedido.
+ *
+ * No es thread-safe: NotificationEngine sincroniza el acceso.
+ */
+public final class NotifiedOrderLog {
+	private final int capacity;
+	// id del pedido -> línea de resumen si la notificación sigue visible, o null si ya no
+	private final LinkedHashMap<Long, String> entries;
+	
+	public NotifiedOrderLog(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("capacity debe ser positiva");
+		}
+		this.capacity = capacity;
+		this.entries = new LinkedHashMap<Long, String>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+				return size() > NotifiedOrderLog.this.capacity;
+			}
+		};
+	}
+	
+	/**
+	 * Registra un pedido notificado como activo.
+	 * @return false si el pedido ya había sido notificado (no se debe volver a notificar)
+	 */
+	public boolean markNotified(long orderId, String summaryLine) {
+		if (entries.containsKey(orderId)) {
+			// Refrescar recencia sin reactivar una notificación ya cancelada
+			entries.get(orderId);
+			return false;
+		}
+		entries.put(orderId, summaryLine != null ? summaryLine : "");
+		return true;
+	}
+	
+	public boolean contains(long orderId) {
+		return entries.containsKey(orderId);
+	}
+	
+	/**
+	 * Marca la notificación del pedido como ya no visible, sin olvidar que fue notificado.
+	 * @return true si estaba activa
+	 */
+	public boolean deactivate(long orderId) {
+		if (entries.get(orderId) == null) {
+			return false;
+		}
+		entries.put(orderId, null);
+		return true;
+	}
+	
+	/**
+	 * Ids con notificación visible, del más antiguo al más reciente
+	 */
+	public List<Long> activeIds() {
+		List<Long> ids = new ArrayList<>();
+		for (Map.Entry<Long, String> entry : entries.entrySet()) {
+			if (entry.getValue() != null) {
+				ids.add(entry.getKey());
+			}
+		}
+		return ids;
+	}
+	
+	/**
+	 * Líneas de resumen de las notificaciones visibles, de la más reciente a la más antigua
+	 */
+	public List<String> activeLines(int max) {
+		// Recorrer values(): get() en un LinkedHashMap por acceso alteraría la recencia
+		List<String> active = new ArrayList<>();
+		for (String line : entries.values()) {
+			if (line != null) {
+				active.add(line);
+			}
+		}
+		List<String> lines = new ArrayList<>(Math.min(max, active.size()));
+		for (int i = active.size() - 1; i >= 0 && lines.size() < max; i--) {
+			lines.add(active.get(i));
+		}
+		return lines;
+	}
+	
+	public int activeCount() {
+		int count = 0;
+		for (String line : entries.values()) {
+			if (line != null) {
+				count++;
+			}
+		}
+		return count;
+	}
+	
+	public int size() {
+		return entries.size();
+	}
+	
+	/**
+	 * Serializa a texto plano, una entrada por línea: "id" (inactiva) o "id\tlínea" (activa)
+	 */
+	public String serialize() {
+		StringBuilder out = new StringBuilder(entries.size() * 16);
+		for (Map.Entry<Long, String> entry : entries.entrySet()) {
+			out.append(entry.getKey());
+			if (entry.getValue() != null) {
+				out.append('\t').append(entry.getValue().replace('\n', ' ').replace('\t', ' '));
+			}
+			out.append('\n');
+		}
+		return out.toString();
+	}
+	
+	/**
+	 * Restaura un registro serializado. Las líneas mal formadas se ignoran.
+	 */
+	public static NotifiedOrderLog parse(String serialized, int capacity) {
+		NotifiedOrderLog log = new NotifiedOrderLog(capacity);
+		if (serialized == null || serialized.isEmpty()) {
+			return log;
+		}
+		for (String line : serialized.split("\n")) {
+			int tab = line.indexOf('\t');
+			String id = tab >= 0 ? line.substring(0, tab) : line;
+			try {
+				log.entries.put(Long.parseLong(id.trim()), tab >= 0 ? line.substring(tab + 1) : null);
+			} catch (NumberFormatException e) {
+				// Entrada corrupta: descartar
+			}
+		}
+		return log;
+	}
+	
+	/**
+	 * Olvida todos los pedidos (cierre de sesión)
+	 */
+	public void clear() {
+		entries.clear();
+	}
+}
@@ -0,0 +1,238 @@
+package com.deliveryapp.repartidor;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Marca de agua (high-water mark) del feed de pedidos pendientes.
+ * Guarda el created_at y el id del último pedido procesado para que cada
+ * verificación pida a Supabase solo los pedidos más nuevos que esta marca.
+ *
+ * created_at es la hora de inicio de la transacción del INSERT, no la del commit: un pedido
+ * cuya transacción tarda puede hacerse visible después de otro más nuevo y quedar por debajo
+ * de la marca. Por eso la consulta empieza WINDOW_MS antes de la marca y el cursor recuerda
+ * los ids ya procesados dentro de esa ventana, para entregar solo los que faltaban.
+ */
+public final class OrderFeedCursor {
+	// Cuánto puede tardar en hacerse visible un pedido respecto de otro creado después
+	static final long WINDOW_MS = 60 * 1000L;
+	// Tope de ids recordados: si una ráfaga lo supera, el NotifiedOrderLog evita repetir la notificación
+	static final int MAX_RECENT = 200;
+	
+	private final String createdAt;
+	private final long id;
+	// id -> created_at de los pedidos ya procesados dentro de la ventana; null en un cursor
+	// guardado antes de que existiera la ventana (consulta estricta hasta la próxima marca)
+	private final Map<Long, String> recent;
+	
+	public OrderFeedCursor(String createdAt, long id) {
+		this(createdAt, id, null);
+	}
+	
+	private OrderFeedCursor(String createdAt, long id, Map<Long, String> recent) {
+		this.createdAt = createdAt;
+		this.id = id;
+		this.recent = recent;
+	}
+	
+	/**
+	 * Cursor inicial a partir del primer pedido procesado
+	 */
+	public static OrderFeedCursor seed(String createdAt, long id) {
+		Map<Long, String> recent = new LinkedHashMap<>();
+		recent.put(id, createdAt);
+		return new OrderFeedCursor(createdAt, id, recent);
+	}
+	
+	/**
+	 * Reconstruye el cursor desde los valores persistidos.
+	 * Retorna null si falta alguno o el id no es numérico.
+	 */
+	public static OrderFeedCursor fromStored(String createdAt, String id) {
+		return fromStored(createdAt, id, null);
+	}
+	
+	/**
+	 * @param recent los ids de la ventana según getStoredRecent(); null si no se guardaron
+	 */
+	public static OrderFeedCursor fromStored(String createdAt, String id, String recent) {
+		if (createdAt == null || createdAt.isEmpty() || id == null || id.isEmpty()) {
+			return null;
+		}
+		try {
+			return new OrderFeedCursor(createdAt, Long.parseLong(id.trim()), parseRecent(recent));
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+	
+	public String getCreatedAt() {
+		return createdAt;
+	}
+	
+	public long getId() {
+		return id;
+	}
+	
+	/**
+	 * Los ids de la ventana como texto para persistir ("id created_at,..."), o null si el cursor no tiene ventana
+	 */
+	public String getStoredRecent() {
+		if (recent == null) {
+			return null;
+		}
+		StringBuilder out = new StringBuilder();
+		for (Map.Entry<Long, String> entry : recent.entrySet()) {
+			if (out.length() > 0) {
+				out.append(',');
+			}
+			out.append(entry.getKey()).append(' ').append(entry.getValue());
+		}
+		return out.toString();
+	}
+	
+	/**
+	 * Filtro PostgREST (ya codificado para URL) que selecciona filas estrictamente posteriores:
+	 * created_at > marca, o mismo created_at con id mayor (desempate estable)
+	 */
+	public String toQueryFilter() {
+		String quoted = "\"" + createdAt + "\"";
+		String filter = "(created_at.gt." + quoted + ",and(created_at.eq." + quoted + ",id.gt." + id + "))";
+		return "or=" + encode(filter);
+	}
+	
+	/**
+	 * Desde dónde pedir el feed: WINDOW_MS antes de la marca (con id 0, para incluir todo ese
+	 * instante). Si el cursor no tiene ventana o el timestamp no se puede leer, la marca misma.
+	 */
+	public OrderFeedCursor windowStart() {
+		if (recent == null) {
+			return this;
+		}
+		String start = minusWindow(createdAt);
+		return start != null ? new OrderFeedCursor(start, 0) : this;
+	}
+	
+	/**
+	 * Indica si el pedido (createdAt, id) está por encima de esta marca.
+	 * Los timestamps de PostgREST vienen en ISO-8601 con la misma zona, así que
+	 * se comparan como texto.
+	 */
+	public boolean isBefore(String otherCreatedAt, long otherId) {
+		int cmp = createdAt.compareTo(otherCreatedAt);
+		return cmp < 0 || (cmp == 0 && id < otherId);
+	}
+	
+	/**
+	 * Indica si el pedido todavía no se procesó: está por encima de la marca, o dentro de la
+	 * ventana y no figura entre los ya procesados (llegó tarde)
+	 */
+	public boolean isNew(String otherCreatedAt, long otherId) {
+		if (isBefore(otherCreatedAt, otherId)) {
+			return true;
+		}
+		if (recent == null || recent.containsKey(otherId)) {
+			return false;
+		}
+		OrderFeedCursor start = windowStart();
+		return start != this && start.createdAt.compareTo(otherCreatedAt) <= 0;
+	}
+	
+	/**
+	 * Retorna la marca más alta entre este cursor y el pedido indicado
+	 */
+	public OrderFeedCursor advance(String otherCreatedAt, long otherId) {
+		return isBefore(otherCreatedAt, otherId) ? new OrderFeedCursor(otherCreatedAt, otherId, recent) : this;
+	}
+	
+	/**
+	 * Registra el pedido como procesado: avanza la marca si corresponde y lo agrega a la
+	 * ventana, descartando los ids que quedaron fuera de ella
+	 */
+	public OrderFeedCursor record(String otherCreatedAt, long otherId) {
+		OrderFeedCursor advanced = advance(otherCreatedAt, otherId);
+		Map<Long, String> kept = recent != null ? new LinkedHashMap<>(recent) : new LinkedHashMap<Long, String>();
+		kept.put(otherId, otherCreatedAt);
+		
+		String start = minusWindow(advanced.createdAt);
+		Iterator<Map.Entry<Long, String>> it = kept.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<Long, String> entry = it.next();
+			if ((start != null && entry.getValue().compareTo(start) < 0) || kept.size() > MAX_RECENT) {
+				it.remove();
+			}
+		}
+		return new OrderFeedCursor(advanced.createdAt, advanced.id, kept);
+	}
+	
+	/**
+	 * Este cursor con ventana; uno guardado sin ella arranca recordando solo el pedido de la marca
+	 */
+	public OrderFeedCursor tracking() {
+		return recent != null ? this : seed(createdAt, id);
+	}
+	
+	private static Map<Long, String> parseRecent(String stored) {
+		if (stored == null) {
+			return null;
+		}
+		Map<Long, String> recent = new LinkedHashMap<>();
+		if (stored.isEmpty()) {
+			return recent;
+		}
+		for (String entry : stored.split(",")) {
+			int space = entry.indexOf(' ');
+			if (space <= 0) {
+				continue;
+			}
+			try {
+				recent.put(Long.parseLong(entry.substring(0, space)), entry.substring(space + 1));
+			} catch (NumberFormatException e) {
+				// Entrada dañada: a lo sumo ese pedido se vuelve a entregar (el sink deduplica)
+			}
+		}
+		return recent;
+	}
+	
+	/**
+	 * Resta WINDOW_MS a un timestamp ISO-8601 de PostgREST ("2025-03-14T12:01:40.123456+00:00"),
+	 * conservando la fracción y la zona para que siga comparándose como texto con los del feed
+	 * @return null si no tiene ese formato
+	 */
+	static String minusWindow(String timestamp) {
+		if (timestamp == null || timestamp.length() < 19) {
+			return null;
+		}
+		SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.US);
+		format.setTimeZone(TimeZone.getTimeZone("UTC"));
+		format.setLenient(false);
+		try {
+			Date date = format.parse(timestamp.substring(0, 19));
+			return format.format(new Date(date.getTime() - WINDOW_MS)) + timestamp.substring(19);
+		} catch (ParseException e) {
+			return null;
+		}
+	}
+	
+	private static String encode(String value) {
+		try {
+			return URLEncoder.encode(value, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			// UTF-8 siempre está disponible
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	@Override
+	public String toString() {
+		return createdAt + "#" + id;
+	}
+}
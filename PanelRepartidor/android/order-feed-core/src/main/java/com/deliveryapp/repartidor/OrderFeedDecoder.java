@@ -0,0 +1,445 @@
+package com.deliveryapp.repartidor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decodificador en streaming (tipo pull) del arreglo JSON que devuelve PostgREST para /orders.
+ *
+ * Lee directamente del InputStream de la conexión y solo materializa los campos que usa la
+ * notificación (id, created_at, delivery_address, suggested_price, local_id, client_id y, si
+ * vienen embebidos, clients.name y locals.name).
+ * El resto de valores se salta sin crear Strings ni árboles JSONObject, y la lectura se corta
+ * en cuanto el listener indica que no necesita más pedidos.
+ *
+ * Con keepRows además copia el texto de cada objeto tal como llegó (OrderSummary.getRow), para
+ * entregar la fila completa a la lista de la app sin una segunda consulta.
+ */
+public final class OrderFeedDecoder {
+	
+	/**
+	 * Recibe cada pedido decodificado. Retornar false detiene la lectura del stream.
+	 */
+	public interface Listener {
+		boolean onOrder(OrderSummary order);
+	}
+	
+	private static final int BUFFER_SIZE = 2048;
+	
+	private final Reader reader;
+	private final char[] buffer = new char[BUFFER_SIZE];
+	private int position;
+	private int limit;
+	
+	// Buffer reutilizable para claves y valores de texto
+	private final StringBuilder text = new StringBuilder(64);
+	// Texto del objeto en curso, solo con keepRows
+	private final StringBuilder row;
+	private boolean capturing;
+	
+	private OrderFeedDecoder(Reader reader, boolean keepRows) {
+		this.reader = reader;
+		this.row = keepRows ? new StringBuilder(1024) : null;
+	}
+	
+	/**
+	 * Decodifica el feed y entrega cada pedido al listener.
+	 * @return cantidad de pedidos entregados al listener
+	 */
+	public static int decode(InputStream in, Listener listener) throws IOException {
+		return decode(in, listener, false);
+	}
+	
+	/**
+	 * @param keepRows true para que cada pedido traiga además el JSON de su fila
+	 */
+	public static int decode(InputStream in, Listener listener, boolean keepRows) throws IOException {
+		return new OrderFeedDecoder(new InputStreamReader(in, StandardCharsets.UTF_8), keepRows).readArray(listener);
+	}
+	
+	private int readArray(Listener listener) throws IOException {
+		int count = 0;
+		int c = nextNonWhitespace();
+		if (c == -1) {
+			return 0;
+		}
+		expect(c, '[');
+		
+		c = nextNonWhitespace();
+		if (c == ']') {
+			return 0;
+		}
+		while (true) {
+			expect(c, '{');
+			if (row != null) {
+				row.setLength(0);
+				row.append('{');
+				capturing = true;
+			}
+			OrderSummary order = readOrder();
+			if (row != null) {
+				capturing = false;
+				order = order.withRow(row.toString());
+			}
+			count++;
+			if (!listener.onOrder(order)) {
+				return count;
+			}
+			c = nextNonWhitespace();
+			if (c == ']') {
+				return count;
+			}
+			expect(c, ',');
+			c = nextNonWhitespace();
+		}
+	}
+	
+	/**
+	 * Lee un objeto pedido (el '{' ya fue consumido)
+	 */
+	private OrderSummary readOrder() throws IOException {
+		long id = 0;
+		String createdAt = null;
+		String deliveryAddress = null;
+		double suggestedPrice = 0;
+		String clientName = null;
+		String localName = null;
+		String localId = null;
+		String clientId = null;
+		
+		int c = nextNonWhitespace();
+		if (c == '}') {
+			return new OrderSummary(id, null, null, 0, null, null);
+		}
+		while (true) {
+			expect(c, '"');
+			readString();
+			expect(nextNonWhitespace(), ':');
+			
+			if (textEquals("id")) {
+				id = readLongValue();
+			} else if (textEquals("created_at")) {
+				createdAt = readStringValue();
+			} else if (textEquals("delivery_address")) {
+				deliveryAddress = readStringValue();
+			} else if (textEquals("suggested_price")) {
+				suggestedPrice = readDoubleValue();
+			} else if (textEquals("local_id")) {
+				localId = readScalarText();
+			} else if (textEquals("client_id")) {
+				clientId = readScalarText();
+			} else if (textEquals("clients")) {
+				clientName = readNestedName();
+			} else if (textEquals("locals")) {
+				localName = readNestedName();
+			} else {
+				skipValue();
+			}
+			
+			c = nextNonWhitespace();
+			if (c == '}') {
+				break;
+			}
+			expect(c, ',');
+			c = nextNonWhitespace();
+		}
+		return new OrderSummary(id, createdAt, deliveryAddress, suggestedPrice, clientName, localName, localId, clientId);
+	}
+	
+	/**
+	 * Lee el campo "name" de una relación embebida (clients/locals), que puede ser null
+	 */
+	private String readNestedName() throws IOException {
+		int c = nextNonWhitespace();
+		if (c != '{') {
+			pushBack();
+			skipValue();
+			return null;
+		}
+		String name = null;
+		c = nextNonWhitespace();
+		if (c == '}') {
+			return null;
+		}
+		while (true) {
+			expect(c, '"');
+			readString();
+			expect(nextNonWhitespace(), ':');
+			if (textEquals("name")) {
+				name = readStringValue();
+			} else {
+				skipValue();
+			}
+			c = nextNonWhitespace();
+			if (c == '}') {
+				return name;
+			}
+			expect(c, ',');
+			c = nextNonWhitespace();
+		}
+	}
+	
+	private String readStringValue() throws IOException {
+		int c = nextNonWhitespace();
+		if (c == '"') {
+			readString();
+			return text.toString();
+		}
+		pushBack();
+		skipValue();
+		return null;
+	}
+	
+	/**
+	 * Valor escalar como texto (ids numéricos o uuid), o null
+	 */
+	private String readScalarText() throws IOException {
+		int c = nextNonWhitespace();
+		if (c == '"') {
+			readString();
+			return text.toString();
+		}
+		pushBack();
+		readLiteral();
+		return textEquals("null") ? null : text.toString();
+	}
+	
+	private long readLongValue() throws IOException {
+		int c = nextNonWhitespace();
+		if (c == '"') {
+			// Algunos ids llegan como texto
+			readString();
+			return parseLong(text);
+		}
+		pushBack();
+		readLiteral();
+		return parseLong(text);
+	}
+	
+	private double readDoubleValue() throws IOException {
+		int c = nextNonWhitespace();
+		if (c == '"') {
+			// PostgREST puede serializar numeric como texto
+			readString();
+		} else {
+			pushBack();
+			readLiteral();
+		}
+		if (text.length() == 0 || textEquals("null")) {
+			return 0;
+		}
+		try {
+			return Double.parseDouble(text.toString());
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+	
+	private static long parseLong(CharSequence s) {
+		long value = 0;
+		int length = s.length();
+		if (length == 0) {
+			return 0;
+		}
+		boolean negative = s.charAt(0) == '-';
+		for (int i = negative ? 1 : 0; i < length; i++) {
+			char ch = s.charAt(i);
+			if (ch < '0' || ch > '9') {
+				return 0;
+			}
+			value = value * 10 + (ch - '0');
+		}
+		return negative ? -value : value;
+	}
+	
+	/**
+	 * Lee un literal sin comillas (número, true, false, null) en el buffer de texto
+	 */
+	private void readLiteral() throws IOException {
+		text.setLength(0);
+		while (true) {
+			int c = read();
+			if (c == -1) {
+				return;
+			}
+			if (c == ',' || c == '}' || c == ']' || isWhitespace(c)) {
+				pushBack();
+				return;
+			}
+			text.append((char) c);
+		}
+	}
+	
+	/**
+	 * Lee un string JSON (la comilla de apertura ya fue consumida) en el buffer de texto
+	 */
+	private void readString() throws IOException {
+		text.setLength(0);
+		while (true) {
+			int c = read();
+			if (c == -1) {
+				throw syntaxError("String sin cerrar");
+			}
+			if (c == '"') {
+				return;
+			}
+			if (c == '\\') {
+				text.append(readEscape());
+			} else {
+				text.append((char) c);
+			}
+		}
+	}
+	
+	private char readEscape() throws IOException {
+		int c = read();
+		switch (c) {
+			case 'n': return '\n';
+			case 't': return '\t';
+			case 'r': return '\r';
+			case 'b': return '\b';
+			case 'f': return '\f';
+			case 'u':
+				int value = 0;
+				for (int i = 0; i < 4; i++) {
+					int digit = Character.digit(read(), 16);
+					if (digit < 0) {
+						throw syntaxError("Escape unicode inválido");
+					}
+					value = (value << 4) | digit;
+				}
+				return (char) value;
+			case -1:
+				throw syntaxError("Escape sin terminar");
+			default:
+				// '"', '\\', '/'
+				return (char) c;
+		}
+	}
+	
+	/**
+	 * Salta un valor completo (string, número, literal, objeto o arreglo) sin materializarlo
+	 */
+	private void skipValue() throws IOException {
+		int depth = 0;
+		do {
+			int c = nextNonWhitespace();
+			switch (c) {
+				case -1:
+					throw syntaxError("Fin inesperado del feed");
+				case '{':
+				case '[':
+					depth++;
+					break;
+				case '}':
+				case ']':
+					depth--;
+					break;
+				case '"':
+					skipString();
+					break;
+				case ',':
+				case ':':
+					break;
+				default:
+					skipLiteral();
+					break;
+			}
+		} while (depth > 0);
+	}
+	
+	private void skipString() throws IOException {
+		while (true) {
+			int c = read();
+			if (c == -1) {
+				throw syntaxError("String sin cerrar");
+			}
+			if (c == '"') {
+				return;
+			}
+			if (c == '\\') {
+				read();
+			}
+		}
+	}
+	
+	private void skipLiteral() throws IOException {
+		while (true) {
+			int c = read();
+			if (c == -1) {
+				return;
+			}
+			if (c == ',' || c == '}' || c == ']' || c == ':' || isWhitespace(c)) {
+				pushBack();
+				return;
+			}
+		}
+	}
+	
+	private boolean textEquals(String value) {
+		int length = value.length();
+		if (text.length() != length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (text.charAt(i) != value.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private int nextNonWhitespace() throws IOException {
+		int c;
+		do {
+			c = read();
+		} while (c != -1 && isWhitespace(c));
+		return c;
+	}
+	
+	private static boolean isWhitespace(int c) {
+		return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+	}
+	
+	private int read() throws IOException {
+		if (position == limit) {
+			limit = reader.read(buffer, 0, BUFFER_SIZE);
+			position = 0;
+			if (limit <= 0) {
+				limit = 0;
+				return -1;
+			}
+		}
+		char c = buffer[position++];
+		if (capturing) {
+			row.append(c);
+		}
+		return c;
+	}
+	
+	/**
+	 * Devuelve el último carácter leído al buffer (siempre hay uno disponible)
+	 */
+	private void pushBack() {
+		if (position > 0) {
+			position--;
+			if (capturing) {
+				row.setLength(row.length() - 1);
+			}
+		}
+	}
+	
+	private void expect(int actual, char expected) throws IOException {
+		if (actual != expected) {
+			throw syntaxError("Se esperaba '" + expected + "' pero se encontró "
+				+ (actual == -1 ? "fin del feed" : "'" + (char) actual + "'"));
+		}
+	}
+	
+	private static IOException syntaxError(String message) {
+		return new IOException("Feed de pedidos inválido: " + message);
+	}
+}
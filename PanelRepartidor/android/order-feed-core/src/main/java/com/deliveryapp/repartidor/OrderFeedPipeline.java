@@ -0,0 +1,315 @@
+package com.deliveryapp.repartidor;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Núcleo de la verificación de pedidos, sin dependencias de Android: consulta el feed de
+ * pedidos pendientes desde la marca de agua (con la ventana de OrderFeedCursor para los que
+ * se confirmaron tarde), lo decodifica en streaming, avanza el cursor y entrega los pedidos
+ * nuevos al sink (que deduplica y notifica).
+ *
+ * El almacenamiento del cursor, los nombres de clientes y locales y la publicación de
+ * notificaciones quedan detrás de interfaces; en la app los implementa OrderFeedSync con
+ * SharedPreferences, LocalsCatalog/ClientsDirectory y NotificationEngine.
+ */
+public final class OrderFeedPipeline {
+	private static final Logger LOG = Logger.getLogger("OrderFeedPipeline");
+	
+	// Proyección mínima: solo lo que usa la notificación (sin select=*); los nombres salen del diccionario
+	static final String FEED_SELECT = "id,created_at,delivery_address,suggested_price,local_id,client_id";
+	// Sin diccionario: PostgREST resuelve los nombres con dos joins en cada consulta
+	static final String FEED_SELECT_EMBEDDED = "id,created_at,delivery_address,suggested_price,local_id,"
+		+ "clients(name),locals(name)";
+	static final int PAGE_SIZE = 20;
+	private static final int MAX_PAGES = 5;
+	// Cada página es pequeña: si tarda más que esto, mejor reintentar en la próxima verificación
+	private static final int FETCH_TIMEOUT_MS = 15000;
+	
+	/**
+	 * Marca de agua persistida entre verificaciones
+	 */
+	public interface CursorStore {
+		OrderFeedCursor load();
+		
+		void save(OrderFeedCursor cursor);
+	}
+	
+	/**
+	 * Recibe los pedidos nuevos de una verificación, todos juntos
+	 */
+	public interface OrderSink {
+		/**
+		 * @return cantidad de pedidos efectivamente notificados (sin los ya notificados antes)
+		 */
+		int deliver(List<OrderSummary> orders, CheckMetrics.CheckRun run);
+	}
+	
+	/**
+	 * Copia local de los nombres de clientes y locales, para pedir el feed solo con las claves foráneas
+	 */
+	public interface NameDictionary {
+		/**
+		 * Completa los nombres de cliente y local a partir de client_id y local_id. No lanza
+		 * excepciones: los que no se puedan resolver quedan null (la notificación usa textos genéricos).
+		 */
+		List<OrderSummary> fillNames(Endpoint endpoint, List<OrderSummary> orders);
+	}
+	
+	/**
+	 * Proyecto de Supabase y empresa a consultar
+	 */
+	public static final class Endpoint {
+		public final String supabaseUrl;
+		public final String supabaseKey;
+		public final String companyId;
+		
+		public Endpoint(String supabaseUrl, String supabaseKey, String companyId) {
+			this.supabaseUrl = supabaseUrl;
+			this.supabaseKey = supabaseKey;
+			this.companyId = companyId;
+		}
+	}
+	
+	private final NativeHttpClient http;
+	private final CursorStore cursors;
+	private final OrderSink sink;
+	private final NameDictionary names;
+	private final String rowSelect;
+	
+	// Estado de la sincronización actual (se actualiza desde el listener del decodificador)
+	private OrderFeedCursor cursor;
+	// Última fila recibida: desde dónde pedir la página siguiente
+	private OrderFeedCursor page;
+	private final List<OrderSummary> fresh = new ArrayList<>();
+	private int arrivals;
+	
+	public OrderFeedPipeline(NativeHttpClient http, CursorStore cursors, OrderSink sink) {
+		this(http, cursors, sink, null);
+	}
+	
+	/**
+	 * @param names diccionario de nombres; null para pedirlos embebidos en el feed
+	 */
+	public OrderFeedPipeline(NativeHttpClient http, CursorStore cursors, OrderSink sink, NameDictionary names) {
+		this(http, cursors, sink, names, null);
+	}
+	
+	/**
+	 * @param rowSelect proyección de la lista de la app (columnas y relaciones); con ella el feed
+	 *        trae las filas completas y cada pedido entregado las tiene en getRow. null para la
+	 *        proyección mínima de la notificación.
+	 */
+	public OrderFeedPipeline(NativeHttpClient http, CursorStore cursors, OrderSink sink, NameDictionary names,
+			String rowSelect) {
+		this.http = http;
+		this.cursors = cursors;
+		this.sink = sink;
+		this.names = names;
+		this.rowSelect = rowSelect;
+	}
+	
+	/**
+	 * Consulta los pedidos pendientes posteriores a la marca de agua y los entrega al sink.
+	 * No es reentrante: el llamador serializa las verificaciones.
+	 * @return cantidad de pedidos notificados
+	 * @throws IOException si falla la red, para que el llamador reintente
+	 */
+	public int sync(Endpoint endpoint, CheckMetrics.CheckRun run) throws IOException {
+		cursor = cursors.load();
+		String baseUrl = endpoint.supabaseUrl + "/rest/v1/orders?company_id=eq." + endpoint.companyId
+			+ "&status=eq.Pendiente&select=" + feedSelect();
+		
+		fresh.clear();
+		arrivals = 0;
+		if (cursor == null) {
+			// Primera ejecución: notificar solo el pedido más reciente y usarlo como marca inicial
+			fetchOrders(baseUrl + "&order=created_at.desc,id.desc&limit=1", endpoint.supabaseKey, run, true, rowSelect != null, order -> {
+				fresh.add(order);
+				cursor = OrderFeedCursor.seed(order.getCreatedAt(), order.getId());
+				return false;
+			});
+		} else {
+			// Sincronización incremental, en orden ascendente: desde un poco antes de la marca
+			// (los pedidos que se confirmaron tarde) y paginando por la última fila recibida
+			page = cursor.windowStart();
+			for (int i = 0; i < MAX_PAGES; i++) {
+				int received = fetchOrders(baseUrl + "&" + page.toQueryFilter()
+					+ "&order=created_at.asc,id.asc&limit=" + PAGE_SIZE, endpoint.supabaseKey, run, true, rowSelect != null, order -> {
+					if (order.getCreatedAt() == null) {
+						return false;
+					}
+					page = new OrderFeedCursor(order.getCreatedAt(), order.getId());
+					// Los de la ventana ya procesados se saltan; el resto del feed puede traer nuevos
+					if (cursor.isNew(order.getCreatedAt(), order.getId())) {
+						fresh.add(order);
+						cursor = cursor.record(order.getCreatedAt(), order.getId());
+					}
+					return true;
+				});
+				
+				// Error o página incompleta: ya no quedan pedidos nuevos
+				if (received < PAGE_SIZE) {
+					break;
+				}
+			}
+			page = null;
+			// Un cursor guardado sin ventana la empieza a llevar desde ahora
+			cursor = cursor.tracking();
+			arrivals = fresh.size();
+		}
+		
+		if (cursor != null) {
+			cursors.save(cursor);
+		}
+		
+		// Todos los pedidos nuevos de una vez, para que una ráfaga se agrupe en un resumen
+		int notified = 0;
+		if (!fresh.isEmpty()) {
+			List<OrderSummary> orders = new ArrayList<>(fresh);
+			notified = sink.deliver(names != null ? names.fillNames(endpoint, orders) : orders, run);
+		}
+		fresh.clear();
+		return notified;
+	}
+	
+	/**
+	 * Pedidos que llegaron al feed desde la verificación anterior según la última sync(), antes
+	 * de los filtros del sink (distancia, ya notificados). Es lo que mide la tasa de llegadas
+	 * (ArrivalRateModel); la primera ejecución no cuenta: solo fija la marca de agua.
+	 */
+	public int lastArrivals() {
+		return arrivals;
+	}
+	
+	/**
+	 * De los ids indicados, retorna los que siguen pendientes (el resto lo tomó otro repartidor
+	 * o se canceló).
+	 * @return null si Supabase respondió con error
+	 */
+	public Set<Long> findStillPending(Endpoint endpoint, List<Long> ids, CheckMetrics.CheckRun run) throws IOException {
+		Set<Long> stillPending = new HashSet<>();
+		int received = fetchOrders(endpoint.supabaseUrl + "/rest/v1/orders?select=id&status=eq.Pendiente&id=in.(" + idList(ids) + ")",
+			endpoint.supabaseKey, run, false, false, order -> {
+				stillPending.add(order.getId());
+				return true;
+			});
+		return received < 0 ? null : stillPending;
+	}
+	
+	/**
+	 * Filas completas (con la proyección rowSelect) de los pedidos indicados, cualquiera sea su
+	 * estado: los que cambiaron según Realtime. Los que no vuelven se borraron.
+	 * @return null si Supabase respondió con error
+	 */
+	public List<OrderSummary> findOrders(Endpoint endpoint, Collection<Long> ids, CheckMetrics.CheckRun run) throws IOException {
+		if (rowSelect == null) {
+			throw new IllegalStateException("findOrders necesita rowSelect");
+		}
+		List<OrderSummary> found = new ArrayList<>();
+		int received = fetchOrders(endpoint.supabaseUrl + "/rest/v1/orders?select=" + rowSelect
+			+ "&id=in.(" + idList(ids) + ")", endpoint.supabaseKey, run, false, true, order -> {
+				found.add(order);
+				return true;
+			});
+		return received < 0 ? null : found;
+	}
+	
+	private String feedSelect() {
+		if (rowSelect != null) {
+			return rowSelect;
+		}
+		return names != null ? FEED_SELECT : FEED_SELECT_EMBEDDED;
+	}
+	
+	private static String idList(Collection<Long> ids) {
+		StringBuilder list = new StringBuilder();
+		for (Long id : ids) {
+			if (list.length() > 0) {
+				list.append(',');
+			}
+			list.append(id);
+		}
+		return list.toString();
+	}
+	
+	/**
+	 * Ejecuta la consulta al feed de pedidos con el cliente HTTP compartido y decodifica la
+	 * respuesta en streaming, entregando cada pedido al listener.
+	 * @param feed true si es la consulta de pedidos nuevos (cuenta como pedidos vistos en las métricas)
+	 * @param keepRows true para guardar el JSON de cada fila en el pedido (OrderSummary.getRow)
+	 * @return cantidad de pedidos leídos (0 si el servidor indicó que no hubo cambios),
+	 *         o -1 si Supabase respondió con error
+	 */
+	private int fetchOrders(String apiUrl, String supabaseKey, CheckMetrics.CheckRun run, boolean feed,
+			boolean keepRows, OrderFeedDecoder.Listener listener) throws IOException {
+		Map<String, String> headers = new HashMap<>();
+		headers.put("apikey", supabaseKey);
+		headers.put("Authorization", "Bearer " + supabaseKey);
+		headers.put("Accept", "application/json");
+		
+		// Red: hasta que llegan los headers; lectura: el cuerpo en streaming hasta el decodificador
+		long start = System.nanoTime();
+		long[] bodyStart = { 0 };
+		CountingInputStream[] counted = { null };
+		NativeHttpClient.Fetch<Integer> result = http.get(apiUrl, headers, FETCH_TIMEOUT_MS, false, in -> {
+			bodyStart[0] = System.nanoTime();
+			counted[0] = new CountingInputStream(in);
+			return OrderFeedDecoder.decode(counted[0], listener, keepRows);
+		});
+		long end = System.nanoTime();
+		if (bodyStart[0] == 0) {
+			run.addFetch(end - start, 0, 0, 0);
+		} else {
+			run.addFetch(bodyStart[0] - start, end - bodyStart[0], counted[0].count,
+				feed && result.body != null ? result.body : 0);
+		}
+		
+		if (result.unchanged) {
+			return 0;
+		}
+		if (!result.isSuccessful()) {
+			LOG.warning("⚠️ Error consultando pedidos: " + result.code);
+			return -1;
+		}
+		return result.body;
+	}
+	
+	/**
+	 * Cuenta los bytes (ya descomprimidos) que lee el decodificador
+	 */
+	private static final class CountingInputStream extends FilterInputStream {
+		long count;
+		
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+		
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b != -1) {
+				count++;
+			}
+			return b;
+		}
+		
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			int read = super.read(buffer, offset, length);
+			if (read > 0) {
+				count += read;
+			}
+			return read;
+		}
+	}
+}
@@ -0,0 +1,40 @@
+package com.deliveryapp.repartidor;
+
+/**
+ * Textos de las notificaciones de pedidos nuevos (título, cuerpo y línea del resumen).
+ * Separado de NotificationEngine para poder probarlo y medirlo fuera del dispositivo.
+ */
+public final class OrderNotificationText {
+	
+	private OrderNotificationText() {
+	}
+	
+	public static String title(OrderSummary order) {
+		return "📦 Nuevo pedido disponible - ORD-" + order.getId();
+	}
+	
+	public static String body(OrderSummary order) {
+		String clientName = order.getClientName() != null ? order.getClientName() : "Cliente";
+		String deliveryAddress = order.getDeliveryAddress() != null ? order.getDeliveryAddress() : "Sin dirección";
+		return localName(order) + " → " + clientName + "\n" + deliveryAddress + "\n" + formatPrice(order.getSuggestedPrice());
+	}
+	
+	/**
+	 * Línea del pedido en el resumen InboxStyle (se guarda en el NotifiedOrderLog)
+	 */
+	public static String summaryLine(OrderSummary order) {
+		return "ORD-" + order.getId() + " · " + localName(order) + " · " + formatPrice(order.getSuggestedPrice());
+	}
+	
+	public static String summaryTitle(int activeCount) {
+		return "📦 " + activeCount + " pedidos disponibles";
+	}
+	
+	public static String formatPrice(double suggestedPrice) {
+		return suggestedPrice > 0 ? String.format("$%.2f", suggestedPrice) : "Precio a acordar";
+	}
+	
+	private static String localName(OrderSummary order) {
+		return order.getLocalName() != null ? order.getLocalName() : "Local";
+	}
+}
@@ -0,0 +1,411 @@
+package com.deliveryapp.repartidor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Snapshot local de la lista de pedidos del driver, para pintar la lista al abrir la app sin
+ * esperar a Supabase.
+ *
+ * Archivo append-only con registros versionados: una cabecera (driver, empresa, fecha de la
+ * última carga completa) seguida de registros PUT/DELETE por pedido, cada uno con su versión y
+ * CRC. La carga completa desde el WebView reescribe el archivo; las verificaciones en segundo
+ * plano solo agregan registros (pedidos nuevos, pedidos tomados) y el archivo se compacta
+ * cuando los registros superan al doble de los pedidos vivos.
+ *
+ * Las filas se guardan como el JSON de PostgREST. Las que arma el Worker son parciales (solo
+ * los campos del feed) y nunca pisan una fila completa del mismo pedido.
+ *
+ * Lo escriben el proceso de la UI y :sync: cada operación toma un ProcessFileLock y, si el
+ * archivo cambió (largo o fecha) desde la última lectura o escritura propia, lo vuelve a leer
+ * antes de tocarlo, así no se pisan los registros del otro proceso.
+ */
+public final class OrderSnapshotStore {
+	private static final int MAGIC = 0x4F534E50; // "OSNP"
+	private static final int FORMAT_VERSION = 1;
+	private static final byte OP_PUT = 1;
+	private static final byte OP_PUT_PARTIAL = 2;
+	private static final byte OP_DELETE = 3;
+	private static final int MAX_ROW_BYTES = 256 * 1024;
+	// Compactar cuando haya más registros que esto por cada pedido vivo (y un mínimo absoluto)
+	private static final int COMPACT_RATIO = 2;
+	private static final int COMPACT_MIN_RECORDS = 64;
+	
+	/**
+	 * Contenido del snapshot
+	 */
+	public static final class Snapshot {
+		public final String driverId;
+		public final String companyId;
+		// Hora de la última carga completa (epoch ms)
+		public final long savedAt;
+		// Filas JSON en el orden de la última carga completa, con los pedidos nuevos al principio
+		public final List<String> rows;
+		
+		Snapshot(String driverId, String companyId, long savedAt, List<String> rows) {
+			this.driverId = driverId;
+			this.companyId = companyId;
+			this.savedAt = savedAt;
+			this.rows = rows;
+		}
+	}
+	
+	private static final class Row {
+		final String json;
+		final boolean partial;
+		
+		Row(String json, boolean partial) {
+			this.json = json;
+			this.partial = partial;
+		}
+	}
+	
+	private final File file;
+	private final File lockFile;
+	// Largo y fecha del archivo tras la última lectura o escritura propia
+	private long knownLength;
+	private long knownModified;
+	
+	// Estado en memoria (se carga del archivo la primera vez)
+	private boolean loaded;
+	private String driverId;
+	private String companyId;
+	private long savedAt;
+	private long version;
+	private int records;
+	private final LinkedHashMap<Long, Row> rows = new LinkedHashMap<>();
+	// Pedidos agregados por el Worker después de la última carga completa, del más nuevo al más viejo
+	private final List<Long> prepended = new ArrayList<>();
+	
+	public OrderSnapshotStore(File file) {
+		this.file = file;
+		this.lockFile = new File(file.getPath() + ".lock");
+	}
+	
+	/**
+	 * Snapshot guardado, o null si no hay ninguno para este driver y empresa
+	 */
+	public synchronized Snapshot load(String driverId, String companyId) throws IOException {
+		ProcessFileLock lock = ProcessFileLock.acquire(lockFile);
+		try {
+			ensureLoaded();
+		} finally {
+			lock.close();
+		}
+		if (this.driverId == null || !this.driverId.equals(driverId) || !equalsNullable(this.companyId, companyId)) {
+			return null;
+		}
+		List<String> result = new ArrayList<>(rows.size());
+		for (int i = prepended.size() - 1; i >= 0; i--) {
+			Row row = rows.get(prepended.get(i));
+			if (row != null) {
+				result.add(row.json);
+			}
+		}
+		for (Map.Entry<Long, Row> entry : rows.entrySet()) {
+			if (!prepended.contains(entry.getKey())) {
+				result.add(entry.getValue().json);
+			}
+		}
+		return new Snapshot(this.driverId, this.companyId, savedAt, result);
+	}
+	
+	/**
+	 * Reemplaza el snapshot con una carga completa (las filas en el orden de la lista)
+	 */
+	public synchronized void replace(String driverId, String companyId, Map<Long, String> fullRows, long now) throws IOException {
+		ProcessFileLock lock = ProcessFileLock.acquire(lockFile);
+		try {
+			loaded = true;
+			this.driverId = driverId;
+			this.companyId = companyId;
+			this.savedAt = now;
+			rows.clear();
+			prepended.clear();
+			for (Map.Entry<Long, String> entry : fullRows.entrySet()) {
+				rows.put(entry.getKey(), new Row(entry.getValue(), false));
+			}
+			rewrite();
+		} finally {
+			lock.close();
+		}
+	}
+	
+	/**
+	 * Agrega un pedido visto por el Worker si el snapshot es de la misma empresa y no tiene ya
+	 * una versión completa del pedido.
+	 * @return true si se escribió
+	 */
+	public synchronized boolean putPartial(String companyId, long orderId, String json) throws IOException {
+		ProcessFileLock lock = ProcessFileLock.acquire(lockFile);
+		try {
+			ensureLoaded();
+			if (driverId == null || !equalsNullable(this.companyId, companyId)) {
+				return false;
+			}
+			if (rows.containsKey(orderId)) {
+				return false;
+			}
+			rows.put(orderId, new Row(json, true));
+			prepended.add(orderId);
+			append(OP_PUT_PARTIAL, orderId, json);
+			return true;
+		} finally {
+			lock.close();
+		}
+	}
+	
+	/**
+	 * Quita pedidos que dejaron de estar disponibles (tomados por otro driver o cancelados)
+	 * @return cantidad de pedidos quitados
+	 */
+	public synchronized int delete(String companyId, Collection<Long> orderIds) throws IOException {
+		ProcessFileLock lock = ProcessFileLock.acquire(lockFile);
+		try {
+			ensureLoaded();
+			if (driverId == null || !equalsNullable(this.companyId, companyId)) {
+				return 0;
+			}
+			int removed = 0;
+			for (Long orderId : orderIds) {
+				Row row = rows.get(orderId);
+				// Solo los pedidos pendientes de otros: los asignados a este driver siguen en su lista
+				if (row != null && (row.partial || isPending(row.json))) {
+					rows.remove(orderId);
+					prepended.remove(orderId);
+					append(OP_DELETE, orderId, null);
+					removed++;
+				}
+			}
+			if (removed > 0 && records > COMPACT_MIN_RECORDS && records > rows.size() * COMPACT_RATIO) {
+				rewrite();
+			}
+			return removed;
+		} finally {
+			lock.close();
+		}
+	}
+	
+	public synchronized void clear() throws IOException {
+		ProcessFileLock lock = ProcessFileLock.acquire(lockFile);
+		try {
+			reset();
+			loaded = true;
+			if (file.exists() && !file.delete()) {
+				file.deleteOnExit();
+			}
+			remember();
+		} finally {
+			lock.close();
+		}
+	}
+	
+	public synchronized int size() throws IOException {
+		ProcessFileLock lock = ProcessFileLock.acquire(lockFile);
+		try {
+			ensureLoaded();
+			return rows.size();
+		} finally {
+			lock.close();
+		}
+	}
+	
+	private void reset() {
+		loaded = false;
+		driverId = null;
+		companyId = null;
+		savedAt = 0;
+		version = 0;
+		records = 0;
+		rows.clear();
+		prepended.clear();
+	}
+	
+	/**
+	 * Anota el largo y la fecha del archivo tal como lo dejó este store
+	 */
+	private void remember() {
+		knownLength = file.length();
+		knownModified = file.lastModified();
+	}
+	
+	/**
+	 * Carga el archivo la primera vez, o de nuevo si otro proceso lo modificó. Se llama con el lock tomado
+	 */
+	private void ensureLoaded() throws IOException {
+		if (loaded && file.length() == knownLength && file.lastModified() == knownModified) {
+			return;
+		}
+		reset();
+		loaded = true;
+		try {
+			read();
+		} finally {
+			remember();
+		}
+	}
+	
+	private void read() throws IOException {
+		if (!file.exists()) {
+			return;
+		}
+		long valid = 0;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+				// Formato desconocido: se descarta, la próxima carga completa lo reescribe
+				return;
+			}
+			String storedDriver = in.readUTF();
+			String storedCompany = in.readUTF();
+			long storedSavedAt = in.readLong();
+			valid = 4 + 4 + utfLength(storedDriver) + utfLength(storedCompany) + 8;
+			driverId = storedDriver.isEmpty() ? null : storedDriver;
+			companyId = storedCompany.isEmpty() ? null : storedCompany;
+			savedAt = storedSavedAt;
+			
+			while (true) {
+				byte op;
+				try {
+					op = in.readByte();
+				} catch (EOFException e) {
+					break;
+				}
+				long orderId;
+				long recordVersion;
+				byte[] payload;
+				int crc;
+				try {
+					orderId = in.readLong();
+					recordVersion = in.readLong();
+					int length = in.readInt();
+					if (length < 0 || length > MAX_ROW_BYTES) {
+						break;
+					}
+					payload = new byte[length];
+					in.readFully(payload);
+					crc = in.readInt();
+				} catch (EOFException e) {
+					break;
+				}
+				if (crc != crc(op, orderId, payload)) {
+					break;
+				}
+				valid += 1 + 8 + 8 + 4 + payload.length + 4;
+				version = Math.max(version, recordVersion);
+				records++;
+				if (op == OP_DELETE) {
+					rows.remove(orderId);
+					prepended.remove(orderId);
+				} else {
+					boolean partial = op == OP_PUT_PARTIAL;
+					rows.put(orderId, new Row(new String(payload, StandardCharsets.UTF_8), partial));
+					if (partial) {
+						prepended.add(orderId);
+					}
+				}
+			}
+		} catch (EOFException e) {
+			// Cabecera incompleta: snapshot vacío
+			driverId = null;
+			rows.clear();
+			prepended.clear();
+			return;
+		}
+		if (valid < file.length()) {
+			// Registro final interrumpido: descartarlo para que los siguientes se puedan leer
+			try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+				raf.setLength(valid);
+			}
+		}
+	}
+	
+	private void rewrite() throws IOException {
+		File tmp = new File(file.getPath() + ".tmp");
+		records = 0;
+		try (FileOutputStream fileOut = new FileOutputStream(tmp, false);
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut))) {
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeUTF(driverId != null ? driverId : "");
+			out.writeUTF(companyId != null ? companyId : "");
+			out.writeLong(savedAt);
+			for (Map.Entry<Long, Row> entry : rows.entrySet()) {
+				Row row = entry.getValue();
+				writeRecord(out, row.partial ? OP_PUT_PARTIAL : OP_PUT, entry.getKey(), row.json);
+			}
+			out.flush();
+			fileOut.getFD().sync();
+		}
+		if (!tmp.renameTo(file)) {
+			throw new IOException("No se pudo guardar el snapshot " + file);
+		}
+		remember();
+	}
+	
+	private void append(byte op, long orderId, String json) throws IOException {
+		if (!file.exists()) {
+			rewrite();
+			return;
+		}
+		try (FileOutputStream fileOut = new FileOutputStream(file, true);
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut))) {
+			writeRecord(out, op, orderId, json);
+			out.flush();
+			fileOut.getFD().sync();
+		}
+		remember();
+	}
+	
+	private void writeRecord(DataOutputStream out, byte op, long orderId, String json) throws IOException {
+		byte[] payload = json != null ? json.getBytes(StandardCharsets.UTF_8) : new byte[0];
+		out.writeByte(op);
+		out.writeLong(orderId);
+		out.writeLong(++version);
+		out.writeInt(payload.length);
+		out.write(payload);
+		out.writeInt(crc(op, orderId, payload));
+		records++;
+	}
+	
+	/**
+	 * Una fila completa está pendiente si su status es "Pendiente" (búsqueda de texto: el store
+	 * no parsea JSON)
+	 */
+	private static boolean isPending(String json) {
+		return json.contains("\"status\":\"Pendiente\"");
+	}
+	
+	private static int crc(byte op, long orderId, byte[] payload) {
+		CRC32 crc = new CRC32();
+		crc.update(op);
+		for (int shift = 56; shift >= 0; shift -= 8) {
+			crc.update((int) (orderId >>> shift) & 0xFF);
+		}
+		crc.update(payload, 0, payload.length);
+		return (int) crc.getValue();
+	}
+	
+	private static int utfLength(String value) {
+		// writeUTF: 2 bytes de largo + UTF-8 modificado (igual a UTF-8 para texto sin NUL ni suplentes)
+		return 2 + value.getBytes(StandardCharsets.UTF_8).length;
+	}
+	
+	private static boolean equalsNullable(String a, String b) {
+		return a == null ? b == null : a.equals(b);
+	}
+}
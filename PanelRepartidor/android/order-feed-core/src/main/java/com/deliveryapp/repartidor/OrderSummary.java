@@ -0,0 +1,104 @@
+package com.deliveryapp.repartidor;
+
+/**
+ * Campos de un pedido del feed que necesita la notificación.
+ * Los nombres de cliente y local (y sus ids) pueden ser null si el feed no los incluye; con el
+ * feed sin relaciones embebidas los nombres se completan en el dispositivo (withNames).
+ * Si se decodificó con keepRows, getRow trae además el JSON completo de la fila.
+ */
+public final class OrderSummary {
+	private final long id;
+	private final String createdAt;
+	private final String deliveryAddress;
+	private final double suggestedPrice;
+	private final String clientName;
+	private final String localName;
+	private final String localId;
+	private final String clientId;
+	private final String row;
+	
+	public OrderSummary(long id, String createdAt, String deliveryAddress, double suggestedPrice,
+			String clientName, String localName) {
+		this(id, createdAt, deliveryAddress, suggestedPrice, clientName, localName, null);
+	}
+	
+	public OrderSummary(long id, String createdAt, String deliveryAddress, double suggestedPrice,
+			String clientName, String localName, String localId) {
+		this(id, createdAt, deliveryAddress, suggestedPrice, clientName, localName, localId, null);
+	}
+	
+	public OrderSummary(long id, String createdAt, String deliveryAddress, double suggestedPrice,
+			String clientName, String localName, String localId, String clientId) {
+		this(id, createdAt, deliveryAddress, suggestedPrice, clientName, localName, localId, clientId, null);
+	}
+	
+	private OrderSummary(long id, String createdAt, String deliveryAddress, double suggestedPrice,
+			String clientName, String localName, String localId, String clientId, String row) {
+		this.id = id;
+		this.createdAt = createdAt;
+		this.deliveryAddress = deliveryAddress;
+		this.suggestedPrice = suggestedPrice;
+		this.clientName = clientName;
+		this.localName = localName;
+		this.localId = localId;
+		this.clientId = clientId;
+		this.row = row;
+	}
+	
+	/**
+	 * Copia con los nombres indicados (los null conservan el valor actual)
+	 */
+	public OrderSummary withNames(String clientName, String localName) {
+		return new OrderSummary(id, createdAt, deliveryAddress, suggestedPrice,
+			clientName != null ? clientName : this.clientName,
+			localName != null ? localName : this.localName,
+			localId, clientId, row);
+	}
+	
+	/**
+	 * Copia con el JSON de la fila tal como llegó del feed
+	 */
+	OrderSummary withRow(String row) {
+		return new OrderSummary(id, createdAt, deliveryAddress, suggestedPrice, clientName, localName,
+			localId, clientId, row);
+	}
+	
+	public long getId() {
+		return id;
+	}
+	
+	public String getCreatedAt() {
+		return createdAt;
+	}
+	
+	public String getDeliveryAddress() {
+		return deliveryAddress;
+	}
+	
+	public double getSuggestedPrice() {
+		return suggestedPrice;
+	}
+	
+	public String getClientName() {
+		return clientName;
+	}
+	
+	public String getLocalName() {
+		return localName;
+	}
+	
+	public String getLocalId() {
+		return localId;
+	}
+	
+	public String getClientId() {
+		return clientId;
+	}
+	
+	/**
+	 * JSON de la fila del feed, o null si no se decodificó con keepRows
+	 */
+	public String getRow() {
+		return row;
+	}
+}
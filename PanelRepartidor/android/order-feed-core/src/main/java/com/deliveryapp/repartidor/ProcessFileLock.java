@@ -0,0 +1,120 @@
+package com.deliveryapp.repartidor;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Lock exclusivo entre procesos sobre un archivo de lock (FileChannel.lock): lo usan los
+ * archivos que escriben tanto el proceso de la UI como :sync (cola offline, snapshot, pack de
+ * tiles). El sistema lo libera si el proceso muere, así que no queda tomado por un cierre abrupto.
+ *
+ * Dentro de un mismo proceso el lock de archivo no excluye (la JVM lanza
+ * OverlappingFileLockException), así que además hay un semáforo por archivo. Es un semáforo y
+ * no un ReentrantLock porque el lock de una cola abierta se libera al cerrarla, quizás desde
+ * otro hilo.
+ */
+public final class ProcessFileLock implements Closeable {
+	private static final Map<String, Semaphore> LOCAL = new HashMap<>();
+	
+	private final Semaphore local;
+	private final RandomAccessFile file;
+	private final FileLock lock;
+	private boolean released;
+	
+	private ProcessFileLock(Semaphore local, RandomAccessFile file, FileLock lock) {
+		this.local = local;
+		this.file = file;
+		this.lock = lock;
+	}
+	
+	/**
+	 * Toma el lock, esperando a que lo suelte quien lo tenga (en este u otro proceso)
+	 */
+	public static ProcessFileLock acquire(File lockFile) throws IOException {
+		Semaphore local = local(lockFile);
+		try {
+			local.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrumpido esperando " + lockFile, e);
+		}
+		return lock(lockFile, local, true);
+	}
+	
+	/**
+	 * Toma el lock solo si está libre
+	 * @return null si lo tiene otro proceso u otra instancia de este
+	 */
+	public static ProcessFileLock tryAcquire(File lockFile) throws IOException {
+		Semaphore local = local(lockFile);
+		if (!local.tryAcquire()) {
+			return null;
+		}
+		return lock(lockFile, local, false);
+	}
+	
+	private static ProcessFileLock lock(File lockFile, Semaphore local, boolean wait) throws IOException {
+		RandomAccessFile file = null;
+		try {
+			File parent = lockFile.getParentFile();
+			if (parent != null && !parent.exists() && !parent.mkdirs()) {
+				throw new IOException("No se pudo crear " + parent);
+			}
+			file = new RandomAccessFile(lockFile, "rw");
+			FileChannel channel = file.getChannel();
+			FileLock lock = wait ? channel.lock() : channel.tryLock();
+			if (lock == null) {
+				file.close();
+				local.release();
+				return null;
+			}
+			return new ProcessFileLock(local, file, lock);
+		} catch (IOException | RuntimeException e) {
+			if (file != null) {
+				try {
+					file.close();
+				} catch (IOException ignored) {
+					// Ya se está propagando el error original
+				}
+			}
+			local.release();
+			throw e;
+		}
+	}
+	
+	private static Semaphore local(File lockFile) {
+		String path = lockFile.getAbsolutePath();
+		synchronized (LOCAL) {
+			Semaphore semaphore = LOCAL.get(path);
+			if (semaphore == null) {
+				semaphore = new Semaphore(1);
+				LOCAL.put(path, semaphore);
+			}
+			return semaphore;
+		}
+	}
+	
+	/**
+	 * Suelta el lock; llamarlo más de una vez no hace nada
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (released) {
+			return;
+		}
+		released = true;
+		try {
+			lock.release();
+			file.close();
+		} finally {
+			local.release();
+		}
+	}
+}
@@ -0,0 +1,147 @@
+package com.deliveryapp.repartidor;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Estado chico (texto clave-valor) que comparten el proceso de la UI y :sync: la copia de la
+ * sesión que escribe la UI, el cursor del feed, el registro de notificados y el modelo de
+ * llegadas. Reemplaza a SharedPreferences para esto: cada proceso guarda su copia en memoria y
+ * escribe el archivo entero con apply(), así que uno pisaba lo que acababa de escribir el otro.
+ *
+ * Cada edición toma un ProcessFileLock, vuelve a leer el archivo si cambió y lo reemplaza
+ * entero (archivo temporal y rename). Las lecturas no toman el lock: el rename es atómico, así
+ * que ven la versión anterior o la nueva. Mientras el archivo no cambie (largo y fecha), leer
+ * no toca el disco más que para el stat.
+ */
+public final class SyncStateStore {
+	/**
+	 * Cambios de una edición sobre los valores actuales; las claves con valor null se borran
+	 */
+	public interface Edit {
+		void apply(Map<String, String> values);
+	}
+	
+	private final File file;
+	private final File lockFile;
+	private final Map<String, String> values = new HashMap<>();
+	private boolean loaded;
+	// Largo y fecha del archivo tras la última lectura o escritura propia
+	private long knownLength;
+	private long knownModified;
+	// Cambia cada vez que cambian los valores, por este proceso o por el otro
+	private long generation;
+	
+	public SyncStateStore(File file) {
+		this.file = file;
+		this.lockFile = new File(file.getPath() + ".lock");
+	}
+	
+	/**
+	 * Valor actual de la clave, o null
+	 */
+	public synchronized String get(String key) throws IOException {
+		refresh();
+		return values.get(key);
+	}
+	
+	/**
+	 * Número que cambia cuando cambia algún valor: quien decodifica un valor lo guarda junto
+	 * con esto y solo lo vuelve a decodificar si cambió
+	 */
+	public synchronized long generation() throws IOException {
+		refresh();
+		return generation;
+	}
+	
+	/**
+	 * Aplica los cambios sobre los valores más recientes del archivo, con el lock tomado: una
+	 * lectura, modificación y escritura que el otro proceso no puede intercalar. Si no cambió
+	 * nada, no escribe.
+	 */
+	public synchronized void edit(Edit edit) throws IOException {
+		ProcessFileLock lock = ProcessFileLock.acquire(lockFile);
+		try {
+			refresh();
+			Map<String, String> edited = new HashMap<>(values);
+			edit.apply(edited);
+			Iterator<String> it = edited.values().iterator();
+			while (it.hasNext()) {
+				if (it.next() == null) {
+					it.remove();
+				}
+			}
+			if (edited.equals(values)) {
+				return;
+			}
+			write(edited);
+			values.clear();
+			values.putAll(edited);
+			generation++;
+		} finally {
+			lock.close();
+		}
+	}
+	
+	/**
+	 * Vuelve a leer el archivo la primera vez o si otro proceso lo reemplazó
+	 */
+	private void refresh() throws IOException {
+		long length = file.length();
+		long modified = file.lastModified();
+		if (loaded && length == knownLength && modified == knownModified) {
+			return;
+		}
+		Properties stored = new Properties();
+		if (file.exists()) {
+			try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+				stored.load(in);
+			}
+		}
+		Map<String, String> read = new HashMap<>();
+		for (String key : stored.stringPropertyNames()) {
+			read.put(key, stored.getProperty(key));
+		}
+		loaded = true;
+		knownLength = length;
+		knownModified = modified;
+		if (!read.equals(values)) {
+			values.clear();
+			values.putAll(read);
+			generation++;
+		}
+	}
+	
+	private void write(Map<String, String> edited) throws IOException {
+		Properties out = new Properties();
+		out.putAll(edited);
+		File tmp = new File(file.getPath() + ".tmp");
+		File parent = file.getParentFile();
+		if (parent != null && !parent.exists() && !parent.mkdirs()) {
+			throw new IOException("No se pudo crear " + parent);
+		}
+		try (FileOutputStream fileOut = new FileOutputStream(tmp, false)) {
+			out.store(fileOut, null);
+			fileOut.getFD().sync();
+		}
+		long previousLength = file.length();
+		long previousModified = file.lastModified();
+		if (!tmp.renameTo(file)) {
+			throw new IOException("No se pudo guardar " + file);
+		}
+		// Mismo largo en el mismo milisegundo: el otro proceso no notaría el cambio
+		if (file.length() == previousLength && file.lastModified() == previousModified) {
+			file.setLastModified(previousModified + 1);
+		}
+		knownLength = file.length();
+		knownModified = file.lastModified();
+	}
+}
@@ -0,0 +1,326 @@
+package com.deliveryapp.repartidor;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reemplazo local de PostgREST para /rest/v1/orders, con solo las consultas que hace
+ * OrderFeedPipeline: el feed de pendientes posteriores al cursor (o el más reciente, en la
+ * primera ejecución) y la verificación de pendientes por id.
+ *
+ * Los pedidos se generan de antemano y el tiempo es virtual: un pedido existe desde su
+ * created_at y deja de estar pendiente al tomarlo otro repartidor, según el reloj que avanza
+ * FleetSimulator. Cuenta peticiones y bytes de respuesta por minuto virtual.
+ */
+final class FakePostgrest {
+	static final String API_KEY = "sim-anon-key";
+	
+	// El filtro de OrderFeedCursor.toQueryFilter(), ya decodificado
+	private static final Pattern CURSOR_FILTER = Pattern.compile(
+		"\\(created_at\\.gt\\.\"([^\"]+)\",and\\(created_at\\.eq\\.\"[^\"]+\",id\\.gt\\.(-?\\d+)\\)\\)");
+	private static final Pattern ID_LIST = Pattern.compile("in\\.\\(([^)]*)\\)");
+	
+	/**
+	 * Pedido simulado. Ids crecientes en orden de creación, como una secuencia de Postgres.
+	 */
+	static final class Order {
+		final long id;
+		final String companyId;
+		final long createdAtMs;
+		final String createdAt;
+		// Long.MAX_VALUE si nadie lo toma durante la simulación
+		final long takenAtMs;
+		final String json;
+		
+		Order(long id, String companyId, long createdAtMs, String createdAt, long takenAtMs, String json) {
+			this.id = id;
+			this.companyId = companyId;
+			this.createdAtMs = createdAtMs;
+			this.createdAt = createdAt;
+			this.takenAtMs = takenAtMs;
+			this.json = json;
+		}
+		
+		boolean isVisibleAt(long nowMs) {
+			return createdAtMs <= nowMs;
+		}
+		
+		boolean isPendingAt(long nowMs) {
+			return createdAtMs <= nowMs && nowMs < takenAtMs;
+		}
+	}
+	
+	private final AtomicLong clock;
+	// Pedidos de cada empresa en orden (created_at, id)
+	private final Map<String, List<Order>> byCompany = new HashMap<>();
+	private final Map<Long, Order> byId = new HashMap<>();
+	private final SimpleDateFormat timestampFormat;
+	
+	private final AtomicLong feedRequests = new AtomicLong();
+	private final AtomicLong pendingChecks = new AtomicLong();
+	private final AtomicLong errors = new AtomicLong();
+	private final AtomicLong bytes = new AtomicLong();
+	private final AtomicLongArray requestsPerMinute;
+	
+	private HttpServer server;
+	
+	/**
+	 * @param clock   milisegundos virtuales desde el inicio de la simulación
+	 * @param minutes duración de la simulación (para el conteo por minuto)
+	 */
+	FakePostgrest(AtomicLong clock, int minutes) {
+		this.clock = clock;
+		this.requestsPerMinute = new AtomicLongArray(minutes + 1);
+		timestampFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'000+00:00'", Locale.US);
+		timestampFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+	}
+	
+	/**
+	 * Agrega un pedido. Hay que agregarlos en orden de creación (antes de start()).
+	 * @param epochMs fecha real que corresponde al instante 0 de la simulación
+	 */
+	Order addOrder(long id, String companyId, long epochMs, long createdAtMs, long takenAtMs, String address,
+			int price, String localId, String client, String local) {
+		String createdAt = timestampFormat.format(new Date(epochMs + createdAtMs));
+		String json = "{\"id\":" + id
+			+ ",\"created_at\":\"" + createdAt + "\""
+			+ ",\"delivery_address\":\"" + address + "\""
+			+ ",\"suggested_price\":" + price
+			+ ",\"local_id\":\"" + localId + "\""
+			+ ",\"clients\":{\"name\":\"" + client + "\"}"
+			+ ",\"locals\":{\"name\":\"" + local + "\"}}";
+		Order order = new Order(id, companyId, createdAtMs, createdAt, takenAtMs, json);
+		List<Order> orders = byCompany.get(companyId);
+		if (orders == null) {
+			orders = new ArrayList<>();
+			byCompany.put(companyId, orders);
+		}
+		orders.add(order);
+		byId.put(id, order);
+		return order;
+	}
+	
+	Order getOrder(long id) {
+		return byId.get(id);
+	}
+	
+	List<Order> getOrders(String companyId) {
+		List<Order> orders = byCompany.get(companyId);
+		return orders != null ? orders : new ArrayList<Order>();
+	}
+	
+	/**
+	 * Levanta el servidor en un puerto libre de localhost
+	 * @return URL base para usar como supabaseUrl
+	 */
+	String start(ExecutorService executor) throws IOException {
+		// Sin esto los headers y el cuerpo de cada respuesta esperan el ACK retrasado de loopback (~40 ms)
+		System.setProperty("sun.net.httpserver.nodelay", "true");
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+		server.createContext("/rest/v1/orders", this::handle);
+		server.setExecutor(executor);
+		server.start();
+		return "http://127.0.0.1:" + server.getAddress().getPort();
+	}
+	
+	void stop() {
+		if (server != null) {
+			server.stop(0);
+		}
+	}
+	
+	long getFeedRequests() {
+		return feedRequests.get();
+	}
+	
+	long getPendingChecks() {
+		return pendingChecks.get();
+	}
+	
+	long getErrors() {
+		return errors.get();
+	}
+	
+	long getBytes() {
+		return bytes.get();
+	}
+	
+	long getPeakRequestsPerMinute() {
+		long peak = 0;
+		for (int i = 0; i < requestsPerMinute.length(); i++) {
+			peak = Math.max(peak, requestsPerMinute.get(i));
+		}
+		return peak;
+	}
+	
+	private void handle(HttpExchange exchange) throws IOException {
+		long now = clock.get();
+		int minute = (int) Math.min(requestsPerMinute.length() - 1, now / 60_000);
+		requestsPerMinute.incrementAndGet(minute);
+		
+		int code = 200;
+		String body;
+		try {
+			if (!API_KEY.equals(exchange.getRequestHeaders().getFirst("apikey"))) {
+				code = 401;
+				body = "{\"message\":\"Invalid API key\"}";
+			} else {
+				body = query(parseQuery(exchange.getRequestURI().getRawQuery()), now);
+			}
+		} catch (RuntimeException e) {
+			code = 400;
+			body = "{\"message\":\"" + e.getMessage() + "\"}";
+		}
+		if (code != 200) {
+			errors.incrementAndGet();
+		}
+		
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		this.bytes.addAndGet(bytes.length);
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(code, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+	
+	private String query(Map<String, String> params, long now) {
+		if (!"eq.Pendiente".equals(params.get("status"))) {
+			throw new IllegalArgumentException("solo se simula status=eq.Pendiente");
+		}
+		String ids = params.get("id");
+		if (ids != null) {
+			pendingChecks.incrementAndGet();
+			return stillPending(ids, now);
+		}
+		
+		feedRequests.incrementAndGet();
+		String company = params.get("company_id");
+		if (company == null || !company.startsWith("eq.")) {
+			throw new IllegalArgumentException("falta company_id");
+		}
+		List<Order> orders = getOrders(company.substring(3));
+		int limit = params.containsKey("limit") ? Integer.parseInt(params.get("limit")) : Integer.MAX_VALUE;
+		String order = params.get("order");
+		
+		StringBuilder out = new StringBuilder("[");
+		int count = 0;
+		if (order != null && order.startsWith("created_at.desc")) {
+			for (int i = orders.size() - 1; i >= 0 && count < limit; i--) {
+				Order candidate = orders.get(i);
+				if (candidate.isPendingAt(now)) {
+					append(out, candidate, count++);
+				}
+			}
+		} else {
+			int from = 0;
+			String filter = params.get("or");
+			if (filter != null) {
+				Matcher matcher = CURSOR_FILTER.matcher(filter);
+				if (!matcher.matches()) {
+					throw new IllegalArgumentException("filtro no soportado: " + filter);
+				}
+				from = firstAfter(orders, matcher.group(1), Long.parseLong(matcher.group(2)));
+			}
+			for (int i = from; i < orders.size() && count < limit; i++) {
+				Order candidate = orders.get(i);
+				if (!candidate.isVisibleAt(now)) {
+					// En orden de creación: los siguientes todavía no existen
+					break;
+				}
+				if (candidate.isPendingAt(now)) {
+					append(out, candidate, count++);
+				}
+			}
+		}
+		return out.append(']').toString();
+	}
+	
+	private String stillPending(String ids, long now) {
+		Matcher matcher = ID_LIST.matcher(ids);
+		if (!matcher.matches()) {
+			throw new IllegalArgumentException("filtro de ids no soportado: " + ids);
+		}
+		StringBuilder out = new StringBuilder("[");
+		int count = 0;
+		for (String part : matcher.group(1).split(",")) {
+			if (part.isEmpty()) {
+				continue;
+			}
+			Order order = byId.get(Long.parseLong(part.trim()));
+			if (order != null && order.isPendingAt(now)) {
+				out.append(count++ > 0 ? "," : "").append("{\"id\":").append(order.id).append('}');
+			}
+		}
+		return out.append(']').toString();
+	}
+	
+	private static void append(StringBuilder out, Order order, int index) {
+		if (index > 0) {
+			out.append(',');
+		}
+		out.append(order.json);
+	}
+	
+	/**
+	 * Índice del primer pedido posterior a (createdAt, id); los timestamps tienen el mismo
+	 * formato, así que se comparan como texto, igual que OrderFeedCursor
+	 */
+	private static int firstAfter(List<Order> orders, String createdAt, long id) {
+		int low = 0;
+		int high = orders.size();
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			Order order = orders.get(mid);
+			int cmp = order.createdAt.compareTo(createdAt);
+			if (cmp < 0 || (cmp == 0 && order.id <= id)) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+	
+	private static Map<String, String> parseQuery(String rawQuery) {
+		Map<String, String> params = new HashMap<>();
+		if (rawQuery == null) {
+			return params;
+		}
+		for (String pair : rawQuery.split("&")) {
+			int eq = pair.indexOf('=');
+			if (eq > 0) {
+				params.put(decode(pair.substring(0, eq)), decode(pair.substring(eq + 1)));
+			}
+		}
+		return params;
+	}
+	
+	private static String decode(String value) {
+		try {
+			return URLDecoder.decode(value, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
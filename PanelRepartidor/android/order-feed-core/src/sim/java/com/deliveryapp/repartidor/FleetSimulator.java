@@ -0,0 +1,584 @@
+package com.deliveryapp.repartidor;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import okhttp3.OkHttpClient;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Simulador de carga de la flota: corre la verificación de OrderNotificationWorker
+ * (OrderFeedPipeline + verificación de tomados, igual que OrderFeedSync) para N drivers contra
+ * FakePostgrest, con la estrategia de programación indicada, y reporta lo que le cuesta al
+ * backend (peticiones y bytes) y lo que gana el driver (latencia de notificación, duplicados y
+ * pedidos que nunca vio).
+ *
+ * El tiempo es virtual: las verificaciones que vencen en el mismo segundo se ejecutan juntas
+ * (una tarea por driver, en hilos virtuales si el JDK los tiene) y después avanza el reloj.
+ * No modela Doze ni los retrasos de WorkManager: cada trabajo corre a su hora exacta.
+ *
+ * Uso: ./gradlew :order-feed-core:simulateFleet -Psim.args="--drivers 5000 --strategy legacy"
+ *
+ * Estrategias:
+ *   legacy   — la programación original: al abrir la app una verificación inmediata, 9 más a
+ *              los 15 s, 30 s, 45 s, 1, 2, 3, 5, 7 y 10 min, y el periódico de 15 min
+ *   adaptive — la cadena de OrderCheckScheduler (ArrivalRateModel + CheckIntervalPolicy) más el
+ *              periódico de 15 min como respaldo
+ *   fixed    — una verificación cada --interval segundos
+ */
+public final class FleetSimulator {
+	private static final long SECOND = 1000;
+	private static final long MINUTE = 60 * SECOND;
+	private static final long[] LEGACY_DELAYS_SECONDS = { 0, 15, 30, 45, 60, 120, 180, 300, 420, 600 };
+	private static final long PERIODIC_MS = 15 * MINUTE;
+	private static final long PERIODIC_INITIAL_MS = MINUTE;
+	// Mismo tope que OrderFeedSync.MAX_TAKEN_CHECK
+	private static final int MAX_TAKEN_CHECK = 50;
+	// Lunes 5 de enero de 2026, 00:00 UTC; la hora del día sale de --start-hour
+	private static final long EPOCH_MS = 1767571200000L;
+	private static final CheckIntervalPolicy.Conditions IDLE_ON_WIFI =
+		new CheckIntervalPolicy.Conditions(true, 80, false, false, true, false);
+	
+	enum Strategy {
+		LEGACY,
+		ADAPTIVE,
+		FIXED
+	}
+	
+	private enum Kind {
+		ONE_TIME,
+		PERIODIC,
+		CHAIN
+	}
+	
+	static final class Options {
+		int drivers = 1000;
+		// 0: un local cada 20 drivers
+		int companies;
+		double ordersPerHour = 12;
+		int minutes = 120;
+		int startHour = 12;
+		// Minutos promedio hasta que otro repartidor toma el pedido
+		double takeMinutes = 4;
+		// Ventana para iniciar sesión, desde el inicio de la simulación
+		int loginMinutes = 10;
+		// Pedidos de los últimos minutos que no se cuentan como perdidos (la verificación podía no llegar)
+		int graceMinutes = 15;
+		Strategy strategy = Strategy.ADAPTIVE;
+		int intervalSeconds = 60;
+		// Peticiones HTTP simultáneas (cada una con su propio pool keep-alive, como un dispositivo)
+		int concurrency = 64;
+		long seed = 42;
+		String json;
+		
+		static Options parse(String[] args) {
+			Options options = new Options();
+			for (int i = 0; i < args.length; i++) {
+				String name = args[i];
+				if (name.isEmpty()) {
+					continue;
+				}
+				if (i + 1 >= args.length) {
+					throw new IllegalArgumentException("Falta el valor de " + name);
+				}
+				String value = args[++i];
+				switch (name) {
+					case "--drivers": options.drivers = Integer.parseInt(value); break;
+					case "--companies": options.companies = Integer.parseInt(value); break;
+					case "--orders-per-hour": options.ordersPerHour = Double.parseDouble(value); break;
+					case "--minutes": options.minutes = Integer.parseInt(value); break;
+					case "--start-hour": options.startHour = Integer.parseInt(value); break;
+					case "--take-minutes": options.takeMinutes = Double.parseDouble(value); break;
+					case "--login-minutes": options.loginMinutes = Integer.parseInt(value); break;
+					case "--grace-minutes": options.graceMinutes = Integer.parseInt(value); break;
+					case "--strategy": options.strategy = Strategy.valueOf(value.toUpperCase(Locale.US)); break;
+					case "--interval": options.intervalSeconds = Integer.parseInt(value); break;
+					case "--concurrency": options.concurrency = Integer.parseInt(value); break;
+					case "--seed": options.seed = Long.parseLong(value); break;
+					case "--json": options.json = value; break;
+					default: throw new IllegalArgumentException("Opción desconocida: " + name);
+				}
+			}
+			if (options.companies <= 0) {
+				options.companies = Math.max(1, options.drivers / 20);
+			}
+			return options;
+		}
+	}
+	
+	/**
+	 * Estado de un dispositivo: cursor, notificaciones mostradas y modelo de llegada
+	 */
+	private static final class Driver {
+		final String companyId;
+		final long loginMs;
+		final ArrivalRateModel model = new ArrivalRateModel();
+		final Set<Long> notified = new HashSet<>();
+		// Notificaciones visibles, de la más vieja a la más nueva (como NotificationEngine)
+		final LinkedHashSet<Long> active = new LinkedHashSet<>();
+		OrderFeedCursor cursor;
+		long firstCheckMs = -1;
+		
+		Driver(String companyId, long loginMs) {
+			this.companyId = companyId;
+			this.loginMs = loginMs;
+		}
+	}
+	
+	private static final class Check implements Comparable<Check> {
+		final long atMs;
+		final Driver driver;
+		final Kind kind;
+		
+		Check(long atMs, Driver driver, Kind kind) {
+			// Resolución de un segundo: lo que vence en el mismo segundo corre en paralelo
+			this.atMs = (atMs + SECOND - 1) / SECOND * SECOND;
+			this.driver = driver;
+			this.kind = kind;
+		}
+		
+		@Override
+		public int compareTo(Check other) {
+			return Long.compare(atMs, other.atMs);
+		}
+	}
+	
+	private final Options options;
+	private final AtomicLong clock = new AtomicLong();
+	private final FakePostgrest server;
+	private final List<Driver> drivers = new ArrayList<>();
+	private final PriorityQueue<Check> queue = new PriorityQueue<>();
+	private final CheckMetrics metrics = new CheckMetrics();
+	private BlockingQueue<NativeHttpClient> lanes;
+	private OrderFeedPipeline.Endpoint[] endpoints;
+	
+	private final AtomicLong checks = new AtomicLong();
+	private final AtomicLong failures = new AtomicLong();
+	private final AtomicLong duplicates = new AtomicLong();
+	private long[] latenciesMs = new long[1024];
+	private int latencyCount;
+	
+	FleetSimulator(Options options) {
+		this.options = options;
+		this.server = new FakePostgrest(clock, options.minutes);
+	}
+	
+	public static void main(String[] args) throws Exception {
+		// Los avisos de red por petición inundarían la salida; los errores se cuentan aparte
+		Logger.getLogger("OrderFeedPipeline").setLevel(Level.SEVERE);
+		Logger.getLogger("NativeHttpClient").setLevel(Level.SEVERE);
+		
+		Options options = Options.parse(args);
+		JSONObject report = new FleetSimulator(options).run();
+		System.out.println(format(report));
+		if (options.json != null) {
+			File file = new File(options.json);
+			if (file.getParentFile() != null) {
+				file.getParentFile().mkdirs();
+			}
+			try (Writer out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+				out.write(report.toString(2));
+			}
+			System.out.println("Reporte JSON: " + file.getAbsolutePath());
+		}
+	}
+	
+	JSONObject run() throws Exception {
+		Random random = new Random(options.seed);
+		generateOrders(random);
+		ExecutorService serverExecutor = newExecutor(options.concurrency);
+		ExecutorService checkExecutor = newExecutor(options.concurrency);
+		long wallStart = System.nanoTime();
+		try {
+			String url = server.start(serverExecutor);
+			endpoints = new OrderFeedPipeline.Endpoint[options.companies];
+			for (int c = 0; c < options.companies; c++) {
+				endpoints[c] = new OrderFeedPipeline.Endpoint(url, FakePostgrest.API_KEY, companyId(c));
+			}
+			lanes = new ArrayBlockingQueue<>(options.concurrency);
+			for (int i = 0; i < options.concurrency; i++) {
+				lanes.add(new NativeHttpClient(new OkHttpClient.Builder()));
+			}
+			
+			for (int d = 0; d < options.drivers; d++) {
+				Driver driver = new Driver(companyId(d % options.companies),
+					(long) (random.nextDouble() * options.loginMinutes * MINUTE));
+				drivers.add(driver);
+				scheduleLogin(driver);
+			}
+			simulate(checkExecutor);
+		} finally {
+			checkExecutor.shutdownNow();
+			server.stop();
+			serverExecutor.shutdownNow();
+		}
+		return buildReport((System.nanoTime() - wallStart) / 1_000_000);
+	}
+	
+	/**
+	 * Llegadas de Poisson por empresa; ids globales en orden de creación
+	 */
+	private void generateOrders(Random random) {
+		long durationMs = options.minutes * MINUTE;
+		double meanGapMs = 3_600_000.0 / options.ordersPerHour;
+		List<long[]> arrivals = new ArrayList<>();
+		for (int c = 0; c < options.companies; c++) {
+			long at = (long) exponential(random, meanGapMs);
+			while (at < durationMs) {
+				arrivals.add(new long[] { at, c });
+				at += (long) exponential(random, meanGapMs);
+			}
+		}
+		arrivals.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+		
+		long id = 1000;
+		for (long[] arrival : arrivals) {
+			long createdAt = arrival[0];
+			int company = (int) arrival[1];
+			long takenAt = options.takeMinutes > 0
+				? createdAt + (long) exponential(random, options.takeMinutes * MINUTE)
+				: Long.MAX_VALUE;
+			int local = random.nextInt(8);
+			server.addOrder(id, companyId(company), EPOCH_MS + options.startHour * 3_600_000L, createdAt, takenAt,
+				"Calle " + (100 + random.nextInt(900)) + " #" + id, 2000 + 100 * random.nextInt(31),
+				"local-" + company + "-" + local, "Cliente " + id, "Local " + company + "-" + local);
+			id++;
+		}
+	}
+	
+	private void scheduleLogin(Driver driver) {
+		switch (options.strategy) {
+			case LEGACY:
+				for (long delay : LEGACY_DELAYS_SECONDS) {
+					queue.add(new Check(driver.loginMs + delay * SECOND, driver, Kind.ONE_TIME));
+				}
+				queue.add(new Check(driver.loginMs + PERIODIC_INITIAL_MS, driver, Kind.PERIODIC));
+				break;
+			case ADAPTIVE:
+				queue.add(new Check(driver.loginMs + nextChainDelayMs(driver, driver.loginMs), driver, Kind.CHAIN));
+				queue.add(new Check(driver.loginMs + PERIODIC_INITIAL_MS, driver, Kind.PERIODIC));
+				break;
+			case FIXED:
+				queue.add(new Check(driver.loginMs, driver, Kind.PERIODIC));
+				break;
+		}
+	}
+	
+	private void simulate(ExecutorService executor) throws InterruptedException, ExecutionException {
+		long durationMs = options.minutes * MINUTE;
+		while (!queue.isEmpty() && queue.peek().atMs < durationMs) {
+			long tick = queue.peek().atMs;
+			clock.set(tick);
+			
+			// Un driver con dos trabajos en el mismo segundo los corre en serie (OrderFeedSync.LOCK)
+			List<List<Check>> perDriver = new ArrayList<>();
+			Map<Driver, List<Check>> grouped = new LinkedHashMap<>();
+			while (!queue.isEmpty() && queue.peek().atMs == tick) {
+				Check check = queue.poll();
+				List<Check> list = grouped.get(check.driver);
+				if (list == null) {
+					list = new ArrayList<>(2);
+					grouped.put(check.driver, list);
+					perDriver.add(list);
+				}
+				list.add(check);
+			}
+			
+			List<Future<List<Check>>> results = new ArrayList<>(perDriver.size());
+			for (List<Check> batch : perDriver) {
+				results.add(executor.submit(runChecks(batch, tick)));
+			}
+			for (Future<List<Check>> result : results) {
+				queue.addAll(result.get());
+			}
+		}
+	}
+	
+	/**
+	 * @return las siguientes verificaciones que programan los trabajos ejecutados
+	 */
+	private Callable<List<Check>> runChecks(List<Check> batch, long now) {
+		return () -> {
+			List<Check> next = new ArrayList<>(batch.size());
+			NativeHttpClient http = lanes.take();
+			try {
+				for (Check check : batch) {
+					int arrivals = check(check.driver, http, now);
+					Check following = reschedule(check, arrivals, now);
+					if (following != null) {
+						next.add(following);
+					}
+				}
+			} finally {
+				lanes.add(http);
+			}
+			return next;
+		};
+	}
+	
+	private Check reschedule(Check check, int arrivals, long now) {
+		Driver driver = check.driver;
+		switch (check.kind) {
+			case PERIODIC:
+				long period = options.strategy == Strategy.FIXED ? options.intervalSeconds * SECOND : PERIODIC_MS;
+				return new Check(now + period, driver, Kind.PERIODIC);
+			case CHAIN:
+				// Igual que OrderCheckScheduler.onCheckCompleted
+				driver.model.observe(hourAt(now), arrivals, EPOCH_MS + now);
+				return new Check(now + nextChainDelayMs(driver, now), driver, Kind.CHAIN);
+			default:
+				return null;
+		}
+	}
+	
+	private long nextChainDelayMs(Driver driver, long now) {
+		double rate = driver.model.rateAt(hourAt(now));
+		return CheckIntervalPolicy.nextDelaySeconds(rate, IDLE_ON_WIFI) * SECOND;
+	}
+	
+	/**
+	 * Una verificación como la de OrderFeedSync: feed posterior al cursor y, si hay
+	 * notificaciones visibles, cuáles ya no están pendientes
+	 * @return pedidos llegados al feed (lo que observa el modelo de la cadena)
+	 */
+	private int check(Driver driver, NativeHttpClient http, long now) {
+		checks.incrementAndGet();
+		if (driver.firstCheckMs < 0) {
+			driver.firstCheckMs = now;
+		}
+		OrderFeedPipeline.Endpoint endpoint = endpoints[Integer.parseInt(driver.companyId.substring(2))];
+		CheckMetrics.CheckRun run = metrics.begin("sim", 0);
+		OrderFeedPipeline pipeline = new OrderFeedPipeline(http,
+			new OrderFeedPipeline.CursorStore() {
+				@Override
+				public OrderFeedCursor load() {
+					return driver.cursor;
+				}
+				
+				@Override
+				public void save(OrderFeedCursor cursor) {
+					driver.cursor = cursor;
+				}
+			},
+			(orders, syncRun) -> deliver(driver, orders, now));
+		
+		int arrivals;
+		try {
+			pipeline.sync(endpoint, run);
+			arrivals = pipeline.lastArrivals();
+		} catch (IOException e) {
+			failures.incrementAndGet();
+			return 0;
+		}
+		
+		if (!driver.active.isEmpty()) {
+			List<Long> active = new ArrayList<>(driver.active);
+			if (active.size() > MAX_TAKEN_CHECK) {
+				active = active.subList(active.size() - MAX_TAKEN_CHECK, active.size());
+			}
+			try {
+				Set<Long> stillPending = pipeline.findStillPending(endpoint, active, run);
+				if (stillPending != null) {
+					for (Long id : active) {
+						if (!stillPending.contains(id)) {
+							driver.active.remove(id);
+						}
+					}
+				}
+			} catch (IOException e) {
+				failures.incrementAndGet();
+			}
+		}
+		return arrivals;
+	}
+	
+	private int deliver(Driver driver, List<OrderSummary> orders, long now) {
+		int notified = 0;
+		for (OrderSummary order : orders) {
+			if (!driver.notified.add(order.getId())) {
+				duplicates.incrementAndGet();
+				continue;
+			}
+			notified++;
+			driver.active.add(order.getId());
+			FakePostgrest.Order created = server.getOrder(order.getId());
+			// El primer pedido tras el login es la marca inicial, no un pedido nuevo
+			if (created != null && created.createdAtMs >= driver.loginMs) {
+				recordLatency(now - created.createdAtMs);
+			}
+		}
+		return notified;
+	}
+	
+	private synchronized void recordLatency(long latencyMs) {
+		if (latencyCount == latenciesMs.length) {
+			latenciesMs = Arrays.copyOf(latenciesMs, latencyCount * 2);
+		}
+		latenciesMs[latencyCount++] = latencyMs;
+	}
+	
+	private JSONObject buildReport(long wallMs) throws JSONException {
+		long graceEnd = (options.minutes - options.graceMinutes) * MINUTE;
+		long expected = 0;
+		long missedTaken = 0;
+		long missedPending = 0;
+		for (Driver driver : drivers) {
+			if (driver.firstCheckMs < 0) {
+				continue;
+			}
+			Iterator<FakePostgrest.Order> orders = server.getOrders(driver.companyId).iterator();
+			while (orders.hasNext()) {
+				FakePostgrest.Order order = orders.next();
+				if (order.createdAtMs <= driver.firstCheckMs || order.createdAtMs > graceEnd) {
+					continue;
+				}
+				expected++;
+				if (!driver.notified.contains(order.id)) {
+					// Tomado antes de que alguna verificación lo viera, o nunca consultado
+					if (order.takenAtMs < options.minutes * MINUTE) {
+						missedTaken++;
+					} else {
+						missedPending++;
+					}
+				}
+			}
+		}
+		
+		long[] sorted = Arrays.copyOf(latenciesMs, latencyCount);
+		Arrays.sort(sorted);
+		double hours = options.minutes / 60.0;
+		long requests = server.getFeedRequests() + server.getPendingChecks();
+		
+		JSONObject config = new JSONObject()
+			.put("strategy", options.strategy.name().toLowerCase(Locale.US))
+			.put("drivers", options.drivers)
+			.put("companies", options.companies)
+			.put("ordersPerHour", options.ordersPerHour)
+			.put("minutes", options.minutes)
+			.put("startHour", options.startHour)
+			.put("takeMinutes", options.takeMinutes)
+			.put("intervalSeconds", options.intervalSeconds)
+			.put("seed", options.seed);
+		JSONObject backend = new JSONObject()
+			.put("requests", requests)
+			.put("feedRequests", server.getFeedRequests())
+			.put("pendingChecks", server.getPendingChecks())
+			.put("errors", server.getErrors())
+			.put("requestsPerSecond", requests / (options.minutes * 60.0))
+			.put("peakRequestsPerSecond", server.getPeakRequestsPerMinute() / 60.0)
+			.put("requestsPerDriverHour", requests / (options.drivers * hours))
+			.put("bytes", server.getBytes())
+			.put("bytesPerDriverHour", server.getBytes() / (options.drivers * hours));
+		JSONObject drivers = new JSONObject()
+			.put("checks", checks.get())
+			.put("failures", failures.get())
+			.put("notified", expected - missedTaken - missedPending)
+			.put("expected", expected)
+			.put("duplicates", duplicates.get())
+			.put("missedTaken", missedTaken)
+			.put("missedPending", missedPending)
+			.put("latencyP50Ms", percentile(sorted, 0.50))
+			.put("latencyP99Ms", percentile(sorted, 0.99))
+			.put("latencyMaxMs", sorted.length > 0 ? sorted[sorted.length - 1] : 0);
+		return new JSONObject()
+			.put("config", config)
+			.put("backend", backend)
+			.put("drivers", drivers)
+			.put("wallMs", wallMs)
+			.put("virtualThreads", supportsVirtualThreads());
+	}
+	
+	private static String format(JSONObject report) {
+		JSONObject config = report.optJSONObject("config");
+		JSONObject backend = report.optJSONObject("backend");
+		JSONObject drivers = report.optJSONObject("drivers");
+		return String.format(Locale.US,
+			"Estrategia %s: %d drivers, %d empresas, %.1f pedidos/h por empresa, %d min virtuales%n"
+				+ "  Backend: %d peticiones (%d feed + %d tomados, %d errores), %.2f req/s promedio, %.2f req/s pico,"
+				+ " %.1f req/driver-hora%n"
+				+ "  Bytes:   %d (%.0f B/driver-hora)%n"
+				+ "  Latencia de notificación: p50 %.1f s, p99 %.1f s, máx %.1f s%n"
+				+ "  Pedidos: %d notificados de %d esperados, %d duplicados, %d perdidos por tomados, %d perdidos pendientes%n"
+				+ "  Verificaciones: %d (%d fallidas) en %d ms reales%s",
+			config.optString("strategy"), config.optInt("drivers"), config.optInt("companies"),
+			config.optDouble("ordersPerHour"), config.optInt("minutes"),
+			backend.optLong("requests"), backend.optLong("feedRequests"), backend.optLong("pendingChecks"),
+			backend.optLong("errors"), backend.optDouble("requestsPerSecond"), backend.optDouble("peakRequestsPerSecond"),
+			backend.optDouble("requestsPerDriverHour"),
+			backend.optLong("bytes"), backend.optDouble("bytesPerDriverHour"),
+			drivers.optLong("latencyP50Ms") / 1000.0, drivers.optLong("latencyP99Ms") / 1000.0,
+			drivers.optLong("latencyMaxMs") / 1000.0,
+			drivers.optLong("notified"), drivers.optLong("expected"), drivers.optLong("duplicates"),
+			drivers.optLong("missedTaken"), drivers.optLong("missedPending"),
+			drivers.optLong("checks"), drivers.optLong("failures"), report.optLong("wallMs"),
+			report.optBoolean("virtualThreads") ? " (hilos virtuales)" : "");
+	}
+	
+	private int hourAt(long now) {
+		return (int) ((options.startHour + now / 3_600_000L) % 24);
+	}
+	
+	private static String companyId(int index) {
+		return "c-" + index;
+	}
+	
+	private static double exponential(Random random, double mean) {
+		return -mean * Math.log(1 - random.nextDouble());
+	}
+	
+	private static long percentile(long[] sorted, double p) {
+		if (sorted.length == 0) {
+			return 0;
+		}
+		int index = (int) Math.ceil(p * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+	}
+	
+	/**
+	 * Un hilo virtual por tarea en Java 21+; en JDK anteriores, un pool fijo
+	 */
+	private static ExecutorService newExecutor(int threads) {
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newFixedThreadPool(threads);
+		}
+	}
+	
+	private static boolean supportsVirtualThreads() {
+		try {
+			Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return true;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package com.deliveryapp.repartidor;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Pruebas del modelo de tasa de llegada y de la política de intervalo que lo consume.
+ */
+public class ArrivalRateModelTest {
+	private static final long MINUTE = 60_000;
+	private static final CheckIntervalPolicy.Conditions IDLE_ON_WIFI =
+		new CheckIntervalPolicy.Conditions(true, 80, false, false, true, false);
+	
+	@Test
+	public void learnsPeakAndQuietHoursSeparately() {
+		ArrivalRateModel model = new ArrivalRateModel();
+		long now = 1_000_000;
+		model.observe(13, 0, now);
+		// Almuerzo: 3 pedidos cada 10 minutos (18/h)
+		for (int i = 0; i < 20; i++) {
+			now += 10 * MINUTE;
+			model.observe(13, 3, now);
+		}
+		// Madrugada: nada en 30 minutos
+		for (int i = 0; i < 20; i++) {
+			now += 30 * MINUTE;
+			model.observe(4, 0, now);
+		}
+		
+		assertEquals(18, model.rateAt(13), 0.5);
+		assertEquals(0, model.rateAt(4), 0.01);
+		assertEquals(ArrivalRateModel.PRIOR_RATE_PER_HOUR, model.rateAt(20), 0);
+		
+		long peak = CheckIntervalPolicy.nextDelaySeconds(model.rateAt(13), IDLE_ON_WIFI);
+		long quiet = CheckIntervalPolicy.nextDelaySeconds(model.rateAt(4), IDLE_ON_WIFI);
+		assertTrue("pico " + peak + "s", peak <= 60);
+		assertEquals(CheckIntervalPolicy.MAX_DELAY_SECONDS, quiet);
+	}
+	
+	@Test
+	public void ignoresFirstObservationAndLongGaps() {
+		ArrivalRateModel model = new ArrivalRateModel();
+		model.observe(10, 50, 1_000_000);
+		assertEquals(ArrivalRateModel.PRIOR_RATE_PER_HOUR, model.rateAt(10), 0);
+		
+		// Driver desconectado 5 horas: la ventana no representa una hora concreta
+		model.observe(15, 50, 1_000_000 + 5 * 60 * MINUTE);
+		assertEquals(ArrivalRateModel.PRIOR_RATE_PER_HOUR, model.rateAt(15), 0);
+	}
+	
+	@Test
+	public void roundTripsAndRejectsCorruptState() {
+		ArrivalRateModel model = new ArrivalRateModel();
+		model.observe(9, 0, 1_000_000);
+		model.observe(9, 6, 1_000_000 + 30 * MINUTE);
+		
+		ArrivalRateModel restored = ArrivalRateModel.parse(model.serialize());
+		assertEquals(model.rateAt(9), restored.rateAt(9), 0.001);
+		assertEquals(model.getLastObservationMs(), restored.getLastObservationMs());
+		
+		assertEquals(ArrivalRateModel.PRIOR_RATE_PER_HOUR, ArrivalRateModel.parse(null).rateAt(9), 0);
+		assertEquals(ArrivalRateModel.PRIOR_RATE_PER_HOUR, ArrivalRateModel.parse("12;1,2,3").rateAt(1), 0);
+		assertEquals(ArrivalRateModel.PRIOR_RATE_PER_HOUR, ArrivalRateModel.parse("x;" + zeros()).rateAt(1), 0);
+		assertEquals(0, ArrivalRateModel.parse("5;" + zeros()).rateAt(1), 0);
+	}
+	
+	@Test
+	public void policyStopsWhenOfflineAndBacksOffOnBattery() {
+		CheckIntervalPolicy.Conditions offline = new CheckIntervalPolicy.Conditions(false, 80, false, false, true, false);
+		assertEquals(-1, CheckIntervalPolicy.nextDelaySeconds(10, offline));
+		
+		CheckIntervalPolicy.Conditions noNetwork = new CheckIntervalPolicy.Conditions(true, 80, false, false, false, false);
+		assertEquals(CheckIntervalPolicy.MAX_DELAY_SECONDS, CheckIntervalPolicy.nextDelaySeconds(10, noNetwork));
+		
+		long normal = CheckIntervalPolicy.nextDelaySeconds(6, IDLE_ON_WIFI);
+		assertEquals(150, normal);
+		long lowBattery = CheckIntervalPolicy.nextDelaySeconds(6, new CheckIntervalPolicy.Conditions(true, 10, false, false, true, false));
+		long powerSave = CheckIntervalPolicy.nextDelaySeconds(6, new CheckIntervalPolicy.Conditions(true, 50, false, true, true, false));
+		long charging = CheckIntervalPolicy.nextDelaySeconds(6, new CheckIntervalPolicy.Conditions(true, 10, true, true, true, false));
+		long cellular = CheckIntervalPolicy.nextDelaySeconds(6, new CheckIntervalPolicy.Conditions(true, 80, false, false, true, true));
+		assertEquals(450, lowBattery);
+		assertEquals(300, powerSave);
+		assertEquals(75, charging);
+		assertTrue(cellular > normal);
+		
+		assertEquals(CheckIntervalPolicy.MIN_DELAY_SECONDS, CheckIntervalPolicy.nextDelaySeconds(1_000, IDLE_ON_WIFI));
+	}
+	
+	private static String zeros() {
+		StringBuilder out = new StringBuilder();
+		for (int i = 0; i < ArrivalRateModel.HOURS; i++) {
+			out.append(i > 0 ? ",0" : "0");
+		}
+		return out.toString();
+	}
+}
@@ -0,0 +1,124 @@
+package com.deliveryapp.repartidor;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.json.JSONObject;
+import org.junit.Test;
+
+/**
+ * Pruebas del almacén de métricas de verificaciones: histogramas sin locks, cierre de cada
+ * verificación, exportación rotativa y parseo de timestamps de PostgREST.
+ */
+public class CheckMetricsTest {
+	
+	@Test
+	public void histogramPercentilesAreBoundedByBucket() {
+		Histogram histogram = new Histogram();
+		for (int i = 1; i <= 100; i++) {
+			histogram.record(i);
+		}
+		
+		assertEquals(100, histogram.getCount());
+		assertEquals(5050, histogram.getSum());
+		assertEquals(100, histogram.getMax());
+		// p50 = 50 cae en la cubeta [32, 64)
+		assertEquals(63, histogram.percentile(0.5));
+		// La cota nunca supera el máximo observado
+		assertEquals(100, histogram.percentile(0.99));
+		assertEquals(0, new Histogram().percentile(0.5));
+		
+		histogram.record(-5);
+		assertEquals(0, histogram.percentile(0.001));
+	}
+	
+	@Test
+	public void histogramCountsEveryConcurrentSample() throws Exception {
+		Histogram histogram = new Histogram();
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			final int offset = t;
+			threads[t] = new Thread(() -> {
+				for (int i = 0; i < 10_000; i++) {
+					histogram.record(i + offset);
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		
+		assertEquals(40_000, histogram.getCount());
+		assertEquals(10_002, histogram.getMax());
+	}
+	
+	@Test
+	public void finishClassifiesOutcomeAndAggregates() throws Exception {
+		CheckMetrics metrics = new CheckMetrics();
+		
+		CheckMetrics.CheckRun ok = metrics.begin("chain", 0);
+		ok.setDueAt(ok.startMillis - 1_500);
+		ok.addFetch(40_000_000L, 5_000_000L, 2_048, 3);
+		ok.addNotified("2025-03-14T12:04:28.004936+00:00", CheckMetrics.parseTimestamp("2025-03-14T12:04:30.004+00:00"));
+		JSONObject line = new JSONObject(metrics.finish(ok, false));
+		assertEquals("OK", line.getString("outcome"));
+		assertEquals(40, line.getLong("networkMs"));
+		assertEquals(1_500, line.getLong("wakeDelayMs"));
+		
+		CheckMetrics.CheckRun skipped = metrics.begin("worker", 0);
+		skipped.markSkipped();
+		assertEquals("SKIPPED_OFFLINE", new JSONObject(metrics.finish(skipped, false)).getString("outcome"));
+		
+		CheckMetrics.CheckRun failed = metrics.begin("worker", 2);
+		assertEquals("FAILED", new JSONObject(metrics.finish(failed, true)).getString("outcome"));
+		
+		JSONObject counters = metrics.snapshot().getJSONObject("counters");
+		assertEquals(3, counters.getLong("checks"));
+		assertEquals(1, counters.getLong("skippedOffline"));
+		assertEquals(1, counters.getLong("failures"));
+		assertEquals(1, counters.getLong("retries"));
+		assertEquals(3, counters.getLong("ordersSeen"));
+		assertEquals(1, counters.getLong("ordersNotified"));
+		// Las verificaciones omitidas no cuentan tiempos de red
+		assertEquals(2, metrics.networkMs.getCount());
+		assertEquals(2_000, metrics.notificationLatencyMs.getMax());
+		
+		metrics.reset();
+		assertEquals(0, metrics.snapshot().getJSONObject("counters").getLong("checks"));
+	}
+	
+	@Test
+	public void exportRotatesWhenFileGrows() throws Exception {
+		CheckMetrics metrics = new CheckMetrics();
+		File dir = Files.createTempDirectory("metrics").toFile();
+		StringBuilder line = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			line.append('x');
+		}
+		
+		int lines = (int) (CheckMetrics.EXPORT_MAX_BYTES / 1001) + 5;
+		for (int i = 0; i < lines; i++) {
+			metrics.export(dir, line.toString());
+		}
+		
+		File current = new File(dir, CheckMetrics.EXPORT_FILE);
+		File old = new File(dir, CheckMetrics.EXPORT_FILE_OLD);
+		assertTrue(old.exists());
+		assertTrue(old.length() > CheckMetrics.EXPORT_MAX_BYTES);
+		assertTrue(current.length() < CheckMetrics.EXPORT_MAX_BYTES);
+		assertTrue(new String(Files.readAllBytes(current.toPath()), StandardCharsets.UTF_8).endsWith("x\n"));
+	}
+	
+	@Test
+	public void parsesPostgrestTimestamps() {
+		assertEquals(0, CheckMetrics.parseTimestamp("1970-01-01T00:00:00Z"));
+		assertEquals(1_710_417_868_004L, CheckMetrics.parseTimestamp("2024-03-14T12:04:28.004936+00:00"));
+		assertEquals(1_710_417_868_000L, CheckMetrics.parseTimestamp("2024-03-14T09:04:28-03:00"));
+		assertEquals(1_709_208_000_500L, CheckMetrics.parseTimestamp("2024-02-29T12:00:00.5+00:00"));
+		assertEquals(-1, CheckMetrics.parseTimestamp("ayer"));
+		assertEquals(-1, CheckMetrics.parseTimestamp(null));
+	}
+}
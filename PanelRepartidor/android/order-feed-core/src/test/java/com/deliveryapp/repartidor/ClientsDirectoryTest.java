@@ -0,0 +1,96 @@
+package com.deliveryapp.repartidor;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Pruebas del directorio de clientes: pide solo los ids que faltan, persiste entre procesos y
+ * usa la copia vieja si Supabase no responde.
+ */
+public class ClientsDirectoryTest {
+	private static final long DAY = 24 * 60 * 60 * 1000L;
+
+	private MockWebServer server;
+	private OrderFeedPipeline.Endpoint endpoint;
+	private File file;
+
+	@Before
+	public void setUp() throws Exception {
+		server = new MockWebServer();
+		server.start();
+		String baseUrl = server.url("/").toString();
+		endpoint = new OrderFeedPipeline.Endpoint(baseUrl.substring(0, baseUrl.length() - 1), "anon", "7");
+		file = new File(Files.createTempDirectory("clients").toFile(), "clients_directory.json");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		server.shutdown();
+	}
+
+	private ClientsDirectory newDirectory() {
+		return new ClientsDirectory(file, new NativeHttpClient(new OkHttpClient.Builder()));
+	}
+
+	@Test
+	public void fetchesOnlyUnknownClientsInOneRequest() throws Exception {
+		ClientsDirectory directory = newDirectory();
+		server.enqueue(new MockResponse().setBody("[{\"id\":1,\"name\":\"Ana\"},{\"id\":2,\"name\":\"Luis\"}]"));
+
+		Map<String, String> names = directory.names(endpoint, Arrays.asList("1", "2", "3"), DAY);
+		assertEquals("Ana", names.get("1"));
+		assertEquals("Luis", names.get("2"));
+		// El 3 no existe: queda registrado para no pedirlo en cada verificación
+		assertFalse(names.containsKey("3"));
+		String path = server.takeRequest().getPath();
+		assertTrue(path.contains("/rest/v1/clients?select=id,name&company_id=eq.7&id=in.(1,2,3)"));
+
+		server.enqueue(new MockResponse().setBody("[{\"id\":4,\"name\":\"Marta\"}]"));
+		names = directory.names(endpoint, Arrays.asList("1", "3", "4"), DAY + 1);
+		assertEquals("Marta", names.get("4"));
+		assertTrue(server.takeRequest().getPath().contains("id=in.(4)"));
+		assertEquals(2, server.getRequestCount());
+
+		// Otro proceso (el Worker) lee el mismo archivo sin volver a consultar
+		assertEquals("Ana", newDirectory().names(endpoint, Arrays.asList("1"), DAY + 2).get("1"));
+		assertEquals(2, server.getRequestCount());
+	}
+
+	@Test
+	public void refreshesExpiredNamesAndKeepsThemOnFailure() throws Exception {
+		ClientsDirectory directory = newDirectory();
+		server.enqueue(new MockResponse().setBody("[{\"id\":1,\"name\":\"Ana\"}]"));
+		directory.names(endpoint, Arrays.asList("1"), DAY);
+
+		long expired = DAY + ClientsDirectory.NAME_TTL_MS;
+		server.enqueue(new MockResponse().setResponseCode(503));
+		assertEquals("Ana", directory.names(endpoint, Arrays.asList("1"), expired).get("1"));
+
+		server.enqueue(new MockResponse().setBody("[{\"id\":1,\"name\":\"Ana María\"}]"));
+		assertEquals("Ana María", directory.names(endpoint, Arrays.asList("1"), expired + 1).get("1"));
+		assertEquals(3, server.getRequestCount());
+	}
+
+	@Test
+	public void startsOverForAnotherCompany() throws Exception {
+		ClientsDirectory directory = newDirectory();
+		server.enqueue(new MockResponse().setBody("[{\"id\":1,\"name\":\"Ana\"}]"));
+		directory.names(endpoint, Arrays.asList("1"), DAY);
+
+		OrderFeedPipeline.Endpoint other = new OrderFeedPipeline.Endpoint(endpoint.supabaseUrl, "anon", "8");
+		server.enqueue(new MockResponse().setBody("[]"));
+		assertTrue(directory.names(other, Arrays.asList("1"), DAY).isEmpty());
+		assertTrue(server.takeRequest().getPath().contains("company_id=eq.7"));
+		assertTrue(server.takeRequest().getPath().contains("company_id=eq.8"));
+	}
+}
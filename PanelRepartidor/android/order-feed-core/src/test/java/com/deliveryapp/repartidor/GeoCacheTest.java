@@ -0,0 +1,120 @@
+package com.deliveryapp.repartidor;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Pruebas de la cache de geocodificación y rutas (memoria + disco con vencimiento).
+ */
+public class GeoCacheTest {
+	private static final long HOUR = 60 * 60 * 1000L;
+
+	private File directory;
+	private long[] now;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = Files.createTempDirectory("geocache").toFile();
+		now = new long[] {1_000_000L};
+	}
+
+	private GeoCache newCache(int memoryEntries, long maxDiskBytes) {
+		return new GeoCache(directory, memoryEntries, maxDiskBytes, () -> now[0]);
+	}
+
+	@Test
+	public void normalizesAddressesAndRoundsRoutes() {
+		assertEquals(GeoCache.addressKey("Av. Providencia 1234, Santiago"),
+			GeoCache.addressKey("  av providencia   1234 SANTIAGO "));
+		assertEquals(GeoCache.addressKey("Ñuñoa, José Pedro Alessandri"),
+			GeoCache.addressKey("ñunoa jose pedro alessandri"));
+		assertNotEquals(GeoCache.addressKey("Los Leones 100"), GeoCache.addressKey("Los Leones 1000"));
+
+		assertEquals(GeoCache.routeKey(-33.42501, -70.61001, -33.43, -70.6),
+			GeoCache.routeKey(-33.42504, -70.61004, -33.43002, -70.60003));
+	}
+
+	@Test
+	public void servesRepeatedLookupsFromMemoryThenDisk() {
+		GeoCache cache = newCache(10, 1 << 20);
+		String key = GeoCache.addressKey("Av. Providencia 1234");
+		assertNull(cache.get(key));
+		cache.put(key, "{\"lat\":-33.42,\"lon\":-70.61}", HOUR);
+		assertEquals("{\"lat\":-33.42,\"lon\":-70.61}", cache.get(key));
+
+		// Otro proceso (el Worker) lee el mismo directorio
+		GeoCache reopened = newCache(10, 1 << 20);
+		assertEquals("{\"lat\":-33.42,\"lon\":-70.61}", reopened.get(key));
+		assertEquals("{\"lat\":-33.42,\"lon\":-70.61}", reopened.get(key));
+
+		JSONObject stats = reopened.stats();
+		assertEquals(1, stats.getLong("memoryHits"));
+		assertEquals(1, stats.getLong("diskHits"));
+		assertEquals(0, stats.getLong("misses"));
+		assertEquals(1, cache.stats().getLong("misses"));
+	}
+
+	@Test
+	public void expiredEntriesAreMisses() {
+		GeoCache cache = newCache(10, 1 << 20);
+		cache.put("geo:a", "1", HOUR);
+		now[0] += HOUR + 1;
+
+		assertNull(cache.get("geo:a"));
+		assertNull(newCache(10, 1 << 20).get("geo:a"));
+		assertEquals(0, directory.listFiles().length);
+	}
+
+	@Test
+	public void memoryTierIsLeastRecentlyUsed() {
+		GeoCache cache = newCache(2, 1 << 20);
+		cache.put("geo:a", "a", HOUR);
+		cache.put("geo:b", "b", HOUR);
+		cache.get("geo:a");
+		cache.put("geo:c", "c", HOUR);
+
+		// "b" salió de memoria pero sigue en disco
+		assertEquals("b", cache.get("geo:b"));
+		JSONObject stats = cache.stats();
+		assertEquals(1, stats.getLong("memoryHits"));
+		assertEquals(1, stats.getLong("diskHits"));
+	}
+
+	@Test
+	public void diskTierStaysUnderItsLimit() throws Exception {
+		GeoCache cache = newCache(1, 4096);
+		StringBuilder route = new StringBuilder();
+		for (int i = 0; i < 50; i++) {
+			route.append("[-70.6").append(i).append(",-33.4").append(i).append("],");
+		}
+		for (int i = 0; i < 40; i++) {
+			cache.put("route:" + i, route.toString(), HOUR);
+		}
+
+		JSONObject stats = cache.stats();
+		assertTrue(stats.getLong("diskBytes") <= 4096);
+		assertTrue(stats.getLong("evictions") > 0);
+		long onDisk = 0;
+		for (File file : directory.listFiles()) {
+			onDisk += file.length();
+		}
+		assertEquals(stats.getLong("diskBytes"), onDisk);
+		// La última entrada sigue disponible
+		assertNotNull(newCache(1, 4096).get("route:39"));
+	}
+
+	@Test
+	public void clearRemovesBothTiers() {
+		GeoCache cache = newCache(10, 1 << 20);
+		cache.put("geo:a", "a", HOUR);
+		cache.clear();
+
+		assertNull(cache.get("geo:a"));
+		assertNull(newCache(10, 1 << 20).get("geo:a"));
+	}
+}
@@ -0,0 +1,83 @@
+package com.deliveryapp.repartidor;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Test;
+
+/**
+ * Pruebas del índice espacial de locales que filtra y ordena las notificaciones por distancia.
+ */
+public class LocalsIndexTest {
+	// Plaza de Armas, Santiago
+	private static final double LAT = -33.4378;
+	private static final double LON = -70.6505;
+
+	private static OrderSummary order(long id, String localId) {
+		return new OrderSummary(id, null, "Calle " + id, 2500, "Ana", "Local " + localId, localId);
+	}
+
+	@Test
+	public void withinMatchesBruteForceOnACity() {
+		Random random = new Random(7);
+		Map<String, double[]> coordinates = new HashMap<>();
+		for (int i = 0; i < 3000; i++) {
+			// Área metropolitana: ~60 km por lado
+			coordinates.put("L" + i, new double[] { LAT + (random.nextDouble() - 0.5) * 0.55,
+				LON + (random.nextDouble() - 0.5) * 0.65 });
+		}
+		LocalsIndex index = LocalsIndex.build(coordinates);
+		assertEquals(3000, index.size());
+
+		for (double radius : new double[] { 0.5, 2, 5, 12 }) {
+			for (int q = 0; q < 20; q++) {
+				double lat = LAT + (random.nextDouble() - 0.5) * 0.6;
+				double lon = LON + (random.nextDouble() - 0.5) * 0.7;
+				Set<String> expected = new HashSet<>();
+				for (Map.Entry<String, double[]> entry : coordinates.entrySet()) {
+					if (LocalsIndex.haversineKm(lat, lon, entry.getValue()[0], entry.getValue()[1]) <= radius) {
+						expected.add(entry.getKey());
+					}
+				}
+				assertEquals("radio " + radius, expected, index.within(lat, lon, radius));
+			}
+		}
+	}
+
+	@Test
+	public void ranksNearbyOrdersAndKeepsUnknownLocalsLast() {
+		Map<String, double[]> coordinates = new HashMap<>();
+		coordinates.put("near", new double[] { LAT + 0.009, LON });   // ~1 km
+		coordinates.put("nearer", new double[] { LAT, LON + 0.003 }); // ~0.3 km
+		coordinates.put("far", new double[] { LAT + 0.18, LON });    // ~20 km
+		LocalsIndex index = LocalsIndex.build(coordinates);
+
+		List<OrderSummary> pending = Arrays.asList(order(1, "far"), order(2, "near"), order(3, null),
+			order(4, "nearer"), order(5, "sin-coordenadas"));
+		List<LocalsIndex.Ranked> ranked = index.rank(pending, LAT, LON, 5);
+
+		List<Long> ids = new ArrayList<>();
+		for (LocalsIndex.Ranked r : ranked) {
+			ids.add(r.order.getId());
+		}
+		assertEquals(Arrays.asList(4L, 2L, 3L, 5L), ids);
+		assertEquals(0.28, ranked.get(0).distanceKm, 0.02);
+		assertEquals(1.0, ranked.get(1).distanceKm, 0.02);
+		assertTrue(Double.isNaN(ranked.get(2).distanceKm));
+	}
+
+	@Test
+	public void emptyIndexKeepsEveryOrder() {
+		LocalsIndex index = LocalsIndex.build(new HashMap<String, double[]>());
+		List<LocalsIndex.Ranked> ranked = index.rank(Arrays.asList(order(1, "a"), order(2, "b")), LAT, LON, 5);
+		assertEquals(2, ranked.size());
+		assertTrue(index.within(LAT, LON, 100).isEmpty());
+	}
+}
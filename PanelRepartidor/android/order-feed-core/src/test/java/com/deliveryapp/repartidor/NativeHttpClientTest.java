@@ -0,0 +1,136 @@
+package com.deliveryapp.repartidor;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Pruebas del cliente HTTP compartido: GET condicionales, gzip, reutilización de conexiones y métricas.
+ */
+public class NativeHttpClientTest {
+	private static final Map<String, String> NO_HEADERS = Collections.emptyMap();
+	private static final NativeHttpClient.BodyReader<String> AS_TEXT = NativeHttpClientTest::readText;
+	
+	private MockWebServer server;
+	private NativeHttpClient http;
+	
+	@Before
+	public void setUp() throws Exception {
+		server = new MockWebServer();
+		server.start();
+		http = new NativeHttpClient(new OkHttpClient.Builder());
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		server.shutdown();
+	}
+	
+	@Test
+	public void sendsIfNoneMatchAndReportsNotModified() throws Exception {
+		server.enqueue(new MockResponse().setHeader("ETag", "\"v1\"").setBody("[{\"id\":1}]"));
+		server.enqueue(new MockResponse().setResponseCode(304));
+		String url = server.url("/rest/v1/orders").toString();
+		
+		NativeHttpClient.Fetch<String> first = http.get(url, NO_HEADERS, 5000, false, AS_TEXT);
+		assertEquals(200, first.code);
+		assertFalse(first.unchanged);
+		assertEquals("[{\"id\":1}]", first.body);
+		assertNull(server.takeRequest().getHeader("If-None-Match"));
+		
+		NativeHttpClient.Fetch<String> second = http.get(url, NO_HEADERS, 5000, false, AS_TEXT);
+		assertTrue(second.unchanged);
+		assertTrue(second.isSuccessful());
+		assertNull(second.body);
+		assertEquals("\"v1\"", server.takeRequest().getHeader("If-None-Match"));
+		assertEquals(1, http.getMetrics().getNotModified());
+	}
+	
+	@Test
+	public void skipsIdenticalContentWhenServerHasNoEtag() throws Exception {
+		server.enqueue(new MockResponse().setBody("[]"));
+		server.enqueue(new MockResponse().setBody("[]"));
+		server.enqueue(new MockResponse().setBody("[{\"id\":2}]"));
+		String url = server.url("/rest/v1/orders").toString();
+		
+		assertFalse(http.get(url, NO_HEADERS, 5000, true, AS_TEXT).unchanged);
+		assertTrue(http.get(url, NO_HEADERS, 5000, true, AS_TEXT).unchanged);
+		NativeHttpClient.Fetch<String> changed = http.get(url, NO_HEADERS, 5000, true, AS_TEXT);
+		assertFalse(changed.unchanged);
+		assertEquals("[{\"id\":2}]", changed.body);
+	}
+	
+	@Test
+	public void decodesGzipTransparently() throws Exception {
+		byte[] plain = "[{\"id\":3,\"delivery_address\":\"Calle 1\"}]".getBytes(StandardCharsets.UTF_8);
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+			gzip.write(plain);
+		}
+		server.enqueue(new MockResponse()
+			.setHeader("Content-Encoding", "gzip")
+			.setBody(new Buffer().write(compressed.toByteArray())));
+		
+		NativeHttpClient.Fetch<String> result = http.get(server.url("/feed").toString(), NO_HEADERS, 5000, false, AS_TEXT);
+		
+		assertEquals(new String(plain, StandardCharsets.UTF_8), result.body);
+		assertEquals("gzip", server.takeRequest().getHeader("Accept-Encoding"));
+	}
+	
+	@Test
+	public void reusesPooledConnectionAndRecordsMetrics() throws Exception {
+		for (int i = 0; i < 3; i++) {
+			server.enqueue(new MockResponse().setBody("[]"));
+		}
+		String url = server.url("/rest/v1/orders").toString();
+		for (int i = 0; i < 3; i++) {
+			http.get(url, NO_HEADERS, 5000, false, AS_TEXT);
+		}
+		
+		HttpMetrics metrics = http.getMetrics();
+		assertEquals(3, metrics.getRequests());
+		assertEquals(2, metrics.getReusedConnections());
+		List<HttpMetrics.Sample> samples = metrics.getRecentSamples();
+		assertEquals(3, samples.size());
+		assertEquals("/rest/v1/orders", samples.get(0).path);
+		assertTrue(samples.get(0).bytesReceived > 0);
+		assertTrue(samples.get(0).ttfbMs >= 0);
+	}
+	
+	@Test
+	public void returnsErrorCodeWithoutReadingBody() throws Exception {
+		server.enqueue(new MockResponse().setResponseCode(503).setBody("caído"));
+		
+		NativeHttpClient.Fetch<String> result = http.get(server.url("/feed").toString(), NO_HEADERS, 5000, false, in -> {
+			fail("No debe leer el cuerpo de una respuesta de error");
+			return null;
+		});
+		
+		assertEquals(503, result.code);
+		assertFalse(result.isSuccessful());
+	}
+	
+	private static String readText(InputStream in) throws java.io.IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] chunk = new byte[1024];
+		int read;
+		while ((read = in.read(chunk)) != -1) {
+			out.write(chunk, 0, read);
+		}
+		return out.toString("UTF-8");
+	}
+}
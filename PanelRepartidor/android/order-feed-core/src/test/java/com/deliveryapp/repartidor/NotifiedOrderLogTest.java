@@ -0,0 +1,110 @@
+package com.deliveryapp.repartidor;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Pruebas del registro LRU de pedidos notificados que usa NotificationEngine.
+ */
+public class NotifiedOrderLogTest {
+	
+	@Test
+	public void notifiesEachOrderOnceWithMoreThanFivePending() {
+		NotifiedOrderLog log = new NotifiedOrderLog(200);
+		List<Long> pending = Arrays.asList(101L, 102L, 103L, 104L, 105L, 106L, 107L, 108L);
+		
+		// El Worker ve los 8 pendientes; luego Realtime y otra verificación los vuelven a ver en otro orden
+		List<Long> notified = new ArrayList<>();
+		for (long id : pending) {
+			if (log.markNotified(id, "ORD-" + id)) {
+				notified.add(id);
+			}
+		}
+		for (int i = pending.size() - 1; i >= 0; i--) {
+			assertFalse(log.markNotified(pending.get(i), "ORD-" + pending.get(i)));
+		}
+		// Llega uno nuevo con id menor que el último notificado (ids no monótonos)
+		assertTrue(log.markNotified(99L, "ORD-99"));
+		
+		assertEquals(pending, notified);
+		assertEquals(9, log.activeCount());
+	}
+	
+	@Test
+	public void evictsLeastRecentlySeenBeyondCapacity() {
+		NotifiedOrderLog log = new NotifiedOrderLog(3);
+		log.markNotified(1, "a");
+		log.markNotified(2, "b");
+		log.markNotified(3, "c");
+		// Volver a ver el 1 lo hace reciente: el desalojado es el 2
+		assertFalse(log.markNotified(1, "a"));
+		log.markNotified(4, "d");
+		
+		assertEquals(3, log.size());
+		assertTrue(log.contains(1));
+		assertFalse(log.contains(2));
+		assertTrue(log.contains(3));
+		assertTrue(log.contains(4));
+	}
+	
+	@Test
+	public void deactivatedOrdersStayDeduplicated() {
+		NotifiedOrderLog log = new NotifiedOrderLog(10);
+		log.markNotified(1, "ORD-1");
+		log.markNotified(2, "ORD-2");
+		
+		assertTrue(log.deactivate(1));
+		assertFalse(log.deactivate(1));
+		assertFalse(log.deactivate(42));
+		
+		assertEquals(Arrays.asList(2L), log.activeIds());
+		assertFalse("Un pedido tomado no se vuelve a notificar", log.markNotified(1, "ORD-1"));
+		assertEquals(1, log.activeCount());
+	}
+	
+	@Test
+	public void summaryLinesAreNewestFirstAndBounded() {
+		NotifiedOrderLog log = new NotifiedOrderLog(10);
+		for (long id = 1; id <= 7; id++) {
+			log.markNotified(id, "ORD-" + id);
+		}
+		log.deactivate(6);
+		
+		assertEquals(Arrays.asList("ORD-7", "ORD-5", "ORD-4"), log.activeLines(3));
+		assertEquals(6, log.activeLines(10).size());
+		// Consultar las líneas no cambia qué entrada se desaloja
+		assertEquals(Long.valueOf(1), log.activeIds().get(0));
+	}
+	
+	@Test
+	public void serializesAndRestoresEntries() {
+		NotifiedOrderLog log = new NotifiedOrderLog(10);
+		log.markNotified(5, "ORD-5 · Sushi\tKai · $10.00");
+		log.markNotified(6, "ORD-6\ncon salto");
+		log.markNotified(7, null);
+		log.deactivate(6);
+		
+		NotifiedOrderLog restored = NotifiedOrderLog.parse(log.serialize(), 10);
+		
+		assertEquals(3, restored.size());
+		assertEquals(Arrays.asList(5L, 7L), restored.activeIds());
+		assertEquals(Arrays.asList("", "ORD-5 · Sushi Kai · $10.00"), restored.activeLines(5));
+		assertFalse(restored.markNotified(6, "x"));
+	}
+	
+	@Test
+	public void ignoresCorruptSerializedLinesAndTrimsToCapacity() {
+		NotifiedOrderLog restored = NotifiedOrderLog.parse("1\tuno\nbasura\n\n2\n3\ttres\n4\tcuatro\n", 3);
+		
+		assertEquals(3, restored.size());
+		assertFalse(restored.contains(1));
+		assertEquals(Arrays.asList(3L, 4L), restored.activeIds());
+		
+		assertEquals(0, NotifiedOrderLog.parse(null, 3).size());
+		assertEquals(0, NotifiedOrderLog.parse("", 3).size());
+	}
+}
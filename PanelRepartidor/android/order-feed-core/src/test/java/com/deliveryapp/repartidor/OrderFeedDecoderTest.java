@@ -0,0 +1,189 @@
+package com.deliveryapp.repartidor;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+/**
+ * Pruebas del decodificador en streaming del feed de pedidos sobre respuestas grabadas de PostgREST,
+ * incluyendo que lee los mismos campos que la ruta anterior con JSONArray. Los tiempos y las
+ * asignaciones de ambas rutas se miden en OrderFeedDecodeBenchmark (con -prof gc).
+ */
+public class OrderFeedDecoderTest {
+
+	@Test
+	public void decodesNotificationFieldsFromLegacyPayload() throws Exception {
+		List<OrderSummary> orders = decodeAll(load("orders_legacy_top5.json"));
+
+		assertEquals(5, orders.size());
+		OrderSummary first = orders.get(0);
+		assertEquals(1004, first.getId());
+		assertEquals("2025-03-14T12:04:28.004936+00:00", first.getCreatedAt());
+		assertEquals("Calle 4 #104, Depto 4, Santiago", first.getDeliveryAddress());
+		assertEquals(3795.33, first.getSuggestedPrice(), 0.001);
+		assertEquals("María José", first.getClientName());
+		assertEquals("Pizzería Don Pepe", first.getLocalName());
+
+		// Escapes: comillas y barra invertida dentro de los nombres
+		assertEquals("Sushi \"Kai\"", orders.get(3).getLocalName());
+		assertEquals("Ana\\nLuisa", orders.get(2).getClientName());
+	}
+
+	@Test
+	public void matchesJsonArrayPathOnRecordedPayloads() throws Exception {
+		for (String name : new String[] { "orders_legacy_top5.json", "orders_feed_page.json", "orders_legacy_200.json" }) {
+			byte[] payload = load(name);
+			List<OrderSummary> streamed = decodeAll(payload);
+			JSONArray tree = new JSONArray(new String(payload, StandardCharsets.UTF_8));
+
+			assertEquals(name, tree.length(), streamed.size());
+			for (int i = 0; i < tree.length(); i++) {
+				JSONObject expected = tree.getJSONObject(i);
+				OrderSummary actual = streamed.get(i);
+				assertEquals(expected.optLong("id"), actual.getId());
+				assertEquals(expected.optString("created_at"), actual.getCreatedAt());
+				assertEquals(expected.optString("delivery_address"), actual.getDeliveryAddress());
+				assertEquals(expected.optDouble("suggested_price", 0), actual.getSuggestedPrice(), 0.0001);
+				assertEquals(expected.getJSONObject("clients").optString("name"), actual.getClientName());
+				assertEquals(expected.getJSONObject("locals").optString("name"), actual.getLocalName());
+				assertEquals(expected.has("local_id") ? String.valueOf(expected.opt("local_id")) : null, actual.getLocalId());
+			}
+		}
+	}
+
+	@Test
+	public void keepsEachRowAsReceivedWhenAsked() throws Exception {
+		byte[] payload = load("orders_legacy_top5.json");
+		JSONArray tree = new JSONArray(new String(payload, StandardCharsets.UTF_8));
+		List<OrderSummary> orders = new ArrayList<>();
+		OrderFeedDecoder.decode(new ByteArrayInputStream(payload), order -> {
+			orders.add(order);
+			return true;
+		}, true);
+
+		assertEquals(tree.length(), orders.size());
+		for (int i = 0; i < tree.length(); i++) {
+			JSONObject row = new JSONObject(orders.get(i).getRow());
+			assertTrue(tree.getJSONObject(i).similar(row));
+		}
+		// Los nombres completados después conservan la fila
+		assertEquals(orders.get(0).getRow(), orders.get(0).withNames("Ana", null).getRow());
+		assertNull(decodeAll(payload).get(0).getRow());
+	}
+
+	@Test
+	public void handlesEmptyArraysNullsAndStringNumbers() throws Exception {
+		assertTrue(decodeAll("[]".getBytes(StandardCharsets.UTF_8)).isEmpty());
+		assertTrue(decodeAll(new byte[0]).isEmpty());
+
+		String json = "[ {\"id\":\"42\",\"suggested_price\":\"1500.50\",\"delivery_address\":null,"
+			+ "\"clients\":null,\"locals\":{\"address\":\"x\"},\"extra\":[1,{\"a\":\"\\u00f1\"}]} ]";
+		List<OrderSummary> orders = decodeAll(json.getBytes(StandardCharsets.UTF_8));
+		assertEquals(1, orders.size());
+		assertEquals(42, orders.get(0).getId());
+		assertEquals(1500.50, orders.get(0).getSuggestedPrice(), 0.001);
+		assertNull(orders.get(0).getDeliveryAddress());
+		assertNull(orders.get(0).getClientName());
+		assertNull(orders.get(0).getLocalId());
+		assertNull(orders.get(0).getLocalName());
+	}
+
+	@Test
+	public void readsForeignKeysWithoutEmbeddedNames() throws Exception {
+		String json = "[{\"id\":5,\"created_at\":\"2025-03-14T12:00:05+00:00\",\"local_id\":3,\"client_id\":\"81\"},"
+			+ "{\"id\":6,\"client_id\":null}]";
+		List<OrderSummary> orders = decodeAll(json.getBytes(StandardCharsets.UTF_8));
+		assertEquals("3", orders.get(0).getLocalId());
+		assertEquals("81", orders.get(0).getClientId());
+		assertNull(orders.get(0).getClientName());
+		assertNull(orders.get(1).getClientId());
+
+		OrderSummary named = orders.get(0).withNames("Ana", null);
+		assertEquals("Ana", named.getClientName());
+		assertNull(named.getLocalName());
+		assertEquals("81", named.getClientId());
+	}
+
+	@Test(expected = IOException.class)
+	public void rejectsTruncatedPayload() throws Exception {
+		decodeAll("[{\"id\":1,\"notes\":\"sin cerrar".getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void stopsReadingWhenListenerReachesLastNotifiedOrder() throws Exception {
+		byte[] payload = load("orders_legacy_200.json");
+		CountingInputStream in = new CountingInputStream(new ByteArrayInputStream(payload));
+		final long lastNotified = 1195;
+
+		List<Long> seen = new ArrayList<>();
+		int count = OrderFeedDecoder.decode(in, order -> {
+			if (order.getId() == lastNotified) {
+				return false;
+			}
+			seen.add(order.getId());
+			return true;
+		});
+
+		assertEquals(5, count);
+		assertEquals(4, seen.size());
+		assertTrue("Leyó " + in.count + " de " + payload.length + " bytes", in.count < payload.length / 5);
+	}
+
+	private static List<OrderSummary> decodeAll(byte[] payload) throws IOException {
+		List<OrderSummary> orders = new ArrayList<>();
+		OrderFeedDecoder.decode(new ByteArrayInputStream(payload), order -> {
+			orders.add(order);
+			return true;
+		});
+		return orders;
+	}
+
+	private static byte[] load(String name) throws IOException {
+		try (InputStream in = OrderFeedDecoderTest.class.getResourceAsStream("/feed/" + name)) {
+			assertNotNull("Falta el payload grabado " + name, in);
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] chunk = new byte[8192];
+			int read;
+			while ((read = in.read(chunk)) != -1) {
+				out.write(chunk, 0, read);
+			}
+			return out.toByteArray();
+		}
+	}
+
+	private static final class CountingInputStream extends InputStream {
+		private final InputStream delegate;
+		long count;
+
+		CountingInputStream(InputStream delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = delegate.read();
+			if (b != -1) {
+				count++;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int read = delegate.read(b, off, len);
+			if (read > 0) {
+				count += read;
+			}
+			return read;
+		}
+	}
+}
@@ -0,0 +1,304 @@
+package com.deliveryapp.repartidor;
+
+import static org.junit.Assert.*;
+
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Pruebas del núcleo de la verificación de pedidos contra un servidor PostgREST simulado:
+ * marca de agua inicial, paginación incremental, ventana de pedidos confirmados tarde,
+ * pedidos ya procesados y errores.
+ */
+public class OrderFeedPipelineTest {
+	private MockWebServer server;
+	private OrderFeedPipeline pipeline;
+	private OrderFeedPipeline.Endpoint endpoint;
+	private final CheckMetrics metrics = new CheckMetrics();
+	
+	private OrderFeedCursor stored;
+	private final List<List<OrderSummary>> delivered = new ArrayList<>();
+	
+	@Before
+	public void setUp() throws Exception {
+		server = new MockWebServer();
+		server.start();
+		String baseUrl = server.url("/").toString();
+		endpoint = new OrderFeedPipeline.Endpoint(baseUrl.substring(0, baseUrl.length() - 1), "anon", "7");
+		pipeline = new OrderFeedPipeline(new NativeHttpClient(new OkHttpClient.Builder()),
+			new OrderFeedPipeline.CursorStore() {
+				@Override
+				public OrderFeedCursor load() {
+					return stored;
+				}
+				
+				@Override
+				public void save(OrderFeedCursor cursor) {
+					stored = cursor;
+				}
+			},
+			(orders, run) -> {
+				delivered.add(orders);
+				return orders.size();
+			});
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		server.shutdown();
+	}
+	
+	@Test
+	public void firstRunNotifiesOnlyNewestAndSeedsCursor() throws Exception {
+		server.enqueue(new MockResponse().setBody(page(50, 1)));
+		
+		assertEquals(1, pipeline.sync(endpoint, metrics.begin("test", 0)));
+		
+		RecordedRequest request = server.takeRequest();
+		assertTrue(request.getPath().contains("company_id=eq.7"));
+		assertTrue(request.getPath().contains("order=created_at.desc,id.desc&limit=1"));
+		assertEquals("anon", request.getHeader("apikey"));
+		assertEquals(50, stored.getId());
+		assertEquals(createdAt(50), stored.getCreatedAt());
+	}
+	
+	@Test
+	public void pagesIncrementallyUntilShortPage() throws Exception {
+		stored = new OrderFeedCursor(createdAt(0), 0);
+		server.enqueue(new MockResponse().setBody(page(1, OrderFeedPipeline.PAGE_SIZE)));
+		server.enqueue(new MockResponse().setBody(page(1 + OrderFeedPipeline.PAGE_SIZE, 2)));
+		CheckMetrics.CheckRun run = metrics.begin("test", 0);
+		
+		assertEquals(OrderFeedPipeline.PAGE_SIZE + 2, pipeline.sync(endpoint, run));
+		
+		// Una sola entrega con toda la ráfaga
+		assertEquals(1, delivered.size());
+		assertEquals(2, server.getRequestCount());
+		assertTrue(server.takeRequest().getPath().contains("id.gt.0"));
+		assertTrue(server.takeRequest().getPath().contains("id.gt." + OrderFeedPipeline.PAGE_SIZE));
+		assertEquals(OrderFeedPipeline.PAGE_SIZE + 2, stored.getId());
+		assertEquals(OrderFeedPipeline.PAGE_SIZE + 2, run.seen);
+		assertTrue(run.bytes > 0);
+	}
+	
+	@Test
+	public void countsArrivalsBeforeTheSinkFilters() throws Exception {
+		// Sink que no notifica nada (todos fuera del radio del driver)
+		OrderFeedPipeline filtering = new OrderFeedPipeline(new NativeHttpClient(new OkHttpClient.Builder()),
+			new OrderFeedPipeline.CursorStore() {
+				@Override
+				public OrderFeedCursor load() {
+					return stored;
+				}
+				
+				@Override
+				public void save(OrderFeedCursor cursor) {
+					stored = cursor;
+				}
+			},
+			(orders, run) -> 0);
+		
+		server.enqueue(new MockResponse().setBody(page(50, 1)));
+		filtering.sync(endpoint, metrics.begin("test", 0));
+		// La primera ejecución solo fija la marca de agua
+		assertEquals(0, filtering.lastArrivals());
+		
+		server.enqueue(new MockResponse().setBody(page(51, 3)));
+		assertEquals(0, filtering.sync(endpoint, metrics.begin("test", 0)));
+		assertEquals(3, filtering.lastArrivals());
+		
+		server.enqueue(new MockResponse().setBody("[]"));
+		filtering.sync(endpoint, metrics.begin("test", 0));
+		assertEquals(0, filtering.lastArrivals());
+	}
+	
+	@Test
+	public void stopsAtAlreadyProcessedOrder() throws Exception {
+		stored = new OrderFeedCursor(createdAt(5), 5);
+		// Réplica atrasada: devuelve el pedido de la marca y uno anterior
+		server.enqueue(new MockResponse().setBody(page(4, 2)));
+		
+		assertEquals(0, pipeline.sync(endpoint, metrics.begin("test", 0)));
+		assertTrue(delivered.isEmpty());
+		assertEquals(5, stored.getId());
+	}
+	
+	@Test
+	public void deliversOrdersCommittedLateBelowTheMark() throws Exception {
+		stored = OrderFeedCursor.seed(createdAt(100), 100);
+		// El 99 se confirmó después que el 100: aparece por debajo de la marca
+		server.enqueue(new MockResponse().setBody(page(99, 3)));
+		
+		assertEquals(2, pipeline.sync(endpoint, metrics.begin("test", 0)));
+		
+		String path = URLDecoder.decode(server.takeRequest().getPath(), "UTF-8");
+		assertTrue(path.contains("created_at.gt.\"" + createdAt(40) + "\""));
+		assertEquals(Arrays.asList(99L, 101L), Arrays.asList(delivered.get(0).get(0).getId(), delivered.get(0).get(1).getId()));
+		assertEquals(101, stored.getId());
+		
+		// Tras guardarlo y leerlo, la misma ventana ya no entrega nada
+		stored = OrderFeedCursor.fromStored(stored.getCreatedAt(), String.valueOf(stored.getId()), stored.getStoredRecent());
+		server.enqueue(new MockResponse().setBody(page(99, 3)));
+		assertEquals(0, pipeline.sync(endpoint, metrics.begin("test", 0)));
+		assertEquals(1, delivered.size());
+	}
+	
+	@Test
+	public void storedCursorWithoutWindowQueriesFromTheMark() throws Exception {
+		stored = OrderFeedCursor.fromStored(createdAt(100), "100");
+		server.enqueue(new MockResponse().setBody("[]"));
+		server.enqueue(new MockResponse().setBody("[]"));
+		
+		pipeline.sync(endpoint, metrics.begin("test", 0));
+		pipeline.sync(endpoint, metrics.begin("test", 0));
+		
+		assertTrue(URLDecoder.decode(server.takeRequest().getPath(), "UTF-8")
+			.contains("created_at.gt.\"" + createdAt(100) + "\""));
+		// Desde la siguiente verificación ya lleva la ventana
+		assertTrue(URLDecoder.decode(server.takeRequest().getPath(), "UTF-8")
+			.contains("created_at.gt.\"" + createdAt(40) + "\""));
+	}
+	
+	@Test
+	public void keepsCursorOnServerError() throws Exception {
+		stored = new OrderFeedCursor(createdAt(3), 3);
+		server.enqueue(new MockResponse().setResponseCode(503));
+		
+		assertEquals(0, pipeline.sync(endpoint, metrics.begin("test", 0)));
+		assertTrue(delivered.isEmpty());
+		assertEquals(3, stored.getId());
+	}
+	
+	@Test
+	public void findsOrdersStillPending() throws Exception {
+		server.enqueue(new MockResponse().setBody("[{\"id\":2},{\"id\":4}]"));
+		server.enqueue(new MockResponse().setResponseCode(500));
+		
+		Set<Long> pending = pipeline.findStillPending(endpoint, Arrays.asList(2L, 3L, 4L), metrics.begin("test", 0));
+		assertEquals(2, pending.size());
+		assertTrue(pending.contains(4L));
+		assertTrue(server.takeRequest().getPath().contains("id=in.(2,3,4)"));
+		
+		assertNull(pipeline.findStillPending(endpoint, Arrays.asList(2L), metrics.begin("test", 0)));
+	}
+	
+	@Test
+	public void asksOnlyForeignKeysWhenNamesComeFromDictionary() throws Exception {
+		OrderFeedPipeline withDictionary = new OrderFeedPipeline(new NativeHttpClient(new OkHttpClient.Builder()),
+			new OrderFeedPipeline.CursorStore() {
+				@Override
+				public OrderFeedCursor load() {
+					return stored;
+				}
+
+				@Override
+				public void save(OrderFeedCursor cursor) {
+					stored = cursor;
+				}
+			},
+			(orders, run) -> {
+				delivered.add(orders);
+				return orders.size();
+			},
+			(ep, orders) -> {
+				List<OrderSummary> named = new ArrayList<>();
+				for (OrderSummary order : orders) {
+					named.add(order.withNames("Cliente " + order.getClientId(), "Local " + order.getLocalId()));
+				}
+				return named;
+			});
+		stored = new OrderFeedCursor(createdAt(0), 0);
+		server.enqueue(new MockResponse().setBody("[{\"id\":1,\"created_at\":\"" + createdAt(1)
+			+ "\",\"local_id\":3,\"client_id\":81}]"));
+
+		assertEquals(1, withDictionary.sync(endpoint, metrics.begin("test", 0)));
+
+		String path = server.takeRequest().getPath();
+		assertTrue(path.contains("select=" + OrderFeedPipeline.FEED_SELECT));
+		assertFalse(path.contains("clients("));
+		OrderSummary order = delivered.get(0).get(0);
+		assertEquals("Cliente 81", order.getClientName());
+		assertEquals("Local 3", order.getLocalName());
+	}
+
+	@Test
+	public void deliversFullRowsWithTheListProjection() throws Exception {
+		String select = "*,clients(name,phone),locals(name,address)";
+		OrderFeedPipeline withRows = new OrderFeedPipeline(new NativeHttpClient(new OkHttpClient.Builder()),
+			new OrderFeedPipeline.CursorStore() {
+				@Override
+				public OrderFeedCursor load() {
+					return stored;
+				}
+
+				@Override
+				public void save(OrderFeedCursor cursor) {
+					stored = cursor;
+				}
+			},
+			(orders, run) -> {
+				delivered.add(orders);
+				return orders.size();
+			},
+			null, select);
+		stored = new OrderFeedCursor(createdAt(0), 0);
+		server.enqueue(new MockResponse().setBody(page(1, 2)));
+		server.enqueue(new MockResponse().setBody("[{\"id\":7,\"status\":\"Asignado\"}]"));
+
+		assertEquals(2, withRows.sync(endpoint, metrics.begin("test", 0)));
+		assertTrue(URLDecoder.decode(server.takeRequest().getPath(), "UTF-8").contains("select=" + select));
+		OrderSummary first = delivered.get(0).get(0);
+		assertEquals("Calle 1", new JSONObject(first.getRow()).getString("delivery_address"));
+		assertEquals("Ana", first.getClientName());
+
+		// Pedidos que cambiaron: filas completas, cualquiera sea su estado
+		List<OrderSummary> changed = withRows.findOrders(endpoint, Arrays.asList(7L, 8L), metrics.begin("test", 0));
+		assertEquals(1, changed.size());
+		assertEquals("Asignado", new JSONObject(changed.get(0).getRow()).getString("status"));
+		assertTrue(server.takeRequest().getPath().contains("id=in.(7,8)"));
+	}
+
+	@Test
+	public void formatsNotificationTextWithFallbacks() {
+		OrderSummary full = new OrderSummary(42, createdAt(1), "Calle 1", 2500, "Ana", "Sushi");
+		assertEquals("📦 Nuevo pedido disponible - ORD-42", OrderNotificationText.title(full));
+		assertEquals("Sushi → Ana\nCalle 1\n" + String.format("$%.2f", 2500.0), OrderNotificationText.body(full));
+		
+		OrderSummary bare = new OrderSummary(7, null, null, 0, null, null);
+		assertEquals("Local → Cliente\nSin dirección\nPrecio a acordar", OrderNotificationText.body(bare));
+		assertEquals("ORD-7 · Local · Precio a acordar", OrderNotificationText.summaryLine(bare));
+	}
+	
+	/**
+	 * Pedidos id..id+count-1, con created_at creciente (un segundo por id)
+	 */
+	private static String page(long firstId, int count) {
+		StringBuilder json = new StringBuilder("[");
+		for (int i = 0; i < count; i++) {
+			long id = firstId + i;
+			if (i > 0) {
+				json.append(',');
+			}
+			json.append("{\"id\":").append(id)
+				.append(",\"created_at\":\"").append(createdAt(id)).append('"')
+				.append(",\"delivery_address\":\"Calle ").append(id).append('"')
+				.append(",\"suggested_price\":2500,\"clients\":{\"name\":\"Ana\"},\"locals\":{\"name\":\"Sushi\"}}");
+		}
+		return json.append(']').toString();
+	}
+	
+	private static String createdAt(long id) {
+		return String.format("2025-03-14T12:%02d:%02d.000000+00:00", id / 60, id % 60);
+	}
+}
@@ -0,0 +1,147 @@
+package com.deliveryapp.repartidor;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.Test;
+
+/**
+ * Pruebas del snapshot local de pedidos que pinta la lista al abrir la app.
+ */
+public class OrderSnapshotStoreTest {
+
+	private static File snapshotFile() throws Exception {
+		return new File(Files.createTempDirectory("snapshot").toFile(), "order_snapshot.bin");
+	}
+
+	private static String row(long id, String status) {
+		return "{\"id\":" + id + ",\"status\":\"" + status + "\",\"driver_id\":null}";
+	}
+
+	private static Map<Long, String> rows(long... ids) {
+		Map<Long, String> result = new LinkedHashMap<>();
+		for (long id : ids) {
+			result.put(id, row(id, "Pendiente"));
+		}
+		return result;
+	}
+
+	@Test
+	public void replaceAndReloadKeepsOrder() throws Exception {
+		File file = snapshotFile();
+		new OrderSnapshotStore(file).replace("7", "3", rows(30, 20, 10), 1000L);
+
+		OrderSnapshotStore.Snapshot snapshot = new OrderSnapshotStore(file).load("7", "3");
+		assertNotNull(snapshot);
+		assertEquals(1000L, snapshot.savedAt);
+		assertEquals(Arrays.asList(row(30, "Pendiente"), row(20, "Pendiente"), row(10, "Pendiente")), snapshot.rows);
+	}
+
+	@Test
+	public void otherDriverOrCompanyGetsNothing() throws Exception {
+		File file = snapshotFile();
+		OrderSnapshotStore store = new OrderSnapshotStore(file);
+		store.replace("7", "3", rows(1), 1000L);
+
+		assertNull(store.load("8", "3"));
+		assertNull(store.load("7", "4"));
+		assertFalse(store.putPartial("4", 2, row(2, "Pendiente")));
+	}
+
+	@Test
+	public void partialRowsGoFirstAndNeverReplaceFullRows() throws Exception {
+		File file = snapshotFile();
+		OrderSnapshotStore store = new OrderSnapshotStore(file);
+		store.replace("7", "3", rows(20, 10), 1000L);
+
+		assertTrue(store.putPartial("3", 30, "{\"id\":30,\"_partial\":true}"));
+		assertTrue(store.putPartial("3", 40, "{\"id\":40,\"_partial\":true}"));
+		assertFalse(store.putPartial("3", 20, "{\"id\":20,\"_partial\":true}"));
+
+		OrderSnapshotStore.Snapshot snapshot = new OrderSnapshotStore(file).load("7", "3");
+		assertEquals(Arrays.asList("{\"id\":40,\"_partial\":true}", "{\"id\":30,\"_partial\":true}",
+			row(20, "Pendiente"), row(10, "Pendiente")), snapshot.rows);
+	}
+
+	@Test
+	public void deleteOnlyRemovesPendingOrders() throws Exception {
+		File file = snapshotFile();
+		OrderSnapshotStore store = new OrderSnapshotStore(file);
+		Map<Long, String> initial = rows(1, 2);
+		initial.put(3L, row(3, "En camino"));
+		store.replace("7", "3", initial, 1000L);
+
+		// El 3 es un pedido del propio driver: no se quita aunque ya no esté pendiente
+		assertEquals(1, store.delete("3", Arrays.asList(1L, 3L)));
+
+		OrderSnapshotStore.Snapshot snapshot = new OrderSnapshotStore(file).load("7", "3");
+		assertEquals(Arrays.asList(row(2, "Pendiente"), row(3, "En camino")), snapshot.rows);
+	}
+
+	@Test
+	public void tornTailIsDiscardedAndAppendsContinue() throws Exception {
+		File file = snapshotFile();
+		OrderSnapshotStore store = new OrderSnapshotStore(file);
+		store.replace("7", "3", rows(1), 1000L);
+		store.putPartial("3", 2, row(2, "Pendiente"));
+
+		// Corte de energía a mitad del último registro
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.setLength(raf.length() - 3);
+		}
+
+		OrderSnapshotStore reopened = new OrderSnapshotStore(file);
+		assertEquals(Collections.singletonList(row(1, "Pendiente")), reopened.load("7", "3").rows);
+		assertTrue(reopened.putPartial("3", 4, row(4, "Pendiente")));
+		assertEquals(Arrays.asList(row(4, "Pendiente"), row(1, "Pendiente")),
+			new OrderSnapshotStore(file).load("7", "3").rows);
+	}
+
+	@Test
+	public void compactsWhenDeletesPileUp() throws Exception {
+		File file = snapshotFile();
+		OrderSnapshotStore store = new OrderSnapshotStore(file);
+		store.replace("7", "3", rows(1), 1000L);
+		for (long id = 100; id < 200; id++) {
+			store.putPartial("3", id, row(id, "Pendiente"));
+			store.delete("3", Collections.singletonList(id));
+		}
+
+		// 1 pedido vivo: el archivo no guarda los 200 registros del Worker
+		assertTrue(file.length() < 1024);
+		assertEquals(Collections.singletonList(row(1, "Pendiente")), new OrderSnapshotStore(file).load("7", "3").rows);
+	}
+
+	@Test
+	public void rereadsWritesFromAnotherStore() throws Exception {
+		File file = snapshotFile();
+		// Como la UI y :sync: cada una con su store sobre el mismo archivo
+		OrderSnapshotStore ui = new OrderSnapshotStore(file);
+		OrderSnapshotStore sync = new OrderSnapshotStore(file);
+		ui.replace("7", "3", rows(30, 20), 1000L);
+		assertTrue(sync.putPartial("3", 40, row(40, "Pendiente")));
+
+		assertEquals(1, ui.delete("3", Collections.singletonList(20L)));
+		assertEquals(Arrays.asList(row(40, "Pendiente"), row(30, "Pendiente")), ui.load("7", "3").rows);
+		assertEquals(Arrays.asList(row(40, "Pendiente"), row(30, "Pendiente")),
+			new OrderSnapshotStore(file).load("7", "3").rows);
+	}
+
+	@Test
+	public void clearRemovesSnapshot() throws Exception {
+		File file = snapshotFile();
+		OrderSnapshotStore store = new OrderSnapshotStore(file);
+		store.replace("7", "3", rows(1), 1000L);
+		store.clear();
+
+		assertFalse(file.exists());
+		assertNull(new OrderSnapshotStore(file).load("7", "3"));
+		assertFalse(store.putPartial("3", 2, row(2, "Pendiente")));
+	}
+}
@@ -0,0 +1,71 @@
+package com.deliveryapp.repartidor;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.junit.Test;
+
+/**
+ * Pruebas del lock entre procesos de los archivos compartidos por la UI y :sync.
+ */
+public class ProcessFileLockTest {
+
+	private static File lockFile() throws Exception {
+		return new File(Files.createTempDirectory("lock").toFile(), "wal.lock");
+	}
+
+	/**
+	 * Proceso hijo: toma el lock, avisa por stdout y lo suelta cuando se cierra su stdin
+	 */
+	public static void main(String[] args) throws Exception {
+		try (ProcessFileLock lock = ProcessFileLock.acquire(new File(args[0]))) {
+			System.out.println("locked");
+			System.out.flush();
+			while (System.in.read() != -1) {
+				// Esperar a que el padre cierre stdin
+			}
+		}
+	}
+
+	@Test
+	public void excludesOtherHoldersInTheSameProcess() throws Exception {
+		File file = lockFile();
+		ProcessFileLock first = ProcessFileLock.tryAcquire(file);
+		assertNotNull(first);
+		assertNull(ProcessFileLock.tryAcquire(file));
+
+		first.close();
+		// Cerrar dos veces no libera un lock ajeno
+		first.close();
+		try (ProcessFileLock second = ProcessFileLock.tryAcquire(file)) {
+			assertNotNull(second);
+			assertNull(ProcessFileLock.tryAcquire(file));
+		}
+	}
+
+	@Test
+	public void excludesAnotherProcess() throws Exception {
+		File file = lockFile();
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		Process child = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+			ProcessFileLockTest.class.getName(), file.getPath()).start();
+		try {
+			BufferedReader out = new BufferedReader(new InputStreamReader(child.getInputStream(), StandardCharsets.UTF_8));
+			assertEquals("locked", out.readLine());
+			assertNull(ProcessFileLock.tryAcquire(file));
+
+			child.getOutputStream().close();
+			assertEquals(0, child.waitFor());
+			// Libre en cuanto el otro proceso lo suelta (o muere)
+			try (ProcessFileLock lock = ProcessFileLock.acquire(file)) {
+				assertNotNull(lock);
+			}
+		} finally {
+			child.destroy();
+		}
+	}
+}
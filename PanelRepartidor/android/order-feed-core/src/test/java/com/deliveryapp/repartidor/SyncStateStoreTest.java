@@ -0,0 +1,73 @@
+package com.deliveryapp.repartidor;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import org.junit.Test;
+
+/**
+ * Pruebas del estado compartido entre el proceso de la UI y :sync (sesión, cursor, notificados).
+ */
+public class SyncStateStoreTest {
+
+	private static File stateFile() throws Exception {
+		return new File(Files.createTempDirectory("state").toFile(), "sync_state.properties");
+	}
+
+	@Test
+	public void editsSurviveAReopenAndNullRemovesTheKey() throws Exception {
+		File file = stateFile();
+		SyncStateStore store = new SyncStateStore(file);
+		assertNull(store.get("cursor_id"));
+
+		store.edit(values -> {
+			values.put("cursor_id", "1004");
+			values.put("driver", "{\"id\":\"42\",\"name\":\"Peña\"}");
+		});
+		SyncStateStore reopened = new SyncStateStore(file);
+		assertEquals("1004", reopened.get("cursor_id"));
+		assertEquals("{\"id\":\"42\",\"name\":\"Peña\"}", reopened.get("driver"));
+
+		reopened.edit(values -> values.put("cursor_id", null));
+		assertNull(new SyncStateStore(file).get("cursor_id"));
+	}
+
+	@Test
+	public void seesWritesFromAnotherInstanceAndSkipsNoOpEdits() throws Exception {
+		File file = stateFile();
+		// Dos instancias sobre el mismo archivo: como el proceso de la UI y :sync
+		SyncStateStore ui = new SyncStateStore(file);
+		SyncStateStore sync = new SyncStateStore(file);
+		ui.edit(values -> values.put("isOnline", "true"));
+		long seen = sync.generation();
+		assertEquals("true", sync.get("isOnline"));
+
+		// Sin cambios no se reescribe el archivo ni cambia la generación
+		long modified = file.lastModified();
+		ui.edit(values -> values.put("isOnline", "true"));
+		assertEquals(modified, file.lastModified());
+		assertEquals(seen, sync.generation());
+
+		// Mismo largo: se nota igual
+		ui.edit(values -> values.put("isOnline", "fals"));
+		assertNotEquals(seen, sync.generation());
+		assertEquals("fals", sync.get("isOnline"));
+	}
+
+	@Test
+	public void editsReadTheOtherInstanceWritesFirst() throws Exception {
+		File file = stateFile();
+		SyncStateStore ui = new SyncStateStore(file);
+		SyncStateStore sync = new SyncStateStore(file);
+		ui.edit(values -> values.put("driver", "42"));
+		sync.edit(values -> values.put("cursor_id", "1004"));
+		ui.edit(values -> values.put("isOnline", "true"));
+
+		// Ninguna edición pisó las claves que escribió la otra instancia
+		SyncStateStore reopened = new SyncStateStore(file);
+		assertEquals("42", reopened.get("driver"));
+		assertEquals("1004", reopened.get("cursor_id"));
+		assertEquals("true", reopened.get("isOnline"));
+	}
+}
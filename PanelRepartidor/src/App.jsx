@@ -5,14 +5,87 @@ import { supabase } from './utils/supabase';
 import { useDriverLocation } from './hooks/useDriverLocation';
 import { useLocationTracking } from './hooks/useLocationTracking';
 import { useOrderNotifications } from './hooks/useOrderNotifications';
-import { geocodeAddress, calculateDistance } from './utils/utils';
+import { geocodeAddress, getCachedCoordinates, calculateDistance } from './utils/utils';
 import { getStorageObject, setStorageObject, removeStorageItem, setStorageItem } from './utils/storage';
 import toast from 'react-hot-toast';
 import { logger } from './utils/logger';
+import { loadOrderSnapshot, saveOrderSnapshot, clearOrderSnapshot } from './services/orderSnapshot';
+import { isNetworkError } from './services/offlineQueue';
+import { subscribeOrderDeltas, startForegroundSync, stopForegroundSync, requestOrderSync, clearOrderNotifications } from './services/orderEvents';
+import { prefetchMapZone } from './services/mapTiles';
+import { reportDriverPosition } from './services/routeProgress';
 
 // Radio de proximidad en kilómetros (configurable)
 const PROXIMITY_RADIUS_KM = 5; // Por defecto 5 km
 
+// Última posición del driver guardada para filtrar el snapshot al arrancar, antes del primer GPS
+const LAST_LOCATION_KEY = 'last_driver_location';
+// Más vieja que esto, el driver puede estar en otra zona: el snapshot se pinta sin filtrar
+const MAX_LAST_LOCATION_AGE_MS = 2 * 60 * 60 * 1000;
+
+/**
+ * Filtro de proximidad: los pedidos pendientes de locales fuera del radio no se muestran
+ * (los asignados al driver y los de locales sin coordenadas sí)
+ */
+const filterByProximity = async (formattedOrders, driverId, location, geocodeLocal) => {
+	if (!location || formattedOrders.length === 0) return formattedOrders;
+
+	// Geocodificar direcciones de locales para pedidos pendientes
+	const ordersWithDistance = await Promise.all(
+		formattedOrders.map(async (order) => {
+			// Si el pedido ya está asignado al driver, no filtrar por distancia
+			if (order.status !== 'Pendiente' || order.driverId === driverId) {
+				return { ...order, distance: 0, withinRadius: true };
+			}
+
+			// Obtener coordenadas del local
+			const localCoords = await geocodeLocal(order.localAddress);
+			if (!localCoords) {
+				// Si no se puede geocodificar, mostrar el pedido (fallback)
+				return { ...order, distance: null, withinRadius: true };
+			}
+
+			// Calcular distancia
+			const distance = calculateDistance(
+				location.lat,
+				location.lon,
+				localCoords.lat,
+				localCoords.lon
+			);
+
+			return {
+				...order,
+				distance: distance,
+				withinRadius: distance <= PROXIMITY_RADIUS_KM
+			};
+		})
+	);
+
+	// Filtrar solo pedidos dentro del radio (excepto los asignados al driver)
+	return ordersWithDistance.filter(order => 
+		order.driverId === driverId || order.withinRadius
+	);
+};
+
+// Columnas de la consulta de pedidos (igual que OrderFeedSync.ORDER_SELECT del feed nativo)
+const ORDER_SELECT = `
+	*,
+	clients(name, phone, address),
+	locals(name, address),
+	company_users(name),
+	drivers(name, phone)
+`;
+
+// Tiempo hasta la primera lista de pedidos en pantalla (una vez por arranque)
+let firstOrdersMarked = false;
+const markFirstOrders = (source, count) => {
+	if (firstOrdersMarked) return;
+	firstOrdersMarked = true;
+	const elapsed = Math.round(performance.now());
+	performance.mark?.('first-orders', { detail: { source, count } });
+	logger.info(`⏱️ Primera lista de pedidos a los ${elapsed} ms del arranque (${source}, ${count} pedidos)`);
+};
+
 export default function App() {
 	const [currentDriver, setCurrentDriver] = useState(null);
 	const [orders, setOrders] = useState([]);
@@ -76,6 +149,20 @@ export default function App() {
 		return coords;
 	}, [localCoordinates]);
 
+	// Última posición conocida (la del GPS actual o, hasta el primer fix, la guardada)
+	const lastLocationRef = useRef(null);
+	useEffect(() => {
+		if (!driverLocation) return;
+		lastLocationRef.current = driverLocation;
+		setStorageObject(LAST_LOCATION_KEY, { lat: driverLocation.lat, lon: driverLocation.lon, at: Date.now() })
+			.catch(err => logger.warn('No se pudo guardar la última posición:', err));
+	}, [driverLocation?.lat, driverLocation?.lon]);
+
+	// Filtrar por proximidad: los pedidos pendientes de locales fuera del radio no se muestran
+	const applyProximity = useCallback((formattedOrders) => (
+		filterByProximity(formattedOrders, currentDriver?.id, driverLocation || lastLocationRef.current, geocodeLocalAddress)
+	), [currentDriver, driverLocation, geocodeLocalAddress]);
+
 	// Cargar pedidos desde Supabase
 	const loadOrders = useCallback(async () => {
 		if (!currentDriver) return;
@@ -88,13 +175,7 @@ export default function App() {
 			// Crear consulta base
 			let query = supabase
 				.from('orders')
-				.select(`
-					*,
-					clients(name, phone, address),
-					locals(name, address),
-					company_users(name),
-					drivers(name, phone)
-				`);
+				.select(ORDER_SELECT);
 
 			// Si tiene empresa, filtrar por empresa
 			if (companyId) {
@@ -108,60 +189,60 @@ export default function App() {
 
 			if (error) throw error;
 
+			// Guardar las filas crudas para pintar la lista en el próximo arranque
+			saveOrderSnapshot(driverId, companyId, data || []);
+
 			// Formatear todos los pedidos
 			let formattedOrders = (data || []).map(formatOrder);
 
 			// Filtrar por proximidad si tenemos ubicación GPS y el pedido está pendiente
-			if (driverLocation && formattedOrders.length > 0) {
-				// Geocodificar direcciones de locales para pedidos pendientes
-				const ordersWithDistance = await Promise.all(
-					formattedOrders.map(async (order) => {
-						// Si el pedido ya está asignado al driver, no filtrar por distancia
-						if (order.status !== 'Pendiente' || order.driverId === driverId) {
-							return { ...order, distance: 0, withinRadius: true };
-						}
-
-						// Obtener coordenadas del local
-						const localCoords = await geocodeLocalAddress(order.localAddress);
-						if (!localCoords) {
-							// Si no se puede geocodificar, mostrar el pedido (fallback)
-							return { ...order, distance: null, withinRadius: true };
-						}
-
-						// Calcular distancia
-						const distance = calculateDistance(
-							driverLocation.lat,
-							driverLocation.lon,
-							localCoords.lat,
-							localCoords.lon
-						);
-
-						return {
-							...order,
-							distance: distance,
-							withinRadius: distance <= PROXIMITY_RADIUS_KM
-						};
-					})
-				);
-
-				// Filtrar solo pedidos dentro del radio (excepto los asignados al driver)
-				formattedOrders = ordersWithDistance.filter(order => 
-					order.driverId === driverId || order.withinRadius
-				);
-			}
+			formattedOrders = await applyProximity(formattedOrders);
 
 			setOrders(formattedOrders);
+			markFirstOrders('red', formattedOrders.length);
 		} catch (err) {
 			logger.error('Error cargando pedidos:', err);
 			toast.error('Error al cargar los pedidos');
 		} finally {
 			setLoading(false);
 		}
-	}, [currentDriver, formatOrder, driverLocation, geocodeLocalAddress]);
+	}, [currentDriver, formatOrder, applyProximity]);
+
+	// Aplicar los cambios publicados por Android sin volver a consultar toda la tabla
+	const applyOrderDelta = useCallback(async ({ inserted, updated, taken }) => {
+		if (!currentDriver) return;
+		const driverId = currentDriver.id;
+		const takenIds = new Set(taken);
+		const updatedIds = new Set(updated.map(row => row.id));
+
+		// El feed llega del más viejo al más nuevo; la lista va del más nuevo al más viejo.
+		// Los modificados que ya no están pendientes (ni son del driver) salen de la lista
+		const isVisible = (row) => row.status === 'Pendiente' || row.driver_id === driverId;
+		const fresh = await applyProximity([...inserted].reverse().filter(isVisible).map(formatOrder));
+		const changed = await applyProximity(updated.filter(isVisible).map(formatOrder));
+		const changedById = new Map(changed.map(order => [order._dbId, order]));
+
+		setOrders(prev => {
+			const known = new Set(prev.map(order => order._dbId));
+			const added = fresh.filter(order => !known.has(order._dbId));
+			// Un modificado que no estaba en la lista (por ejemplo, recién asignado al driver) entra arriba
+			const appeared = changed.filter(order => !known.has(order._dbId));
+			const kept = prev
+				.filter(order => !(takenIds.has(order._dbId) && order.status === 'Pendiente'))
+				.filter(order => !updatedIds.has(order._dbId) || changedById.has(order._dbId))
+				.map(order => changedById.get(order._dbId) || order);
+			if (added.length === 0 && appeared.length === 0 && updatedIds.size === 0 && kept.length === prev.length) return prev;
+			return [...added, ...appeared, ...kept];
+		});
+	}, [currentDriver, formatOrder, applyProximity]);
 
 	// Cargar pedidos cuando el driver se loguea o se restaura la sesión
 	const loadOrdersRef = useRef(loadOrders);
 	loadOrdersRef.current = loadOrders;
+	const applyOrderDeltaRef = useRef(applyOrderDelta);
+	applyOrderDeltaRef.current = applyOrderDelta;
+	// true mientras Android consulta el feed y publica los pedidos nuevos
+	const nativeDeltasRef = useRef(false);
 	
 	useEffect(() => {
 		if (currentDriver && !checkingSession) {
@@ -181,9 +262,76 @@ export default function App() {
 		return () => clearTimeout(timeoutId);
 	}, [driverLocation?.lat, driverLocation?.lon, currentDriver, locationLoading]);
 
+	// Precargar los tiles de la zona del driver (Android los baja con Wi-Fi); solo al cambiar
+	// de zona (~1 km), no en cada lectura del GPS
+	const mapZoneRef = useRef(null);
+	useEffect(() => {
+		if (!currentDriver || !isOnline || !driverLocation) return;
+		const zone = `${driverLocation.lat.toFixed(2)},${driverLocation.lon.toFixed(2)}`;
+		if (mapZoneRef.current === zone) return;
+		mapZoneRef.current = zone;
+		prefetchMapZone(driverLocation.lat, driverLocation.lon);
+	}, [driverLocation?.lat, driverLocation?.lon, currentDriver, isOnline]);
+
+	// Estado del pedido en curso para el muestreo GPS nativo: GPS seguido solo yendo al local o
+	// a la entrega; esperando o sin pedido, la red y cada varios segundos
+	const tripPhaseRef = useRef(null);
+	useEffect(() => {
+		if (!currentDriver) return;
+		const mine = orders.filter(order => order.driverId === currentDriver.id);
+		const phase = mine.some(order => order.status === 'Producto retirado') ? 'to_delivery'
+			: mine.some(order => order.status === 'En camino al retiro' || order.status === 'En camino') ? 'to_pickup'
+			: mine.some(order => order.status === 'Asignado') ? 'assigned'
+			: 'idle';
+		if (tripPhaseRef.current === phase) return;
+		tripPhaseRef.current = phase;
+		setStorageItem('trip_phase', phase).catch(err => {
+			logger.warn('No se pudo guardar el estado del pedido en curso:', err);
+		});
+	}, [orders, currentDriver]);
+
+	// La ETA de los pedidos en curso se calcula en Android sobre la ruta ya pedida; le pasamos
+	// también la posición que conoce el WebView por si el tracking nativo no está corriendo
+	useEffect(() => {
+		if (!currentDriver || !driverLocation) return;
+		reportDriverPosition(driverLocation.lat, driverLocation.lon);
+	}, [driverLocation?.lat, driverLocation?.lon, currentDriver]);
+
 	// Hook para notificar cuando aparece un nuevo pedido
 	useOrderNotifications(orders, currentDriver, isOnline);
 
+	// Sincronización nativa: con el driver en línea y la app visible, Android trae el delta del feed
+	// cuando Realtime avisa de un INSERT o UPDATE (y cada tanto como respaldo) y publica los pedidos
+	// nuevos, los modificados y los tomados; un DELETE recarga la lista como siempre
+	useEffect(() => {
+		if (!currentDriver || !isOnline) return;
+
+		let cancelled = false;
+		let unsubscribe = null;
+		(async () => {
+			const remove = await subscribeOrderDeltas((delta) => applyOrderDeltaRef.current(delta));
+			if (!remove) return;
+			if (cancelled) {
+				remove();
+				return;
+			}
+			unsubscribe = remove;
+			const started = await startForegroundSync();
+			if (!cancelled) {
+				nativeDeltasRef.current = started;
+			}
+		})();
+
+		return () => {
+			cancelled = true;
+			nativeDeltasRef.current = false;
+			if (unsubscribe) {
+				unsubscribe();
+				stopForegroundSync();
+			}
+		};
+	}, [currentDriver, isOnline]);
+
 	// ✅ REALTIME: escuchar cambios en orders SOLO para la company del driver + fallback 60s
 	useEffect(() => {
 		if (!currentDriver) return;
@@ -204,7 +352,15 @@ export default function App() {
 					table: 'orders',
 					filter: `company_id=eq.${companyId}`,
 				},
-				() => {
+				(payload) => {
+					// Pedido nuevo o modificado con sincronización nativa: Android trae solo el delta
+					const eventType = payload?.eventType;
+					if (nativeDeltasRef.current && (eventType === 'INSERT' || eventType === 'UPDATE')) {
+						requestOrderSync(eventType === 'UPDATE' ? [payload.new?.id].filter(Boolean) : []).then((synced) => {
+							if (!synced) loadOrdersRef.current();
+						});
+						return;
+					}
 					loadOrdersRef.current();
 				}
 			)
@@ -212,6 +368,7 @@ export default function App() {
 
 		// Fallback profesional (por si realtime cae / reconexión / lag)
 		const fallback = setInterval(() => {
+			if (nativeDeltasRef.current) return;
 			loadOrdersRef.current();
 		}, 60000);
 
@@ -254,6 +411,18 @@ export default function App() {
 		} else {
 			logger.warn('⚠️ Variables de entorno de Supabase no encontradas');
 		}
+
+		// Opt-in del suscriptor Realtime nativo (websocket en el BackgroundService de Android)
+		const nativeRealtime = import.meta.env.VITE_NATIVE_REALTIME === 'true';
+		setStorageItem('native_realtime', String(nativeRealtime)).catch(err => {
+			logger.warn('No se pudo guardar el opt-in de Realtime nativo:', err);
+		});
+
+		// Opt-in del tracking GPS nativo (LocationManager en el BackgroundService, sube por lotes)
+		const nativeLocation = import.meta.env.VITE_NATIVE_LOCATION === 'true';
+		setStorageItem('native_location', String(nativeLocation)).catch(err => {
+			logger.warn('No se pudo guardar el opt-in de tracking nativo:', err);
+		});
 	}, []);
 
 	// Verificar sesión guardada al cargar la app (solo una vez al montar)
@@ -262,6 +431,20 @@ export default function App() {
 		if (!checkingSession) return;
 		
 		const checkSavedSession = async () => {
+			// Sesión pintada desde el snapshot antes de validar contra la BD
+			let restoredFromSnapshot = false;
+
+			const clearSavedSession = async () => {
+				if (restoredFromSnapshot) {
+					setCurrentDriver(null);
+					setOrders([]);
+					clearOrderSnapshot();
+				}
+				await removeStorageItem('driver');
+				await removeStorageItem('orders');
+				await removeStorageItem('isOnline');
+			};
+
 			try {
 				// Verificar si hay sesión guardada (usa Capacitor Preferences en Android)
 				const driver = await getStorageObject('driver');
@@ -272,12 +455,31 @@ export default function App() {
 
 				// Validar que el driver tenga los campos mínimos
 				if (!driver.id) {
-					await removeStorageItem('driver');
-					await removeStorageItem('orders');
-					await removeStorageItem('isOnline');
+					await clearSavedSession();
 					setCheckingSession(false);
 					return;
 				}
+
+				// Pintar la lista desde el snapshot local sin esperar a la red; la validación del
+				// driver y la carga de pedidos siguen en segundo plano y la reemplazan
+				const snapshot = await loadOrderSnapshot(driver.id, driver.companyId || driver.company_id);
+				if (snapshot) {
+					restoredFromSnapshot = true;
+					// Mismo filtro de distancia que la carga de red, con la última posición guardada
+					const lastLocation = await getStorageObject(LAST_LOCATION_KEY);
+					if (lastLocation && Date.now() - lastLocation.at < MAX_LAST_LOCATION_AGE_MS) {
+						lastLocationRef.current = { lat: lastLocation.lat, lon: lastLocation.lon };
+					}
+					// Solo con coordenadas ya en cache: geocodificar puede ir a la red y esperar; los
+					// locales sin coordenadas se muestran y la carga de red vuelve a filtrar
+					const snapshotOrders = await filterByProximity(
+						snapshot.rows.map(formatOrder), driver.id, lastLocationRef.current, getCachedCoordinates);
+					setOrders(snapshotOrders);
+					setCurrentDriver(driver);
+					setIsOnline((await getStorageObject('isOnline')) === true);
+					setCheckingSession(false);
+					markFirstOrders('snapshot', snapshotOrders.length);
+				}
 				
 				// Validar que el driver siga activo en la base de datos
 				const { data, error } = await supabase
@@ -288,24 +490,25 @@ export default function App() {
 					.single();
 
 				if (error) {
+					// Sin red se conserva la sesión pintada desde el snapshot; se revalida al volver a abrir
+					if (restoredFromSnapshot && isNetworkError(error)) {
+						logger.warn('⚠️ Sin conexión para validar el driver, se mantiene la sesión guardada');
+						return;
+					}
 					// Si es error de "no encontrado", limpiar sesión
 					if (error.code === 'PGRST116') {
 						logger.info('Driver no encontrado o inactivo, limpiando sesión');
 					} else {
 						logger.error('Error verificando driver en BD:', error);
 					}
-					await removeStorageItem('driver');
-					await removeStorageItem('orders');
-					await removeStorageItem('isOnline');
+					await clearSavedSession();
 					setCheckingSession(false);
 					return;
 				}
 
 				if (!data) {
 					// Driver no existe o está inactivo, limpiar sesión
-					await removeStorageItem('driver');
-					await removeStorageItem('orders');
-					await removeStorageItem('isOnline');
+					await clearSavedSession();
 					setCheckingSession(false);
 					return;
 				}
@@ -322,7 +525,11 @@ export default function App() {
 					company_id: data.company_id,
 				};
 
-				setCurrentDriver(restoredDriver);
+				// Si ya se pintó desde el snapshot con los mismos datos, no recrear el objeto
+				// (volvería a disparar la carga de pedidos y la suscripción Realtime)
+				setCurrentDriver(prev => (
+					prev && JSON.stringify(prev) === JSON.stringify(restoredDriver) ? prev : restoredDriver
+				));
 				await setStorageObject('driver', restoredDriver);
 				
 				// Restaurar estado de conexión guardado
@@ -335,16 +542,16 @@ export default function App() {
 				}
 			} catch (err) {
 				logger.error('Error verificando sesión:', err);
-				await removeStorageItem('driver');
-				await removeStorageItem('orders');
-				await removeStorageItem('isOnline');
+				if (!(restoredFromSnapshot && isNetworkError(err))) {
+					await clearSavedSession();
+				}
 			} finally {
 				setCheckingSession(false);
 			}
 		};
 
 		checkSavedSession();
-	}, [checkingSession]); // Solo ejecutar cuando checkingSession es true
+	}, [checkingSession, formatOrder]); // Solo ejecutar cuando checkingSession es true
 
 	const handleLogin = async (driver) => {
 		setCurrentDriver(driver);
@@ -371,8 +578,12 @@ export default function App() {
 		await removeStorageItem('supabase_url').catch(() => {});
 		await removeStorageItem('supabase_key').catch(() => {});
 		
-		// Limpiar último pedido notificado para que se vuelva a notificar si hay uno pendiente
-		await removeStorageItem('last_notified_order_id').catch(() => {});
+		// Limpiar la marca del feed del Worker para que se vuelva a notificar si hay uno pendiente
+		await removeStorageItem('order_feed_cursor_created_at').catch(() => {});
+		await removeStorageItem('order_feed_cursor_id').catch(() => {});
+		await removeStorageItem('order_feed_cursor_recent').catch(() => {});
+		await clearOrderNotifications();
+		await clearOrderSnapshot();
 	};
 
 	// Mostrar loading mientras se verifica la sesión
@@ -13,6 +13,7 @@ import { Modal } from '../common/Modal';
 import { ChatButton } from '../orders/ChatButton';
 import { SupportChat } from '../support/SupportChat';
 import { getOrCreateOrderChat } from '../../services/orderChatService';
+import { enqueueMutation, isNetworkError, newMutationId } from '../../services/offlineQueue';
 import { supabase } from '../../utils/supabase';
 import { getStorageObject } from '../../utils/storage';
 import { Package, MapPin, CheckCircle, X } from 'lucide-react';
@@ -298,6 +299,38 @@ export function DriverApp({
 			}
 			toast.success('Estado actualizado exitosamente');
 		} catch (err) {
+			// Sin red: dejar el cambio (y su historial) en la cola nativa para aplicarlo al reconectar.
+			// La clave evita encolar dos veces el mismo cambio si el driver vuelve a tocar el botón, y
+			// client_mutation_id que un reintento duplique la fila del historial.
+			// Son dos entradas independientes (PostgREST no agrupa un PATCH y un insert): si el servidor
+			// rechaza el cambio de estado (online se cortaría ahí), la fila del historial igual se inserta
+			if (isNetworkError(err)) {
+				const queued = await enqueueMutation({
+					kind: 'update',
+					table: 'orders',
+					filter: `id=eq.${orderDbId}`,
+					key: `order_status:${orderDbId}:${normalizedStatus}`,
+					body: {
+						status: normalizedStatus.trim(),
+						updated_at: new Date().toISOString(),
+					},
+				}) && await enqueueMutation({
+					kind: 'insert',
+					table: 'order_status_history',
+					key: `order_status_history:${orderDbId}:${normalizedStatus}`,
+					onConflict: 'client_mutation_id',
+					body: {
+						client_mutation_id: newMutationId(),
+						order_id: orderDbId,
+						status: normalizedStatus,
+						driver_id: driverId,
+					},
+				});
+				if (queued) {
+					toast.success('Sin conexión: el cambio de estado se enviará al reconectar');
+					return;
+				}
+			}
 			logger.error('Error al actualizar estado:', err);
 			const errorMessage = err.message || err.details || 'Error desconocido al actualizar estado';
 			toast.error('Error al actualizar estado: ' + errorMessage);
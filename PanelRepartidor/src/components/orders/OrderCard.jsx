@@ -16,6 +16,8 @@ export function OrderCard({ order, onClick, onDelete, onAcceptOrder, onUpdateSta
 	const isPending = order.status === 'Pendiente';
 	const isAssigned = order.status === 'Asignado';
 	const isEnCamino = order.status === 'En camino' || order.status === 'En camino al retiro';
+	// Tramo en curso del driver, para la ETA en vivo del mapa
+	const navigateTo = isEnCamino ? 'pickup' : order.status === 'Producto retirado' ? 'delivery' : null;
 	const [timeRemaining, setTimeRemaining] = useState(null);
 	const [showPickupCodeModal, setShowPickupCodeModal] = useState(false);
 	const action = getPrimaryAction(order);
@@ -251,6 +253,8 @@ export function OrderCard({ order, onClick, onDelete, onAcceptOrder, onUpdateSta
 					<OrderMap 
 						pickupAddress={order.localAddress}
 						deliveryAddress={order.deliveryAddress}
+						navigateTo={navigateTo}
+						legId={navigateTo ? `${order.id}-${navigateTo}` : null}
 					/>
 				</div>
 			)}
@@ -2,6 +2,7 @@ import { useState, useRef, useEffect } from 'react';
 import { Send, Loader2, MessageCircle, Clock, Image as ImageIcon, X } from 'lucide-react';
 import { useOrderChat } from '../../hooks/useOrderChat';
 import { formatRelativeTime } from '../../utils/utils';
+import { prepareChatImage, discardChatImage } from '../../services/chatImages';
 import '../../styles/Components/OrderChat.css';
 
 export function OrderChat({ order, currentDriver, onClose }) {
@@ -25,8 +26,10 @@ export function OrderChat({ order, currentDriver, onClose }) {
 		loading,
 		sending,
 		chatExpired,
+		hasOlderMessages,
 		messagesEndRef,
 		sendMessage,
+		loadOlderMessages,
 	} = useOrderChat(order, currentDriver);
 
 	// Focus en el input cuando se monta
@@ -36,7 +39,24 @@ export function OrderChat({ order, currentDriver, onClose }) {
 		}
 	}, []);
 
-	const handleImageSelect = (e) => {
+	// Vista previa: en Android la miniatura del plugin (la foto se procesa mientras se escribe);
+	// en web, la imagen completa
+	const showPreview = async (file) => {
+		const prepared = await prepareChatImage(file);
+		if (prepared) {
+			setImagePreview(prepared.thumbnail);
+			return true;
+		}
+		if (file.size > 5 * 1024 * 1024) return false;
+		const reader = new FileReader();
+		reader.onloadend = () => {
+			setImagePreview(reader.result);
+		};
+		reader.readAsDataURL(file);
+		return true;
+	};
+
+	const handleImageSelect = async (e) => {
 		const file = e.target.files[0];
 		if (!file) return;
 
@@ -46,21 +66,20 @@ export function OrderChat({ order, currentDriver, onClose }) {
 			return;
 		}
 
-		// Validar tamaño (máximo 5MB)
-		if (file.size > 5 * 1024 * 1024) {
-			alert('La imagen debe ser menor a 5MB');
+		// Validar tamaño (máximo 25MB; 5MB si no se reduce en el dispositivo)
+		if (file.size > 25 * 1024 * 1024 || !await showPreview(file)) {
+			alert(file.size > 25 * 1024 * 1024 ? 'La imagen debe ser menor a 25MB' : 'La imagen debe ser menor a 5MB');
+			if (fileInputRef.current) {
+				fileInputRef.current.value = '';
+			}
 			return;
 		}
 
 		setSelectedImage(file);
-		const reader = new FileReader();
-		reader.onloadend = () => {
-			setImagePreview(reader.result);
-		};
-		reader.readAsDataURL(file);
 	};
 
 	const handleRemoveImage = () => {
+		discardChatImage(selectedImage);
 		setSelectedImage(null);
 		setImagePreview(null);
 		if (fileInputRef.current) {
@@ -88,11 +107,7 @@ export function OrderChat({ order, currentDriver, onClose }) {
 			setMessageInput(messageToSend);
 			if (imageToSend) {
 				setSelectedImage(imageToSend);
-				const reader = new FileReader();
-				reader.onloadend = () => {
-					setImagePreview(reader.result);
-				};
-				reader.readAsDataURL(imageToSend);
+				showPreview(imageToSend);
 			}
 			
 			// Mostrar error al usuario de forma amigable
@@ -185,6 +200,11 @@ export function OrderChat({ order, currentDriver, onClose }) {
 					</div>
 				) : (
 					<div className="order-chat-messages-list">
+						{hasOlderMessages && (
+							<button type="button" className="order-chat-load-older" onClick={loadOlderMessages}>
+								Ver mensajes anteriores
+							</button>
+						)}
 						{messages.map((message) => {
 							const isOwnMessage = message.sender_type === 'driver';
 							return (
@@ -5,6 +5,7 @@ import 'leaflet/dist/leaflet.css';
 import { Navigation } from 'lucide-react';
 import { geocodeAddress } from '../../utils/utils';
 import { getRoute } from '../../services/routingService';
+import { startRouteLeg, subscribeRouteProgress, endRouteLeg } from '../../services/routeProgress';
 import { logger } from '../../utils/logger';
 import '../../styles/Components/OrderMap.css';
 
@@ -29,10 +30,16 @@ function MapBounds({ bounds }) {
 	return null;
 }
 
-export function OrderMap({ pickupAddress, deliveryAddress }) {
+/**
+ * @param {'pickup'|'delivery'|null} navigateTo - destino del tramo en curso del driver; con
+ *        legId se muestra su ruta y la ETA en vivo calculada en el dispositivo
+ */
+export function OrderMap({ pickupAddress, deliveryAddress, navigateTo = null, legId = null }) {
 	const [pickupCoords, setPickupCoords] = useState(null);
 	const [deliveryCoords, setDeliveryCoords] = useState(null);
 	const [routeGeometry, setRouteGeometry] = useState(null);
+	const [legGeometry, setLegGeometry] = useState(null);
+	const [legProgress, setLegProgress] = useState(null);
 	const [loading, setLoading] = useState(true);
 
 	// Geocodificar direcciones
@@ -80,6 +87,38 @@ export function OrderMap({ pickupAddress, deliveryAddress }) {
 		calculateRoute();
 	}, [pickupCoords, deliveryCoords]);
 
+	// Tramo del driver hasta el destino: la ruta se pide una vez y Android avisa el avance
+	const legTarget = navigateTo === 'pickup' ? pickupCoords : navigateTo === 'delivery' ? deliveryCoords : null;
+	useEffect(() => {
+		if (!legId || !legTarget) return;
+		let cancelled = false;
+		let unsubscribe = null;
+
+		const startLeg = async () => {
+			const leg = await startRouteLeg(legId, legTarget.lat, legTarget.lon);
+			if (!leg || cancelled) {
+				if (leg) endRouteLeg(legId);
+				return;
+			}
+			setLegGeometry(leg.geometry);
+			setLegProgress({ remainingKm: leg.remainingKm, etaMin: leg.etaMin, arrived: false });
+			unsubscribe = await subscribeRouteProgress(legId, (progress) => {
+				if (progress.geometry) setLegGeometry(progress.geometry);
+				setLegProgress(progress);
+			});
+			if (cancelled && unsubscribe) unsubscribe();
+		};
+
+		startLeg();
+		return () => {
+			cancelled = true;
+			if (unsubscribe) unsubscribe();
+			endRouteLeg(legId);
+			setLegGeometry(null);
+			setLegProgress(null);
+		};
+	}, [legId, legTarget?.lat, legTarget?.lon]);
+
 	// Calcular bounds
 	const bounds = [];
 	if (pickupCoords) bounds.push([pickupCoords.lat, pickupCoords.lon]);
@@ -117,50 +156,71 @@ export function OrderMap({ pickupAddress, deliveryAddress }) {
 	}
 
 	return (
-		<MapContainer
-			center={center}
-			zoom={bounds.length > 1 ? 13 : 15}
-			style={{ height: '180px', width: '100%', zIndex: 0 }}
-			scrollWheelZoom={false}
-			className="order-card-map"
-		>
-			<TileLayer
-				attribution='&copy; <a href="https://www.openstreetmap.org/copyright">OpenStreetMap</a> contributors'
-				url="https://{s}.tile.openstreetmap.org/{z}/{x}/{y}.png"
-			/>
-			
-			{bounds.length > 1 && <MapBounds bounds={bounds} />}
-
-			{/* Ruta */}
-			{routeGeometry && routeGeometry.coordinates && (
-				<Polyline
-					positions={routeGeometry.coordinates.map(coord => [coord[1], coord[0]])}
-					color="#FF6B35"
-					weight={5}
-					opacity={0.8}
+		<div className="order-card-map-wrapper">
+			<MapContainer
+				center={center}
+				zoom={bounds.length > 1 ? 13 : 15}
+				style={{ height: '180px', width: '100%', zIndex: 0 }}
+				scrollWheelZoom={false}
+				className="order-card-map"
+			>
+				<TileLayer
+					attribution='&copy; <a href="https://www.openstreetmap.org/copyright">OpenStreetMap</a> contributors'
+					url="https://{s}.tile.openstreetmap.org/{z}/{x}/{y}.png"
 				/>
+			
+				{bounds.length > 1 && <MapBounds bounds={bounds} />}
+
+				{/* Ruta */}
+				{routeGeometry && routeGeometry.coordinates && (
+					<Polyline
+						positions={routeGeometry.coordinates.map(coord => [coord[1], coord[0]])}
+						color="#FF6B35"
+						weight={5}
+						opacity={0.8}
+					/>
+				)}
+
+				{/* Tramo del driver hasta el destino */}
+				{legGeometry && legGeometry.coordinates && (
+					<Polyline
+						positions={legGeometry.coordinates.map(coord => [coord[1], coord[0]])}
+						color="#3b82f6"
+						weight={4}
+						opacity={0.9}
+						dashArray="6 6"
+					/>
+				)}
+
+				{/* Marcador de pickup */}
+				{pickupCoords && (
+					<Marker position={[pickupCoords.lat, pickupCoords.lon]} icon={createPickupIcon()}>
+						<Popup>
+							<strong>Local</strong><br/>
+							{pickupAddress}
+						</Popup>
+					</Marker>
+				)}
+
+				{/* Marcador de delivery */}
+				{deliveryCoords && (
+					<Marker position={[deliveryCoords.lat, deliveryCoords.lon]} icon={createDeliveryIcon()}>
+						<Popup>
+							<strong>Entrega</strong><br/>
+							{deliveryAddress}
+						</Popup>
+					</Marker>
+				)}
+			</MapContainer>
+
+			{legProgress && (
+				<div className="order-card-map-eta">
+					{legProgress.arrived
+						? (navigateTo === 'pickup' ? 'En el local' : 'En la entrega')
+						: `${navigateTo === 'pickup' ? 'Al local' : 'A la entrega'} ≈ ${Math.max(1, Math.round(legProgress.etaMin))} min · ${legProgress.remainingKm.toFixed(1)} km`}
+				</div>
 			)}
-
-			{/* Marcador de pickup */}
-			{pickupCoords && (
-				<Marker position={[pickupCoords.lat, pickupCoords.lon]} icon={createPickupIcon()}>
-					<Popup>
-						<strong>Local</strong><br/>
-						{pickupAddress}
-					</Popup>
-				</Marker>
-			)}
-
-			{/* Marcador de delivery */}
-			{deliveryCoords && (
-				<Marker position={[deliveryCoords.lat, deliveryCoords.lon]} icon={createDeliveryIcon()}>
-					<Popup>
-						<strong>Entrega</strong><br/>
-						{deliveryAddress}
-					</Popup>
-				</Marker>
-			)}
-		</MapContainer>
+		</div>
 	);
 }
 
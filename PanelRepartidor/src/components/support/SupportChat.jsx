@@ -17,8 +17,10 @@ export function SupportChat({ currentDriver, onClose }) {
 		messages,
 		loading,
 		sending,
+		hasOlderMessages,
 		messagesEndRef,
 		sendMessage,
+		loadOlderMessages,
 	} = useSupportChat(currentDriver);
 
 	// Focus en el input cuando se monta
@@ -159,6 +161,11 @@ export function SupportChat({ currentDriver, onClose }) {
 					</div>
 				) : (
 					<div className="order-chat-messages-list">
+						{hasOlderMessages && (
+							<button type="button" className="order-chat-load-older" onClick={loadOlderMessages}>
+								Ver mensajes anteriores
+							</button>
+						)}
 						{messages.map((message) => {
 							const isOwnMessage = message.sender_type === 'driver';
 							return (
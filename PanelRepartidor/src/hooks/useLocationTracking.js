@@ -33,6 +33,12 @@ export function useLocationTracking(driverId, orderId = null, enabled = true) {
 				try {
 					if (Capacitor.isNativePlatform()) {
 						isNativeRef.current = true;
+						
+						// Con el tracking nativo activo, el BackgroundService ya sube la ubicación
+						if (import.meta.env.VITE_NATIVE_LOCATION === 'true') {
+							logger.log('📍 Tracking nativo activo, la WebView no envía ubicaciones');
+							return;
+						}
 						logger.log('📍 Usando Capacitor Geolocation (móvil nativo)');
 						
 						// Verificar permisos primero
@@ -92,12 +98,14 @@ export function useLocationTracking(driverId, orderId = null, enabled = true) {
 							logger.error('❌ Error obteniendo ubicación inicial:', errorInfo);
 						}
 						
-						// Iniciar seguimiento continuo con Capacitor
+						// Iniciar seguimiento continuo con Capacitor, sin pedir más posiciones de las
+						// que se guardan (una cada UPDATE_INTERVAL)
 						const watchId = await Geolocation.watchPosition(
 							{
 								enableHighAccuracy: true,
 								timeout: 5000,
-								maximumAge: 0
+								maximumAge: UPDATE_INTERVAL / 2,
+								minimumUpdateInterval: UPDATE_INTERVAL
 							},
 							(position, err) => {
 								if (err) {
@@ -7,9 +7,53 @@ import {
 	markOrderChatMessagesAsRead,
 	getOrderChatByOrderId,
 } from '../services/orderChatService';
+import { enqueueMutation, isNetworkError, newMutationId } from '../services/offlineQueue';
+import { chatStoreKey, loadChatPage, saveChatMessages, markChatRead } from '../services/chatStore';
+import { prepareChatImage } from '../services/chatImages';
 import { supabase } from '../utils/supabase';
 import { logger } from '../utils/logger';
 
+/**
+ * Indica si msg es la versión guardada de un mensaje que quedó en la cola offline: por su
+ * client_mutation_id o, si no viene, por contenido (se inserta al reconectar, así que su
+ * created_at es posterior al del temporal)
+ */
+const isQueuedEcho = (temp, msg) => {
+	if (!temp._queued) return false;
+	if (msg.client_mutation_id) return msg.client_mutation_id === temp.client_mutation_id;
+	return temp.sender_id === msg.sender_id &&
+		temp.message === msg.message &&
+		new Date(msg.created_at) >= new Date(temp.created_at);
+};
+
+/**
+ * Agrega los mensajes cargados a los que ya se muestran, evitando duplicados.
+ * Los temporales se mantienen hasta que se confirman (los encolados offline se retiran cuando
+ * aparece su versión guardada)
+ */
+const mergeMessages = (prev, loadedMessages) => {
+	const kept = prev.filter(m =>
+		!m._isTemporary || !loadedMessages.some(loadedMsg => isQueuedEcho(m, loadedMsg))
+	);
+	const tempMessages = kept.filter(m => m._isTemporary);
+	
+	const allMessages = [...kept];
+	loadedMessages.forEach(loadedMsg => {
+		if (allMessages.some(m => m.id === loadedMsg.id)) {
+			return;
+		}
+		if (tempMessages.some(m => 
+			m.message === loadedMsg.message && 
+			Math.abs(new Date(m.created_at) - new Date(loadedMsg.created_at)) < 5000
+		)) {
+			return;
+		}
+		allMessages.push(loadedMsg);
+	});
+	
+	return allMessages.sort((a, b) => new Date(a.created_at) - new Date(b.created_at));
+};
+
 /**
  * Hook para gestionar chat de pedidos - PanelRepartidor
  * Chat entre empresa y repartidor sobre un pedido específico
@@ -20,8 +64,13 @@ export function useOrderChat(order, currentDriver) {
 	const [loading, setLoading] = useState(false);
 	const [sending, setSending] = useState(false);
 	const [chatExpired, setChatExpired] = useState(false);
+	const [hasOlderMessages, setHasOlderMessages] = useState(false);
 	const messagesEndRef = useRef(null);
 	const channelRef = useRef(null);
+	// Con la copia local: último mensaje guardado del chat abierto ({ chatId, since })
+	const syncCursorRef = useRef(null);
+	// Al mostrar mensajes anteriores no se baja al final
+	const skipScrollRef = useRef(false);
 
 	// Scroll al final de los mensajes
 	const scrollToBottom = useCallback(() => {
@@ -37,6 +86,8 @@ export function useOrderChat(order, currentDriver) {
 		if (!order || !currentDriver) {
 			setChat(null);
 			setMessages([]);
+			setHasOlderMessages(false);
+			syncCursorRef.current = null;
 			return;
 		}
 
@@ -87,33 +138,46 @@ export function useOrderChat(order, currentDriver) {
 		}
 
 		try {
-			const loadedMessages = await getOrderChatMessages(chatId);
+			const key = chatStoreKey('order', chatId);
+			const isFirstLoad = syncCursorRef.current?.chatId !== chatId;
+			let since = isFirstLoad ? null : syncCursorRef.current.since;
 			
-			// Mantener mensajes temporales que aún no se han confirmado
-			setMessages(prev => {
-				const tempMessages = prev.filter(m => m._isTemporary);
-				
-				// Combinar mensajes temporales con los cargados, evitando duplicados
-				const allMessages = [...tempMessages];
-				loadedMessages.forEach(loadedMsg => {
-					if (allMessages.some(m => m.id === loadedMsg.id)) {
-						return;
-					}
-					if (tempMessages.some(m => 
-						m.message === loadedMsg.message && 
-						Math.abs(new Date(m.created_at) - new Date(loadedMsg.created_at)) < 5000
-					)) {
-						return;
+			// Al abrir el chat: pintar la última página guardada y pedir a Supabase solo lo posterior
+			if (isFirstLoad) {
+				syncCursorRef.current = null;
+				setMessages(prev => prev.filter(m => m.chat_id === chatId));
+				const cached = await loadChatPage(key);
+				if (cached) {
+					since = cached.latest;
+					syncCursorRef.current = { chatId, since };
+					setHasOlderMessages(cached.hasMore);
+					if (cached.messages.length > 0) {
+						setMessages(prev => mergeMessages(prev, cached.messages));
+						if (showLoading) {
+							setLoading(false);
+						}
 					}
-					allMessages.push(loadedMsg);
-				});
-				
-				return allMessages.sort((a, b) => new Date(a.created_at) - new Date(b.created_at));
-			});
+				}
+			}
+			
+			const loadedMessages = await getOrderChatMessages(chatId, since);
+			if (syncCursorRef.current) {
+				await saveChatMessages(key, loadedMessages);
+				if (loadedMessages.length > 0) {
+					syncCursorRef.current = { chatId, since: loadedMessages[loadedMessages.length - 1] };
+				}
+			}
 			
-			// Marcar mensajes como leídos
+			if (isFirstLoad || loadedMessages.length > 0) {
+				setMessages(prev => mergeMessages(prev, loadedMessages));
+			}
+			
+			// Marcar mensajes como leídos (con la copia local, solo si llegó algo sin leer)
 			if (currentDriver) {
-				await markOrderChatMessagesAsRead(chatId, currentDriver.id, 'driver');
+				const unread = syncCursorRef.current ? await markChatRead(key, 'driver') : null;
+				if (unread !== 0) {
+					await markOrderChatMessagesAsRead(chatId, currentDriver.id, 'driver');
+				}
 			}
 		} catch (err) {
 			logger.error('❌ Error cargando mensajes:', err);
@@ -127,6 +191,17 @@ export function useOrderChat(order, currentDriver) {
 		}
 	}, [currentDriver]);
 
+	// Mostrar la página anterior de la copia local (al subir en el chat)
+	const loadOlderMessages = useCallback(async () => {
+		if (!chat) return;
+		const oldest = messages.find(m => !m._isTemporary);
+		const page = await loadChatPage(chatStoreKey('order', chat.id), oldest || null);
+		if (!page) return;
+		skipScrollRef.current = page.messages.length > 0;
+		setHasOlderMessages(page.hasMore);
+		setMessages(prev => mergeMessages(prev, page.messages));
+	}, [chat, messages]);
+
 	// Enviar mensaje
 	const sendMessage = useCallback(async (messageText, imageFile = null) => {
 		if (!chat || !currentDriver) return;
@@ -135,6 +210,8 @@ export function useOrderChat(order, currentDriver) {
 		const messageTextTrimmed = messageText?.trim() || '';
 		const senderId = currentDriver.id;
 		const senderType = 'driver';
+		// En Android la miniatura ya está lista desde la vista previa
+		const imagePreview = imageFile ? (await prepareChatImage(imageFile))?.thumbnail : null;
 
 		// Optimistic update
 		const tempMessage = {
@@ -143,7 +220,7 @@ export function useOrderChat(order, currentDriver) {
 			sender_id: senderId,
 			sender_type: senderType,
 			message: messageTextTrimmed,
-			image_url: imageFile ? URL.createObjectURL(imageFile) : null,
+			image_url: imagePreview || (imageFile ? URL.createObjectURL(imageFile) : null),
 			created_at: new Date().toISOString(),
 			read_at: null,
 			_isTemporary: true,
@@ -186,6 +263,28 @@ export function useOrderChat(order, currentDriver) {
 			
 			setTimeout(() => scrollToBottom(), 100);
 		} catch (err) {
+			// Sin red: los mensajes de texto quedan en la cola nativa y se envían al reconectar.
+			// El temporal se mantiene visible hasta que llegue el mensaje guardado (client_mutation_id
+			// lo identifica y evita que un reintento de la cola duplique el mensaje)
+			const clientMutationId = newMutationId();
+			if (!imageFile && isNetworkError(err) && await enqueueMutation({
+				kind: 'insert',
+				table: 'order_chat_messages',
+				key: tempMessage.id,
+				onConflict: 'client_mutation_id',
+				body: {
+					client_mutation_id: clientMutationId,
+					chat_id: chat.id,
+					sender_id: senderId,
+					sender_type: senderType,
+					message: messageTextTrimmed,
+				},
+			})) {
+				setMessages(prev => prev.map(m => m.id === tempMessage.id
+					? { ...m, _queued: true, client_mutation_id: clientMutationId } : m));
+				return;
+			}
+			
 			// Limpiar URL temporal si se creó
 			if (tempMessage.image_url && tempMessage.image_url.startsWith('blob:')) {
 				URL.revokeObjectURL(tempMessage.image_url);
@@ -240,6 +339,13 @@ export function useOrderChat(order, currentDriver) {
 							return prev;
 						}
 						
+						// Mensaje encolado offline que ya se guardó: reemplazar el temporal
+						const queuedTemp = prev.find(m => isQueuedEcho(m, newMessage));
+						if (queuedTemp) {
+							const updated = [...prev.filter(m => m !== queuedTemp), newMessage];
+							return updated.sort((a, b) => new Date(a.created_at) - new Date(b.created_at));
+						}
+						
 						const isDuplicate = prev.some(m => 
 							!m._isTemporary && 
 							m.message === newMessage.message && 
@@ -257,11 +363,19 @@ export function useOrderChat(order, currentDriver) {
 					
 					setTimeout(() => scrollToBottom(), 100);
 					
+					// Guardarlo en la copia local (el cursor de sincronización no se mueve: la
+					// siguiente consulta incremental lo confirma)
+					const key = chatStoreKey('order', chatId);
+					const stored = saveChatMessages(key, [newMessage]);
+					
 					// Marcar como leído si no es nuestro mensaje
 					if (newMessage.sender_id !== userId && newMessage.sender_type !== 'driver') {
-						markOrderChatMessagesAsRead(chatId, userId, 'driver').catch(err => {
-							logger.error('❌ Error marcando mensaje como leído:', err);
-						});
+						stored
+							.then(() => markChatRead(key, 'driver'))
+							.then(() => markOrderChatMessagesAsRead(chatId, userId, 'driver'))
+							.catch(err => {
+								logger.error('❌ Error marcando mensaje como leído:', err);
+							});
 					}
 				}
 			)
@@ -295,6 +409,10 @@ export function useOrderChat(order, currentDriver) {
 
 	// Scroll cuando cambian los mensajes
 	useEffect(() => {
+		if (skipScrollRef.current) {
+			skipScrollRef.current = false;
+			return;
+		}
 		scrollToBottom();
 	}, [messages, scrollToBottom]);
 
@@ -304,8 +422,10 @@ export function useOrderChat(order, currentDriver) {
 		loading,
 		sending,
 		chatExpired,
+		hasOlderMessages,
 		messagesEndRef,
 		sendMessage,
+		loadOlderMessages,
 	};
 }
 
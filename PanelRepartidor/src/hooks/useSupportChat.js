@@ -6,9 +6,34 @@ import {
 	uploadSupportChatImage,
 	markSupportChatMessagesAsRead,
 } from '../services/supportChatService';
+import { chatStoreKey, loadChatPage, saveChatMessages, markChatRead } from '../services/chatStore';
 import { supabase } from '../utils/supabase';
 import { logger } from '../utils/logger';
 
+/**
+ * Agrega los mensajes cargados a los que ya se muestran, evitando duplicados
+ * (los temporales se mantienen hasta que se confirman)
+ */
+const mergeMessages = (prev, loadedMessages) => {
+	const tempMessages = prev.filter(m => m._isTemporary);
+	
+	const allMessages = [...prev];
+	loadedMessages.forEach(loadedMsg => {
+		if (allMessages.some(m => m.id === loadedMsg.id)) {
+			return;
+		}
+		if (tempMessages.some(m => 
+			m.message === loadedMsg.message && 
+			Math.abs(new Date(m.created_at) - new Date(loadedMsg.created_at)) < 5000
+		)) {
+			return;
+		}
+		allMessages.push(loadedMsg);
+	});
+	
+	return allMessages.sort((a, b) => new Date(a.created_at) - new Date(b.created_at));
+};
+
 /**
  * Hook para gestionar chat de soporte (Repartidor -> Superadmin)
  */
@@ -17,8 +42,13 @@ export function useSupportChat(currentDriver) {
 	const [messages, setMessages] = useState([]);
 	const [loading, setLoading] = useState(false);
 	const [sending, setSending] = useState(false);
+	const [hasOlderMessages, setHasOlderMessages] = useState(false);
 	const messagesEndRef = useRef(null);
 	const channelRef = useRef(null);
+	// Con la copia local: último mensaje guardado del chat abierto ({ chatId, since })
+	const syncCursorRef = useRef(null);
+	// Al mostrar mensajes anteriores no se baja al final
+	const skipScrollRef = useRef(false);
 
 	// Scroll al final de los mensajes
 	const scrollToBottom = useCallback(() => {
@@ -34,6 +64,8 @@ export function useSupportChat(currentDriver) {
 		if (!currentDriver) {
 			setChat(null);
 			setMessages([]);
+			setHasOlderMessages(false);
+			syncCursorRef.current = null;
 			return;
 		}
 
@@ -72,33 +104,46 @@ export function useSupportChat(currentDriver) {
 		}
 
 		try {
-			const loadedMessages = await getSupportChatMessages(chatId);
+			const key = chatStoreKey('support', chatId);
+			const isFirstLoad = syncCursorRef.current?.chatId !== chatId;
+			let since = isFirstLoad ? null : syncCursorRef.current.since;
 			
-			// Mantener mensajes temporales que aún no se han confirmado
-			setMessages(prev => {
-				const tempMessages = prev.filter(m => m._isTemporary);
-				
-				// Combinar mensajes temporales con los cargados, evitando duplicados
-				const allMessages = [...tempMessages];
-				loadedMessages.forEach(loadedMsg => {
-					if (allMessages.some(m => m.id === loadedMsg.id)) {
-						return;
-					}
-					if (tempMessages.some(m => 
-						m.message === loadedMsg.message && 
-						Math.abs(new Date(m.created_at) - new Date(loadedMsg.created_at)) < 5000
-					)) {
-						return;
+			// Al abrir el chat: pintar la última página guardada y pedir a Supabase solo lo posterior
+			if (isFirstLoad) {
+				syncCursorRef.current = null;
+				setMessages(prev => prev.filter(m => m.chat_id === chatId));
+				const cached = await loadChatPage(key);
+				if (cached) {
+					since = cached.latest;
+					syncCursorRef.current = { chatId, since };
+					setHasOlderMessages(cached.hasMore);
+					if (cached.messages.length > 0) {
+						setMessages(prev => mergeMessages(prev, cached.messages));
+						if (showLoading) {
+							setLoading(false);
+						}
 					}
-					allMessages.push(loadedMsg);
-				});
-				
-				return allMessages.sort((a, b) => new Date(a.created_at) - new Date(b.created_at));
-			});
+				}
+			}
+			
+			const loadedMessages = await getSupportChatMessages(chatId, since);
+			if (syncCursorRef.current) {
+				await saveChatMessages(key, loadedMessages);
+				if (loadedMessages.length > 0) {
+					syncCursorRef.current = { chatId, since: loadedMessages[loadedMessages.length - 1] };
+				}
+			}
+			
+			if (isFirstLoad || loadedMessages.length > 0) {
+				setMessages(prev => mergeMessages(prev, loadedMessages));
+			}
 			
-			// Marcar mensajes como leídos
+			// Marcar mensajes como leídos (con la copia local, solo si llegó algo sin leer)
 			if (currentDriver) {
-				await markSupportChatMessagesAsRead(chatId, currentDriver.id, 'driver');
+				const unread = syncCursorRef.current ? await markChatRead(key, 'driver') : null;
+				if (unread !== 0) {
+					await markSupportChatMessagesAsRead(chatId, currentDriver.id, 'driver');
+				}
 			}
 		} catch (err) {
 			logger.error('❌ Error cargando mensajes de soporte:', err);
@@ -109,6 +154,17 @@ export function useSupportChat(currentDriver) {
 		}
 	}, [currentDriver]);
 
+	// Mostrar la página anterior de la copia local (al subir en el chat)
+	const loadOlderMessages = useCallback(async () => {
+		if (!chat) return;
+		const oldest = messages.find(m => !m._isTemporary);
+		const page = await loadChatPage(chatStoreKey('support', chat.id), oldest || null);
+		if (!page) return;
+		skipScrollRef.current = page.messages.length > 0;
+		setHasOlderMessages(page.hasMore);
+		setMessages(prev => mergeMessages(prev, page.messages));
+	}, [chat, messages]);
+
 	// Enviar mensaje
 	const sendMessage = useCallback(async (messageText, imageFile = null) => {
 		if (!chat || !currentDriver) return;
@@ -236,11 +292,19 @@ export function useSupportChat(currentDriver) {
 					
 					setTimeout(() => scrollToBottom(), 100);
 					
+					// Guardarlo en la copia local (el cursor de sincronización no se mueve: la
+					// siguiente consulta incremental lo confirma)
+					const key = chatStoreKey('support', chatId);
+					const stored = saveChatMessages(key, [newMessage]);
+					
 					// Marcar como leído si no es nuestro mensaje
 					if (newMessage.sender_id !== driverId && newMessage.sender_type !== 'driver') {
-						markSupportChatMessagesAsRead(chatId, driverId, 'driver').catch(err => {
-							logger.error('❌ Error marcando mensaje de soporte como leído:', err);
-						});
+						stored
+							.then(() => markChatRead(key, 'driver'))
+							.then(() => markSupportChatMessagesAsRead(chatId, driverId, 'driver'))
+							.catch(err => {
+								logger.error('❌ Error marcando mensaje de soporte como leído:', err);
+							});
 					}
 				}
 			)
@@ -274,6 +338,10 @@ export function useSupportChat(currentDriver) {
 
 	// Scroll cuando cambian los mensajes
 	useEffect(() => {
+		if (skipScrollRef.current) {
+			skipScrollRef.current = false;
+			return;
+		}
 		scrollToBottom();
 	}, [messages, scrollToBottom]);
 
@@ -282,8 +350,10 @@ export function useSupportChat(currentDriver) {
 		messages,
 		loading,
 		sending,
+		hasOlderMessages,
 		messagesEndRef,
 		sendMessage,
+		loadOlderMessages,
 	};
 }
 
@@ -0,0 +1,110 @@
+/**
+ * Fotos del chat procesadas en Android (plugin ChatImage) antes de subirlas: se reducen a
+ * 1600 px de lado largo, se vuelven a comprimir en JPEG (sin EXIF ni ubicación), se genera una
+ * miniatura para el chat y la subida a Storage se reanuda si se corta la red.
+ * El archivo original pasa al plugin de a tramos: nunca está entero en memoria del WebView.
+ * En web no hay procesamiento y la foto se sube tal cual (orderChatService).
+ */
+
+import { getCapacitorModules } from '../utils/utils';
+import { logger } from '../utils/logger';
+
+// 384 KB por tramo: ~512 KB en base64 por llamada al plugin
+const STAGE_CHUNK_BYTES = 384 * 1024;
+
+let pluginPromise = null;
+// Una sola preparación por archivo (la vista previa y el envío usan la misma)
+const prepared = new WeakMap();
+
+const getPlugin = () => {
+	if (!pluginPromise) {
+		pluginPromise = (async () => {
+			const modules = await getCapacitorModules();
+			if (!modules || !modules.Capacitor.isNativePlatform()) return null;
+			if (!modules.Capacitor.isPluginAvailable('ChatImage')) return null;
+			try {
+				const coreModule = '@capacitor/core';
+				const { registerPlugin } = await import(/* @vite-ignore */ coreModule);
+				return registerPlugin('ChatImage');
+			} catch (err) {
+				logger.warn('⚠️ Plugin ChatImage no disponible:', err);
+				return null;
+			}
+		})();
+	}
+	return pluginPromise;
+};
+
+const readChunkBase64 = (blob) => new Promise((resolve, reject) => {
+	const reader = new FileReader();
+	reader.onload = () => {
+		const result = reader.result;
+		resolve(result.slice(result.indexOf(',') + 1));
+	};
+	reader.onerror = () => reject(reader.error);
+	reader.readAsDataURL(blob);
+});
+
+/**
+ * Pasa la foto al plugin y la procesa
+ * @returns {Promise<{ imageId: string, thumbnail: string, width: number, height: number, bytes: number } | null>}
+ *   thumbnail es un data URL chico para la vista previa; null en web o si no se pudo procesar
+ */
+export function prepareChatImage(file) {
+	if (!file) return Promise.resolve(null);
+	let pending = prepared.get(file);
+	if (!pending) {
+		pending = (async () => {
+			const plugin = await getPlugin();
+			if (!plugin) return null;
+			try {
+				let stageId;
+				for (let offset = 0; offset < file.size; offset += STAGE_CHUNK_BYTES) {
+					const data = await readChunkBase64(file.slice(offset, offset + STAGE_CHUNK_BYTES));
+					({ stageId } = await plugin.stage({ stageId, data }));
+				}
+				if (!stageId) return null;
+				return await plugin.process({ stageId });
+			} catch (err) {
+				logger.warn('⚠️ No se pudo procesar la imagen en el dispositivo:', err);
+				return null;
+			}
+		})();
+		prepared.set(file, pending);
+	}
+	return pending;
+}
+
+/**
+ * Sube la foto procesada (y su miniatura, "<path sin extensión>_thumb.jpg")
+ * @returns {Promise<{ url: string, thumbnailUrl?: string, bytes: number } | null>}
+ *   null si no hay procesamiento en el dispositivo; si la subida falla, reintentar la continúa
+ */
+export async function uploadChatImageNative(file, path, bucket) {
+	const image = await prepareChatImage(file);
+	if (!image) return null;
+	// Un reintento sigue la subida cortada, que ya tiene su path
+	if (!image.path) image.path = path;
+	const plugin = await getPlugin();
+	const result = await plugin.upload({ imageId: image.imageId, bucket, path: image.path });
+	// Subida: el plugin ya borró los archivos
+	prepared.delete(file);
+	return { ...result, bytes: image.bytes };
+}
+
+/**
+ * Descarta una foto procesada que no se va a enviar
+ */
+export async function discardChatImage(file) {
+	const pending = file ? prepared.get(file) : null;
+	if (!pending) return;
+	prepared.delete(file);
+	const image = await pending;
+	const plugin = await getPlugin();
+	if (!image || !plugin) return;
+	try {
+		await plugin.discard({ imageId: image.imageId });
+	} catch (err) {
+		logger.warn('⚠️ No se pudo descartar la imagen:', err);
+	}
+}
@@ -0,0 +1,116 @@
+/**
+ * Copia local de mensajes de chat (plugin ChatStore de Android).
+ * Al abrir un chat se pinta la última página guardada y a Supabase solo se le piden los
+ * mensajes posteriores al último guardado; los no leídos se cuentan en el dispositivo.
+ * En web no hay copia local y los chats se cargan completos como antes.
+ */
+
+import { getCapacitorModules } from '../utils/utils';
+import { logger } from '../utils/logger';
+
+export const CHAT_PAGE_SIZE = 50;
+
+let pluginPromise = null;
+
+const getPlugin = () => {
+	if (!pluginPromise) {
+		pluginPromise = (async () => {
+			const modules = await getCapacitorModules();
+			if (!modules || !modules.Capacitor.isNativePlatform()) return null;
+			if (!modules.Capacitor.isPluginAvailable('ChatStore')) return null;
+			try {
+				const coreModule = '@capacitor/core';
+				const { registerPlugin } = await import(/* @vite-ignore */ coreModule);
+				return registerPlugin('ChatStore');
+			} catch (err) {
+				logger.warn('⚠️ Plugin ChatStore no disponible:', err);
+				return null;
+			}
+		})();
+	}
+	return pluginPromise;
+};
+
+/**
+ * Clave de un chat en la copia local
+ * @param {'order'|'support'} kind
+ */
+export const chatStoreKey = (kind, chatId) => `${kind}-${chatId}`;
+
+/**
+ * Página de mensajes guardados, en orden cronológico
+ * @param {{ created_at: string, id: any } | null} before - primer mensaje ya mostrado (null = los últimos)
+ * @returns {Promise<{ messages: Object[], hasMore: boolean, latest: { created_at: string, id: string } | null } | null>}
+ *   null si no hay copia local
+ */
+export async function loadChatPage(key, before = null, limit = CHAT_PAGE_SIZE) {
+	const plugin = await getPlugin();
+	if (!plugin) return null;
+	try {
+		const result = await plugin.page({
+			chat: key,
+			beforeCreatedAt: before ? before.created_at : null,
+			beforeId: before ? String(before.id) : null,
+			limit,
+		});
+		return {
+			messages: JSON.parse(result.rows),
+			hasMore: result.hasMore,
+			latest: result.latestCreatedAt ? { created_at: result.latestCreatedAt, id: result.latestId } : null,
+		};
+	} catch (err) {
+		logger.warn('⚠️ No se pudieron leer los mensajes guardados:', err);
+		return null;
+	}
+}
+
+/**
+ * Guarda mensajes tal como los devuelve Supabase (los temporales se ignoran)
+ */
+export async function saveChatMessages(key, rows) {
+	const plugin = await getPlugin();
+	if (!plugin || !rows?.length) return;
+	try {
+		await plugin.put({ chat: key, rows });
+	} catch (err) {
+		logger.warn('⚠️ No se pudieron guardar los mensajes:', err);
+	}
+}
+
+/**
+ * Marca como leído lo guardado del chat
+ * @returns {Promise<number|null>} mensajes que estaban sin leer, o null sin copia local
+ */
+export async function markChatRead(key, selfType) {
+	const plugin = await getPlugin();
+	if (!plugin) return null;
+	try {
+		const { unread } = await plugin.markRead({ chat: key, selfType });
+		return unread;
+	} catch (err) {
+		logger.warn('⚠️ No se pudo marcar el chat como leído:', err);
+		return null;
+	}
+}
+
+/**
+ * Mensajes sin leer de cada chat, contados en el dispositivo
+ * @returns {Promise<Object<string, number>|null>}
+ */
+export async function getUnreadCounts(keys, selfType) {
+	const plugin = await getPlugin();
+	if (!plugin || !keys?.length) return null;
+	try {
+		const { counts } = await plugin.unreadCounts({ chats: keys, selfType });
+		return counts;
+	} catch (err) {
+		logger.warn('⚠️ No se pudieron contar los mensajes sin leer:', err);
+		return null;
+	}
+}
+
+/**
+ * Filtro PostgREST (para .or()) de los mensajes posteriores al cursor, por (created_at, id)
+ */
+export const messagesAfterFilter = (since) =>
+	`created_at.gt."${since.created_at}",and(created_at.eq."${since.created_at}",id.gt.${since.id})`;
@@ -0,0 +1,85 @@
+/**
+ * Geocodificación y rutas nativas con cache (plugin GeoCache de Android).
+ * La cache vive en disco (memoria + archivos con vencimiento), sobrevive al WebView y la
+ * comparten el Worker y el servicio nativos. En web devuelve undefined y los servicios
+ * consultan Nominatim / OSRM directamente como antes.
+ */
+
+import { getCapacitorModules } from '../utils/utils';
+import { logger } from '../utils/logger';
+
+let pluginPromise = null;
+
+const getPlugin = () => {
+	if (!pluginPromise) {
+		pluginPromise = (async () => {
+			const modules = await getCapacitorModules();
+			if (!modules || !modules.Capacitor.isNativePlatform()) return null;
+			if (!modules.Capacitor.isPluginAvailable('GeoCache')) return null;
+			try {
+				const coreModule = '@capacitor/core';
+				const { registerPlugin } = await import(/* @vite-ignore */ coreModule);
+				return registerPlugin('GeoCache');
+			} catch (err) {
+				logger.warn('⚠️ Plugin GeoCache no disponible:', err);
+				return null;
+			}
+		})();
+	}
+	return pluginPromise;
+};
+
+/**
+ * @param {boolean} [cacheOnly] solo la cache nativa, sin consultar Nominatim
+ * @returns {Promise<{lat: number, lon: number} | null | undefined>} Coordenadas, null si no se
+ *   encontró o falló, undefined si no hay plugin nativo
+ */
+export async function nativeGeocode(address, cacheOnly = false) {
+	const plugin = await getPlugin();
+	if (!plugin) return undefined;
+	try {
+		const result = await plugin.geocode(cacheOnly ? { address, cacheOnly } : { address });
+		return result.found ? { lat: result.lat, lon: result.lon } : null;
+	} catch (err) {
+		logger.warn('⚠️ Error en geocodificación nativa:', err);
+		return null;
+	}
+}
+
+/**
+ * @returns {Promise<{distance: number, duration: number, geometry: Object} | null | undefined>}
+ *   Ruta, null si no hay ruta o falló, undefined si no hay plugin nativo
+ */
+export async function nativeRoute(fromLat, fromLon, toLat, toLon) {
+	const plugin = await getPlugin();
+	if (!plugin) return undefined;
+	try {
+		const result = await plugin.route({ fromLat, fromLon, toLat, toLon });
+		return result.found
+			? { distance: result.distance, duration: result.duration, geometry: result.geometry }
+			: null;
+	} catch (err) {
+		logger.warn('⚠️ Error obteniendo ruta nativa:', err);
+		return null;
+	}
+}
+
+/**
+ * Aciertos y fallos de la cache nativa ({ geocode, route }), o null en web
+ */
+export async function getGeoCacheStats() {
+	const plugin = await getPlugin();
+	if (!plugin) return null;
+	try {
+		return await plugin.getStats();
+	} catch (err) {
+		return null;
+	}
+}
+
+export async function clearNativeGeoCache() {
+	const plugin = await getPlugin();
+	if (plugin) {
+		await plugin.clear().catch(() => {});
+	}
+}
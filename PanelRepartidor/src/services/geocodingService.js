@@ -1,11 +1,14 @@
 import { logger } from '../utils/logger';
+import { nativeGeocode, clearNativeGeoCache } from './geoCache';
 
 /**
  * Servicio de geocodificación usando Nominatim (OpenStreetMap)
  * Gratuito y sin límites estrictos (pero con rate limiting recomendado)
+ * En Android la consulta y la cache son nativas (plugin GeoCache, persistente); en web se
+ * consulta desde aquí con cache en memoria.
  */
 
-// Cache de direcciones geocodificadas
+// Cache de direcciones geocodificadas (solo web)
 const geocodeCache = new Map();
 
 /**
@@ -18,6 +21,12 @@ export async function geocodeAddress(address) {
 		return null;
 	}
 
+	// En Android: cache nativa en disco compartida con el Worker
+	const nativeCoords = await nativeGeocode(address.trim());
+	if (nativeCoords !== undefined) {
+		return nativeCoords;
+	}
+
 	// Verificar cache
 	const cacheKey = address.trim().toLowerCase();
 	if (geocodeCache.has(cacheKey)) {
@@ -66,11 +75,27 @@ export async function geocodeAddress(address) {
 	}
 }
 
+/**
+ * Coordenadas ya geocodificadas (cache nativa o de memoria), sin red ni espera de rate limiting
+ * @returns {Promise<{lat: number, lon: number} | null>} null si la dirección no está en cache
+ */
+export async function getCachedCoordinates(address) {
+	if (!address || !address.trim()) {
+		return null;
+	}
+	const nativeCoords = await nativeGeocode(address.trim(), true);
+	if (nativeCoords !== undefined) {
+		return nativeCoords;
+	}
+	return geocodeCache.get(address.trim().toLowerCase()) || null;
+}
+
 /**
  * Limpia el cache de geocodificación
  */
 export function clearGeocodeCache() {
 	geocodeCache.clear();
+	clearNativeGeoCache();
 	logger.log('🗑️ Cache de geocodificación limpiado');
 }
 
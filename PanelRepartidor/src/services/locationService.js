@@ -1,20 +1,22 @@
 import { supabase } from '../utils/supabase';
 import { logger } from '../utils/logger';
+import { enqueueMutation, isNetworkError } from './offlineQueue';
 
 /**
  * Guarda la ubicación actual del repartidor
  */
 export async function saveDriverLocation(driverId, latitude, longitude, orderId = null) {
+	const row = {
+		driver_id: driverId,
+		latitude,
+		longitude,
+		order_id: orderId,
+		updated_at: new Date().toISOString(),
+	};
 	try {
 		const { data, error } = await supabase
 			.from('driver_locations')
-			.upsert({
-				driver_id: driverId,
-				latitude,
-				longitude,
-				order_id: orderId,
-				updated_at: new Date().toISOString(),
-			}, {
+			.upsert(row, {
 				onConflict: 'driver_id',
 			})
 			.select()
@@ -23,6 +25,17 @@ export async function saveDriverLocation(driverId, latitude, longitude, orderId
 		if (error) throw error;
 		return data;
 	} catch (err) {
+		// Sin red: encolar en la cola nativa. Cada ubicación reemplaza a la anterior
+		// del mismo driver, así que al reconectar solo se sube la más reciente
+		if (isNetworkError(err) && await enqueueMutation({
+			kind: 'upsert',
+			table: 'driver_locations',
+			onConflict: 'driver_id',
+			coalesceKey: `driver_location:${driverId}`,
+			body: row,
+		})) {
+			return row;
+		}
 		logger.error('Error guardando ubicación:', err);
 		throw err;
 	}
@@ -0,0 +1,43 @@
+/**
+ * Cache nativa de tiles de mapa (plugin MapTiles de Android).
+ * Los tiles de OrderMap/SimpleMap se sirven desde un pack nativo sin cambiar la URL del
+ * TileLayer; aquí solo se pide precargar la zona del driver, que Android baja con Wi-Fi.
+ * En web los tiles los cachea el navegador como siempre.
+ */
+
+import { getCapacitorModules } from '../utils/utils';
+import { logger } from '../utils/logger';
+
+let pluginPromise = null;
+
+const getPlugin = () => {
+	if (!pluginPromise) {
+		pluginPromise = (async () => {
+			const modules = await getCapacitorModules();
+			if (!modules || !modules.Capacitor.isNativePlatform()) return null;
+			if (!modules.Capacitor.isPluginAvailable('MapTiles')) return null;
+			try {
+				const coreModule = '@capacitor/core';
+				const { registerPlugin } = await import(/* @vite-ignore */ coreModule);
+				return registerPlugin('MapTiles');
+			} catch (err) {
+				logger.warn('⚠️ Plugin MapTiles no disponible:', err);
+				return null;
+			}
+		})();
+	}
+	return pluginPromise;
+};
+
+/**
+ * Programa la precarga de los tiles alrededor de la posición (se baja cuando haya Wi-Fi)
+ */
+export async function prefetchMapZone(lat, lon, radiusMeters) {
+	const plugin = await getPlugin();
+	if (!plugin || lat == null || lon == null) return;
+	try {
+		await plugin.prefetchZone({ lat, lon, radiusMeters });
+	} catch (err) {
+		logger.warn('⚠️ No se pudo programar la precarga del mapa:', err);
+	}
+}
@@ -0,0 +1,103 @@
+/**
+ * Cola offline nativa (plugin OfflineQueue de Android).
+ * Las mutaciones que fallan por falta de red se guardan en un log en disco y se aplican
+ * contra Supabase al reconectar, aunque la app se cierre entre medio.
+ * En web (o si el plugin no está disponible) no hay cola y el error se propaga como antes.
+ */
+
+import { getCapacitorModules } from '../utils/utils';
+import { logger } from '../utils/logger';
+
+let pluginPromise = null;
+
+const getPlugin = () => {
+	if (!pluginPromise) {
+		pluginPromise = (async () => {
+			const modules = await getCapacitorModules();
+			if (!modules || !modules.Capacitor.isNativePlatform()) return null;
+			if (!modules.Capacitor.isPluginAvailable('OfflineQueue')) return null;
+			try {
+				const coreModule = '@capacitor/core';
+				const { registerPlugin } = await import(/* @vite-ignore */ coreModule);
+				return registerPlugin('OfflineQueue');
+			} catch (err) {
+				logger.warn('⚠️ Plugin OfflineQueue no disponible:', err);
+				return null;
+			}
+		})();
+	}
+	return pluginPromise;
+};
+
+/**
+ * Indica si el error corresponde a una falla de red (y no a un rechazo del servidor)
+ */
+export function isNetworkError(err) {
+	if (typeof navigator !== 'undefined' && navigator.onLine === false) return true;
+	if (!err) return false;
+	const message = String(err.message || err.details || err);
+	return err.name === 'TypeError' || /Failed to fetch|NetworkError|Network request failed|network/i.test(message);
+}
+
+/**
+ * UUID para la columna client_mutation_id de un insert encolado: la cola lo envía con
+ * onConflict: 'client_mutation_id', así un reintento tras una respuesta perdida no duplica la fila
+ */
+export function newMutationId() {
+	if (typeof crypto !== 'undefined' && typeof crypto.randomUUID === 'function') {
+		return crypto.randomUUID();
+	}
+	// WebViews viejos sin randomUUID: UUID v4 a partir de getRandomValues
+	const bytes = crypto.getRandomValues(new Uint8Array(16));
+	bytes[6] = (bytes[6] & 0x0f) | 0x40;
+	bytes[8] = (bytes[8] & 0x3f) | 0x80;
+	const hex = Array.from(bytes, b => b.toString(16).padStart(2, '0')).join('');
+	return `${hex.slice(0, 8)}-${hex.slice(8, 12)}-${hex.slice(12, 16)}-${hex.slice(16, 20)}-${hex.slice(20)}`;
+}
+
+/**
+ * Encola una mutación para aplicarla al reconectar.
+ * @param {Object} mutation - { kind: 'insert'|'upsert'|'update', table, body, filter?, onConflict?, coalesceKey?, key? }
+ *   filter usa la sintaxis de PostgREST (por ejemplo 'id=eq.42') y es obligatorio en updates.
+ *   Las mutaciones con la misma coalesceKey se reemplazan: solo se envía la última.
+ *   Los inserts solo son idempotentes con onConflict sobre una columna única cuyo valor viene en
+ *   el body (ver newMutationId); sin eso, un reintento puede duplicar la fila.
+ *   Cada mutación se aplica por separado: si el servidor rechaza una, las demás igual se envían.
+ * @returns {Promise<boolean>} true si quedó encolada, false si no hay cola nativa
+ */
+export async function enqueueMutation(mutation) {
+	const plugin = await getPlugin();
+	if (!plugin) return false;
+	try {
+		const result = await plugin.enqueue(mutation);
+		logger.log(`📦 Mutación encolada en ${mutation.table} (pendientes: ${result.pending})`);
+		return true;
+	} catch (err) {
+		logger.error('❌ Error encolando mutación offline:', err);
+		return false;
+	}
+}
+
+/**
+ * Cantidad de mutaciones pendientes de enviar (0 si no hay cola nativa)
+ */
+export async function getPendingCount() {
+	const plugin = await getPlugin();
+	if (!plugin) return 0;
+	try {
+		const { pending } = await plugin.getStatus();
+		return pending;
+	} catch (err) {
+		return 0;
+	}
+}
+
+/**
+ * Pide a la cola nativa que intente enviar lo pendiente ahora
+ */
+export async function flushOfflineQueue() {
+	const plugin = await getPlugin();
+	if (plugin) {
+		await plugin.flush();
+	}
+}
@@ -1,5 +1,7 @@
 import { supabase } from '../utils/supabase';
 import { logger } from '../utils/logger';
+import { messagesAfterFilter } from './chatStore';
+import { uploadChatImageNative } from './chatImages';
 
 /**
  * ============================================
@@ -73,38 +75,47 @@ export async function getOrCreateOrderChat(orderId, companyId, driverId) {
 /**
  * Obtiene todos los mensajes de un chat
  * Solo retorna mensajes si el chat no ha expirado
+ * @param {{ created_at: string, id: any } | null} since - con la copia local, solo los mensajes
+ *   posteriores a este (el chat ya se verificó al abrirlo, así que no se vuelve a consultar)
  */
-export async function getOrderChatMessages(chatId) {
+export async function getOrderChatMessages(chatId, since = null) {
 	try {
 		if (!chatId) {
 			logger.warn('⚠️ getOrderChatMessages: chatId no proporcionado');
 			return [];
 		}
 
-		// Verificar que el chat existe y no ha expirado
-		const { data: chat, error: chatError } = await supabase
-			.from('order_chats')
-			.select('expires_at')
-			.eq('id', chatId)
-			.single();
-
-		if (chatError || !chat) {
-			logger.warn('⚠️ Chat no encontrado o expirado:', chatId);
-			return [];
-		}
+		if (!since) {
+			// Verificar que el chat existe y no ha expirado
+			const { data: chat, error: chatError } = await supabase
+				.from('order_chats')
+				.select('expires_at')
+				.eq('id', chatId)
+				.single();
+
+			if (chatError || !chat) {
+				logger.warn('⚠️ Chat no encontrado o expirado:', chatId);
+				return [];
+			}
 
-		// Verificar si el chat expiró
-		if (new Date(chat.expires_at) < new Date()) {
-			logger.warn('⚠️ Chat expirado, no se pueden cargar mensajes:', chatId);
-			return [];
+			// Verificar si el chat expiró
+			if (new Date(chat.expires_at) < new Date()) {
+				logger.warn('⚠️ Chat expirado, no se pueden cargar mensajes:', chatId);
+				return [];
+			}
 		}
 
 		// Obtener mensajes
-		const { data, error } = await supabase
+		let query = supabase
 			.from('order_chat_messages')
 			.select('*')
-			.eq('chat_id', chatId)
-			.order('created_at', { ascending: true }); // Orden cronológico
+			.eq('chat_id', chatId);
+		if (since) {
+			query = query.or(messagesAfterFilter(since));
+		}
+		const { data, error } = await query
+			.order('created_at', { ascending: true }) // Orden cronológico
+			.order('id', { ascending: true });
 
 		if (error) {
 			logger.error('❌ Error obteniendo mensajes:', error);
@@ -121,6 +132,8 @@ export async function getOrderChatMessages(chatId) {
 
 /**
  * Sube una imagen a Supabase Storage para el chat
+ * En Android se sube la versión reducida (y su miniatura) con subida reanudable
+ * @returns {Promise<string>} URL pública de la imagen
  */
 export async function uploadChatImage(file, chatId, senderId) {
 	try {
@@ -133,6 +146,18 @@ export async function uploadChatImage(file, chatId, senderId) {
 			throw new Error('El archivo debe ser una imagen');
 		}
 
+		const bucketName = 'avatars';
+
+		// Android: la foto ya reducida a unos cientos de KB, así que el original puede ser más grande
+		if (file.size <= 25 * 1024 * 1024) {
+			const filePath = `chat_images/${chatId}_${senderId}_${Date.now()}.jpg`;
+			const uploaded = await uploadChatImageNative(file, filePath, bucketName);
+			if (uploaded) {
+				logger.log(`✅ Imagen subida (${Math.round(uploaded.bytes / 1024)} KB):`, uploaded.url);
+				return uploaded.url;
+			}
+		}
+
 		// Validar tamaño (máximo 5MB)
 		if (file.size > 5 * 1024 * 1024) {
 			throw new Error('La imagen debe ser menor a 5MB');
@@ -143,8 +168,6 @@ export async function uploadChatImage(file, chatId, senderId) {
 		const fileName = `${chatId}_${senderId}_${Date.now()}.${fileExt}`;
 		const filePath = `chat_images/${fileName}`;
 
-		const bucketName = 'avatars';
-
 		// Intentar subir a Supabase Storage
 		const { data, error: uploadError } = await supabase.storage
 			.from(bucketName)
@@ -216,7 +239,7 @@ export async function sendOrderChatMessage(chatId, senderId, senderType, message
 		}
 
 		// Verificar que el chat existe y no ha expirado
-		const { data: chat, error: chatError } = await supabase
+		const { data: chat, error: chatError } = since ? { data: { expires_at: null } } : await supabase
 			.from('order_chats')
 			.select('expires_at')
 			.eq('id', chatId)
@@ -227,7 +250,7 @@ export async function sendOrderChatMessage(chatId, senderId, senderType, message
 		}
 
 		// Si el chat expiró, crear uno nuevo basado en el pedido
-		if (new Date(chat.expires_at) < new Date()) {
+		if (chat.expires_at && new Date(chat.expires_at) < new Date()) {
 			logger.warn('⚠️ Chat expirado, se necesita crear uno nuevo');
 			throw new Error('Chat expirado. Por favor, recarga la página para iniciar un nuevo chat.');
 		}
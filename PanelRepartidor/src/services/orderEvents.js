@@ -0,0 +1,111 @@
+/**
+ * Cambios de pedidos publicados por el código nativo (plugin OrderEvents de Android).
+ * Con la app visible y el driver en línea, Realtime avisa de cada pedido nuevo o modificado
+ * (requestOrderSync) y Android trae solo el delta: publica al WebView las filas completas de los
+ * pedidos nuevos y modificados y los ids de los que tomó otro repartidor, así la lista se
+ * actualiza sin volver a consultar toda la tabla. Si Realtime calla,
+ * Android igual consulta cada tanto como respaldo. En web no hay plugin y la lista sigue con Realtime.
+ */
+
+import { getCapacitorModules } from '../utils/utils';
+import { logger } from '../utils/logger';
+
+let pluginPromise = null;
+
+const getPlugin = () => {
+	if (!pluginPromise) {
+		pluginPromise = (async () => {
+			const modules = await getCapacitorModules();
+			if (!modules || !modules.Capacitor.isNativePlatform()) return null;
+			if (!modules.Capacitor.isPluginAvailable('OrderEvents')) return null;
+			try {
+				const coreModule = '@capacitor/core';
+				const { registerPlugin } = await import(/* @vite-ignore */ coreModule);
+				return registerPlugin('OrderEvents');
+			} catch (err) {
+				logger.warn('⚠️ Plugin OrderEvents no disponible:', err);
+				return null;
+			}
+		})();
+	}
+	return pluginPromise;
+};
+
+/**
+ * Escucha los cambios publicados por Android
+ * @param {(delta: { inserted: Object[], updated: Object[], taken: number[], source: string }) => void} handler
+ *        inserted y updated son filas con la misma proyección que la consulta de pedidos
+ * @returns {Promise<(() => void) | null>} función para dejar de escuchar, o null sin plugin
+ */
+export async function subscribeOrderDeltas(handler) {
+	const plugin = await getPlugin();
+	if (!plugin) return null;
+	try {
+		const listener = await plugin.addListener('orderDelta', (delta) => {
+			handler({
+				inserted: delta?.inserted || [],
+				updated: delta?.updated || [],
+				taken: delta?.taken || [],
+				source: delta?.source || '',
+			});
+		});
+		return () => {
+			listener.remove().catch(() => {});
+		};
+	} catch (err) {
+		logger.warn('⚠️ No se pudo escuchar los cambios de pedidos:', err);
+		return null;
+	}
+}
+
+/**
+ * Pide a Android que sincronice el feed mientras la app esté visible: al instante con cada
+ * requestOrderSync y, sin eventos, cada intervalMs como respaldo (reemplaza el polling del JS)
+ * @returns {Promise<boolean>} true si la sincronización nativa quedó activa
+ */
+export async function startForegroundSync(intervalMs) {
+	const plugin = await getPlugin();
+	if (!plugin) return false;
+	try {
+		await plugin.startForegroundSync(intervalMs ? { intervalMs } : {});
+		return true;
+	} catch (err) {
+		logger.warn('⚠️ No se pudo iniciar la sincronización nativa:', err);
+		return false;
+	}
+}
+
+/**
+ * Realtime avisó de un pedido nuevo o modificado: Android trae el delta ya (no hace falta
+ * recargar la lista)
+ * @param {number[]} updatedIds pedidos modificados (UPDATE) cuyas filas hay que traer
+ * @returns {Promise<boolean>} false si la sincronización nativa no está activa
+ */
+export async function requestOrderSync(updatedIds = []) {
+	const plugin = await getPlugin();
+	if (!plugin) return false;
+	try {
+		const { synced } = await plugin.syncNow({ updatedIds });
+		return synced;
+	} catch (err) {
+		logger.warn('⚠️ No se pudo pedir la sincronización nativa:', err);
+		return false;
+	}
+}
+
+export async function stopForegroundSync() {
+	const plugin = await getPlugin();
+	if (plugin) {
+		await plugin.stopForegroundSync().catch(() => {});
+	}
+}
+
+/**
+ * Cierre de sesión: retira las notificaciones de pedidos y olvida cuáles ya se notificaron
+ */
+export async function clearOrderNotifications() {
+	const plugin = await getPlugin();
+	if (plugin) {
+		await plugin.clearNotifications().catch(() => {});
+	}
+}
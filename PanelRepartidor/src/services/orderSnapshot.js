@@ -0,0 +1,80 @@
+/**
+ * Snapshot local de pedidos (plugin OrderSnapshot de Android).
+ * Guarda las filas de la última carga de pedidos para pintar la lista al abrir la app, antes
+ * de que responda Supabase. El Worker en segundo plano le agrega los pedidos nuevos que ve.
+ * En web no hay snapshot y la lista se carga como antes.
+ */
+
+import { getCapacitorModules } from '../utils/utils';
+import { logger } from '../utils/logger';
+
+// Un snapshot más viejo que esto no se muestra (la lista estaría demasiado desactualizada)
+const MAX_SNAPSHOT_AGE_MS = 24 * 60 * 60 * 1000;
+
+let pluginPromise = null;
+
+const getPlugin = () => {
+	if (!pluginPromise) {
+		pluginPromise = (async () => {
+			const modules = await getCapacitorModules();
+			if (!modules || !modules.Capacitor.isNativePlatform()) return null;
+			if (!modules.Capacitor.isPluginAvailable('OrderSnapshot')) return null;
+			try {
+				const coreModule = '@capacitor/core';
+				const { registerPlugin } = await import(/* @vite-ignore */ coreModule);
+				return registerPlugin('OrderSnapshot');
+			} catch (err) {
+				logger.warn('⚠️ Plugin OrderSnapshot no disponible:', err);
+				return null;
+			}
+		})();
+	}
+	return pluginPromise;
+};
+
+/**
+ * Filas guardadas para el driver y la empresa, o null si no hay snapshot reciente
+ * @returns {Promise<{ rows: Object[], savedAt: number } | null>}
+ */
+export async function loadOrderSnapshot(driverId, companyId) {
+	const plugin = await getPlugin();
+	if (!plugin || !driverId) return null;
+	try {
+		const result = await plugin.load({
+			driverId: String(driverId),
+			companyId: companyId != null ? String(companyId) : null,
+		});
+		if (!result.found || Date.now() - result.savedAt > MAX_SNAPSHOT_AGE_MS) return null;
+		return { rows: JSON.parse(result.rows), savedAt: result.savedAt };
+	} catch (err) {
+		logger.warn('⚠️ No se pudo leer el snapshot de pedidos:', err);
+		return null;
+	}
+}
+
+/**
+ * Reemplaza el snapshot con las filas de una carga completa (tal como las devuelve Supabase)
+ */
+export async function saveOrderSnapshot(driverId, companyId, rows) {
+	const plugin = await getPlugin();
+	if (!plugin || !driverId) return;
+	try {
+		await plugin.replace({
+			driverId: String(driverId),
+			companyId: companyId != null ? String(companyId) : null,
+			rows,
+		});
+	} catch (err) {
+		logger.warn('⚠️ No se pudo guardar el snapshot de pedidos:', err);
+	}
+}
+
+/**
+ * Borra el snapshot (al cerrar sesión)
+ */
+export async function clearOrderSnapshot() {
+	const plugin = await getPlugin();
+	if (plugin) {
+		await plugin.clear().catch(() => {});
+	}
+}
@@ -0,0 +1,93 @@
+/**
+ * ETA y avance del driver calculados en el dispositivo (plugin RouteProgress de Android).
+ * La ruta de cada tramo (hasta el local o hasta la entrega) se pide una sola vez; Android
+ * proyecta sobre ella cada posición GPS y solo pide otra ruta si el driver se sale del camino.
+ * En web no hay ETA en vivo y el mapa muestra solo la ruta del pedido.
+ */
+
+import { getCapacitorModules } from '../utils/utils';
+import { logger } from '../utils/logger';
+
+let pluginPromise = null;
+
+const getPlugin = () => {
+	if (!pluginPromise) {
+		pluginPromise = (async () => {
+			const modules = await getCapacitorModules();
+			if (!modules || !modules.Capacitor.isNativePlatform()) return null;
+			if (!modules.Capacitor.isPluginAvailable('RouteProgress')) return null;
+			try {
+				const coreModule = '@capacitor/core';
+				const { registerPlugin } = await import(/* @vite-ignore */ coreModule);
+				return registerPlugin('RouteProgress');
+			} catch (err) {
+				logger.warn('⚠️ Plugin RouteProgress no disponible:', err);
+				return null;
+			}
+		})();
+	}
+	return pluginPromise;
+};
+
+/**
+ * Empieza un tramo hacia el destino desde la última posición conocida del driver
+ * @returns {Promise<{ geometry: Object, remainingKm: number, etaMin: number } | null>}
+ *   null en web, sin posición del driver o sin ruta
+ */
+export async function startRouteLeg(legId, toLat, toLon) {
+	const plugin = await getPlugin();
+	if (!plugin) return null;
+	try {
+		const result = await plugin.startLeg({ legId, toLat, toLon });
+		if (!result.found) return null;
+		return { geometry: result.geometry, remainingKm: result.remainingKm, etaMin: result.etaMin };
+	} catch (err) {
+		logger.warn('⚠️ No se pudo iniciar el tramo:', err);
+		return null;
+	}
+}
+
+/**
+ * Informa la posición del driver conocida por el WebView (se suma a la del tracking nativo)
+ */
+export async function reportDriverPosition(lat, lon) {
+	const plugin = await getPlugin();
+	if (!plugin || lat == null || lon == null) return;
+	try {
+		await plugin.update({ lat, lon });
+	} catch (err) {
+		logger.warn('⚠️ No se pudo informar la posición:', err);
+	}
+}
+
+/**
+ * Escucha el avance de un tramo
+ * @param {(progress: { remainingKm: number, etaMin: number, offRoute: boolean, arrived: boolean, geometry?: Object }) => void} handler
+ *        geometry solo viene cuando la ruta se recalculó
+ * @returns {Promise<(() => void) | null>} función para dejar de escuchar, o null sin plugin
+ */
+export async function subscribeRouteProgress(legId, handler) {
+	const plugin = await getPlugin();
+	if (!plugin) return null;
+	try {
+		const listener = await plugin.addListener('routeProgress', (progress) => {
+			if (progress?.legId === legId) handler(progress);
+		});
+		return () => {
+			listener.remove().catch(() => {});
+		};
+	} catch (err) {
+		logger.warn('⚠️ No se pudo escuchar el avance del tramo:', err);
+		return null;
+	}
+}
+
+export async function endRouteLeg(legId) {
+	const plugin = await getPlugin();
+	if (!plugin) return;
+	try {
+		await plugin.endLeg({ legId });
+	} catch (err) {
+		logger.warn('⚠️ No se pudo terminar el tramo:', err);
+	}
+}
@@ -1,8 +1,10 @@
 import { logger } from '../utils/logger';
+import { nativeRoute } from './geoCache';
 
 /**
  * Servicio de rutas usando OSRM (Open Source Routing Machine)
  * Gratuito y sin API key
+ * En Android la consulta pasa por el plugin GeoCache, que guarda las rutas en disco
  */
 
 /**
@@ -14,6 +16,11 @@ import { logger } from '../utils/logger';
  * @returns {Promise<{distance: number, duration: number, geometry: Array} | null>} Información de la ruta
  */
 export async function getRoute(lat1, lon1, lat2, lon2) {
+	const cachedRoute = await nativeRoute(lat1, lon1, lat2, lon2);
+	if (cachedRoute !== undefined) {
+		return cachedRoute;
+	}
+
 	try {
 		const url = `https://router.project-osrm.org/route/v1/driving/${lon1},${lat1};${lon2},${lat2}?overview=full&geometries=geojson`;
 
@@ -1,5 +1,6 @@
 import { supabase } from '../utils/supabase';
 import { logger } from '../utils/logger';
+import { messagesAfterFilter } from './chatStore';
 
 /**
  * ============================================
@@ -68,19 +69,25 @@ export async function getOrCreateSupportChat(driverId) {
 
 /**
  * Obtiene todos los mensajes de un chat de soporte
+ * @param {{ created_at: string, id: any } | null} since - con la copia local, solo los mensajes posteriores a este
  */
-export async function getSupportChatMessages(chatId) {
+export async function getSupportChatMessages(chatId, since = null) {
 	try {
 		if (!chatId) {
 			logger.warn('⚠️ getSupportChatMessages: chatId no proporcionado');
 			return [];
 		}
 
-		const { data, error } = await supabase
+		let query = supabase
 			.from('support_chat_messages')
 			.select('*')
-			.eq('chat_id', chatId)
-			.order('created_at', { ascending: true });
+			.eq('chat_id', chatId);
+		if (since) {
+			query = query.or(messagesAfterFilter(since));
+		}
+		const { data, error } = await query
+			.order('created_at', { ascending: true })
+			.order('id', { ascending: true });
 
 		if (error) {
 			logger.error('❌ Error en getSupportChatMessages:', error);
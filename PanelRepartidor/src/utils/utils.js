@@ -129,6 +129,16 @@ export async function geocodeAddress(address) {
 	return geocodeWithNominatim(address);
 }
 
+/**
+ * Coordenadas de una dirección solo si ya están en cache (sin red)
+ * @param {string} address - Dirección
+ * @returns {Promise<{lat: number, lon: number} | null>}
+ */
+export async function getCachedCoordinates(address) {
+	const { getCachedCoordinates: fromCache } = await import('../services/geocodingService');
+	return fromCache(address);
+}
+
 /**
  * Verifica si Capacitor está disponible (solo en runtime)
  * @returns {Promise<{Geolocation: any, Capacitor: any} | null>}
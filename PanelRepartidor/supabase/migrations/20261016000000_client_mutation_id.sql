@@ -0,0 +1,15 @@
+-- Idempotencia de la cola offline del repartidor.
+-- Los inserts encolados sin red llevan un UUID generado en el dispositivo y se envían con
+-- on_conflict=client_mutation_id y resolution=ignore-duplicates: si se pierde la respuesta y la
+-- cola reintenta, el servidor descarta la fila repetida en vez de duplicarla.
+-- Las filas insertadas online quedan con NULL (un índice único admite varios NULL).
+
+alter table public.order_status_history
+	add column if not exists client_mutation_id uuid;
+create unique index if not exists order_status_history_client_mutation_id_key
+	on public.order_status_history (client_mutation_id);
+
+alter table public.order_chat_messages
+	add column if not exists client_mutation_id uuid;
+create unique index if not exists order_chat_messages_client_mutation_id_key
+	on public.order_chat_messages (client_mutation_id);